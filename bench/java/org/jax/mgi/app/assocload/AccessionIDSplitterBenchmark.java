@@ -0,0 +1,282 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Random;
+import java.util.Vector;
+
+import org.jax.mgi.dbs.mgd.AccessionLib;
+
+/**
+ * <pre>
+ * Purpose: Compare the time it takes to split accession IDs into their
+ *          prefix and numeric parts using the AccessionIDSplitter and using
+ *          AccessionLib.splitAccID(), on a mix of accession IDs like the
+ *          ones in the association load input files.
+ *
+ * Usage:
+ *
+ *     ant -f bench/build.xml jar
+ *     java -cp bench/build/benchmarks.jar:${CLASSPATH} org.jax.mgi.app.assocload.AccessionIDSplitterBenchmark [ids]
+ *
+ *     The corpus has the given number of accession IDs (default 1000000):
+ *     mostly Ensembl, RefSeq and GenBank IDs, with some MGI, UniProt,
+ *     versioned RefSeq and all-numeric (EntrezGene) IDs.  The parts from
+ *     both methods are compared for every accession ID, then each method
+ *     is timed over the whole corpus.  The CLASSPATH is the one set by
+ *     AssocLoad.config.
+ * </pre>
+ * @author dbm
+ * @version 1.0
+ */
+
+public class AccessionIDSplitterBenchmark
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The amount of time to spend timing each method.
+    //
+    private static final long TIME_PER_METHOD = 3000000000L;
+
+    // The prefixes of the corpus, the number of digits after each one and
+    // how many accession IDs out of 100 have each one. An empty prefix
+    // gives all-numeric accession IDs, and a "." in the number of digits
+    // gives a versioned accession ID.
+    //
+    private static final String[] PREFIXES =
+        { "ENSMUSP", "ENSMUST", "ENSMUSG", "NM_", "NM_", "XM_", "NP_", "XP_",
+          "NR_", "AK", "BC", "AA", "MGI:", "Q", "NM_", "" };
+    private static final String[] DIGITS =
+        { "11", "11", "11", "6", "9", "9", "6", "9",
+          "6", "6", "6", "6", "7", "5", "6.1", "6" };
+    private static final int[] WEIGHTS =
+        { 14, 12, 10, 12, 6, 8, 8, 6,
+          3, 6, 5, 2, 3, 2, 1, 2 };
+
+    // The accession IDs.
+    //
+    private static String[] accIDs;
+
+    // A value computed from the parts so the work cannot be optimized away.
+    //
+    private static long checksum = 0;
+
+
+    /**
+     * Run the benchmark.
+     * @assumes Nothing
+     * @effects Writes the timings to standard output.
+     * @param args The number of accession IDs in the corpus (optional).
+     * @return Nothing
+     * @throws Nothing
+     */
+    public static void main (String[] args)
+    {
+        int ids = 1000000;
+        if (args.length > 0)
+            ids = Integer.parseInt(args[0]);
+
+        makeCorpus(ids);
+
+        AccessionIDSplitter splitter = new AccessionIDSplitter();
+        AccessionIDSplitter.Parts parts = new AccessionIDSplitter.Parts();
+
+        int different = compare(splitter, parts);
+
+        double fast = timeSplitter(splitter, parts);
+        double lib = timeAccessionLib();
+
+        System.out.println("accession IDs:          " + ids);
+        System.out.println("different parts:        " + different);
+        System.out.println("prefixes kept:          " +
+                           splitter.getPrefixCount());
+        System.out.println("split without lib (%):  " +
+                           pad(100.0 * splitter.getFastCount() /
+                               (splitter.getFastCount() +
+                                splitter.getLibCount()), 0));
+        System.out.println("splitter (ns/ID):       " + pad(fast, 0));
+        System.out.println("AccessionLib (ns/ID):   " + pad(lib, 0));
+        System.out.println("speedup:                " + pad(lib / fast, 0));
+
+        if (checksum == 42)
+            System.out.println();
+    }
+
+    /**
+     * Create the accession IDs.
+     * @assumes Nothing
+     * @effects Sets the accession ID array.
+     * @param ids The number of accession IDs.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private static void makeCorpus (int ids)
+    {
+        Random random = new Random(ids);
+
+        int total = 0;
+        for (int i=0; i<WEIGHTS.length; i++)
+            total += WEIGHTS[i];
+
+        accIDs = new String[ids];
+        StringBuffer sb = new StringBuffer();
+        for (int n=0; n<ids; n++)
+        {
+            int w = random.nextInt(total);
+            int i = 0;
+            while (w >= WEIGHTS[i])
+                w -= WEIGHTS[i++];
+
+            sb.setLength(0);
+            sb.append(PREFIXES[i]);
+
+            // UniProt IDs have digits and letters after the first letter.
+            //
+            if (PREFIXES[i].equals("Q"))
+                sb.append(random.nextInt(10)).append('D')
+                  .append(random.nextInt(10)).append('B');
+
+            String digits = DIGITS[i];
+            int version = digits.indexOf('.');
+            int count = Integer.parseInt(version < 0 ?
+                                         digits : digits.substring(0, version));
+            for (int d=0; d<count; d++)
+            {
+                // All-numeric IDs do not start with a zero, and the others
+                // are padded with zeros like the real ones.
+                //
+                if (d == 0 && PREFIXES[i].length() == 0)
+                    sb.append(1 + random.nextInt(9));
+                else if (d < count / 2 && count > 6)
+                    sb.append('0');
+                else
+                    sb.append(random.nextInt(10));
+            }
+            if (version >= 0)
+                sb.append('.').append(1 + random.nextInt(3));
+
+            accIDs[n] = sb.toString();
+        }
+    }
+
+    /**
+     * Compare the parts from both methods for every accession ID.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param splitter The splitter.
+     * @param parts The object for the parts.
+     * @return The number of accession IDs whose parts are different.
+     * @throws Nothing
+     */
+    private static int compare (AccessionIDSplitter splitter,
+                                AccessionIDSplitter.Parts parts)
+    {
+        int different = 0;
+        for (int i=0; i<accIDs.length; i++)
+        {
+            splitter.split(accIDs[i], parts);
+            Vector vParts = AccessionLib.splitAccID(accIDs[i]);
+            String prefixPart = (String)vParts.get(0);
+            Integer numericPart = (Integer)vParts.get(1);
+
+            boolean same =
+                (prefixPart == null ? parts.getPrefixPart() == null :
+                                      prefixPart.equals(parts.getPrefixPart())) &&
+                (numericPart == null ? !parts.hasNumericPart() :
+                                       parts.hasNumericPart() &&
+                                       numericPart.intValue() ==
+                                       parts.getNumericPart());
+            if (!same)
+            {
+                if (different < 10)
+                    System.out.println("Different parts for " + accIDs[i]);
+                different++;
+            }
+        }
+        return different;
+    }
+
+    /**
+     * Time the AccessionIDSplitter.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param splitter The splitter.
+     * @param parts The object for the parts.
+     * @return The average time per accession ID in nanoseconds.
+     * @throws Nothing
+     */
+    private static double timeSplitter (AccessionIDSplitter splitter,
+                                        AccessionIDSplitter.Parts parts)
+    {
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do
+        {
+            for (int i=0; i<accIDs.length; i++)
+            {
+                splitter.split(accIDs[i], parts);
+                checksum += parts.getNumericPart() + parts.getPrefixEnd();
+            }
+            count += accIDs.length;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < TIME_PER_METHOD);
+
+        return (double)elapsed / count;
+    }
+
+    /**
+     * Time AccessionLib.splitAccID().
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The average time per accession ID in nanoseconds.
+     * @throws Nothing
+     */
+    private static double timeAccessionLib ()
+    {
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do
+        {
+            for (int i=0; i<accIDs.length; i++)
+            {
+                Vector vParts = AccessionLib.splitAccID(accIDs[i]);
+                Integer numericPart = (Integer)vParts.get(1);
+                if (numericPart != null)
+                    checksum += numericPart.intValue();
+            }
+            count += accIDs.length;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < TIME_PER_METHOD);
+
+        return (double)elapsed / count;
+    }
+
+    /**
+     * Right-justify a number in a field.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param value The number.
+     * @param width The width of the field.
+     * @return The formatted number.
+     * @throws Nothing
+     */
+    private static String pad (double value, int width)
+    {
+        String s;
+        if (value >= 100 || value == Math.rint(value))
+            s = String.valueOf(Math.round(value));
+        else
+            s = String.valueOf(Math.round(value * 10) / 10.0);
+
+        while (s.length() < width)
+            s = " " + s;
+        return s;
+    }
+}
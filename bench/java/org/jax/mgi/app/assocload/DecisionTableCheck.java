@@ -0,0 +1,322 @@
+package org.jax.mgi.app.assocload;
+
+/**
+ * <pre>
+ * Purpose: Verify that the DiscrepancyDecisionTable gives the same action and
+ *          discrepancy message as the original if/else rules from
+ *          MGIAssociationProcessor.process() for every combination of counts
+ *          from 0 to MAX_COUNT, and dump the tables.
+ *
+ * Usage:
+ *
+ *     ant -f bench/build.xml jar
+ *     java -cp bench/build/benchmarks.jar:${CLASSPATH} org.jax.mgi.app.assocload.DecisionTableCheck [-dump]
+ *
+ *     The exit code is 0 if the tables match the original rules, otherwise 1.
+ * </pre>
+ * @author dbm
+ * @version 1.0
+ */
+
+public class DecisionTableCheck
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The largest count that is checked.
+    //
+    private static final int MAX_COUNT = 5;
+
+
+    /**
+     * Run the check.
+     * @assumes Nothing
+     * @effects Writes any differences (and the tables if requested) to
+     *          standard output.
+     * @param args "-dump" to also write the tables.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public static void main (String[] args)
+    {
+        int checked = 0;
+        int errors = 0;
+
+        if (args.length > 0 && args[0].equals("-dump"))
+            System.out.println(DiscrepancyDecisionTable.dump());
+
+        for (int st=0; st<=MAX_COUNT; st++)
+        {
+            for (int dt=0; dt<=MAX_COUNT; dt++)
+            {
+                String expected = legacyTarget(st, dt);
+                String actual = DiscrepancyDecisionTable.getTargetMsg(st, dt);
+                checked++;
+                if (!same(expected, actual))
+                {
+                    errors++;
+                    System.out.println("Target (" + st + "," + dt + "): " +
+                                       "expected " + expected + ", got " +
+                                       actual);
+                }
+
+                for (int so=0; so<=MAX_COUNT; so++)
+                {
+                    for (int policy=DiscrepancyDecisionTable.SINGLE_DB;
+                         policy<=DiscrepancyDecisionTable.MULTIPLE_DB; policy++)
+                    {
+                        Object[] legacy = legacyAssoc(policy, st, so, dt);
+                        int d = DiscrepancyDecisionTable.index(policy, st, so, dt);
+                        int action = DiscrepancyDecisionTable.getAction(d);
+                        String msg = DiscrepancyDecisionTable.getAssocMsg(d);
+                        checked++;
+                        if (((Integer)legacy[0]).intValue() != action ||
+                            !same((String)legacy[1], msg))
+                        {
+                            errors++;
+                            System.out.println("Associate (" + policy + "," +
+                                               st + "," + so + "," + dt +
+                                               "): expected " + legacy[0] +
+                                               "/" + legacy[1] + ", got " +
+                                               action + "/" + msg);
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println("Checked " + checked + " combinations, " + errors +
+                           " differences");
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    /**
+     * The original target discrepancy rules.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param st The same type count.
+     * @param dt The different type count.
+     * @return The message or null.
+     * @throws Nothing
+     */
+    private static String legacyTarget (int st, int dt)
+    {
+        String msg = null;
+
+        if (st == 0 && dt == 0)
+            msg = AssociationLoadConstants.TARGET_DISCREP_A;
+        else if (st == 0 && dt == 1)
+            msg = AssociationLoadConstants.TARGET_DISCREP_B;
+        else if (st == 0 && dt > 1)
+            msg = AssociationLoadConstants.TARGET_DISCREP_C;
+        else if (st == 1 && dt == 1)
+            msg = AssociationLoadConstants.TARGET_DISCREP_D;
+        else if (st == 1 && dt > 1)
+            msg = AssociationLoadConstants.TARGET_DISCREP_E;
+        else if (st > 1 && dt == 0)
+            msg = AssociationLoadConstants.TARGET_DISCREP_F;
+        else if (st > 1 && dt == 1)
+            msg = AssociationLoadConstants.TARGET_DISCREP_G;
+        else if (st > 1 && dt > 1)
+            msg = AssociationLoadConstants.TARGET_DISCREP_H;
+
+        return msg;
+    }
+
+    /**
+     * The original associate discrepancy rules.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param policy The logical DB policy.
+     * @param st The same type count.
+     * @param so The same object count.
+     * @param dt The different type count.
+     * @return The action (as an Integer) and the message.
+     * @throws Nothing
+     */
+    private static Object[] legacyAssoc (int policy, int st, int so, int dt)
+    {
+        int action = 0;
+        String msg = null;
+
+        // Determine the action for a logical DB that is allowed to have
+        // only one association.
+        //
+        if (policy == DiscrepancyDecisionTable.SINGLE_DB)
+        {
+            if (st == 0 && dt == 0)
+            {
+                action = AssociationLoadConstants.ACTION_ASSOCIATE;
+            }
+            else if (st == 0 && dt == 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_A;
+            }
+            else if (st == 0 && dt > 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_B;
+            }
+            else if (st == 1 && so == 1 &&
+                     dt == 0)
+            {
+                action = AssociationLoadConstants.ACTION_SKIP;
+            }
+            else if (st == 1 && so == 1 &&
+                     dt == 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_C;
+            }
+            else if (st == 1 && so == 1 &&
+                     dt > 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_D;
+            }
+            else if (st == 1 && so == 0 &&
+                     dt == 0)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_E;
+            }
+            else if (st == 1 && so == 0 &&
+                     dt == 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_F;
+            }
+            else if (st == 1 && so == 0 &&
+                     dt > 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_G;
+            }
+            else if (st > 1 && so == 1 &&
+                     dt == 0)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_H;
+            }
+            else if (st > 1 && so == 1 &&
+                     dt == 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_I;
+            }
+            else if (st > 1 && so == 1 &&
+                     dt > 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_J;
+            }
+            else if (st > 1 && so == 0 &&
+                     dt == 0)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_K;
+            }
+            else if (st > 1 && so == 0 &&
+                     dt == 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_L;
+            }
+            else if (st > 1 && so == 0 &&
+                     dt > 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_M;
+            }
+        }
+
+        // Determine the action for a logical DB that is allowed to have
+        // multiple associations.
+        //
+        else if (policy == DiscrepancyDecisionTable.MULTIPLE_DB)
+        {
+            if (st == 0)
+            {
+                action = AssociationLoadConstants.ACTION_ASSOCIATE;
+            }
+            else if (st == 1 && so == 1)
+            {
+                action = AssociationLoadConstants.ACTION_SKIP;
+            }
+            else if (st == 1 && so == 0 &&
+                     dt == 0)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_E;
+            }
+            else if (st == 1 && so == 0 &&
+                     dt == 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_F;
+            }
+            else if (st == 1 && so == 0 &&
+                     dt > 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_G;
+            }
+            else if (st > 1 && so == 1 &&
+                     dt == 0)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_H;
+            }
+            else if (st > 1 && so == 1 &&
+                     dt == 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_I;
+            }
+            else if (st > 1 && so == 1 &&
+                     dt > 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_SKIP;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_J;
+            }
+            else if (st > 1 && so == 0 &&
+                     dt == 0)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_K;
+            }
+            else if (st > 1 && so == 0 &&
+                     dt == 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_L;
+            }
+            else if (st > 1 && so == 0 &&
+                     dt > 1)
+            {
+                action = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
+                msg = AssociationLoadConstants.ASSOC_DISCREP_M;
+            }
+        }
+
+        return new Object[] {new Integer(action), msg};
+    }
+
+    /**
+     * Compare two messages that may be null.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param s1 The first message.
+     * @param s2 The second message.
+     * @return True if they are the same.
+     * @throws Nothing
+     */
+    private static boolean same (String s1, String s2)
+    {
+        if (s1 == null)
+            return s2 == null;
+        return s1.equals(s2);
+    }
+}
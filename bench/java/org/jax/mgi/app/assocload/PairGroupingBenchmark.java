@@ -0,0 +1,337 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Random;
+import java.util.Vector;
+
+/**
+ * <pre>
+ * Purpose: Compare the time it takes to group the rows of a MGIAssociation
+ *          object by distinct accession ID/logical DB pair and count their
+ *          associations, using the AssociationPairAccumulator and using the
+ *          original Vector.indexOf()/nested loop algorithm from
+ *          MGIAssociationProcessor.process().
+ *
+ * Usage:
+ *
+ *     ant -f bench/build.xml jar
+ *     java -cp bench/build/benchmarks.jar:${CLASSPATH} org.jax.mgi.app.assocload.PairGroupingBenchmark [maxRows]
+ *
+ *     Each record has one target row and (rows - 1) non-target rows, where
+ *     each distinct pair appears on two rows (an accession ID associated
+ *     with two objects).  The record sizes go from 10 rows up to maxRows
+ *     (default 100000) by factors of 10.  The counts from both algorithms
+ *     are compared for each size.  The CLASSPATH is the one set by
+ *     AssocLoad.config.
+ * </pre>
+ * @author dbm
+ * @version 1.0
+ */
+
+public class PairGroupingBenchmark
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The amount of time to spend timing each algorithm for each size.
+    //
+    private static final long TIME_PER_SIZE = 1000000000L;
+
+    // The target type and object used for the counts.
+    //
+    private static final int TARGET_TYPE = 2;
+    private static final int TARGET_OBJECT = 1000;
+
+    private static String[] STRING_ARRAY = new String[0];
+    private static Integer[] INTEGER_ARRAY = new Integer[0];
+
+    // The rows of the record being timed, as arrays for the original
+    // algorithm and as a MGIAssociation object for the accumulator.
+    //
+    private static MGIAssociation assoc = new MGIAssociation("Marker",
+                                                             TARGET_TYPE);
+    private static String[] accIDs;
+    private static Integer[] logicalDBKeys;
+    private static Boolean[] targets;
+    private static Integer[] mgiTypeKeys;
+    private static Integer[] objectKeys;
+
+    // A value computed from the counts so the work cannot be optimized away.
+    //
+    private static long checksum = 0;
+
+
+    /**
+     * Run the benchmark.
+     * @assumes Nothing
+     * @effects Writes the timings to standard output.
+     * @param args The maximum number of rows per record (optional).
+     * @return Nothing
+     * @throws Nothing
+     */
+    public static void main (String[] args)
+    {
+        int maxRows = 100000;
+        if (args.length > 0)
+            maxRows = Integer.parseInt(args[0]);
+
+        AssociationPairAccumulator pairs = new AssociationPairAccumulator();
+
+        System.out.println("     rows  hash (us/record)  legacy (us/record)  " +
+                           "speedup  counts");
+
+        for (int rows=10; rows<=maxRows; rows*=10)
+        {
+            makeRecord(rows);
+
+            String same = compare(pairs) ? "same" : "DIFFERENT";
+
+            double hash = timeHash(pairs);
+            double legacy = timeLegacy();
+
+            System.out.println(pad(rows, 9) + pad(hash, 18) + pad(legacy, 20) +
+                               pad(legacy / hash, 9) + "  " + same);
+        }
+
+        if (checksum == 42)
+            System.out.println();
+    }
+
+    /**
+     * Create the rows for a record.
+     * @assumes Nothing
+     * @effects Sets the row arrays.
+     * @param rows The number of rows.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private static void makeRecord (int rows)
+    {
+        Random random = new Random(rows);
+
+        accIDs = new String[rows];
+        logicalDBKeys = new Integer[rows];
+        targets = new Boolean[rows];
+        mgiTypeKeys = new Integer[rows];
+        objectKeys = new Integer[rows];
+
+        accIDs[0] = "NM_000001";
+        logicalDBKeys[0] = new Integer(27);
+        targets[0] = new Boolean(true);
+        mgiTypeKeys[0] = new Integer(TARGET_TYPE);
+        objectKeys[0] = new Integer(TARGET_OBJECT);
+
+        for (int i=1; i<rows; i++)
+        {
+            // Each pair appears on two consecutive rows.
+            //
+            int pair = (i - 1) / 2;
+            accIDs[i] = "ENSMUSP" + (100000 + pair);
+            logicalDBKeys[i] = new Integer(pair % 3 == 0 ? 134 : 60);
+            targets[i] = new Boolean(false);
+
+            int n = random.nextInt(4);
+            if (n == 0)
+            {
+                mgiTypeKeys[i] = null;
+                objectKeys[i] = null;
+            }
+            else
+            {
+                mgiTypeKeys[i] = new Integer(n == 1 ? 19 : TARGET_TYPE);
+                objectKeys[i] = new Integer(n == 3 ? TARGET_OBJECT :
+                                            random.nextInt(5000));
+            }
+        }
+
+        assoc.clear();
+        for (int i=0; i<rows; i++)
+        {
+            if (mgiTypeKeys[i] == null)
+                assoc.addRow(accIDs[i], logicalDBKeys[i].intValue(),
+                             targets[i].booleanValue());
+            else
+                assoc.addRow(accIDs[i], logicalDBKeys[i].intValue(),
+                             targets[i].booleanValue(),
+                             mgiTypeKeys[i].intValue(),
+                             objectKeys[i].intValue());
+        }
+    }
+
+    /**
+     * Check that both algorithms produce the same pairs and counts.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pairs The accumulator.
+     * @return True if the results are the same.
+     * @throws Nothing
+     */
+    private static boolean compare (AssociationPairAccumulator pairs)
+    {
+        pairs.group(assoc);
+        pairs.count(TARGET_TYPE, TARGET_OBJECT);
+
+        Vector result = legacy();
+        String[] distinctAccIDs = (String[])result.get(0);
+        Integer[] distinctLogicalDBKeys = (Integer[])result.get(1);
+        int[][] counts = (int[][])result.get(2);
+
+        if (distinctAccIDs.length != pairs.getPairCount())
+            return false;
+
+        for (int i=0; i<distinctAccIDs.length; i++)
+        {
+            if (!distinctAccIDs[i].equals(pairs.getAccID(i)) ||
+                distinctLogicalDBKeys[i].intValue() != pairs.getLogicalDBKey(i) ||
+                counts[0][i] != pairs.getSameTypeCount(i) ||
+                counts[1][i] != pairs.getDiffTypeCount(i) ||
+                counts[2][i] != pairs.getSameObjCount(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Time the AssociationPairAccumulator.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pairs The accumulator.
+     * @return The average time per record in microseconds.
+     * @throws Nothing
+     */
+    private static double timeHash (AssociationPairAccumulator pairs)
+    {
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do
+        {
+            pairs.group(assoc);
+            pairs.count(TARGET_TYPE, TARGET_OBJECT);
+            checksum += pairs.getPairCount();
+            count++;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < TIME_PER_SIZE);
+
+        return elapsed / 1000.0 / count;
+    }
+
+    /**
+     * Time the original algorithm.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The average time per record in microseconds.
+     * @throws Nothing
+     */
+    private static double timeLegacy ()
+    {
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do
+        {
+            checksum += ((String[])legacy().get(0)).length;
+            count++;
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < TIME_PER_SIZE);
+
+        return elapsed / 1000.0 / count;
+    }
+
+    /**
+     * The original grouping and counting from
+     * MGIAssociationProcessor.process().
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return A vector containing the distinct accession IDs, the distinct
+     *         logical DB keys and the same type, different type and same
+     *         object counts.
+     * @throws Nothing
+     */
+    private static Vector legacy ()
+    {
+        int i, j;
+        String pair = null;
+        Vector vAccIDs = new Vector();
+        Vector vLogicalDBKeys = new Vector();
+        Vector vPair = new Vector();
+
+        for (i=0; i<accIDs.length; i++)
+        {
+            if (targets[i].booleanValue() == true)
+                continue;
+
+            pair = accIDs[i] + "," + logicalDBKeys[i].intValue();
+            if (vPair.indexOf(pair) < 0)
+            {
+                vAccIDs.add(accIDs[i]);
+                vLogicalDBKeys.add(logicalDBKeys[i]);
+                vPair.add(pair);
+            }
+        }
+
+        String[] distinctAccIDs = (String[])vAccIDs.toArray(STRING_ARRAY);
+        Integer[] distinctLogicalDBKeys =
+            (Integer[])vLogicalDBKeys.toArray(INTEGER_ARRAY);
+
+        int[] sameTypeCount = new int[distinctAccIDs.length];
+        int[] diffTypeCount = new int[distinctAccIDs.length];
+        int[] sameObjCount = new int[distinctAccIDs.length];
+
+        for (i=0; i<distinctAccIDs.length; i++)
+        {
+            for (j=0; j<accIDs.length; j++)
+            {
+                if ((! accIDs[j].equals(distinctAccIDs[i])) ||
+                    logicalDBKeys[j].intValue() != distinctLogicalDBKeys[i].intValue())
+                    continue;
+
+                if (mgiTypeKeys[j] == null)
+                    continue;
+
+                if (mgiTypeKeys[j].intValue() == TARGET_TYPE)
+                {
+                    sameTypeCount[i]++;
+                    if (objectKeys[j].intValue() == TARGET_OBJECT)
+                        sameObjCount[i]++;
+                }
+                else
+                    diffTypeCount[i]++;
+            }
+        }
+
+        Vector result = new Vector();
+        result.add(distinctAccIDs);
+        result.add(distinctLogicalDBKeys);
+        result.add(new int[][] {sameTypeCount, diffTypeCount, sameObjCount});
+        return result;
+    }
+
+    /**
+     * Right-justify a number in a field.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param value The number.
+     * @param width The width of the field.
+     * @return The formatted number.
+     * @throws Nothing
+     */
+    private static String pad (double value, int width)
+    {
+        String s;
+        if (value >= 100 || value == Math.rint(value))
+            s = String.valueOf(Math.round(value));
+        else
+            s = String.valueOf(Math.round(value * 10) / 10.0);
+
+        while (s.length() < width)
+            s = " " + s;
+        return s;
+    }
+}
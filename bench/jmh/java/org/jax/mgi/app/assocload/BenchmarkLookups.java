@@ -0,0 +1,128 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import org.jax.mgi.shr.dla.log.DLALogger;
+
+/**
+ * @is A StartupLookups object with fixed results, so the benchmarks can
+ *     create interpreters and processors without the MGD database.
+ * @has
+ *   <UL>
+ *   <LI> The Marker target type, a reference key and one logical DB that
+ *        may be associated with single objects and one that may be
+ *        associated with multiple objects.
+ *   <LI> A key for each logical DB name it is asked for.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Overrides the methods of a StartupLookups object to return the
+ *        fixed results without resolving anything.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class BenchmarkLookups extends StartupLookups
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The target type and its key.
+    //
+    public static final String TARGET_TYPE = "Marker";
+    public static final int TARGET_TYPE_KEY = 2;
+
+    // The logical DB of the target accession IDs, the logical DB that may
+    // only be associated with one object and the one that may be
+    // associated with multiple objects.
+    //
+    public static final int TARGET_DB = 1;
+    public static final int SINGLE_DB = 9;
+    public static final int MULTIPLE_DB = 60;
+
+    // The key given to the first logical DB name that is asked for.
+    //
+    private static final int FIRST_NAMED_DB = 1000;
+
+    private List singleDB = null;
+    private List multipleDB = null;
+    private Map logicalDBKeys = new HashMap();
+
+
+    /**
+     * Constructs a BenchmarkLookups object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger to write messages to.
+     * @throws Nothing
+     */
+    public BenchmarkLookups (DLALogger pLogger)
+    {
+        super(pLogger, null, null);
+
+        Vector v = new Vector();
+        v.add(new Integer(TARGET_DB));
+        v.add(new Integer(SINGLE_DB));
+        singleDB = Collections.unmodifiableList(v);
+
+        v = new Vector();
+        v.add(new Integer(MULTIPLE_DB));
+        multipleDB = Collections.unmodifiableList(v);
+    }
+
+    public synchronized void start ()
+    {
+    }
+
+    public synchronized void waitForLookups ()
+    {
+    }
+
+    public String getTargetType ()
+    {
+        return TARGET_TYPE;
+    }
+
+    public int getTargetTypeKey ()
+    {
+        return TARGET_TYPE_KEY;
+    }
+
+    public Integer getRefsKey ()
+    {
+        return new Integer(1);
+    }
+
+    public Boolean getPrivateAccID ()
+    {
+        return new Boolean(false);
+    }
+
+    public List getSingleDB ()
+    {
+        return singleDB;
+    }
+
+    public List getMultipleDB ()
+    {
+        return multipleDB;
+    }
+
+    public synchronized Integer getLogicalDBKey (String name)
+    {
+        Integer key = (Integer)logicalDBKeys.get(name);
+        if (key == null)
+        {
+            key = new Integer(FIRST_NAMED_DB + logicalDBKeys.size());
+            logicalDBKeys.put(name, key);
+        }
+        return key;
+    }
+}
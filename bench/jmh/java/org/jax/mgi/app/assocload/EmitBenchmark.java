@@ -0,0 +1,129 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @is A benchmark of writing the output decided for a MGIAssociation object
+ *     (the associations made by associate() and the discrepancies sent to
+ *     the AssociationLoadReporter) without a database.
+ * @has
+ *   <UL>
+ *   <LI> A processor that adds the associations to a MGDCopyPipeline that
+ *        throws the encoded rows away, and a reporter that writes to a
+ *        null stream.
+ *   <LI> The output decided for a set of MGIAssociation objects, which is
+ *        written in turn.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Measures the average time to write the output for one
+ *        MGIAssociation object. The rows are encoded and passed to the
+ *        writer threads as in a load with ASSOCLOAD_MGD_COPY, with the
+ *        accession keys taken from a counter.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmitBenchmark
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The number of MGIAssociation objects (a power of 2).
+    //
+    private static final int RECORDS = 1024;
+
+    // The number of rows in each MGIAssociation object and the mix of
+    // discrepancies (see SyntheticAssociations).
+    //
+    @Param({"10", "100"})
+    public int rows;
+
+    @Param({SyntheticAssociations.CLEAN, SyntheticAssociations.MIXED,
+            SyntheticAssociations.DISCREPANT})
+    public String mix;
+
+    // The number of associations in each batch of the pipeline.
+    //
+    private static final int BATCH_SIZE = 100000;
+
+    // The MGI user key for the records and the first accession and
+    // PRB_Reference keys.
+    //
+    private static final int USER_KEY = 1000;
+    private static final int FIRST_KEY = 1;
+
+    private NullSQLStream loadStream = new NullSQLStream();
+    private NullSQLStream qcStream = new NullSQLStream();
+    private MGDCopyPipeline copyPipeline = null;
+    private MGIAssociationProcessor processor = null;
+    private MGIAssociationOutput[] outputs = new MGIAssociationOutput[RECORDS];
+    private int next = 0;
+
+
+    @Setup
+    public void setup ()
+        throws MGIException
+    {
+        DLALogger logger = DLALogger.getInstance();
+        processor = new MGIAssociationProcessor(loadStream, logger,
+            new AssociationLoadReporter(qcStream, logger),
+            new BenchmarkLookups(logger));
+
+        // The job stream name is only used to look up the MGI user in the
+        // database, so it is not needed.
+        //
+        copyPipeline = new MGDCopyPipeline(logger,
+            new LocalAccessionKeys(logger, FIRST_KEY), null, BATCH_SIZE);
+        copyPipeline.startDiscarding(USER_KEY, FIRST_KEY);
+        processor.setCopyPipeline(copyPipeline);
+
+        MGIAssociation[] assocs =
+            SyntheticAssociations.create(RECORDS, rows, mix, rows);
+        for (int i=0; i<RECORDS; i++)
+        {
+            outputs[i] = new MGIAssociationOutput();
+            processor.decide(assocs[i], outputs[i]);
+        }
+    }
+
+    @Benchmark
+    public long apply ()
+        throws MGIException
+    {
+        processor.apply(outputs[next]);
+        next = (next + 1) & (RECORDS - 1);
+        return copyPipeline.getAccessionCount() + qcStream.getCount();
+    }
+
+    @TearDown
+    public void tearDown ()
+        throws MGIException
+    {
+        copyPipeline.finish();
+    }
+}
@@ -0,0 +1,111 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @is A benchmark of DPAssociationInterpreter.interpret() on input records
+ *     with few (narrow) or many (wide) logical DB columns.
+ * @has
+ *   <UL>
+ *   <LI> An interpreter that has interpreted a header record.
+ *   <LI> A set of input records that are interpreted in turn.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Measures the average time to interpret one input record.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpretBenchmark
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The number of input records (a power of 2).
+    //
+    private static final int RECORDS = 1024;
+
+    // A narrow record has the target column and one other column, each
+    // with one accession ID. A wide record has 24 columns, where a column
+    // may be empty or have up to 3 comma-separated accession IDs.
+    //
+    @Param({"narrow", "wide"})
+    public String width;
+
+    private DPAssociationInterpreter interpreter = null;
+    private String[] records = new String[RECORDS];
+    private int next = 0;
+
+
+    @Setup
+    public void setup ()
+        throws MGIException
+    {
+        interpreter = new DPAssociationInterpreter(
+            new BenchmarkLookups(DLALogger.getInstance()));
+
+        boolean wide = width.equals("wide");
+        int fields = wide ? 24 : 2;
+
+        StringBuffer sb = new StringBuffer("MGI");
+        for (int i=1; i<fields; i++)
+            sb.append(AssociationLoadConstants.TAB).append("LogicalDB").append(i);
+        interpreter.interpret(sb.toString());
+
+        Random random = new Random(fields);
+        int nextID = 0;
+        for (int n=0; n<RECORDS; n++)
+        {
+            sb.setLength(0);
+            sb.append("MGI:").append(100000 + n);
+            for (int i=1; i<fields; i++)
+            {
+                sb.append(AssociationLoadConstants.TAB);
+                int ids = wide ? random.nextInt(4) : 1;
+                for (int j=0; j<ids; j++)
+                {
+                    if (j > 0)
+                        sb.append(AssociationLoadConstants.COMMA);
+                    sb.append(i % 2 == 0 ? "NM_" : "ENSMUSP")
+                      .append(SyntheticAssociations.pad(++nextID,
+                                                        i % 2 == 0 ? 6 : 11));
+                }
+            }
+            records[n] = sb.toString();
+        }
+    }
+
+    @Benchmark
+    public Object interpret ()
+        throws MGIException
+    {
+        Object assoc = interpreter.interpret(records[next]);
+        next = (next + 1) & (RECORDS - 1);
+        return assoc;
+    }
+}
@@ -0,0 +1,65 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An AccessionKeyReserver that hands out keys from a counter, so the
+ *     benchmarks can add associations to a MGDCopyPipeline without the MGD
+ *     database.
+ * @has
+ *   <UL>
+ *   <LI> The next key to hand out.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Overrides the reserve() method of an AccessionKeyReserver to take
+ *        the keys from the counter instead of reserving them in the
+ *        database.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class LocalAccessionKeys extends AccessionKeyReserver
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    private AtomicInteger next = null;
+
+
+    /**
+     * Constructs a LocalAccessionKeys object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger.
+     * @param pFirstKey The first key to hand out.
+     * @throws Nothing
+     */
+    public LocalAccessionKeys (DLALogger pLogger, int pFirstKey)
+    {
+        super(null, pLogger, null, 1);
+        next = new AtomicInteger(pFirstKey);
+    }
+
+    /**
+     * Get a range of contiguous accession keys from the counter.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param count The number of keys in the range.
+     * @return The first key in the range.
+     * @throws MGIException If the count is not positive.
+     */
+    public int reserve (int count)
+        throws MGIException
+    {
+        if (count < 1)
+            throw new MGIException("Invalid accession key count: " + count);
+        return next.getAndAdd(count);
+    }
+}
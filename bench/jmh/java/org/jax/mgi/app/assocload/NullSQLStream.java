@@ -0,0 +1,74 @@
+package org.jax.mgi.app.assocload;
+
+import org.jax.mgi.shr.dbutils.DBException;
+import org.jax.mgi.shr.dbutils.dao.DAO;
+import org.jax.mgi.shr.dbutils.dao.SQLStream;
+
+/**
+ * @is A stream that counts the DAOs passed to it and discards them, so the
+ *     benchmarks measure the cost of creating the output without writing
+ *     it anywhere.
+ * @has
+ *   <UL>
+ *   <LI> The number of DAOs inserted, updated and deleted.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Implements the methods of a SQLStream without doing anything but
+ *        counting.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class NullSQLStream extends SQLStream
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    private long count = 0;
+
+
+    public void insert (DAO dao)
+        throws DBException
+    {
+        count++;
+    }
+
+    public void update (DAO dao)
+        throws DBException
+    {
+        count++;
+    }
+
+    public void delete (DAO dao)
+        throws DBException
+    {
+        count++;
+    }
+
+    public void close ()
+        throws DBException
+    {
+    }
+
+    public boolean isBCP ()
+    {
+        return false;
+    }
+
+    /**
+     * Get the number of DAOs passed to the stream.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of DAOs.
+     * @throws Nothing
+     */
+    public long getCount ()
+    {
+        return count;
+    }
+}
@@ -0,0 +1,92 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @is A benchmark of deciding the output for a MGIAssociation object (the
+ *     processing done by MGIAssociationProcessor.process() before anything
+ *     is written), for objects of different sizes and discrepancy mixes.
+ * @has
+ *   <UL>
+ *   <LI> A processor that writes to null streams.
+ *   <LI> A set of MGIAssociation objects that are processed in turn.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Measures the average time to decide the output for one
+ *        MGIAssociation object. The target of each object is resolved the
+ *        first time it is processed and found in the target resolution
+ *        cache after that, as for a target that is on many input records.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessBenchmark
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The number of MGIAssociation objects (a power of 2).
+    //
+    private static final int RECORDS = 1024;
+
+    // The number of rows in each MGIAssociation object and the mix of
+    // discrepancies (see SyntheticAssociations).
+    //
+    @Param({"1", "10", "100", "1000"})
+    public int rows;
+
+    @Param({SyntheticAssociations.CLEAN, SyntheticAssociations.MIXED,
+            SyntheticAssociations.DISCREPANT})
+    public String mix;
+
+    private MGIAssociationProcessor processor = null;
+    private MGIAssociationOutput output = new MGIAssociationOutput();
+    private MGIAssociation[] assocs = null;
+    private int next = 0;
+
+
+    @Setup
+    public void setup ()
+        throws MGIException
+    {
+        DLALogger logger = DLALogger.getInstance();
+        processor = new MGIAssociationProcessor(new NullSQLStream(), logger,
+            new AssociationLoadReporter(new NullSQLStream(), logger),
+            new BenchmarkLookups(logger));
+        assocs = SyntheticAssociations.create(RECORDS, rows, mix, rows);
+    }
+
+    @Benchmark
+    public MGIAssociationOutput decide ()
+        throws MGIException
+    {
+        output.clear();
+        processor.decide(assocs[next], output);
+        next = (next + 1) & (RECORDS - 1);
+        return output;
+    }
+}
@@ -0,0 +1,147 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Random;
+
+/**
+ * @is A factory for MGIAssociation objects with a given number of rows and
+ *     mix of discrepancies, for the benchmarks.
+ * @has
+ *   <UL>
+ *   <LI> The names of the discrepancy mixes.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Creates MGIAssociation objects for the Marker target type from
+ *        the logical DBs of the BenchmarkLookups. Each one has a target row
+ *        and one row for each other accession ID/logical DB pair. A pair is
+ *        either new (no MGI object, so it is associated), already
+ *        associated with the target object, or a discrepancy (associated
+ *        with another marker in the single object logical DB, or with an
+ *        object of another type). A target discrepancy makes the target
+ *        an object of another type.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class SyntheticAssociations
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The discrepancy mixes: no discrepancies, a few of each kind, and many
+    // of each kind.
+    //
+    public static final String CLEAN = "clean";
+    public static final String MIXED = "mixed";
+    public static final String DISCREPANT = "discrepant";
+
+    // An MGI type that is not the target type.
+    //
+    private static final int OTHER_TYPE_KEY = 3;
+
+
+    /**
+     * Create MGIAssociation objects.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param count The number of objects.
+     * @param rows The number of rows in each object (at least 1).
+     * @param mix The discrepancy mix.
+     * @param seed The seed for the random choices.
+     * @return The MGIAssociation objects.
+     * @throws IllegalArgumentException If the mix is not known.
+     */
+    public static MGIAssociation[] create (int count, int rows, String mix,
+                                           long seed)
+    {
+        // The percentage of objects with a target discrepancy and of pairs
+        // with an association discrepancy.
+        //
+        int targetPct;
+        int pairPct;
+        if (mix.equals(CLEAN))
+        {
+            targetPct = 0;
+            pairPct = 0;
+        }
+        else if (mix.equals(MIXED))
+        {
+            targetPct = 5;
+            pairPct = 10;
+        }
+        else if (mix.equals(DISCREPANT))
+        {
+            targetPct = 30;
+            pairPct = 50;
+        }
+        else
+            throw new IllegalArgumentException("Unknown mix: " + mix);
+
+        Random random = new Random(seed);
+        MGIAssociation[] assocs = new MGIAssociation[count];
+        int nextID = 0;
+
+        for (int n=0; n<count; n++)
+        {
+            MGIAssociation assoc =
+                new MGIAssociation(BenchmarkLookups.TARGET_TYPE,
+                                   BenchmarkLookups.TARGET_TYPE_KEY);
+
+            int targetObject = 100000 + n;
+            assoc.addRow("MGI:" + targetObject, BenchmarkLookups.TARGET_DB,
+                         true,
+                         random.nextInt(100) < targetPct ?
+                             OTHER_TYPE_KEY : BenchmarkLookups.TARGET_TYPE_KEY,
+                         targetObject);
+
+            for (int i=1; i<rows; i++)
+            {
+                boolean single = random.nextBoolean();
+                String accID = (single ? "NM_" : "ENSMUSP") +
+                               pad(++nextID, single ? 6 : 11);
+                int logicalDBKey = single ? BenchmarkLookups.SINGLE_DB :
+                                            BenchmarkLookups.MULTIPLE_DB;
+
+                if (random.nextInt(100) < pairPct)
+                {
+                    if (single && random.nextBoolean())
+                        assoc.addRow(accID, logicalDBKey, false,
+                                     BenchmarkLookups.TARGET_TYPE_KEY,
+                                     targetObject + count);
+                    else
+                        assoc.addRow(accID, logicalDBKey, false,
+                                     OTHER_TYPE_KEY, random.nextInt(1000));
+                }
+                else if (random.nextInt(4) == 0)
+                    assoc.addRow(accID, logicalDBKey, false,
+                                 BenchmarkLookups.TARGET_TYPE_KEY,
+                                 targetObject);
+                else
+                    assoc.addRow(accID, logicalDBKey, false);
+            }
+
+            assocs[n] = assoc;
+        }
+        return assocs;
+    }
+
+    /**
+     * Pad a number with leading zeros.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param value The number.
+     * @param width The number of digits.
+     * @return The padded number.
+     * @throws Nothing
+     */
+    static String pad (int value, int width)
+    {
+        String s = String.valueOf(value);
+        while (s.length() < width)
+            s = "0" + s;
+        return s;
+    }
+}
@@ -24,7 +24,12 @@
 #       QC_AssocLoad_Assoc_Discrep table in the RADAR database.
 #
 # Usage:
-#       AssocDiscrepancyRpt.py  OutputDir  Server  RADAR  MGD  JobKey
+#       AssocDiscrepancyRpt.py  OutputDir  Server  RADAR  MGD  JobKey  [RowsFile]
+#
+#       RowsFile is a file with the rows of the report, written by the
+#       association loader when ASSOCLOAD_INPROCESS_RPT is true. If it
+#       is given, the rows are copied from it instead of being queried
+#       from the QC table.
 #
 # Notes:
 #
@@ -54,6 +59,9 @@ server=sys.argv[2]
 radarDB=sys.argv[3]
 mgdDB=sys.argv[4]
 jobKey=sys.argv[5]
+rowsFile=None
+if len(sys.argv) > 6:
+    rowsFile=sys.argv[6]
 
 reportWidth = 165;
  
@@ -74,83 +82,96 @@ fp.write('-------------------- -------------------- ' + \
          '-------------------- -------------------- ' + \
          '------------------------------------------------------------' + CRT)
 
-db.set_sqlServer(server)
-db.set_sqlDatabase(mgdDB)
-
-cmd = []
-cmd.append('select q._QCRecord_key, ' + \
-                  'q.tgtAccID as tgtAccID, db1.name as tgtLogicalDB, ' + \
-                  'm1.name as tgtMGIType, ' + \
-                  'q.accID as accID, db2.name as logicalDB, ' + \
-                  'm2.name as mgiType, ' + \
-                  'q.message ' + \
-           'from ' + radarDB + '.QC_AssocLoad_Assoc_Discrep q, ' + \
-                'ACC_LogicalDB db1, ' + \
-                'ACC_LogicalDB db2, ' + \
-                'ACC_MGIType m1, ' + \
-                'ACC_MGIType m2 ' + \
-           'where q._TgtLogicalDB_key = db1._LogicalDB_key and ' + \
-                 'q._TgtMGIType_key = m1._MGIType_key and ' + \
-                 'q._LogicalDB_key = db2._LogicalDB_key and ' + \
-                 'q._MGIType_key = m2._MGIType_key and ' + \
-                 'q._JobStream_key = ' + jobKey + ' ' + \
-           'order by q.tgtAccID, db1.name')
-
-cmd.append('select q._QCRecord_key, a.accID as mgiID ' + \
-           'from ' + radarDB + '.QC_AssocLoad_Assoc_Discrep q, ' + \
-                'ACC_Accession a ' + \
-           'where q._TgtMGIType_key = a._MGIType_key and ' + \
-                 'q._TgtObject_key = a._Object_key and ' + \
-                 'a._LogicalDB_key = 1 and ' + \
-                 'a.preferred = 1 and ' + \
-                 'q._JobStream_key = ' + jobKey)
-
-cmd.append('select q._QCRecord_key, a.accID as mgiID ' + \
-           'from ' + radarDB + '.QC_AssocLoad_Assoc_Discrep q, ' + \
-                'ACC_Accession a ' + \
-           'where q._MGIType_key = a._MGIType_key and ' + \
-                 'q._Object_key = a._Object_key and ' + \
-                 'a._LogicalDB_key = 1 and ' + \
-                 'a.preferred = 1 and ' + \
-                 'q._JobStream_key = ' + jobKey)
-
-results = db.sql(cmd, 'auto')
-
-tgtObjs = {}
-for r in results[1]:
-    tgtObjs[r['_QCRecord_key']] = r['mgiID']
-
-assocObjs = {}
-for r in results[2]:
-    assocObjs[r['_QCRecord_key']] = r['mgiID']
-
-for r in results[0]:
-    key = r['_QCRecord_key']
-    tgtAccID = r['tgtAccID']
-    tgtLogicalDB = r['tgtLogicalDB']
-    tgtMGIType = r['tgtMGIType']
-    accID = r['accID']
-    logicalDB = r['logicalDB']
-    mgiType = r['mgiType']
-    message = r['message']
-
-#    tgtMGIID = tgtObjs.get(key,' ')
-#    mgiID = assocObjs.get(key,' ')
-
-    if key in tgtObjs:
-        tgtMGIID = tgtObjs[key]
-    else:
-        tgtMGIID = ' '
-    if key in assocObjs:
-        mgiID = assocObjs[key]
-    else:
-        mgiID = ' '
-
-    fp.write("%-20s %-20s %-20s %-20s %-20s %-20s %-20s %-20s %-60s" %
-            (tgtAccID, tgtLogicalDB, tgtMGIID, tgtMGIType,
-             accID, logicalDB, mgiID, mgiType, message))
-    fp.write(CRT)
-
-fp.write(CRT + 'Number of Discrepancies: ' + str(len(results[0])) + CRT)
+if rowsFile is not None:
+    #
+    # The association loader wrote the rows of the report.
+    #
+    count = 0
+    rf = open(rowsFile, 'r')
+    for line in rf:
+        fp.write(line)
+        count = count + 1
+    rf.close()
+else:
+    db.set_sqlServer(server)
+    db.set_sqlDatabase(mgdDB)
+
+    cmd = []
+    cmd.append('select q._QCRecord_key, ' + \
+                      'q.tgtAccID as tgtAccID, db1.name as tgtLogicalDB, ' + \
+                      'm1.name as tgtMGIType, ' + \
+                      'q.accID as accID, db2.name as logicalDB, ' + \
+                      'm2.name as mgiType, ' + \
+                      'q.message ' + \
+               'from ' + radarDB + '.QC_AssocLoad_Assoc_Discrep q, ' + \
+                    'ACC_LogicalDB db1, ' + \
+                    'ACC_LogicalDB db2, ' + \
+                    'ACC_MGIType m1, ' + \
+                    'ACC_MGIType m2 ' + \
+               'where q._TgtLogicalDB_key = db1._LogicalDB_key and ' + \
+                     'q._TgtMGIType_key = m1._MGIType_key and ' + \
+                     'q._LogicalDB_key = db2._LogicalDB_key and ' + \
+                     'q._MGIType_key = m2._MGIType_key and ' + \
+                     'q._JobStream_key = ' + jobKey + ' ' + \
+               'order by q.tgtAccID, db1.name')
+
+    cmd.append('select q._QCRecord_key, a.accID as mgiID ' + \
+               'from ' + radarDB + '.QC_AssocLoad_Assoc_Discrep q, ' + \
+                    'ACC_Accession a ' + \
+               'where q._TgtMGIType_key = a._MGIType_key and ' + \
+                     'q._TgtObject_key = a._Object_key and ' + \
+                     'a._LogicalDB_key = 1 and ' + \
+                     'a.preferred = 1 and ' + \
+                     'q._JobStream_key = ' + jobKey)
+
+    cmd.append('select q._QCRecord_key, a.accID as mgiID ' + \
+               'from ' + radarDB + '.QC_AssocLoad_Assoc_Discrep q, ' + \
+                    'ACC_Accession a ' + \
+               'where q._MGIType_key = a._MGIType_key and ' + \
+                     'q._Object_key = a._Object_key and ' + \
+                     'a._LogicalDB_key = 1 and ' + \
+                     'a.preferred = 1 and ' + \
+                     'q._JobStream_key = ' + jobKey)
+
+    results = db.sql(cmd, 'auto')
+
+    tgtObjs = {}
+    for r in results[1]:
+        tgtObjs[r['_QCRecord_key']] = r['mgiID']
+
+    assocObjs = {}
+    for r in results[2]:
+        assocObjs[r['_QCRecord_key']] = r['mgiID']
+
+    for r in results[0]:
+        key = r['_QCRecord_key']
+        tgtAccID = r['tgtAccID']
+        tgtLogicalDB = r['tgtLogicalDB']
+        tgtMGIType = r['tgtMGIType']
+        accID = r['accID']
+        logicalDB = r['logicalDB']
+        mgiType = r['mgiType']
+        message = r['message']
+
+    #    tgtMGIID = tgtObjs.get(key,' ')
+    #    mgiID = assocObjs.get(key,' ')
+
+        if key in tgtObjs:
+            tgtMGIID = tgtObjs[key]
+        else:
+            tgtMGIID = ' '
+        if key in assocObjs:
+            mgiID = assocObjs[key]
+        else:
+            mgiID = ' '
+
+        fp.write("%-20s %-20s %-20s %-20s %-20s %-20s %-20s %-20s %-60s" %
+                (tgtAccID, tgtLogicalDB, tgtMGIID, tgtMGIType,
+                 accID, logicalDB, mgiID, mgiType, message))
+        fp.write(CRT)
+
+    count = len(results[0])
+
+fp.write(CRT + 'Number of Discrepancies: ' + str(count) + CRT)
 
 reportlib.finish_nonps(fp)
@@ -165,13 +165,19 @@ fi
 echo "Association loader application completed successfully" >> ${LOG_PROC}
 
 #
-#  Generate the association loader QC reports.
+#  Generate the association loader QC reports. If the loader wrote the rows
+#  of the reports, the reports use them instead of querying the QC tables.
 #
+RPTROWS=""
+if [ "${ASSOCLOAD_INPROCESS_RPT}" = "true" ]
+then
+    RPTROWS=${RPTDIR}
+fi
 echo "${ASSOCLOADER_QCRPT} ${RPTDIR} ${RADAR_DBSERVER} ${RADAR_DBNAME} ${MGD_DBNAME} ${JOBKEY}"
 echo ""
 echo "`date`" >> ${LOG_PROC}
 echo "Generate the association loader QC reports" >> ${LOG_PROC}
-${ASSOCLOADER_QCRPT} ${RPTDIR} ${RADAR_DBSERVER} radar ${MGD_DBNAME} ${JOBKEY} >> ${LOG_DIAG}
+${ASSOCLOADER_QCRPT} ${RPTDIR} ${RADAR_DBSERVER} radar ${MGD_DBNAME} ${JOBKEY} ${RPTROWS} >> ${LOG_DIAG}
 STAT=$?
 if [ ${STAT} -ne 0 ]
 then
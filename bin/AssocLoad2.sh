@@ -154,12 +154,18 @@ STAT=$?
 checkStatus ${STAT} "Association Loader"
 
 #
-#  Generate the association loader QC reports.
+#  Generate the association loader QC reports. If the loader wrote the rows
+#  of the reports, the reports use them instead of querying the QC tables.
 #
+RPTROWS=""
+if [ "${ASSOCLOAD_INPROCESS_RPT}" = "true" ]
+then
+    RPTROWS=${RPTDIR}
+fi
 echo ""
 echo "`date`" >> ${LOG_PROC}
 echo "Generate the association loader QC reports" >> ${LOG_PROC}
-${ASSOCLOADER_QCRPT} ${RPTDIR} ${RADAR_DBSERVER} radar ${MGD_DBNAME} ${JOBKEY} >> ${LOG_DIAG}
+${ASSOCLOADER_QCRPT} ${RPTDIR} ${RADAR_DBSERVER} radar ${MGD_DBNAME} ${JOBKEY} ${RPTROWS} >> ${LOG_DIAG}
 STAT=$?
 checkStatus ${STAT} "${ASSOCLOADER_QCRPT}"
 
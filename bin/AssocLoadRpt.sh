@@ -7,7 +7,7 @@
 #
 #  Usage:
 #
-#      AssocLoadRpt.csh  OutputDir  Server  RADAR  MGD  JobKey
+#      AssocLoadRpt.csh  OutputDir  Server  RADAR  MGD  JobKey  [RowsDir]
 #
 #      where
 #
@@ -17,6 +17,10 @@
 #          MGD is the name of the MGD database to use.
 #          JobKey is the value that identifies the records in the RADAR
 #                 QC report tables that are to be processed.
+#          RowsDir is the directory where the association loader wrote the
+#                  rows of each report (AssocDiscrepancy.rows and
+#                  TargetDiscrepancy.rows). If it is given, the reports
+#                  use these rows instead of querying the QC report tables.
 #
 #  Env Vars:
 #
@@ -39,7 +43,8 @@
 #  Assumes:  Nothing
 #
 #  Implementation:  Each python script in the directory is executed to
-#                   produce the reports.
+#                   produce the reports. The scripts run at the same time
+#                   and the script fails if any of them fails.
 #
 #  Notes:  None
 #
@@ -51,9 +56,9 @@ cd `dirname $0`
 #
 #  Verify the argument(s) to the shell script.
 #
-if  [ $# -ne 5 ]
+if  [ $# -ne 5 -a $# -ne 6 ]
 then
-    echo "Usage: $0  OutputDir  Server  RADAR  MGD  JobKey"
+    echo "Usage: $0  OutputDir  Server  RADAR  MGD  JobKey  [RowsDir]"
     exit 1
 else
     OUTPUTDIR=$1
@@ -61,16 +66,38 @@ else
     RADAR=$3
     MGD=$4
     JOBKEY=$5
+    ROWSDIR=$6
 fi
 
 #
-#  Run each Python report found in the directory.
+#  Run each Python report found in the directory in the background.
 #
 cd `dirname $0`
 
+PIDS=""
 for RPT in AssocDiscrepancyRpt.py TargetDiscrepancyRpt.py
 do
-    ${PYTHON} ${RPT} ${OUTPUTDIR} ${SERVER} ${RADAR} ${MGD} ${JOBKEY}
+    ROWS=""
+    if [ "${ROWSDIR}" != "" ]
+    then
+        ROWS=${ROWSDIR}/`basename ${RPT} Rpt.py`.rows
+    fi
+    ${PYTHON} ${RPT} ${OUTPUTDIR} ${SERVER} ${RADAR} ${MGD} ${JOBKEY} ${ROWS} &
+    PIDS="${PIDS} $!:${RPT}"
 done
 
-exit 0
+#
+#  Wait for each report and check its exit status.
+#
+STAT=0
+for PID in ${PIDS}
+do
+    wait `echo ${PID} | cut -d: -f1`
+    if [ $? -ne 0 ]
+    then
+        echo "Report failed: `echo ${PID} | cut -d: -f2`"
+        STAT=1
+    fi
+done
+
+exit ${STAT}
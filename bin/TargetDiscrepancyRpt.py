@@ -20,7 +20,12 @@
 #       QC_AssocLoad_Target_Discrep table in the RADAR database.
 #
 # Usage:
-#       TargetDiscrepancyRpt.py  OutputDir  Server  RADAR  MGD  JobKey
+#       TargetDiscrepancyRpt.py  OutputDir  Server  RADAR  MGD  JobKey  [RowsFile]
+#
+#       RowsFile is a file with the rows of the report, written by the
+#       association loader when ASSOCLOAD_INPROCESS_RPT is true. If it
+#       is given, the rows are copied from it instead of being queried
+#       from the QC table.
 #
 # Notes:
 #
@@ -50,6 +55,9 @@ server=sys.argv[2]
 radarDB=sys.argv[3]
 mgdDB=sys.argv[4]
 jobKey=sys.argv[5]
+rowsFile=None
+if len(sys.argv) > 6:
+    rowsFile=sys.argv[6]
 
 reportWidth = 165;
  
@@ -66,54 +74,67 @@ fp.write('-------------------- -------------------- ' + \
          '-------------------- -------------------- -------------------- ' + \
          '------------------------------------------------------------' + CRT)
 
-db.set_sqlServer(server)
-db.set_sqlDatabase(mgdDB)
-
-cmd = []
-cmd.append('select q._QCRecord_key, q.accID, db.name as logicalDB, ' + \
-                  'a.accID as mgiID, m.name as mgiType, ' + \
-                  'q.expectedType, q.message ' + \
-           'from ' + radarDB + '.QC_AssocLoad_Target_Discrep q, ' + \
-                'ACC_Accession a, ' + \
-                'ACC_LogicalDB db, ' + \
-                'ACC_MGIType m ' + \
-           'where q._LogicalDB_key = db._LogicalDB_key and ' + \
-                 'q._MGIType_key = a._MGIType_key and ' + \
-                 'q._Object_key = a._Object_key and ' + \
-                 'a._LogicalDB_key = 1 and ' + \
-                 'a.preferred = 1 and ' + \
-                 'q._MGIType_key = m._MGIType_key and ' + \
-                 'q._JobStream_key = ' + jobKey + ' ' + \
-           'union ' + \
-           'select q._QCRecord_key, q.accID, db.name as logicalDB, ' + \
-                  'null as mgiID, null as mgiType, ' + \
-                  'q.expectedType, q.message ' + \
-           'from ' + radarDB + '.QC_AssocLoad_Target_Discrep q, ' + \
-                'ACC_LogicalDB db ' + \
-           'where q._LogicalDB_key = db._LogicalDB_key and ' + \
-                 'q._MGIType_key is null and ' + \
-                 'q._JobStream_key = ' + jobKey + ' ' + \
-           'order by accID, logicalDB')
-
-results = db.sql(cmd, 'auto')
-
-for r in results[0]:
-    accID = r['accID']
-    logicalDB = r['logicalDB']
-    mgiID = r['mgiID']
-    mgiType = r['mgiType']
-    expType = r['expectedType']
-    message = r['message']
-
-    if (mgiID == None):
-        mgiID = ""
-    if (mgiType == None):
-        mgiType = ""
-
-    fp.write("%-20s %-20s %-20s %-20s %-20s %-60s" %
-            (accID, logicalDB, mgiID, mgiType, expType, message))
-    fp.write(CRT)
-
-fp.write(CRT + 'Number of Discrepancies: ' + str(len(results[0])) + CRT)
+if rowsFile is not None:
+    #
+    # The association loader wrote the rows of the report.
+    #
+    count = 0
+    rf = open(rowsFile, 'r')
+    for line in rf:
+        fp.write(line)
+        count = count + 1
+    rf.close()
+else:
+    db.set_sqlServer(server)
+    db.set_sqlDatabase(mgdDB)
+
+    cmd = []
+    cmd.append('select q._QCRecord_key, q.accID, db.name as logicalDB, ' + \
+                      'a.accID as mgiID, m.name as mgiType, ' + \
+                      'q.expectedType, q.message ' + \
+               'from ' + radarDB + '.QC_AssocLoad_Target_Discrep q, ' + \
+                    'ACC_Accession a, ' + \
+                    'ACC_LogicalDB db, ' + \
+                    'ACC_MGIType m ' + \
+               'where q._LogicalDB_key = db._LogicalDB_key and ' + \
+                     'q._MGIType_key = a._MGIType_key and ' + \
+                     'q._Object_key = a._Object_key and ' + \
+                     'a._LogicalDB_key = 1 and ' + \
+                     'a.preferred = 1 and ' + \
+                     'q._MGIType_key = m._MGIType_key and ' + \
+                     'q._JobStream_key = ' + jobKey + ' ' + \
+               'union ' + \
+               'select q._QCRecord_key, q.accID, db.name as logicalDB, ' + \
+                      'null as mgiID, null as mgiType, ' + \
+                      'q.expectedType, q.message ' + \
+               'from ' + radarDB + '.QC_AssocLoad_Target_Discrep q, ' + \
+                    'ACC_LogicalDB db ' + \
+               'where q._LogicalDB_key = db._LogicalDB_key and ' + \
+                     'q._MGIType_key is null and ' + \
+                     'q._JobStream_key = ' + jobKey + ' ' + \
+               'order by accID, logicalDB')
+
+    results = db.sql(cmd, 'auto')
+
+    for r in results[0]:
+        accID = r['accID']
+        logicalDB = r['logicalDB']
+        mgiID = r['mgiID']
+        mgiType = r['mgiType']
+        expType = r['expectedType']
+        message = r['message']
+
+        if (mgiID == None):
+            mgiID = ""
+        if (mgiType == None):
+            mgiType = ""
+
+        fp.write("%-20s %-20s %-20s %-20s %-20s %-60s" %
+                (accID, logicalDB, mgiID, mgiType, expType, message))
+        fp.write(CRT)
+
+    count = len(results[0])
+
+fp.write(CRT + 'Number of Discrepancies: ' + str(count) + CRT)
 
 reportlib.finish_nonps(fp)
@@ -0,0 +1,344 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Vector;
+
+import org.jax.mgi.dbs.mgd.AccessionLib;
+
+/**
+ * @is An object that splits accession IDs into their prefix and numeric
+ *     parts, the same way as AccessionLib.splitAccID(), without creating a
+ *     Vector, a String or an Integer for each accession ID.
+ * @has
+ *   <UL>
+ *   <LI> A table of the prefixes that have been seen (up to a limit), each
+ *        with one String that is used for every accession ID with that
+ *        prefix.
+ *   <LI> For each prefix, the numbers of trailing digits for which the
+ *        parts found here have been checked against AccessionLib, and
+ *        whether they matched.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides a method to split an accession ID into a reusable Parts
+ *        object. An accession ID ending in digits is split after its last
+ *        non-digit character. The first accession ID with a given prefix
+ *        and number of digits is also split by AccessionLib, and any
+ *        accession ID with that prefix and number of digits is passed to
+ *        AccessionLib from then on if the parts were not the same. Any
+ *        other accession ID is always passed to AccessionLib, including
+ *        one whose prefix contains a digit (such as a versioned RefSeq ID
+ *        or a UniProt ID), since that prefix is only shared by a few
+ *        accession IDs and would fill up the prefix table.
+ *   </UL>
+ *   An AccessionIDSplitter must only be used by one thread at a time.
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class AccessionIDSplitter
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The size of the prefix table (a power of 2) and the number of
+    // prefixes that are kept in it. Any other prefix is passed to
+    // AccessionLib.
+    //
+    private static final int TABLE_SIZE = 8192;
+    private static final int MAX_PREFIXES = 4096;
+
+    // The most trailing digits that are split here (their value is built
+    // in a long, so it cannot overflow).
+    //
+    private static final int MAX_DIGITS = 18;
+
+    // The prefix table, using open addressing.
+    //
+    private Prefix[] table = new Prefix[TABLE_SIZE];
+    private int prefixCount = 0;
+
+    // The number of accession IDs split here and by AccessionLib.
+    //
+    private long fastCount = 0;
+    private long libCount = 0;
+
+
+    /**
+     * Split an accession ID into its prefix and numeric parts.
+     * @assumes Nothing
+     * @effects May add the prefix to the prefix table.
+     * @param accID The accession ID.
+     * @param parts The object to set the parts in.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void split (String accID, Parts parts)
+    {
+        parts.accID = accID;
+
+        // Find the trailing digits and their value, then the hash code of
+        // the prefix (the same as String.hashCode() for it). A prefix that
+        // still ends in a digit has too many digits after it.
+        //
+        int length = accID.length();
+        int end = length;
+        long value = 0;
+        long scale = 1;
+        while (end > 0 && length - end < MAX_DIGITS)
+        {
+            char c = accID.charAt(end - 1);
+            if (!isDigit(c))
+                break;
+            value += (c - '0') * scale;
+            scale *= 10;
+            end--;
+        }
+
+        if (end == 0 || end == length || value > Integer.MAX_VALUE)
+        {
+            splitLib(accID, parts);
+            return;
+        }
+
+        int hash = 0;
+        for (int i=0; i<end; i++)
+        {
+            char c = accID.charAt(i);
+            if (isDigit(c))
+            {
+                splitLib(accID, parts);
+                return;
+            }
+            hash = 31 * hash + c;
+        }
+
+        // Find the prefix in the table, adding it if there is room.
+        //
+        Prefix prefix = find(accID, end, hash);
+        if (prefix == null)
+        {
+            splitLib(accID, parts);
+            return;
+        }
+
+        // Use the parts found here if they have been found to match the
+        // ones from AccessionLib for this number of digits, checking them
+        // the first time.
+        //
+        int bit = 1 << (length - end);
+        if ((prefix.checked & bit) == 0)
+        {
+            Vector vParts = AccessionLib.splitAccID(accID);
+            Integer numericPart = (Integer)vParts.get(1);
+            if (prefix.value.equals(vParts.get(0)) && numericPart != null &&
+                numericPart.intValue() == value)
+                prefix.matched |= bit;
+            prefix.checked |= bit;
+        }
+
+        if ((prefix.matched & bit) == 0)
+        {
+            splitLib(accID, parts);
+            return;
+        }
+
+        parts.prefixEnd = end;
+        parts.prefixPart = prefix.value;
+        parts.hasNumericPart = true;
+        parts.numericPart = (int)value;
+        fastCount++;
+    }
+
+    /**
+     * Get the number of prefixes in the prefix table.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of prefixes.
+     * @throws Nothing
+     */
+    public int getPrefixCount ()
+    {
+        return prefixCount;
+    }
+
+    /**
+     * Get the number of accession IDs that were split without
+     * AccessionLib.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of accession IDs.
+     * @throws Nothing
+     */
+    public long getFastCount ()
+    {
+        return fastCount;
+    }
+
+    /**
+     * Get the number of accession IDs that were split by AccessionLib.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of accession IDs.
+     * @throws Nothing
+     */
+    public long getLibCount ()
+    {
+        return libCount;
+    }
+
+    /**
+     * Find the prefix of an accession ID in the prefix table, adding it if
+     * it is not there and the table is not full.
+     * @assumes Nothing
+     * @effects May add the prefix to the prefix table.
+     * @param accID The accession ID.
+     * @param end The end of the prefix in the accession ID.
+     * @param hash The hash code of the prefix.
+     * @return The prefix, or null if it is not in the table and the table
+     *         is full.
+     * @throws Nothing
+     */
+    private Prefix find (String accID, int end, int hash)
+    {
+        int mask = TABLE_SIZE - 1;
+        int i = (hash ^ (hash >>> 16)) & mask;
+        while (table[i] != null)
+        {
+            Prefix p = table[i];
+            if (p.hash == hash && p.value.length() == end &&
+                accID.regionMatches(0, p.value, 0, end))
+                return p;
+            i = (i + 1) & mask;
+        }
+
+        if (prefixCount == MAX_PREFIXES)
+            return null;
+
+        table[i] = new Prefix(accID.substring(0, end), hash);
+        prefixCount++;
+        return table[i];
+    }
+
+    /**
+     * Split an accession ID with AccessionLib.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The accession ID.
+     * @param parts The object to set the parts in.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void splitLib (String accID, Parts parts)
+    {
+        Vector vParts = AccessionLib.splitAccID(accID);
+        String prefixPart = (String)vParts.get(0);
+        Integer numericPart = (Integer)vParts.get(1);
+
+        parts.prefixEnd = prefixPart != null && accID.startsWith(prefixPart) ?
+                          prefixPart.length() : -1;
+        parts.prefixPart = prefixPart;
+        parts.hasNumericPart = numericPart != null;
+        parts.numericPart = numericPart == null ? 0 : numericPart.intValue();
+        libCount++;
+    }
+
+    /**
+     * Determine if a character is a digit.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param c The character.
+     * @return True if it is a digit.
+     * @throws Nothing
+     */
+    private static boolean isDigit (char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+
+    /**
+     * @is The prefix and numeric parts of an accession ID. The same object
+     *     is set for each accession ID that is split.
+     * @has
+     *   <UL>
+     *   <LI> The accession ID.
+     *   <LI> The end of the prefix part in the accession ID (the prefix
+     *        part is the characters before it), or -1 if the prefix part is
+     *        not the start of the accession ID.
+     *   <LI> The prefix part (or null).
+     *   <LI> Whether there is a numeric part, and its value.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    public static class Parts
+    {
+        String accID;
+        int prefixEnd;
+        String prefixPart;
+        boolean hasNumericPart;
+        int numericPart;
+
+        public String getAccID ()
+        {
+            return accID;
+        }
+
+        public int getPrefixEnd ()
+        {
+            return prefixEnd;
+        }
+
+        public String getPrefixPart ()
+        {
+            return prefixPart;
+        }
+
+        public boolean hasNumericPart ()
+        {
+            return hasNumericPart;
+        }
+
+        public int getNumericPart ()
+        {
+            return numericPart;
+        }
+    }
+
+
+    /**
+     * @is A prefix in the prefix table.
+     * @has
+     *   <UL>
+     *   <LI> The prefix and its hash code.
+     *   <LI> A bit for each number of trailing digits that has been checked
+     *        against AccessionLib, and a bit for each one that matched.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private static class Prefix
+    {
+        String value;
+        int hash;
+        int checked = 0;
+        int matched = 0;
+
+        Prefix (String pValue, int pHash)
+        {
+            value = pValue;
+            hash = pHash;
+        }
+    }
+}
@@ -0,0 +1,692 @@
+package org.jax.mgi.app.assocload;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Vector;
+
+import org.jax.mgi.shr.dbutils.ResultsNavigator;
+import org.jax.mgi.shr.dbutils.RowReference;
+import org.jax.mgi.shr.dbutils.SQLDataManager;
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An in-memory index of the ACC_Accession table that maps an accession
+ *     ID/logical DB pair to the MGI objects it is associated with.
+ * @has
+ *   <UL>
+ *   <LI> An open-addressing hash table keyed on a 64-bit hash of the
+ *        accession ID and logical DB key.
+ *   <LI> An off-heap byte pool holding the accession ID of each accession
+ *        ID/logical DB pair, so an accession ID that is in the index for
+ *        more than one logical DB is held once for each of them.
+ *   <LI> A packed int array of MGI type/object key pairs for each entry.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides a method to load the index from the ACC_Accession table
+ *        for a given set of logical DBs.
+ *   <LI> Provides methods to find the MGI objects that an accession
+ *        ID/logical DB pair is associated with.
+ *   <LI> Provides a method to report the memory used by the index.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class AccessionIndex
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // Initial sizes of the hash table (must be a power of 2), the value array
+    // and the accession ID byte pool.
+    //
+    private static final int INITIAL_SLOTS = 1 << 16;
+    private static final int INITIAL_VALUES = 1 << 16;
+    private static final int INITIAL_POOL = 1 << 20;
+
+    // Number of ints used by each value in the value array
+    // (MGI type key, object key, next value).
+    //
+    private static final int VALUE_SIZE = 3;
+
+    // FNV-1a constants used to hash the accession ID bytes.
+    //
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // A logger for logging messages.
+    //
+    private DLALogger logger = null;
+
+    // The hash table. A slot is empty if its hash is 0. For each used slot,
+    // the accession ID is found in the byte pool at the given offset and the
+    // first value is found in the value array at the given index.
+    //
+    private long[] slotHash = null;
+    private int[] slotKeyOffset = null;
+    private int[] slotLogicalDBKey = null;
+    private int[] slotFirstValue = null;
+    private int slotMask;
+    private int slotCount = 0;
+
+    // The MGI type/object key pairs for all entries, chained per entry.
+    //
+    private int[] values = null;
+    private int valueCount = 0;
+
+    // The accession ID of each accession ID/logical DB pair, stored as a 2
+    // byte length followed by the UTF-8 bytes.
+    //
+    private ByteBuffer pool = null;
+
+    // A buffer used to hold the bytes of the accession ID being looked up.
+    //
+    private ThreadLocal scratch = new ThreadLocal()
+    {
+        protected Object initialValue ()
+        {
+            return new byte[64];
+        }
+    };
+
+
+    /**
+     * Constructs an empty AccessionIndex object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger to write messages to.
+     * @throws Nothing
+     */
+    public AccessionIndex (DLALogger pLogger)
+    {
+        logger = pLogger;
+
+        slotHash = new long[INITIAL_SLOTS];
+        slotKeyOffset = new int[INITIAL_SLOTS];
+        slotLogicalDBKey = new int[INITIAL_SLOTS];
+        slotFirstValue = new int[INITIAL_SLOTS];
+        slotMask = INITIAL_SLOTS - 1;
+
+        values = new int[INITIAL_VALUES * VALUE_SIZE];
+        pool = ByteBuffer.allocateDirect(INITIAL_POOL);
+    }
+
+    /**
+     * Load the index with every accession ID in the ACC_Accession table that
+     * belongs to one of the given logical DBs. Accession IDs for the MGI
+     * types that are never associated by this load (21 and 25) are excluded.
+     * @assumes Nothing
+     * @effects Loads the index.
+     * @param sqlMgr The SQLDataManager for the MGD database.
+     * @param logicalDBKeys The keys of the logical DBs to load.
+     * @return Nothing
+     * @throws MGIException If there is a problem querying the database.
+     */
+    public void load (SQLDataManager sqlMgr, Vector logicalDBKeys)
+        throws MGIException
+    {
+        load(sqlMgr, logicalDBKeys, null);
+    }
+
+    /**
+     * Load the index with every accession ID in the ACC_Accession table that
+     * belongs to one of the given logical DBs and meets an additional
+     * condition.
+     * @assumes Nothing
+     * @effects Loads the index.
+     * @param sqlMgr The SQLDataManager for the MGD database.
+     * @param logicalDBKeys The keys of the logical DBs to load.
+     * @param condition An additional SQL condition on the ACC_Accession
+     *                  table (alias "a"), or null for none.
+     * @return Nothing
+     * @throws MGIException If there is a problem querying the database.
+     */
+    public void load (SQLDataManager sqlMgr, Vector logicalDBKeys,
+                      String condition)
+        throws MGIException
+    {
+        if (logicalDBKeys.size() == 0)
+            return;
+
+        StringBuffer keys = new StringBuffer();
+        for (int i=0; i<logicalDBKeys.size(); i++)
+        {
+            if (i > 0)
+                keys.append(",");
+            keys.append(((Integer)logicalDBKeys.get(i)).intValue());
+        }
+
+        String sql = "SELECT a.accID, " +
+                            "a._LogicalDB_key, " +
+                            "a._MGIType_key, " +
+                            "a._Object_key " +
+                     "FROM ACC_Accession a " +
+                     "WHERE a._LogicalDB_key in (" + keys.toString() + ") and " +
+                           "a._MGIType_key not in (21,25)";
+        if (condition != null)
+            sql += " and " + condition;
+        logger.logdInfo("Execute Query: "+sql,true);
+        ResultsNavigator rn = sqlMgr.executeQuery(sql);
+
+        int count = 0;
+        while (rn.next())
+        {
+            RowReference row = rn.getRowReference();
+            add(row.getString(1), row.getInt(2).intValue(),
+                row.getInt(3).intValue(), row.getInt(4).intValue());
+            count++;
+        }
+        rn.close();
+
+        logger.logdInfo("Accession index loaded " + count + " rows",false);
+        logger.logdInfo(getFootprintReport(),false);
+    }
+
+    /**
+     * Add an association between an accession ID/logical DB pair and a MGI
+     * object to the index. A duplicate association is ignored.
+     * @assumes Nothing
+     * @effects Adds an entry to the index.
+     * @param accID The accession ID.
+     * @param logicalDBKey The logical DB key.
+     * @param mgiTypeKey The MGI type key of the object.
+     * @param objectKey The object key.
+     * @return Nothing
+     * @throws MGIException If the accession ID is too long or the index is
+     *         full.
+     */
+    public void add (String accID, int logicalDBKey, int mgiTypeKey,
+                     int objectKey)
+        throws MGIException
+    {
+        int length = encode(accID);
+        byte[] bytes = (byte[])scratch.get();
+
+        if (length > 0xFFFF)
+            throw new MGIException("Accession ID is too long to index: " +
+                                   accID);
+
+        long hash = hash(bytes, length, logicalDBKey);
+        int slot = findSlot(hash, bytes, length, logicalDBKey);
+
+        // Add a new entry for the accession ID/logical DB pair.
+        //
+        if (slotHash[slot] == 0)
+        {
+            slotHash[slot] = hash;
+            slotKeyOffset[slot] = intern(bytes, length);
+            slotLogicalDBKey[slot] = logicalDBKey;
+            slotFirstValue[slot] = addValue(mgiTypeKey, objectKey);
+            slotCount++;
+
+            // Keep the load factor at or below three quarters.
+            //
+            if ((long)slotCount * 4 > (long)slotHash.length * 3)
+                rehash();
+            return;
+        }
+
+        // Add the value to the end of the chain for an existing entry unless
+        // it is already there.
+        //
+        int v = slotFirstValue[slot];
+        while (true)
+        {
+            int base = v * VALUE_SIZE;
+            if (values[base] == mgiTypeKey && values[base + 1] == objectKey)
+                return;
+            if (values[base + 2] < 0)
+                break;
+            v = values[base + 2];
+        }
+        int newValue = addValue(mgiTypeKey, objectKey);
+        values[v * VALUE_SIZE + 2] = newValue;
+    }
+
+    /**
+     * Find the entry for an accession ID/logical DB pair.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The accession ID.
+     * @param logicalDBKey The logical DB key.
+     * @return The entry number or -1 if the pair is not in the index.
+     * @throws Nothing
+     */
+    public int find (String accID, int logicalDBKey)
+    {
+        int length = encode(accID);
+        byte[] bytes = (byte[])scratch.get();
+
+        long hash = hash(bytes, length, logicalDBKey);
+        int slot = findSlot(hash, bytes, length, logicalDBKey);
+        if (slotHash[slot] == 0)
+            return -1;
+        return slot;
+    }
+
+    /**
+     * Get the number of MGI objects associated with an entry.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param entry The entry number returned by find().
+     * @return The number of MGI objects.
+     * @throws Nothing
+     */
+    public int getMatchCount (int entry)
+    {
+        int count = 0;
+        for (int v = slotFirstValue[entry]; v >= 0;
+             v = values[v * VALUE_SIZE + 2])
+            count++;
+        return count;
+    }
+
+    /**
+     * Get the first value for an entry. The values for an entry can be
+     * visited using getNextValue() until it returns -1.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param entry The entry number returned by find().
+     * @return The first value.
+     * @throws Nothing
+     */
+    public int getFirstValue (int entry)
+    {
+        return slotFirstValue[entry];
+    }
+
+    /**
+     * Get the value that follows the given value for the same entry.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param value A value returned by getFirstValue() or getNextValue().
+     * @return The next value or -1 if there are no more.
+     * @throws Nothing
+     */
+    public int getNextValue (int value)
+    {
+        return values[value * VALUE_SIZE + 2];
+    }
+
+    /**
+     * Get the MGI type key of a value.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param value A value returned by getFirstValue() or getNextValue().
+     * @return The MGI type key.
+     * @throws Nothing
+     */
+    public int getValueMGITypeKey (int value)
+    {
+        return values[value * VALUE_SIZE];
+    }
+
+    /**
+     * Get the object key of a value.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param value A value returned by getFirstValue() or getNextValue().
+     * @return The object key.
+     * @throws Nothing
+     */
+    public int getValueObjectKey (int value)
+    {
+        return values[value * VALUE_SIZE + 1];
+    }
+
+    /**
+     * Get the MGI type key of one of the objects associated with an entry.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param entry The entry number returned by find().
+     * @param n The match number (0 to getMatchCount()-1).
+     * @return The MGI type key.
+     * @throws Nothing
+     */
+    public int getMGITypeKey (int entry, int n)
+    {
+        return getValueMGITypeKey(getValue(entry, n));
+    }
+
+    /**
+     * Get the object key of one of the objects associated with an entry.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param entry The entry number returned by find().
+     * @param n The match number (0 to getMatchCount()-1).
+     * @return The object key.
+     * @throws Nothing
+     */
+    public int getObjectKey (int entry, int n)
+    {
+        return getValueObjectKey(getValue(entry, n));
+    }
+
+    /**
+     * Get the number of accession ID/logical DB pairs in the index.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of pairs.
+     * @throws Nothing
+     */
+    public int size ()
+    {
+        return slotCount;
+    }
+
+    /**
+     * Get the number of MGI type/object key pairs in the index.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of MGI type/object key pairs.
+     * @throws Nothing
+     */
+    public int getValueCount ()
+    {
+        return valueCount;
+    }
+
+    /**
+     * Get the number of bytes of heap memory allocated by the index.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of bytes.
+     * @throws Nothing
+     */
+    public long getHeapBytes ()
+    {
+        return (long)slotHash.length * 8 +
+               (long)slotKeyOffset.length * 4 +
+               (long)slotLogicalDBKey.length * 4 +
+               (long)slotFirstValue.length * 4 +
+               (long)values.length * 4;
+    }
+
+    /**
+     * Get the number of bytes of off-heap memory allocated by the index.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of bytes.
+     * @throws Nothing
+     */
+    public long getOffHeapBytes ()
+    {
+        return pool.capacity();
+    }
+
+    /**
+     * Get a report of the memory used by the index that can be used to size
+     * the Java heap (-Xmx) and direct memory (-XX:MaxDirectMemorySize)
+     * settings in JAVARUNTIMEOPTS.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The report.
+     * @throws Nothing
+     */
+    public String getFootprintReport ()
+    {
+        long heap = getHeapBytes();
+        long offHeap = getOffHeapBytes();
+        long perPair = slotCount == 0 ? 0 : (heap + offHeap) / slotCount;
+
+        return "Accession index footprint: " +
+               slotCount + " accession ID/logical DB pairs, " +
+               valueCount + " MGI objects, " +
+               slotHash.length + " slots; " +
+               "heap " + (heap / (1024 * 1024)) + " MB, " +
+               "off-heap " + (offHeap / (1024 * 1024)) + " MB " +
+               "(" + pool.position() + " bytes used), " +
+               perPair + " bytes per pair";
+    }
+
+    /**
+     * Get the value for the n-th MGI object associated with an entry.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param entry The entry number.
+     * @param n The match number.
+     * @return The value.
+     * @throws Nothing
+     */
+    private int getValue (int entry, int n)
+    {
+        int v = slotFirstValue[entry];
+        for (int i=0; i<n; i++)
+            v = values[v * VALUE_SIZE + 2];
+        return v;
+    }
+
+    /**
+     * Find the slot for an accession ID/logical DB pair. This is either the
+     * slot that holds the pair or the empty slot where it should be added.
+     * Slots with the same hash are verified against the accession ID bytes
+     * in the pool.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param hash The hash of the pair.
+     * @param bytes The accession ID bytes.
+     * @param length The number of accession ID bytes.
+     * @param logicalDBKey The logical DB key.
+     * @return The slot.
+     * @throws Nothing
+     */
+    private int findSlot (long hash, byte[] bytes, int length, int logicalDBKey)
+    {
+        int slot = (int)(hash ^ (hash >>> 32)) & slotMask;
+
+        while (slotHash[slot] != 0)
+        {
+            if (slotHash[slot] == hash &&
+                slotLogicalDBKey[slot] == logicalDBKey &&
+                keyEquals(slotKeyOffset[slot], bytes, length))
+                return slot;
+            slot = (slot + 1) & slotMask;
+        }
+        return slot;
+    }
+
+    /**
+     * Compare the accession ID bytes in the pool at the given offset to the
+     * given bytes.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param offset The pool offset.
+     * @param bytes The accession ID bytes.
+     * @param length The number of accession ID bytes.
+     * @return True if they are the same, otherwise false.
+     * @throws Nothing
+     */
+    private boolean keyEquals (int offset, byte[] bytes, int length)
+    {
+        if ((pool.getShort(offset) & 0xFFFF) != length)
+            return false;
+
+        offset += 2;
+        for (int i=0; i<length; i++)
+        {
+            if (pool.get(offset + i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copy accession ID bytes into the pool.
+     * @assumes Nothing
+     * @effects Grows the pool if needed.
+     * @param bytes The accession ID bytes.
+     * @param length The number of accession ID bytes.
+     * @return The pool offset.
+     * @throws MGIException If the pool cannot grow any further.
+     */
+    private int intern (byte[] bytes, int length)
+        throws MGIException
+    {
+        if (pool.remaining() < length + 2)
+        {
+            long capacity = (long)pool.capacity() * 2;
+            if (capacity > Integer.MAX_VALUE)
+                capacity = Integer.MAX_VALUE;
+            if (capacity - pool.position() < length + 2)
+                throw new MGIException("Accession index is full");
+
+            ByteBuffer newPool = ByteBuffer.allocateDirect((int)capacity);
+            pool.flip();
+            newPool.put(pool);
+            pool = newPool;
+        }
+
+        int offset = pool.position();
+        pool.putShort((short)length);
+        pool.put(bytes, 0, length);
+        return offset;
+    }
+
+    /**
+     * Add a MGI type/object key pair to the value array.
+     * @assumes Nothing
+     * @effects Grows the value array if needed.
+     * @param mgiTypeKey The MGI type key.
+     * @param objectKey The object key.
+     * @return The new value.
+     * @throws Nothing
+     */
+    private int addValue (int mgiTypeKey, int objectKey)
+    {
+        if ((valueCount + 1) * VALUE_SIZE > values.length)
+        {
+            int[] newValues = new int[values.length * 2];
+            System.arraycopy(values, 0, newValues, 0, values.length);
+            values = newValues;
+        }
+
+        int base = valueCount * VALUE_SIZE;
+        values[base] = mgiTypeKey;
+        values[base + 1] = objectKey;
+        values[base + 2] = -1;
+        return valueCount++;
+    }
+
+    /**
+     * Double the size of the hash table.
+     * @assumes Nothing
+     * @effects Replaces the slot arrays.
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void rehash ()
+    {
+        long[] oldHash = slotHash;
+        int[] oldKeyOffset = slotKeyOffset;
+        int[] oldLogicalDBKey = slotLogicalDBKey;
+        int[] oldFirstValue = slotFirstValue;
+
+        int size = oldHash.length * 2;
+        slotHash = new long[size];
+        slotKeyOffset = new int[size];
+        slotLogicalDBKey = new int[size];
+        slotFirstValue = new int[size];
+        slotMask = size - 1;
+
+        for (int i=0; i<oldHash.length; i++)
+        {
+            long hash = oldHash[i];
+            if (hash == 0)
+                continue;
+
+            int slot = (int)(hash ^ (hash >>> 32)) & slotMask;
+            while (slotHash[slot] != 0)
+                slot = (slot + 1) & slotMask;
+
+            slotHash[slot] = hash;
+            slotKeyOffset[slot] = oldKeyOffset[i];
+            slotLogicalDBKey[slot] = oldLogicalDBKey[i];
+            slotFirstValue[slot] = oldFirstValue[i];
+        }
+    }
+
+    /**
+     * Copy the UTF-8 bytes of an accession ID into the scratch buffer for the
+     * current thread. ASCII accession IDs are copied without allocating.
+     * @assumes Nothing
+     * @effects Grows the scratch buffer for the current thread if needed.
+     * @param accID The accession ID.
+     * @return The number of bytes in the scratch buffer.
+     * @throws Nothing
+     */
+    private int encode (String accID)
+    {
+        byte[] bytes = (byte[])scratch.get();
+        int length = accID.length();
+
+        if (bytes.length < length)
+        {
+            bytes = new byte[length * 2];
+            scratch.set(bytes);
+        }
+
+        for (int i=0; i<length; i++)
+        {
+            char c = accID.charAt(i);
+
+            // Fall back to a full UTF-8 encoding for a non-ASCII character.
+            //
+            if (c > 0x7F)
+            {
+                byte[] utf8 = accID.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length < utf8.length)
+                {
+                    bytes = new byte[utf8.length * 2];
+                    scratch.set(bytes);
+                }
+                System.arraycopy(utf8, 0, bytes, 0, utf8.length);
+                return utf8.length;
+            }
+            bytes[i] = (byte)c;
+        }
+        return length;
+    }
+
+    /**
+     * Compute the 64-bit hash of an accession ID/logical DB pair. A hash of 0
+     * is reserved for empty slots.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param bytes The accession ID bytes.
+     * @param length The number of accession ID bytes.
+     * @param logicalDBKey The logical DB key.
+     * @return The hash.
+     * @throws Nothing
+     */
+    private static long hash (byte[] bytes, int length, int logicalDBKey)
+    {
+        long h = FNV_OFFSET;
+        for (int i=0; i<length; i++)
+        {
+            h ^= (bytes[i] & 0xFF);
+            h *= FNV_PRIME;
+        }
+        h ^= logicalDBKey;
+        h *= FNV_PRIME;
+
+        // Finalize the hash so the low bits used for the slot are well mixed.
+        //
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+
+        return h == 0 ? 1 : h;
+    }
+}
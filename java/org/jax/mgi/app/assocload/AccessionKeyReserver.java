@@ -0,0 +1,249 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jax.mgi.shr.dbutils.ResultsNavigator;
+import org.jax.mgi.shr.dbutils.RowReference;
+import org.jax.mgi.shr.dbutils.SQLDataManager;
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An object that reserves contiguous blocks of ACC_Accession keys in the
+ *     MGD database and hands out ranges of keys from them to any number of
+ *     threads.
+ * @has
+ *   <UL>
+ *   <LI> A SQLDataManager for the MGD database.
+ *   <LI> The current block of reserved keys and the next unused key in it.
+ *   <LI> The name of the database sequence used for ACC_Accession keys.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Reserves a block of keys by moving the accession key sequence past
+ *        the block, under an advisory lock, so that any other loader that
+ *        reserves keys the same way cannot be given the same keys.
+ *   <LI> Hands out ranges of keys from the current block without locking,
+ *        and reserves a new block when the current one is used up.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class AccessionKeyReserver
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The advisory lock ID used to serialize reservations between loaders
+    // ("ACCK" as an integer).
+    //
+    private static final int LOCK_ID = 0x4143434b;
+
+    // A SQLDataManager for the MGD database.
+    //
+    private SQLDataManager sqlMgr = null;
+
+    // A logger for logging messages.
+    //
+    private DLALogger logger = null;
+
+    // The name of the accession key sequence and the number of keys to
+    // reserve in each block.
+    //
+    private String sequence = null;
+    private int blockSize;
+
+    // The current block of reserved keys.
+    //
+    private volatile Block current = null;
+
+    // The number of blocks reserved and keys handed out.
+    //
+    private int blockCount = 0;
+    private AtomicLong keyCount = new AtomicLong();
+
+
+    /**
+     * Constructs an AccessionKeyReserver object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pSqlMgr The SQLDataManager for the MGD database.
+     * @param pLogger The logger.
+     * @param pSequence The name of the accession key sequence.
+     * @param pBlockSize The number of keys to reserve in each block.
+     * @throws Nothing
+     */
+    public AccessionKeyReserver (SQLDataManager pSqlMgr, DLALogger pLogger,
+                                 String pSequence, int pBlockSize)
+    {
+        sqlMgr = pSqlMgr;
+        logger = pLogger;
+        sequence = pSequence;
+        blockSize = Math.max(pBlockSize, 1);
+    }
+
+    /**
+     * Get a single accession key.
+     * @assumes Nothing
+     * @effects May reserve a new block of keys in the database.
+     * @param None
+     * @return The key.
+     * @throws MGIException If a new block of keys cannot be reserved.
+     */
+    public int nextKey ()
+        throws MGIException
+    {
+        return reserve(1);
+    }
+
+    /**
+     * Get a range of contiguous accession keys. The range is taken from the
+     * current block without locking. If it does not fit in the current
+     * block, the rest of the current block is discarded and a new block is
+     * reserved.
+     * @assumes Nothing
+     * @effects May reserve a new block of keys in the database.
+     * @param count The number of keys in the range.
+     * @return The first key in the range.
+     * @throws MGIException If a new block of keys cannot be reserved.
+     */
+    public int reserve (int count)
+        throws MGIException
+    {
+        if (count < 1)
+            throw new MGIException("Invalid accession key count: " + count);
+
+        while (true)
+        {
+            Block b = current;
+            if (b != null)
+            {
+                long start = b.next.getAndAdd(count);
+                if (start + count - 1 <= b.last)
+                {
+                    keyCount.addAndGet(count);
+                    return (int)start;
+                }
+            }
+            refill(b, count);
+        }
+    }
+
+    /**
+     * Get the number of blocks that have been reserved in the database.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of blocks.
+     * @throws Nothing
+     */
+    public synchronized int getBlockCount ()
+    {
+        return blockCount;
+    }
+
+    /**
+     * Get the number of keys that have been handed out.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of keys.
+     * @throws Nothing
+     */
+    public long getKeyCount ()
+    {
+        return keyCount.get();
+    }
+
+    /**
+     * Replace the given block with a new block of keys that is large enough
+     * for the given number of keys, unless another thread has already
+     * replaced it.
+     * @assumes Nothing
+     * @effects Reserves a new block of keys in the database.
+     * @param used The block that was found to be used up (or null).
+     * @param count The number of keys needed.
+     * @return Nothing
+     * @throws MGIException If the block cannot be reserved.
+     */
+    private synchronized void refill (Block used, int count)
+        throws MGIException
+    {
+        if (current != used)
+            return;
+
+        int size = Math.max(blockSize, count);
+        long first = reserveBlock(size);
+        current = new Block(first, first + size - 1);
+        blockCount++;
+
+        logger.logdInfo("Reserved accession keys " + first + " to " +
+                        (first + size - 1),false);
+    }
+
+    /**
+     * Reserve a block of keys in the database. The advisory lock is held for
+     * the statement only, and the block starts past both the sequence and
+     * the largest key in the ACC_Accession table, so it is safe even if
+     * keys have been added without using the sequence.
+     * @assumes Other loaders that add ACC_Accession records at the same time
+     *          reserve their keys through the same sequence.
+     * @effects Moves the sequence to the last key in the block.
+     * @param size The number of keys to reserve.
+     * @return The first key in the block.
+     * @throws MGIException If the block cannot be reserved.
+     */
+    private long reserveBlock (int size)
+        throws MGIException
+    {
+        String sql = "SELECT setval('" + sequence + "', " +
+                            "greatest(nextval('" + sequence + "'), " +
+                                     "(SELECT coalesce(max(_Accession_key),0) + 1 " +
+                                      "FROM ACC_Accession)) + " + (size - 1) + ") - " +
+                            (size - 1) + " " +
+                     "FROM (SELECT pg_advisory_xact_lock(" + LOCK_ID + ")) l";
+        logger.logdInfo("Execute Query: "+sql,true);
+        ResultsNavigator rn = sqlMgr.executeQuery(sql);
+
+        long first = -1;
+        if (rn.next())
+        {
+            RowReference row = rn.getRowReference();
+            first = row.getInt(1).longValue();
+        }
+        rn.close();
+
+        if (first < 1)
+            throw new MGIException("Cannot reserve accession keys from " +
+                                   sequence);
+        return first;
+    }
+
+
+    /**
+     * @is A block of reserved keys.
+     * @has
+     *   <UL>
+     *   <LI> The next unused key and the last key in the block.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private static class Block
+    {
+        final AtomicLong next;
+        final long last;
+
+        Block (long first, long pLast)
+        {
+            next = new AtomicLong(first);
+            last = pLast;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.jax.mgi.app.assocload;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * @is A holder for the Java Flight Recorder event types of the association
+ *     loader.
+ * @has
+ *   <UL>
+ *   <LI> An event for each MGIAssociation object that is processed.
+ *   <LI> An event for each association that is made.
+ *   <LI> An event for each discrepancy that is reported.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Nothing. The events are only recorded when a flight recording is
+ *        running with them enabled (e.g. -XX:StartFlightRecording), so the
+ *        load can be profiled without any code changes. When they are not
+ *        enabled, creating and committing them costs next to nothing.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class AssociationLoadEvents
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The category the events are shown under.
+    //
+    private static final String CATEGORY = "MGI";
+    private static final String SUB_CATEGORY = "Association Loader";
+
+
+    /**
+     * @is A JFR event for deciding the output for one MGIAssociation object.
+     * @has
+     *   <UL>
+     *   <LI> The target accession ID and type, the number of rows and
+     *        distinct accession ID/logical DB pairs, and the number of each
+     *        type of action taken.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    @Name("org.jax.mgi.assocload.AssociationProcessed")
+    @Label("Association Processed")
+    @Description("Deciding the output for one MGIAssociation object")
+    @Category({ CATEGORY, SUB_CATEGORY })
+    public static class Processed extends Event
+    {
+        @Label("Target Accession ID")
+        String targetAccID;
+
+        @Label("Target Type")
+        String targetType;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Distinct Pairs")
+        int pairs;
+
+        @Label("Associations Made")
+        int associated;
+
+        @Label("Associations Existing")
+        int existing;
+
+        @Label("Associations Skipped")
+        int skipped;
+
+        @Label("Discrepancies Reported")
+        int reported;
+    }
+
+    /**
+     * @is A JFR event for making one association.
+     * @has
+     *   <UL>
+     *   <LI> The accession ID, logical DB, MGI type and object of the
+     *        association, and whether it was kept from the prior run of the
+     *        job stream.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    @Name("org.jax.mgi.assocload.AssociationMade")
+    @Label("Association Made")
+    @Description("Making one association in the bcp streams")
+    @Category({ CATEGORY, SUB_CATEGORY })
+    public static class Associated extends Event
+    {
+        @Label("Accession ID")
+        String accID;
+
+        @Label("Logical DB Key")
+        int logicalDBKey;
+
+        @Label("MGI Type Key")
+        int mgiTypeKey;
+
+        @Label("Object Key")
+        int objectKey;
+
+        @Label("Kept")
+        @Description("The association was kept from the prior run")
+        boolean kept;
+    }
+
+    /**
+     * @is A JFR event for reporting one discrepancy.
+     * @has
+     *   <UL>
+     *   <LI> The type of discrepancy ("target" or "associate"), the target
+     *        accession ID, the accession ID and logical DB that could not be
+     *        associated and the message.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    @Name("org.jax.mgi.assocload.DiscrepancyReported")
+    @Label("Discrepancy Reported")
+    @Description("Reporting one discrepancy in the QC streams")
+    @Category({ CATEGORY, SUB_CATEGORY })
+    public static class Discrepancy extends Event
+    {
+        @Label("Discrepancy Type")
+        String discrepType;
+
+        @Label("Target Accession ID")
+        String targetAccID;
+
+        @Label("Accession ID")
+        String accID;
+
+        @Label("Logical DB Key")
+        int logicalDBKey;
+
+        @Label("Message")
+        String message;
+    }
+}
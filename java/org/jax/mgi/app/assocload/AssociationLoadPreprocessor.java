@@ -4,7 +4,10 @@ import org.jax.mgi.dbs.SchemaConstants;
 import org.jax.mgi.dbs.mgd.LogicalDBConstants;
 import org.jax.mgi.dbs.mgd.MGITypeConstants;
 import org.jax.mgi.shr.config.AssociationLoaderCfg;
+import org.jax.mgi.shr.config.DatabaseCfg;
 import org.jax.mgi.shr.config.RADARCfg;
+import org.jax.mgi.shr.dbutils.ResultsNavigator;
+import org.jax.mgi.shr.dbutils.RowReference;
 import org.jax.mgi.shr.dbutils.SQLDataManager;
 import org.jax.mgi.shr.dbutils.SQLDataManagerFactory;
 import org.jax.mgi.shr.dla.log.DLALogger;
@@ -17,7 +20,10 @@ import org.jax.mgi.shr.exception.MGIException;
  * @does
  *   <UL>
  *   <LI> Provides a method to delete any associations and reference records
- *        that were created by the prior run of the current job stream.
+ *        that were created by the prior run of the current job stream,
+ *        either with one statement per table or in batches of keys.
+ *   <LI> Provides methods to run the delete on a separate thread and
+ *        connection and to wait for it to finish.
  *   </UL>
  * @company The Jackson Laboratory
  * @author dbm
@@ -34,6 +40,19 @@ public class AssociationLoadPreprocessor
     //
     private DLALogger logger = null;
 
+    // The thread that deletes the prior records in the background (if
+    // started), its connection and any error that stopped it.
+    //
+    private Thread deleteThread = null;
+    private SQLDataManager deleteSqlMgr = null;
+    private MGIException deleteError = null;
+
+    // An object that records the time of the deletes (or null) and the
+    // number of rows deleted.
+    //
+    private RunMetrics metrics = null;
+    private long deletedCount = 0;
+
 
     /**
      * Constructs a AssociationLoadPreprocessor object.
@@ -47,6 +66,21 @@ public class AssociationLoadPreprocessor
         logger = pLogger;
     }
 
+    /**
+     * Constructs a AssociationLoadPreprocessor object that records the time
+     * of the deletes.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger to write messages to.
+     * @param pMetrics The object that records the time of each phase.
+     * @throws Nothing
+     */
+    public AssociationLoadPreprocessor (DLALogger pLogger, RunMetrics pMetrics)
+    {
+        logger = pLogger;
+        metrics = pMetrics;
+    }
+
     /**
      * Delete all associations the prior run of the current job stream.
      * @assumes Nothing
@@ -57,6 +91,116 @@ public class AssociationLoadPreprocessor
      */
     public void deletePriorRecords ()
         throws MGIException
+    {
+        deletePriorRecords(SQLDataManagerFactory.getShared(SchemaConstants.MGD));
+    }
+
+    /**
+     * Start deleting all associations from the prior run of the current job
+     * stream on a separate thread, using its own connection to the MGD
+     * database. waitForDelete() must be called before anything that depends
+     * on the deletes (reading the associations from MGD or loading the new
+     * ones).
+     * @assumes Nothing
+     * @effects Starts a thread.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the connection cannot be created.
+     */
+    public void startDelete ()
+        throws MGIException
+    {
+        deleteSqlMgr = new SQLDataManager(new DatabaseCfg(SchemaConstants.MGD));
+        deleteSqlMgr.setLogger(logger);
+
+        deleteThread = new Thread(new Runnable()
+        {
+            public void run ()
+            {
+                try
+                {
+                    deletePriorRecords(deleteSqlMgr);
+                }
+                catch (MGIException e)
+                {
+                    deleteError = e;
+                }
+            }
+        }, "assocload-delete");
+        deleteThread.start();
+    }
+
+    /**
+     * Wait for the deletes started by startDelete() to finish. It does
+     * nothing if they were not started or have already been waited for.
+     * @assumes Nothing
+     * @effects Closes the connection used for the deletes.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the deletes failed.
+     */
+    public void waitForDelete ()
+        throws MGIException
+    {
+        if (deleteThread == null)
+            return;
+
+        logger.logdInfo("Wait for the prior records to be deleted",false);
+        try
+        {
+            deleteThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            throw new MGIException("Interrupted while deleting prior records");
+        }
+        finally
+        {
+            if (!deleteThread.isAlive())
+            {
+                deleteThread = null;
+                deleteSqlMgr.closeResources();
+            }
+        }
+
+        if (deleteError != null)
+            throw deleteError;
+    }
+
+    /**
+     * Delete all associations the prior run of the current job stream using
+     * the given connection.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param sqlMgr The SQLDataManager for the MGD database.
+     * @return Nothing
+     * @throws MGIException If there is a problem with configuration or lookups.
+     */
+    private void deletePriorRecords (SQLDataManager sqlMgr)
+        throws MGIException
+    {
+        RunMetrics.Phase phase = null;
+        if (metrics != null)
+            phase = metrics.startPhase("deletePriorRecords");
+
+        deletedCount = 0;
+        deleteRecords(sqlMgr);
+
+        if (phase != null)
+            phase.end(deletedCount);
+    }
+
+    /**
+     * Delete all associations the prior run of the current job stream using
+     * the given connection, unless the load is configured not to.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param sqlMgr The SQLDataManager for the MGD database.
+     * @return Nothing
+     * @throws MGIException If there is a problem with configuration or lookups.
+     */
+    private void deleteRecords (SQLDataManager sqlMgr)
+        throws MGIException
     {
         String jobStreamName = null;
         String sql = null;
@@ -72,6 +216,13 @@ public class AssociationLoadPreprocessor
         if (deleteReload.booleanValue() == false)
             return;
 
+        // If the associations are being synchronized, the prior records are
+        // only deleted if they are not made again (see
+        // JobStreamAssociationSync).
+        //
+        if (assocCfg.getSync().booleanValue())
+            return;
+
         // Create a configurator and get the job stream name that is used to
         // identify the records to delete.
         //
@@ -83,9 +234,14 @@ public class AssociationLoadPreprocessor
         logger.logdInfo("Delete current associations and reference records " +
                         "created by: " + jobStreamName,true);
 
-        // Get an SQLDataManager for the MGD database from the factory.
+        // Delete the records in batches if a batch size is configured.
         //
-        SQLDataManager sqlMgr = SQLDataManagerFactory.getShared(SchemaConstants.MGD);
+        int batchSize = assocCfg.getDeleteBatchSize().intValue();
+        if (batchSize > 0)
+        {
+            deleteInBatches(sqlMgr, jobStreamName, batchSize);
+            return;
+        }
 
         // Load a temp table with a list of all keys for associations that
         // were made by the prior run of this job stream.
@@ -110,6 +266,7 @@ public class AssociationLoadPreprocessor
         logger.logdInfo("Execute SQL: "+sql,true);
         rtn = sqlMgr.executeUpdate(sql);
         logger.logdInfo("Rows affected: "+rtn,false);
+        deletedCount += rtn;
 
         // Delete all the ACC_Accession records for the list of keys.
         //
@@ -119,6 +276,7 @@ public class AssociationLoadPreprocessor
         logger.logdInfo("Execute SQL: "+sql,true);
         rtn = sqlMgr.executeUpdate(sql);
         logger.logdInfo("Rows affected: "+rtn,false);
+        deletedCount += rtn;
 
         // Drop the temp table that was created.
         //
@@ -136,5 +294,275 @@ public class AssociationLoadPreprocessor
         logger.logdInfo("Execute SQL: "+sql,true);
         rtn = sqlMgr.executeUpdate(sql);
         logger.logdInfo("Rows affected: "+rtn,false);
+        deletedCount += rtn;
+    }
+
+    /**
+     * Delete the associations and reference records created by the prior run
+     * of the current job stream in batches of keys, in key order. Each batch
+     * is deleted by one statement, so it is either deleted completely or not
+     * at all. If the load is stopped part way, the next run continues with
+     * the records that are left. The PRB_Reference records are deleted at
+     * the same time on a separate connection.
+     * @assumes Nothing
+     * @effects Deletes records from the ACC_AccessionReference,
+     *          ACC_Accession and PRB_Reference tables.
+     * @param sqlMgr The SQLDataManager for the MGD database.
+     * @param jobStreamName The job stream name.
+     * @param batchSize The number of keys in each batch.
+     * @return Nothing
+     * @throws MGIException If there is a problem deleting the records.
+     */
+    private void deleteInBatches (SQLDataManager sqlMgr, String jobStreamName,
+                                  final int batchSize)
+        throws MGIException
+    {
+        // Get the key of the user for the job stream, so the batches can be
+        // selected from the index on the creator of the records.
+        //
+        String sql = "SELECT _User_key " +
+                     "FROM MGI_User " +
+                     "WHERE login = '" + jobStreamName + "'";
+        logger.logdInfo("Execute Query: "+sql,true);
+        ResultsNavigator rn = sqlMgr.executeQuery(sql);
+        Integer key = null;
+        if (rn.next())
+            key = rn.getRowReference().getInt(1);
+        rn.close();
+
+        if (key == null)
+        {
+            logger.logdInfo("No user for job stream: " + jobStreamName,false);
+            return;
+        }
+        final int userKey = key.intValue();
+
+        // Delete the PRB_Reference records on a separate connection.
+        //
+        SQLDataManager probeSqlMgr =
+            new SQLDataManager(new DatabaseCfg(SchemaConstants.MGD));
+        BatchDeleter probeRefDeleter =
+            new BatchDeleter(probeSqlMgr, "PRB_Reference")
+        {
+            protected String getBatchSQL (long lastKey)
+            {
+                return "WITH k AS (SELECT _Reference_key " +
+                                  "FROM PRB_Reference " +
+                                  "WHERE _CreatedBy_key = " + userKey + " and " +
+                                        "_Reference_key > " + lastKey + " " +
+                                  "ORDER BY _Reference_key " +
+                                  "LIMIT " + batchSize + "), " +
+                            "d AS (DELETE FROM PRB_Reference " +
+                                  "USING k " +
+                                  "WHERE PRB_Reference._Reference_key = k._Reference_key " +
+                                  "RETURNING 1) " +
+                       "SELECT (SELECT max(_Reference_key) FROM k), " +
+                              "(SELECT count(*) FROM d)";
+            }
+        };
+        Thread probeRefThread = new Thread(probeRefDeleter,
+                                           "assocload-delete-PRB_Reference");
+        probeRefThread.start();
+
+        // Delete the ACC_AccessionReference and ACC_Accession records for
+        // each batch of accession keys in the same statement.
+        //
+        BatchDeleter accDeleter =
+            new BatchDeleter(sqlMgr, "ACC_AccessionReference/ACC_Accession")
+        {
+            protected String getBatchSQL (long lastKey)
+            {
+                return "WITH k AS (SELECT DISTINCT _Accession_key " +
+                                  "FROM ACC_AccessionReference " +
+                                  "WHERE _CreatedBy_key = " + userKey + " and " +
+                                        "_Accession_key > " + lastKey + " " +
+                                  "ORDER BY _Accession_key " +
+                                  "LIMIT " + batchSize + "), " +
+                            "r AS (DELETE FROM ACC_AccessionReference " +
+                                  "USING k " +
+                                  "WHERE ACC_AccessionReference._Accession_key = k._Accession_key " +
+                                  "RETURNING 1), " +
+                            "a AS (DELETE FROM ACC_Accession " +
+                                  "USING k " +
+                                  "WHERE ACC_Accession._Accession_key = k._Accession_key " +
+                                  "RETURNING 1) " +
+                       "SELECT (SELECT max(_Accession_key) FROM k), " +
+                              "(SELECT count(*) FROM r) + (SELECT count(*) FROM a)";
+            }
+        };
+
+        try
+        {
+            accDeleter.run();
+        }
+        finally
+        {
+            // Wait for the PRB_Reference records to be deleted.
+            //
+            try
+            {
+                probeRefThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                throw new MGIException("Interrupted while deleting from " +
+                                       "PRB_Reference");
+            }
+            finally
+            {
+                probeSqlMgr.closeResources();
+            }
+        }
+
+        accDeleter.checkError();
+        probeRefDeleter.checkError();
+    }
+
+
+    /**
+     * Add to the number of rows deleted.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param count The number of rows.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private synchronized void addDeletedCount (long count)
+    {
+        deletedCount += count;
+    }
+
+    /**
+     * @is An object that deletes records from a table in batches of keys and
+     *     logs its progress.
+     * @has
+     *   <UL>
+     *   <LI> The SQLDataManager used to delete the records.
+     *   <LI> The last key deleted and the number of rows deleted.
+     *   <LI> Any error that stopped the deletes.
+     *   </UL>
+     * @does
+     *   <UL>
+     *   <LI> Executes the statement for each batch until there are no more
+     *        keys to delete.
+     *   <LI> Logs the number of rows deleted per second after each batch.
+     *   </UL>
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private abstract class BatchDeleter implements Runnable
+    {
+        /////////////////
+        //  Variables  //
+        /////////////////
+
+        // The SQLDataManager and the name of the table(s) for messages.
+        //
+        private SQLDataManager sqlMgr = null;
+        private String tableName = null;
+
+        // Any error that stopped the deletes.
+        //
+        private MGIException error = null;
+
+
+        /**
+         * Constructs a BatchDeleter object.
+         * @assumes Nothing
+         * @effects Nothing
+         * @param pSqlMgr The SQLDataManager used to delete the records.
+         * @param pTableName The name of the table(s) for messages.
+         * @throws Nothing
+         */
+        public BatchDeleter (SQLDataManager pSqlMgr, String pTableName)
+        {
+            sqlMgr = pSqlMgr;
+            tableName = pTableName;
+        }
+
+        /**
+         * Get the statement that deletes the next batch of records. It must
+         * return one row with the last key of the batch (null if there were
+         * no more keys) and the number of rows deleted.
+         * @assumes Nothing
+         * @effects Nothing
+         * @param lastKey The last key of the previous batch.
+         * @return The SQL statement.
+         * @throws Nothing
+         */
+        protected abstract String getBatchSQL (long lastKey);
+
+        /**
+         * Delete the records one batch at a time.
+         * @assumes Nothing
+         * @effects Deletes records from the table(s).
+         * @param None
+         * @return Nothing
+         * @throws Nothing
+         */
+        public void run ()
+        {
+            long lastKey = 0;
+            long total = 0;
+            long start = System.currentTimeMillis();
+
+            try
+            {
+                while (true)
+                {
+                    String sql = getBatchSQL(lastKey);
+                    if (lastKey == 0)
+                        logger.logdInfo("Execute SQL: "+sql,true);
+
+                    ResultsNavigator rn = sqlMgr.executeQuery(sql);
+                    Integer key = null;
+                    int rows = 0;
+                    if (rn.next())
+                    {
+                        RowReference row = rn.getRowReference();
+                        key = row.getInt(1);
+                        rows = row.getInt(2).intValue();
+                    }
+                    rn.close();
+
+                    if (key == null)
+                        break;
+
+                    lastKey = key.longValue();
+                    total += rows;
+
+                    long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+                    logger.logdInfo("Deleted " + rows + " rows from " +
+                                    tableName + " through key " + lastKey +
+                                    " (" + total + " total, " +
+                                    (total * 1000 / elapsed) + " rows/sec)",false);
+                }
+
+                logger.logdInfo("Rows deleted from " + tableName + ": " + total,
+                                false);
+                addDeletedCount(total);
+            }
+            catch (MGIException e)
+            {
+                error = e;
+            }
+        }
+
+        /**
+         * Throw the error that stopped the deletes, if there was one.
+         * @assumes run() has finished.
+         * @effects Nothing
+         * @param None
+         * @return Nothing
+         * @throws MGIException The error that stopped the deletes.
+         */
+        public void checkError ()
+            throws MGIException
+        {
+            if (error != null)
+                throw error;
+        }
     }
 }
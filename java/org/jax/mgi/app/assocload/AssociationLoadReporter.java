@@ -1,5 +1,8 @@
 package org.jax.mgi.app.assocload;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import org.jax.mgi.dbs.rdr.dao.QC_AssocLoad_Target_DiscrepDAO;
 import org.jax.mgi.dbs.rdr.dao.QC_AssocLoad_Target_DiscrepState;
 import org.jax.mgi.dbs.rdr.dao.QC_AssocLoad_Assoc_DiscrepDAO;
@@ -14,12 +17,18 @@ import org.jax.mgi.shr.exception.MGIException;
  * @has
  *   <UL>
  *   <LI> A stream for writing DAO objects to.
+ *   <LI> Optionally, a thread that writes the DAO objects to the stream and
+ *        a bounded queue of batches of discrepancies for it to write.
  *   </UL>
  * @does
  *   <UL>
  *   <LI> Provides methods that report discrepancy errors found in a
  *        MGIAssociation object by creating DAO objects for the corresponding
  *        QC report tables.
+ *   <LI> If the writer thread is started, the discrepancies are added to a
+ *        batch instead, and full batches are queued for the writer thread,
+ *        so a load with many discrepancies is not held up by the QC stream
+ *        unless the queue is full.
  *   </UL>
  * @company The Jackson Laboratory
  * @author dbm
@@ -31,6 +40,21 @@ public class AssociationLoadReporter
     //  Variables  //
     /////////////////
 
+    // The number of discrepancies in each batch and the number of full
+    // batches that can be queued for the writer thread.
+    //
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_BATCHES = 16;
+
+    // Types of discrepancies in a batch.
+    //
+    private static final int TARGET_DISCREP = 1;
+    private static final int ASSOC_DISCREP = 2;
+
+    // The value used in a batch for a key that is null.
+    //
+    private static final int NO_KEY = Integer.MIN_VALUE;
+
     // A stream for handling DAO objects.
     //
     private SQLStream stream;
@@ -39,6 +63,28 @@ public class AssociationLoadReporter
     //
     private DLALogger logger;
 
+    // The writer thread, the queues of full and empty batches, the batch
+    // being filled and the exception thrown by the writer thread (if any).
+    // The end of the discrepancies is marked by queuing the END batch.
+    //
+    private Thread writer = null;
+    private ArrayBlockingQueue fullBatches = null;
+    private ArrayBlockingQueue freeBatches = null;
+    private DiscrepBatch batch = null;
+    private volatile MGIException writerError = null;
+    private static final DiscrepBatch END = new DiscrepBatch(0);
+
+    // The number of discrepancies queued and the time spent waiting for
+    // the writer thread when the queue was full (milliseconds).
+    //
+    private long queuedCount = 0;
+    private long waitTime = 0;
+
+    // The discrepancies that are kept for the discrepancy reports (or null
+    // if the Python scripts query the rows from the QC tables).
+    //
+    private DiscrepancyReports reports = null;
+
 
     /**
      * Constructs a AssociationLoadReporter object.
@@ -55,8 +101,98 @@ public class AssociationLoadReporter
     }
 
     /**
-     * Create a DAO object for the QC_AssocLoad_Target_Discrep table and send
-     * it to the stream.
+     * Keep each discrepancy that is reported, so the discrepancy reports can
+     * be written without querying the QC tables.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pReports The object to add the discrepancies to.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void setReports(DiscrepancyReports pReports)
+    {
+        reports = pReports;
+    }
+
+    /**
+     * Start a thread that writes the discrepancies to the stream. After this
+     * is called, the stream must not be used by any other thread until
+     * finish() is called.
+     * @assumes Nothing
+     * @effects Starts a thread.
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void startWriter()
+    {
+        if (writer != null)
+            return;
+
+        fullBatches = new ArrayBlockingQueue(QUEUE_BATCHES);
+        freeBatches = new ArrayBlockingQueue(QUEUE_BATCHES + 2);
+        batch = new DiscrepBatch(BATCH_SIZE);
+
+        writer = new Thread(new Runnable()
+        {
+            public void run ()
+            {
+                writeBatches();
+            }
+        }, "assocload-qc");
+        writer.setDaemon(true);
+        writer.start();
+
+        logger.logdInfo("Write the discrepancies on a separate thread",false);
+    }
+
+    /**
+     * Write any discrepancies that are still queued and stop the writer
+     * thread. It does nothing if the writer thread was not started or has
+     * already been stopped.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the writer thread could not write a
+     *         discrepancy.
+     */
+    public void finish()
+        throws MGIException
+    {
+        if (writer == null)
+            return;
+
+        try
+        {
+            if (batch.size > 0 && writerError == null)
+                queue(batch);
+        }
+        finally
+        {
+            batch = null;
+            queue(END);
+        }
+
+        try
+        {
+            writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            throw new MGIException("Interrupted while writing discrepancies");
+        }
+        writer = null;
+
+        logger.logdInfo("Discrepancies written on a separate thread: " +
+                        queuedCount + " (waited " + waitTime + " ms)",false);
+
+        if (writerError != null)
+            throw writerError;
+    }
+
+    /**
+     * Report a discrepancy for the QC_AssocLoad_Target_Discrep table.
      * @assumes Nothing
      * @effects Nothing
      * @param accID The target accession ID.
@@ -73,16 +209,154 @@ public class AssociationLoadReporter
                                         String expMGIType, String msg)
         throws MGIException
     {
-        if (objectKey != null)
-            logger.logdDebug("Target Discrepancy: "+
-                             accID+","+logicalDBKey.intValue()+","+
-                             objectKey.intValue()+","+mgiTypeKey.intValue()+","+
-                             expMGIType+","+msg,false);
+        AssociationLoadEvents.Discrepancy event =
+            new AssociationLoadEvents.Discrepancy();
+        event.begin();
+
+        if (logger.isDebug())
+        {
+            if (objectKey != null)
+                logger.logdDebug("Target Discrepancy: "+
+                                 accID+","+logicalDBKey.intValue()+","+
+                                 objectKey.intValue()+","+mgiTypeKey.intValue()+","+
+                                 expMGIType+","+msg,false);
+            else
+                logger.logdDebug("Target Discrepancy: "+
+                                 accID+","+logicalDBKey.intValue()+",0,0,"+
+                                 expMGIType+","+msg,false);
+        }
+
+        // Add the discrepancy to the batch if the writer thread is running.
+        // Otherwise write it to the stream now.
+        //
+        if (writer != null)
+        {
+            int i = batch.size++;
+            batch.type[i] = TARGET_DISCREP;
+            batch.accID[i] = accID;
+            batch.logicalDBKey[i] = logicalDBKey.intValue();
+            batch.objectKey[i] = toKey(objectKey);
+            batch.mgiTypeKey[i] = toKey(mgiTypeKey);
+            batch.expMGIType[i] = expMGIType;
+            batch.msg[i] = msg;
+            if (batch.size == BATCH_SIZE)
+                queueBatch();
+        }
         else
-            logger.logdDebug("Target Discrepancy: "+
-                             accID+","+logicalDBKey.intValue()+",0,0,"+
-                             expMGIType+","+msg,false);
+            writeTargetDiscrepancy(accID, logicalDBKey, objectKey, mgiTypeKey,
+                                   expMGIType, msg);
+
+        if (reports != null)
+            reports.addTarget(accID, logicalDBKey, objectKey, mgiTypeKey,
+                              expMGIType, msg);
+
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.discrepType = "target";
+            event.targetAccID = accID;
+            event.accID = accID;
+            event.logicalDBKey = logicalDBKey.intValue();
+            event.message = msg;
+            event.commit();
+        }
+    }
 
+    /**
+     * Report a discrepancy for the QC_AssocLoad_Assoc_Discrep table.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param tgtAccID The target accession ID.
+     * @param tgtLogicalDBKey The target logical DB key.
+     * @param tgtObjectKey The target object key.
+     * @param tgtMGITypeKey The target MGI type key.
+     * @param accID The accession ID that could not be associated.
+     * @param logicalDBKey The logical DB key for the accession ID.
+     * @param objectKey The object key for the accession ID.
+     * @param mgiTypeKey The MGI type key for the accession ID.
+     * @param msg The error message.
+     * @return Nothing
+     * @throws MGIException If there is a problem using the DAOs.
+     */
+    public void reportAssocDiscrepancy(String tgtAccID, int tgtLogicalDBKey,
+                                       int tgtObjectKey, int tgtMGITypeKey,
+                                       String accID, Integer logicalDBKey,
+                                       Integer objectKey, Integer mgiTypeKey,
+                                       String msg)
+        throws MGIException
+    {
+        AssociationLoadEvents.Discrepancy event =
+            new AssociationLoadEvents.Discrepancy();
+        event.begin();
+
+        if (logger.isDebug())
+            logger.logdDebug("Associate Discrepancy: "+
+                             tgtAccID+","+tgtLogicalDBKey+","+
+                             tgtObjectKey+","+tgtMGITypeKey+","+
+                             accID+","+logicalDBKey+","+
+                             objectKey+","+mgiTypeKey+","+
+                             msg,false);
+
+        // Add the discrepancy to the batch if the writer thread is running.
+        // Otherwise write it to the stream now.
+        //
+        if (writer != null)
+        {
+            int i = batch.size++;
+            batch.type[i] = ASSOC_DISCREP;
+            batch.tgtAccID[i] = tgtAccID;
+            batch.tgtLogicalDBKey[i] = tgtLogicalDBKey;
+            batch.tgtObjectKey[i] = tgtObjectKey;
+            batch.tgtMGITypeKey[i] = tgtMGITypeKey;
+            batch.accID[i] = accID;
+            batch.logicalDBKey[i] = toKey(logicalDBKey);
+            batch.objectKey[i] = toKey(objectKey);
+            batch.mgiTypeKey[i] = toKey(mgiTypeKey);
+            batch.msg[i] = msg;
+            if (batch.size == BATCH_SIZE)
+                queueBatch();
+        }
+        else
+            writeAssocDiscrepancy(tgtAccID, tgtLogicalDBKey, tgtObjectKey,
+                                  tgtMGITypeKey, accID, logicalDBKey,
+                                  objectKey, mgiTypeKey, msg);
+
+        if (reports != null)
+            reports.addAssoc(tgtAccID, tgtLogicalDBKey, tgtObjectKey,
+                             tgtMGITypeKey, accID, logicalDBKey, objectKey,
+                             mgiTypeKey, msg);
+
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.discrepType = "associate";
+            event.targetAccID = tgtAccID;
+            event.accID = accID;
+            event.logicalDBKey = logicalDBKey.intValue();
+            event.message = msg;
+            event.commit();
+        }
+    }
+
+    /**
+     * Create a DAO object for the QC_AssocLoad_Target_Discrep table and send
+     * it to the stream.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The target accession ID.
+     * @param logicalDBKey The target logical DB key.
+     * @param objectKey The target object key.
+     * @param mgiTypeKey The target MGI type key.
+     * @param expMGIType The expected MGI type name.
+     * @param msg The error message.
+     * @return Nothing
+     * @throws MGIException If there is a problem using the DAOs.
+     */
+    private void writeTargetDiscrepancy(String accID, Integer logicalDBKey,
+                                        Integer objectKey, Integer mgiTypeKey,
+                                        String expMGIType, String msg)
+        throws MGIException
+    {
         // Create a state object and set the attributes.
         //
         QC_AssocLoad_Target_DiscrepState qcState =
@@ -121,20 +395,13 @@ public class AssociationLoadReporter
      * @return Nothing
      * @throws MGIException If there is a problem using the DAOs.
      */
-    public void reportAssocDiscrepancy(String tgtAccID, int tgtLogicalDBKey,
+    private void writeAssocDiscrepancy(String tgtAccID, int tgtLogicalDBKey,
                                        int tgtObjectKey, int tgtMGITypeKey,
                                        String accID, Integer logicalDBKey,
                                        Integer objectKey, Integer mgiTypeKey,
                                        String msg)
         throws MGIException
     {
-        logger.logdDebug("Associate Discrepancy: "+
-                         tgtAccID+","+tgtLogicalDBKey+","+
-                         tgtObjectKey+","+tgtMGITypeKey+","+
-                         accID+","+logicalDBKey+","+
-                         objectKey+","+mgiTypeKey+","+
-                         msg,false);
-
         // Create a state object and set the attributes.
         //
         QC_AssocLoad_Assoc_DiscrepState qcState =
@@ -156,4 +423,231 @@ public class AssociationLoadReporter
             new QC_AssocLoad_Assoc_DiscrepDAO(qcState);
         stream.insert(qcDAO);
     }
+
+    /**
+     * Queue the current batch for the writer thread and get an empty one.
+     * @assumes The writer thread is running.
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the writer thread has failed.
+     */
+    private void queueBatch()
+        throws MGIException
+    {
+        queue(batch);
+
+        batch = (DiscrepBatch)freeBatches.poll();
+        if (batch == null)
+            batch = new DiscrepBatch(BATCH_SIZE);
+    }
+
+    /**
+     * Queue a batch for the writer thread, waiting while the queue is full.
+     * @assumes The writer thread is running.
+     * @effects Nothing
+     * @param b The batch.
+     * @return Nothing
+     * @throws MGIException If the writer thread has failed.
+     */
+    private void queue(DiscrepBatch b)
+        throws MGIException
+    {
+        // The END batch is always queued, so the writer thread stops even
+        // if it has failed.
+        //
+        boolean end = b == END;
+        if (writerError != null && !end)
+            throw writerError;
+
+        queuedCount += b.size;
+        if (fullBatches.offer(b))
+            return;
+
+        // The queue is full, so wait for the writer thread to catch up, but
+        // stop waiting if it fails.
+        //
+        long start = System.currentTimeMillis();
+        try
+        {
+            while (!fullBatches.offer(b, 100, TimeUnit.MILLISECONDS))
+            {
+                if (writerError != null && !end)
+                    throw writerError;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw new MGIException("Interrupted while reporting discrepancies");
+        }
+        waitTime += System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Write the queued batches to the stream until the END batch is queued.
+     * If a discrepancy cannot be written, the exception is saved and the
+     * rest of the batches are discarded, so the reporting thread is never
+     * left waiting on a full queue.
+     * @assumes Nothing
+     * @effects Writes to the stream.
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void writeBatches()
+    {
+        while (true)
+        {
+            DiscrepBatch b = null;
+            try
+            {
+                b = (DiscrepBatch)fullBatches.take();
+            }
+            catch (InterruptedException e)
+            {
+                writerError = new MGIException("Interrupted while writing " +
+                                               "discrepancies");
+                return;
+            }
+
+            if (b == END)
+                return;
+
+            if (writerError == null)
+            {
+                try
+                {
+                    writeBatch(b);
+                }
+                catch (MGIException e)
+                {
+                    writerError = e;
+                }
+                catch (RuntimeException e)
+                {
+                    writerError = new MGIException("Cannot write " +
+                                                   "discrepancy: " +
+                                                   e.toString());
+                }
+            }
+
+            b.clear();
+            freeBatches.offer(b);
+        }
+    }
+
+    /**
+     * Write the discrepancies in a batch to the stream, in order.
+     * @assumes Nothing
+     * @effects Writes to the stream.
+     * @param b The batch.
+     * @return Nothing
+     * @throws MGIException If there is a problem using the DAOs.
+     */
+    private void writeBatch(DiscrepBatch b)
+        throws MGIException
+    {
+        for (int i=0; i<b.size; i++)
+        {
+            if (b.type[i] == TARGET_DISCREP)
+                writeTargetDiscrepancy(b.accID[i],
+                                       new Integer(b.logicalDBKey[i]),
+                                       fromKey(b.objectKey[i]),
+                                       fromKey(b.mgiTypeKey[i]),
+                                       b.expMGIType[i], b.msg[i]);
+            else
+                writeAssocDiscrepancy(b.tgtAccID[i], b.tgtLogicalDBKey[i],
+                                      b.tgtObjectKey[i], b.tgtMGITypeKey[i],
+                                      b.accID[i], fromKey(b.logicalDBKey[i]),
+                                      fromKey(b.objectKey[i]),
+                                      fromKey(b.mgiTypeKey[i]), b.msg[i]);
+        }
+    }
+
+    /**
+     * Convert a key that may be null to the value used in a batch.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param key The key (or null).
+     * @return The value.
+     * @throws Nothing
+     */
+    private static int toKey(Integer key)
+    {
+        return key == null ? NO_KEY : key.intValue();
+    }
+
+    /**
+     * Convert a value from a batch back to a key that may be null.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param key The value.
+     * @return The key (or null).
+     * @throws Nothing
+     */
+    private static Integer fromKey(int key)
+    {
+        return key == NO_KEY ? null : new Integer(key);
+    }
+
+
+    /**
+     * @is A batch of discrepancies waiting to be written, held in one array
+     *     for each attribute.
+     * @has
+     *   <UL>
+     *   <LI> The type of each discrepancy and the attributes of either type.
+     *        Keys that are null are held as NO_KEY.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private static class DiscrepBatch
+    {
+        int size = 0;
+        int[] type;
+        String[] tgtAccID;
+        int[] tgtLogicalDBKey;
+        int[] tgtObjectKey;
+        int[] tgtMGITypeKey;
+        String[] accID;
+        int[] logicalDBKey;
+        int[] objectKey;
+        int[] mgiTypeKey;
+        String[] expMGIType;
+        String[] msg;
+
+        DiscrepBatch (int capacity)
+        {
+            type = new int[capacity];
+            tgtAccID = new String[capacity];
+            tgtLogicalDBKey = new int[capacity];
+            tgtObjectKey = new int[capacity];
+            tgtMGITypeKey = new int[capacity];
+            accID = new String[capacity];
+            logicalDBKey = new int[capacity];
+            objectKey = new int[capacity];
+            mgiTypeKey = new int[capacity];
+            expMGIType = new String[capacity];
+            msg = new String[capacity];
+        }
+
+        // Clear the batch, dropping the references to the strings so they
+        // can be collected while the batch waits to be re-used.
+        //
+        void clear ()
+        {
+            for (int i=0; i<size; i++)
+            {
+                tgtAccID[i] = null;
+                accID[i] = null;
+                expMGIType[i] = null;
+                msg[i] = null;
+            }
+            size = 0;
+        }
+    }
 }
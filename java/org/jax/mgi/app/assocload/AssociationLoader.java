@@ -5,6 +5,7 @@ import java.util.Vector;
 import org.jax.mgi.dbs.SchemaConstants;
 import org.jax.mgi.shr.config.AssociationLoaderCfg;
 import org.jax.mgi.shr.config.BCPManagerCfg;
+import org.jax.mgi.shr.config.RADARCfg;
 import org.jax.mgi.shr.dbutils.SQLDataManager;
 import org.jax.mgi.shr.dbutils.SQLDataManagerFactory;
 import org.jax.mgi.shr.dbutils.Table;
@@ -99,6 +100,30 @@ import org.jax.mgi.shr.ioutils.RecordDataIterator;
  *     identify accession ID/logical DB pairs that are to be associated with
  *     this MGI object.
  *
+ *     If the environment variable ASSOCLOAD_MAPPED_INPUT is true, the input
+ *     file is read through a memory mapping and parsed byte by byte instead
+ *     of through an InputDataFile.  If ASSOCLOAD_PARSE_THREADS is greater
+ *     than 1, the mapped input file is split into chunks on line boundaries
+ *     that are parsed on that many threads.  The records are still returned
+ *     in file order with the same record keys.
+ *
+ *     If the environment variable ASSOCLOAD_DIRECT is also true, the records
+ *     from the input file are resolved against an in-memory index of the
+ *     ACC_Accession table and processed as they are read, instead of being
+ *     read back from the MGI_Association table.  The MGI_Association table is
+ *     still loaded for auditing unless ASSOCLOAD_STAGE_RADAR is false.
+ *
+ *     If the environment variable ASSOCLOAD_PROCESS_THREADS is greater than
+ *     1, the decisions for each MGIAssociation are made on that many worker
+ *     threads, each with its own processor and counters.  The resulting bcp
+ *     records are written in the original order by the main thread, so the
+ *     output is the same as a serial run.
+ *
+ *     If the environment variable ASSOCLOAD_USE_ACC_INDEX is true, the
+ *     MGI_Association records are resolved against an in-memory index of the
+ *     ACC_Accession table (for the logical DBs used by the job stream) rather
+ *     than by joining to ACC_Accession in the query.
+ *
  *     If the target is not associated with one (and only one) MGI object,
  *     an error is generated for the "Target Discrepancy" QC report.  The
  *     remaining accession IDs are analyzed based on whether their logical DBs
@@ -163,6 +188,21 @@ public class AssociationLoader extends DLALoader
     //
     private boolean loadFromFile = false;
 
+    // A flag to indicate whether the associations from the input file are
+    // passed directly to the MGIAssociationProcessor instead of being read
+    // back from the MGI_Association table.
+    //
+    private boolean direct = false;
+
+    // A flag to indicate whether the MGI_Association table is loaded from the
+    // input file.
+    //
+    private boolean stageRADAR = true;
+
+    // The number of threads used to process the associations.
+    //
+    private int processThreads = 1;
+
     // A stream for writing bcp records to the MGI_Association table if the load
     // is configured to perform this step.
     //
@@ -191,10 +231,56 @@ public class AssociationLoader extends DLALoader
     //
     private MGIAssociationProcessor assocProcessor = null;
 
+    // An object that processes MGIAssociation objects on several threads
+    // (if needed).
+    //
+    private ParallelAssociationProcessor parallelProcessor = null;
+
+    // An object that synchronizes the associations from the prior run of the
+    // job stream instead of deleting and reloading them (if needed).
+    //
+    private JobStreamAssociationSync jobStreamSync = null;
+
+    // Indicates whether the prior records are deleted in the background.
+    //
+    private boolean asyncDelete = false;
+
+    // Indicates whether the ACC_Accession, ACC_AccessionReference and
+    // PRB_Reference records are loaded with COPY commands while the
+    // associations are processed, and the number of associations to commit
+    // at a time when they are.
+    //
+    private boolean mgdCopy = false;
+    private int mgdCopyBatchSize = 0;
+
+    // An object that loads the MGD records with COPY commands (if needed).
+    //
+    private MGDCopyPipeline copyPipeline = null;
+
+    // The name of the accession key sequence and the number of keys to
+    // reserve from it at a time.
+    //
+    private String accKeySequence = null;
+    private int accKeyBlockSize = 0;
+
+    // An object that records the time and throughput of each phase.
+    //
+    private RunMetrics metrics = null;
+    private RunMetrics.Phase initPhase = null;
+
     // An object that reports any discrepancy errors in a MGIAssociation object.
     //
     private AssociationLoadReporter assocRpt = null;
 
+    // The discrepancies kept for the discrepancy reports (or null if the
+    // Python scripts query the rows from the QC tables).
+    //
+    private DiscrepancyReports discrepRpts = null;
+
+    // The configuration and database lookups resolved at startup.
+    //
+    private StartupLookups lookups = null;
+
 
     /**
      * Initialize all the class variables.
@@ -209,35 +295,115 @@ public class AssociationLoader extends DLALoader
     {
         logger.logpInfo("Perform initialization",false);
 
+        // Start recording the time and throughput of each phase.
+        //
+        metrics = new RunMetrics(new RADARCfg().getJobStreamName());
+        initPhase = metrics.startPhase("initialize");
+
         // Determine if the MGI_Association table is to be loaded from an
         // input file.
         AssociationLoaderCfg assocLoadCfg = new AssociationLoaderCfg();
         loadFromFile = assocLoadCfg.getLoadFromFile().booleanValue();
 
+        // Determine how many threads are used to process the associations.
+        //
+        processThreads = assocLoadCfg.getProcessThreads().intValue();
+
+        // Determine if the associations from the input file are processed
+        // directly and whether they are still staged in the MGI_Association
+        // table.
+        //
         if (loadFromFile)
         {
-            // Create an input data file object for the input file.
-            //
-            inFile = new InputDataFile();
+            direct = assocLoadCfg.getDirect().booleanValue();
+            if (direct)
+                stageRADAR = assocLoadCfg.getStageRADAR().booleanValue();
+        }
+
+        // Start resolving the lookups that are needed to process the
+        // associations. They are resolved on a separate thread while the
+        // rest of the load is initialized.
+        //
+        lookups = new StartupLookups(logger, metrics, loadFromFile ?
+                                     assocLoadCfg.getInputFileName() : null);
+        lookups.start();
 
+        if (loadFromFile)
+        {
             // Create an interpreter for the input file.
             //
-            interpreter = new DPAssociationInterpreter();
+            interpreter = new DPAssociationInterpreter(lookups);
 
-            // Create an iterator that gets one DP_Association object at a time.
+            // Create an iterator that gets one DP_Association object at a time,
+            // either from chunks of the input file parsed on several threads,
+            // from a memory mapping of the input file or from an input data
+            // file object.
             //
-            iter = inFile.getIterator(interpreter);
+            int parseThreads = assocLoadCfg.getParseThreads().intValue();
+            if (parseThreads > 1)
+            {
+                iter = new ParallelAssociationFileReader(
+                    assocLoadCfg.getInputFileName(), interpreter, parseThreads);
+            }
+            else if (assocLoadCfg.getMappedInput().booleanValue())
+            {
+                iter = new MappedAssociationFileIterator(
+                    assocLoadCfg.getInputFileName(), interpreter);
+            }
+            else
+            {
+                inFile = new InputDataFile();
+                iter = inFile.getIterator(interpreter);
+            }
+        }
+
+        // Determine if the associations from the prior run of the job
+        // stream are synchronized instead of being deleted and reloaded.
+        //
+        if (assocLoadCfg.getDeleteReload().booleanValue() &&
+            assocLoadCfg.getSync().booleanValue())
+            jobStreamSync = new JobStreamAssociationSync(logger, lookups);
+
+        // Determine if the prior records are deleted in the background.
+        //
+        asyncDelete = assocLoadCfg.getAsyncDelete().booleanValue();
+
+        // Determine if the MGD records are loaded with COPY commands.
+        //
+        mgdCopy = assocLoadCfg.getMGDCopy().booleanValue();
+        if (mgdCopy)
+        {
+            mgdCopyBatchSize = assocLoadCfg.getMGDCopyBatchSize().intValue();
+            accKeySequence = assocLoadCfg.getAccKeySequence();
+            accKeyBlockSize = assocLoadCfg.getAccKeyBlockSize().intValue();
         }
 
         // Create a AssociationLoadPreprocessor object for executing the
         // preprocessing steps.
         //
-        assocPrep = new AssociationLoadPreprocessor(logger);
+        assocPrep = new AssociationLoadPreprocessor(logger, metrics);
 
         // Create a AssociationLoadReporter object for reporting any discrepancy
         // errors in a MGIAssociation object.
         //
         assocRpt = new AssociationLoadReporter(qcStream, logger);
+
+        // Write the discrepancies on a separate thread if configured.
+        //
+        if (assocLoadCfg.getAsyncQC().booleanValue())
+            assocRpt.startWriter();
+
+        // Keep the discrepancies for the discrepancy reports if their rows
+        // are written by the loader.
+        //
+        if (assocLoadCfg.getInProcessReports().booleanValue())
+        {
+            discrepRpts = new DiscrepancyReports(logger,
+                                                 assocLoadCfg.getReportDir());
+            assocRpt.setReports(discrepRpts);
+        }
+
+        initPhase.end(0);
     }
 
     /**
@@ -277,10 +443,25 @@ public class AssociationLoader extends DLALoader
             ((BCP_Stream)qcStream).initBCPWriters(qcTables);
 
         // If the MGI_Association table is being loaded from a file by this load,
-        // create an additional stream for writing bcp records to the RADAR
-        // database.
+        // create an additional stream for loading the records into the RADAR
+        // database (with a COPY command or a bcp file).
         //
-        if (loadFromFile)
+        AssociationLoaderCfg assocLoadCfg = new AssociationLoaderCfg();
+        if (loadFromFile && stageRADAR &&
+            assocLoadCfg.getRadarCopy().booleanValue())
+        {
+            // Stream the records into the table with a COPY command on its
+            // own connection while the input file is parsed. The pre-load
+            // SQL is run when the stream is opened.
+            //
+            CopyInStream copyStream =
+                new CopyInStream(logger, new RADARCfg().getJobKey().intValue(),
+                                 assocLoadCfg.getRadarPreSQL(),
+                                 assocLoadCfg.getRadarCopyTee());
+            copyStream.open();
+            radarStream = copyStream;
+        }
+        else if (loadFromFile && stageRADAR)
         {
             // Get a SQLDataManager and a BCPManager and use them to create a
             // new stream.
@@ -305,9 +486,20 @@ public class AssociationLoader extends DLALoader
         }
 
         // Delete any existing associations for the load reference if the load
-        // has been configured to delete them.
+        // has been configured to delete them. The deletes can run in the
+        // background while the input file is loaded, since that only writes
+        // to the RADAR database.
+        //
+        if (asyncDelete)
+            assocPrep.startDelete();
+        else
+            assocPrep.deletePriorRecords();
+
+        // Load the associations from the prior run of the job stream if they
+        // are being synchronized instead.
         //
-        assocPrep.deletePriorRecords();
+        if (jobStreamSync != null)
+            jobStreamSync.load();
     }
 
     /**
@@ -322,71 +514,280 @@ public class AssociationLoader extends DLALoader
     protected void run ()
         throws MGIException
     {
-        int count = 0;
-        DPAssociation dpAssoc = null;
-        MGIAssociation mgiAssoc = null;
-
         // Write a heading to the data validation log.
         //
         logger.logvInfo("\nAssociation Loader Validation Errors",false);
         logger.logvInfo("------------------------------------",false);
 
-        if (loadFromFile)
+        // Create a MGIAssociationProcessor object for processing each
+        // MGIAssociation object.
+        //
+        assocProcessor = new MGIAssociationProcessor(loadStream, logger, assocRpt,
+                                                     lookups);
+        assocProcessor.setSync(jobStreamSync);
+
+        // Start loading the MGD records with COPY commands if they are not
+        // loaded from the bcp files at the end. The prior records must be
+        // deleted first, since both are identified by the job stream.
+        //
+        if (mgdCopy)
         {
-            logger.logpInfo("Process the data provider input file",false);
-            logger.logdInfo("Process the data provider input file",true);
+            waitForDelete();
+            logger.logdInfo("Load the ACC_Accession, ACC_AccessionReference " +
+                            "and PRB_Reference tables with COPY commands",
+                            true);
+            AccessionKeyReserver accKeys = new AccessionKeyReserver(
+                SQLDataManagerFactory.getShared(SchemaConstants.MGD), logger,
+                accKeySequence, accKeyBlockSize);
+            copyPipeline = new MGDCopyPipeline(logger, accKeys,
+                new RADARCfg().getJobStreamName(), mgdCopyBatchSize);
+            copyPipeline.start();
+            assocProcessor.setCopyPipeline(copyPipeline);
+        }
 
-            // Process each DP_Association object returned by the iterator.
-            //
-            while (iter.hasNext())
+        // Create a ParallelAssociationProcessor object if the associations
+        // are processed on more than one thread.
+        //
+        if (processThreads > 1)
+        {
+            logger.logdInfo("Process the associations on " + processThreads +
+                            " threads",false);
+            parallelProcessor =
+                new ParallelAssociationProcessor(assocProcessor, processThreads);
+        }
+
+        // Either process the associations from the input file directly or
+        // load them into the MGI_Association table (if needed) and process
+        // them from there.
+        //
+        if (direct)
+            processInputFile();
+        else
+        {
+            if (loadFromFile)
+                loadInputFile();
+            processAssociations();
+        }
+
+        // Write the output of any associations that are still being processed
+        // and add the counts from the worker threads.
+        //
+        if (parallelProcessor != null)
+        {
+            RunMetrics.Phase phase = metrics.startPhase("processFinish");
+            parallelProcessor.finish();
+            phase.end(0);
+        }
+
+        // Delete the associations from the prior run of the job stream that
+        // were not made again.
+        //
+        if (jobStreamSync != null)
+        {
+            RunMetrics.Phase phase = metrics.startPhase("syncDelete");
+            jobStreamSync.deleteVanished();
+            phase.end(jobStreamSync.getDeletedCount() +
+                      jobStreamSync.getDeletedProbeRefCount());
+        }
+
+        // The prior records must be deleted before the new ones are loaded,
+        // since both are identified by the job stream.
+        //
+        waitForDelete();
+
+        // Send the rest of the records that are loaded with COPY commands.
+        //
+        if (copyPipeline != null)
+        {
+            RunMetrics.Phase phase = metrics.startPhase("copyPipelineDrain");
+            copyPipeline.finish();
+            phase.end(copyPipeline.getAccessionCount());
+        }
+
+        // Load the bcp files for tables in the MGD database.
+        //
+        logger.logpInfo("Load the bcp files for the ACC_Accession, " +
+                        "ACC_AccessionReference and PRB_Reference tables",false);
+        logger.logdInfo("Load the bcp files for the ACC_Accession, " +
+                        "ACC_AccessionReference and PRB_Reference tables",true);
+        RunMetrics.Phase loadPhase = metrics.startPhase("loadStreamClose");
+        loadStream.close();
+        loadPhase.end(assocProcessor.getAssocCount());
+
+        // Load the bcp files for the QC report tables.
+        //
+        logger.logpInfo("Load the bcp files for the " +
+                        "QC_AssocLoad_Target_Discrep and " +
+                        "QC_AssocLoad_Assoc_Discrep tables",false);
+        logger.logdInfo("Load the bcp files for the " +
+                        "QC_AssocLoad_Target_Discrep and " +
+                        "QC_AssocLoad_Assoc_Discrep tables",true);
+        RunMetrics.Phase qcPhase = metrics.startPhase("qcStreamClose");
+        assocRpt.finish();
+
+        // Write the rows of the discrepancy reports (if they are written by
+        // the loader) while the QC tables are loaded. The rows do not come
+        // from the QC tables, so they do not have to wait for the load.
+        //
+        if (discrepRpts != null)
+        {
+            logger.logdInfo("Write the rows of the discrepancy reports",true);
+            discrepRpts.startWrite();
+        }
+
+        MGIException error = null;
+        try
+        {
+            qcStream.close();
+        }
+        catch (MGIException e)
+        {
+            error = e;
+        }
+        qcPhase.end(assocProcessor.getReportCount());
+
+        // Wait for the report rows, even if the QC load failed, so the
+        // thread is not left running. The first error is the one reported.
+        //
+        if (discrepRpts != null)
+        {
+            RunMetrics.Phase rptPhase =
+                metrics.startPhase("discrepancyReportsWait");
+            try
             {
-                // Get the next DP_Association object from the iterator.
-                //
-                dpAssoc = (DPAssociation)iter.next();
-
-                // If the DP_Association object is null, it means that the
-                // interpreter processed the header record and did not create
-                // a DP_Association object.  Skip to the next iteration.
-                //
-                if (dpAssoc == null)
-                    continue;
-
-                if (count > 0 && count%10000 == 0)
-                    logger.logdInfo("Processed " + count + " input records",false);
-                count++;
-
-                // Send the DP_Association object to the stream.
-                //
-                dpAssoc.insert(radarStream);
+                discrepRpts.waitForWrite();
+            }
+            catch (MGIException e)
+            {
+                if (error == null)
+                    error = e;
             }
+            rptPhase.end(assocProcessor.getReportCount());
+        }
+        if (error != null)
+            throw error;
+
+        // Write the processing counts to the curator summary log.
+        //
+        logger.logcInfo("\nAssociation Loader Processing Counts",false);
+        logger.logcInfo("------------------------------------",false);
+        logger.logcInfo("Number of associations that already exist:       " +
+                        assocProcessor.getExistCount(),false);
+        logger.logcInfo("Number of associations skipped due to an error:  " +
+                        assocProcessor.getSkipCount(),false);
+        logger.logcInfo("Number of associations made:                     " +
+                        assocProcessor.getAssocCount(),false);
+        logger.logcInfo("Number of discrepancy errors reported:           " +
+                        assocProcessor.getReportCount(),false);
+        logger.logcInfo("Number of target resolution cache hits:          " +
+                        assocProcessor.getTargetCacheHits(),false);
+        logger.logcInfo("Number of target resolution cache misses:        " +
+                        assocProcessor.getTargetCacheMisses(),false);
+
+        if (jobStreamSync != null)
+        {
+            logger.logcInfo("Number of prior associations kept:               " +
+                            jobStreamSync.getKeptCount(),false);
+            logger.logcInfo("Number of prior associations deleted:            " +
+                            jobStreamSync.getDeletedCount(),false);
+            logger.logcInfo("Number of prior probe references deleted:        " +
+                            jobStreamSync.getDeletedProbeRefCount(),false);
+        }
+
+        // Write the processing time histogram to the curator summary log.
+        //
+        assocProcessor.getLatencyHistogram().log(logger);
+    }
 
-            logger.logdInfo("Processed " + count + " input records",false);
+    /**
+     * Load the MGI_Association table from the input file.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException if there is an error.
+     */
+    private void loadInputFile ()
+        throws MGIException
+    {
+        int count = 0;
+        DPAssociation dpAssoc = null;
 
-            // Load the bcp file for the MGIAssociation table.
+        logger.logpInfo("Process the data provider input file",false);
+        logger.logdInfo("Process the data provider input file",true);
+        RunMetrics.Phase phase = metrics.startPhase("parse");
+
+        // Process each DP_Association object returned by the iterator.
+        //
+        while (iter.hasNext())
+        {
+            // Get the next DP_Association object from the iterator.
             //
-            logger.logpInfo("Load the bcp file for the MGIAssociation table",false);
-            logger.logdInfo("Load the bcp file for the MGIAssociation table",true);
-            radarStream.close();
+            dpAssoc = (DPAssociation)iter.next();
+
+            // If the DP_Association object is null, it means that the
+            // interpreter processed the header record and did not create
+            // a DP_Association object.  Skip to the next iteration.
+            //
+            if (dpAssoc == null)
+                continue;
+
+            if (count > 0 && count%10000 == 0)
+                logger.logdInfo("Processed " + count + " input records",false);
+            count++;
+
+            // Send the DP_Association object to the stream.
+            //
+            dpAssoc.insert(radarStream);
         }
 
-        // Create a MGIAssociationProcessor object for processing each
-        // MGIAssociation object.
+        logger.logdInfo("Processed " + count + " input records",false);
+        phase.end(count);
+
+        // Load the bcp file for the MGIAssociation table.
         //
-        assocProcessor = new MGIAssociationProcessor(loadStream, logger, assocRpt);
+        logger.logpInfo("Load the bcp file for the MGIAssociation table",false);
+        logger.logdInfo("Load the bcp file for the MGIAssociation table",true);
+        phase = metrics.startPhase("radarStreamClose");
+        radarStream.close();
+        phase.end(count);
+    }
+
+    /**
+     * Process each MGIAssociation object returned by the
+     * MGIAssociationGenerator.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException if there is an error.
+     */
+    private void processAssociations ()
+        throws MGIException
+    {
+        int count = 0;
+        MGIAssociation mgiAssoc = null;
 
         // Create a MGIAssociationGenerator object for getting the
         // MGIAssociation objects to be processed.
         //
+        // The associations in MGD cannot be read until the prior records
+        // have been deleted.
+        //
+        waitForDelete();
+
         logger.logpInfo("Get all MGI Associations",false);
         logger.logdInfo("Get all MGI Associations",true);
-        assocGenerator = new MGIAssociationGenerator(logger);
+        RunMetrics.Phase phase = metrics.startPhase("generatorQuery");
+        assocGenerator = new MGIAssociationGenerator(logger, lookups);
+        phase.end(0);
 
         // Process each MGIAssociation object returned by the
         // MGIAssociationGenerator.
         //
         logger.logpInfo("Process each MGI Association",false);
         logger.logdInfo("Process each MGI Association",true);
-        count = 0;
+        phase = metrics.startPhase("process");
         while (assocGenerator.hasNext())
         {
             if (count > 0 && count%10000 == 0)
@@ -403,53 +804,209 @@ public class AssociationLoader extends DLALoader
             // Pass the MGIAssociation object to the MGIAssociationProcessor for
             // processing.
             //
-            assocProcessor.process(mgiAssoc);
+            processAssociation(mgiAssoc);
          }
 
         logger.logdInfo("Processed " + count + " MGI Associations",false);
+        phase.end(count);
+    }
 
-        // Load the bcp files for tables in the MGD database.
+    /**
+     * Process each DP_Association object from the input file directly by
+     * resolving its accession ID/logical DB pairs against an index of the
+     * ACC_Accession table in MGD. The MGI_Association table is still loaded
+     * for auditing unless ASSOCLOAD_STAGE_RADAR is false.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException if there is an error.
+     */
+    private void processInputFile ()
+        throws MGIException
+    {
+        int count = 0;
+        DPAssociation dpAssoc = null;
+        MGIAssociation mgiAssoc = new MGIAssociation(lookups.getTargetType(),
+                                                     lookups.getTargetTypeKey());
+        MGIAssociationResolver resolver = null;
+
+        logger.logpInfo("Process the data provider input file directly",false);
+        logger.logdInfo("Process the data provider input file directly",true);
+        RunMetrics.Phase phase = metrics.startPhase("parseAndProcess");
+
+        // Process each DP_Association object returned by the iterator.
         //
-        logger.logpInfo("Load the bcp files for the ACC_Accession, " +
-                        "ACC_AccessionReference and PRB_Reference tables",false);
-        logger.logdInfo("Load the bcp files for the ACC_Accession, " +
-                        "ACC_AccessionReference and PRB_Reference tables",true);
-        loadStream.close();
+        while (iter.hasNext())
+        {
+            // Get the next DP_Association object from the iterator.
+            //
+            dpAssoc = (DPAssociation)iter.next();
 
-        // Load the bcp files for the QC report tables.
+            // If the DP_Association object is null, it means that the
+            // interpreter processed the header record and did not create
+            // a DP_Association object.  Skip to the next iteration.
+            //
+            if (dpAssoc == null)
+                continue;
+
+            // Once the header record has been interpreted, load the index
+            // for the logical DBs that it names. The index cannot be loaded
+            // until the prior records have been deleted.
+            //
+            if (resolver == null)
+            {
+                waitForDelete();
+                resolver = new MGIAssociationResolver(loadAccessionIndex());
+            }
+
+            if (count > 0 && count%10000 == 0)
+                logger.logdInfo("Processed " + count + " input records",false);
+            count++;
+
+            // Send the DP_Association object to the stream to stage it in
+            // the MGI_Association table.
+            //
+            if (stageRADAR)
+                dpAssoc.insert(radarStream);
+
+            // Resolve the accession ID/logical DB pairs to build the
+            // MGIAssociation object.
+            //
+            resolver.clear();
+            for (int i=0; i<dpAssoc.size(); i++)
+                resolver.add(dpAssoc.getAccID(i), dpAssoc.getLogicalDBKey(i),
+                             dpAssoc.isTarget(i));
+            resolver.resolve(mgiAssoc);
+
+            if (logger.isDebug())
+                mgiAssoc.print(logger);
+
+            // Pass the MGIAssociation object to the MGIAssociationProcessor for
+            // processing.
+            //
+            processAssociation(mgiAssoc);
+        }
+
+        logger.logdInfo("Processed " + count + " input records",false);
+        phase.end(count);
+
+        // Load the bcp file for the MGIAssociation table.
         //
-        logger.logpInfo("Load the bcp files for the " +
-                        "QC_AssocLoad_Target_Discrep and " +
-                        "QC_AssocLoad_Assoc_Discrep tables",false);
-        logger.logdInfo("Load the bcp files for the " +
-                        "QC_AssocLoad_Target_Discrep and " +
-                        "QC_AssocLoad_Assoc_Discrep tables",true);
-        qcStream.close();
+        if (stageRADAR)
+        {
+            logger.logpInfo("Load the bcp file for the MGIAssociation table",false);
+            logger.logdInfo("Load the bcp file for the MGIAssociation table",true);
+            phase = metrics.startPhase("radarStreamClose");
+            radarStream.close();
+            phase.end(count);
+        }
+    }
 
-        // Write the processing counts to the curator summary log.
+    /**
+     * Process a MGIAssociation object, either directly or by queuing it for
+     * the worker threads.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param mgiAssoc The MGIAssociation object.
+     * @return Nothing
+     * @throws MGIException if there is an error.
+     */
+    private void processAssociation (MGIAssociation mgiAssoc)
+        throws MGIException
+    {
+        if (parallelProcessor != null)
+            parallelProcessor.process(mgiAssoc);
+        else
+            assocProcessor.process(mgiAssoc);
+    }
+
+    /**
+     * Load an index of the ACC_Accession table for the logical DBs named in
+     * the header record of the input file.
+     * @assumes The header record has been interpreted.
+     * @effects Nothing
+     * @param None
+     * @return The index.
+     * @throws MGIException if there is an error.
+     */
+    private AccessionIndex loadAccessionIndex ()
+        throws MGIException
+    {
+        int[] keys = interpreter.getLogicalDBKeys();
+        Vector logicalDBKeys = new Vector();
+        for (int i=0; i<keys.length; i++)
+        {
+            Integer key = new Integer(keys[i]);
+            if (!logicalDBKeys.contains(key))
+                logicalDBKeys.add(key);
+        }
+
+        logger.logpInfo("Load the accession index",false);
+        logger.logdInfo("Load the accession index",true);
+        // If the associations from the prior run of the job stream are being
+        // synchronized, leave them out of the index, as if they had been
+        // deleted.
         //
-        logger.logcInfo("\nAssociation Loader Processing Counts",false);
-        logger.logcInfo("------------------------------------",false);
-        logger.logcInfo("Number of associations that already exist:       " +
-                        assocProcessor.getExistCount(),false);
-        logger.logcInfo("Number of associations skipped due to an error:  " +
-                        assocProcessor.getSkipCount(),false);
-        logger.logcInfo("Number of associations made:                     " +
-                        assocProcessor.getAssocCount(),false);
-        logger.logcInfo("Number of discrepancy errors reported:           " +
-                        assocProcessor.getReportCount(),false);
+        String condition = null;
+        if (jobStreamSync != null)
+            condition = JobStreamAssociationSync.getNotCreatedCondition("a", "");
+
+        RunMetrics.Phase phase = metrics.startPhase("accessionIndex");
+        AccessionIndex accIndex = new AccessionIndex(logger);
+        accIndex.load(SQLDataManagerFactory.getShared(SchemaConstants.MGD),
+                      logicalDBKeys, condition);
+        phase.end(accIndex.getValueCount());
+        return accIndex;
     }
 
     /**
-     * Provides an empty method required by the parent class.
+     * Wait for the prior records to be deleted (if they are being deleted
+     * in the background) and record how long the load waited.
      * @assumes Nothing
      * @effects Nothing
      * @param None
      * @return Nothing
+     * @throws MGIException if the deletes failed.
+     */
+    private void waitForDelete ()
+        throws MGIException
+    {
+        RunMetrics.Phase phase = metrics.startPhase("deleteWait");
+        assocPrep.waitForDelete();
+        phase.end(0);
+    }
+
+    /**
+     * Write the time and throughput of each phase to the diagnostic log and
+     * to the metrics files.
+     * @assumes Nothing
+     * @effects Creates or replaces the metrics files.
+     * @param None
+     * @return Nothing
      * @throws MGIException if there is an error.
      */
     protected void postprocess ()
         throws MGIException
     {
+        metrics.log(logger);
+
+        // The metrics files are written next to the curator log unless a
+        // prefix is configured for them.
+        //
+        AssociationLoaderCfg assocLoadCfg = new AssociationLoaderCfg();
+        String prefix = assocLoadCfg.getMetricsPrefix();
+        if (prefix == null)
+        {
+            String curLog = assocLoadCfg.getCuratorLog();
+            if (curLog == null)
+                return;
+            prefix = curLog.endsWith(".cur.log") ?
+                curLog.substring(0, curLog.length() - 8) : curLog;
+        }
+
+        logger.logdInfo("Write the metrics files: " + prefix +
+                        ".metrics.json, " + prefix + ".metrics.prom",false);
+        metrics.write(prefix + ".metrics.json", prefix + ".metrics.prom");
     }
 }
@@ -0,0 +1,357 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Arrays;
+
+/**
+ * @is An object that groups the rows of a MGIAssociation object by their
+ *     distinct non-target accession ID/logical DB pairs and counts how the
+ *     rows for each pair are associated with MGI objects.
+ * @has
+ *   <UL>
+ *   <LI> A hash table of the distinct accession ID/logical DB pairs.
+ *   <LI> The rows for each pair (in row order).
+ *   <LI> The same type, different type and same object counts for each pair.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides a method to find the distinct pairs in one pass over the
+ *        rows, without building a String for each pair or row.
+ *   <LI> Provides a method to count the associations for every pair in one
+ *        pass over the rows.
+ *   <LI> Provides methods to get the pairs, their counts and their rows.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class AssociationPairAccumulator
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The MGIAssociation object being grouped.
+    //
+    private MGIAssociation assoc = null;
+    private int rowCount = 0;
+
+    // Open-addressing hash table of pair numbers (-1 for an empty slot).
+    //
+    private int[] table = null;
+
+    // The first row for each pair, the hash table slot for the pair, the
+    // first and last rows in the list of rows for the pair, and the counts
+    // for the pair.
+    //
+    private int pairCount = 0;
+    private int[] pairRow = new int[16];
+    private int[] pairSlot = new int[16];
+    private int[] firstRow = new int[16];
+    private int[] lastRow = new int[16];
+    private int[] sameTypeCount = new int[16];
+    private int[] diffTypeCount = new int[16];
+    private int[] sameObjCount = new int[16];
+
+    // The pair for each row (-1 if the row is a target that is not also one
+    // of the pairs) and the next row for the same pair (-1 for the last).
+    //
+    private int[] rowPair = new int[16];
+    private int[] nextRow = new int[16];
+
+
+    /**
+     * Constructs an AssociationPairAccumulator object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @throws Nothing
+     */
+    public AssociationPairAccumulator ()
+    {
+        table = new int[64];
+        Arrays.fill(table, -1);
+    }
+
+    /**
+     * Find the distinct non-target accession ID/logical DB pairs in the rows
+     * of a MGIAssociation object, in the order they first appear, and link
+     * every row (including the target rows) to the pair it matches.
+     * @assumes Nothing
+     * @effects Clears the pairs and counts from the previous rows.
+     * @param pAssoc The MGIAssociation object.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void group (MGIAssociation pAssoc)
+    {
+        int i, p;
+
+        // Clear the hash table slots used by the previous rows.
+        //
+        for (p=0; p<pairCount; p++)
+            table[pairSlot[p]] = -1;
+
+        assoc = pAssoc;
+        rowCount = assoc.getRowCount();
+        pairCount = 0;
+        ensureCapacity(rowCount);
+
+        // Add the distinct non-target pairs.
+        //
+        for (i=0; i<rowCount; i++)
+        {
+            if (assoc.isTarget(i))
+                rowPair[i] = -1;
+            else
+                rowPair[i] = findOrAdd(i, true);
+        }
+
+        // Link each row to the pair it matches, in row order. A target row
+        // is included if it is the same as one of the pairs.
+        //
+        for (i=0; i<rowCount; i++)
+        {
+            p = rowPair[i];
+            if (p < 0)
+            {
+                p = findOrAdd(i, false);
+                rowPair[i] = p;
+                if (p < 0)
+                    continue;
+            }
+
+            nextRow[i] = -1;
+            if (firstRow[p] < 0)
+                firstRow[p] = i;
+            else
+                nextRow[lastRow[p]] = i;
+            lastRow[p] = i;
+        }
+    }
+
+    /**
+     * Count the rows for each pair that are associated with an object of the
+     * same type as the target, an object of a different type, or the same
+     * object as the target. Rows that are not associated with any object are
+     * not counted.
+     * @assumes group() has been called for the rows.
+     * @effects Nothing
+     * @param targetMGITypeKey The MGI type key of the target object.
+     * @param targetObjectKey The object key of the target object.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void count (int targetMGITypeKey, int targetObjectKey)
+    {
+        int i, p;
+
+        for (p=0; p<pairCount; p++)
+        {
+            sameTypeCount[p] = 0;
+            diffTypeCount[p] = 0;
+            sameObjCount[p] = 0;
+        }
+
+        for (i=0; i<rowCount; i++)
+        {
+            p = rowPair[i];
+            if (p < 0 || !assoc.hasObject(i))
+                continue;
+
+            if (assoc.getMGITypeKey(i) == targetMGITypeKey)
+            {
+                sameTypeCount[p]++;
+                if (assoc.getObjectKey(i) == targetObjectKey)
+                    sameObjCount[p]++;
+            }
+            else
+                diffTypeCount[p]++;
+        }
+    }
+
+    /**
+     * Get the number of distinct non-target pairs.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of pairs.
+     * @throws Nothing
+     */
+    public int getPairCount ()
+    {
+        return pairCount;
+    }
+
+    /**
+     * Get the accession ID of a pair.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param p The pair number.
+     * @return The accession ID.
+     * @throws Nothing
+     */
+    public String getAccID (int p)
+    {
+        return assoc.getAccID(pairRow[p]);
+    }
+
+    /**
+     * Get the logical DB key of a pair.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param p The pair number.
+     * @return The logical DB key.
+     * @throws Nothing
+     */
+    public int getLogicalDBKey (int p)
+    {
+        return assoc.getLogicalDBKey(pairRow[p]);
+    }
+
+    /**
+     * Get the number of rows for a pair associated with an object of the
+     * same type as the target.
+     * @assumes count() has been called.
+     * @effects Nothing
+     * @param p The pair number.
+     * @return The count.
+     * @throws Nothing
+     */
+    public int getSameTypeCount (int p)
+    {
+        return sameTypeCount[p];
+    }
+
+    /**
+     * Get the number of rows for a pair associated with an object of a
+     * different type than the target.
+     * @assumes count() has been called.
+     * @effects Nothing
+     * @param p The pair number.
+     * @return The count.
+     * @throws Nothing
+     */
+    public int getDiffTypeCount (int p)
+    {
+        return diffTypeCount[p];
+    }
+
+    /**
+     * Get the number of rows for a pair associated with the target object.
+     * @assumes count() has been called.
+     * @effects Nothing
+     * @param p The pair number.
+     * @return The count.
+     * @throws Nothing
+     */
+    public int getSameObjCount (int p)
+    {
+        return sameObjCount[p];
+    }
+
+    /**
+     * Get the first row for a pair.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param p The pair number.
+     * @return The row number.
+     * @throws Nothing
+     */
+    public int getFirstRow (int p)
+    {
+        return firstRow[p];
+    }
+
+    /**
+     * Get the next row for the same pair as the given row.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param row The row number.
+     * @return The next row number or -1 if there are no more.
+     * @throws Nothing
+     */
+    public int getNextRow (int row)
+    {
+        return nextRow[row];
+    }
+
+    /**
+     * Find the pair that matches a row, adding a new pair if requested.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param row The row number.
+     * @param add Indicates whether to add the pair if it is not found.
+     * @return The pair number or -1 if it is not found and not added.
+     * @throws Nothing
+     */
+    private int findOrAdd (int row, boolean add)
+    {
+        int logicalDBKey = assoc.getLogicalDBKey(row);
+        int mask = table.length - 1;
+
+        int h = assoc.getAccIDHash(row) * 31 + logicalDBKey;
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+
+        for (int slot = h & mask; ; slot = (slot + 1) & mask)
+        {
+            int p = table[slot];
+            if (p < 0)
+            {
+                if (!add)
+                    return -1;
+
+                p = pairCount++;
+                table[slot] = p;
+                pairRow[p] = row;
+                pairSlot[p] = slot;
+                firstRow[p] = -1;
+                return p;
+            }
+
+            int r = pairRow[p];
+            if (assoc.getLogicalDBKey(r) == logicalDBKey &&
+                assoc.sameAccID(r, row))
+                return p;
+        }
+    }
+
+    /**
+     * Make sure the arrays and the hash table can hold the given number of
+     * rows.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param rows The number of rows.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void ensureCapacity (int rows)
+    {
+        if (rowPair.length < rows)
+        {
+            int size = Math.max(rows, rowPair.length * 2);
+            pairRow = new int[size];
+            pairSlot = new int[size];
+            firstRow = new int[size];
+            lastRow = new int[size];
+            sameTypeCount = new int[size];
+            diffTypeCount = new int[size];
+            sameObjCount = new int[size];
+            rowPair = new int[size];
+            nextRow = new int[size];
+        }
+
+        // Keep the hash table at most half full.
+        //
+        int tableSize = table.length;
+        while (tableSize < rows * 2)
+            tableSize *= 2;
+        if (tableSize != table.length)
+        {
+            table = new int[tableSize];
+            Arrays.fill(table, -1);
+        }
+    }
+}
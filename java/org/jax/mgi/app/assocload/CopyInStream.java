@@ -0,0 +1,479 @@
+package org.jax.mgi.app.assocload;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.jax.mgi.dbs.SchemaConstants;
+import org.jax.mgi.dbs.rdr.dao.MGI_AssociationDAO;
+import org.jax.mgi.dbs.rdr.dao.MGI_AssociationState;
+import org.jax.mgi.shr.config.DatabaseCfg;
+import org.jax.mgi.shr.dbutils.DBException;
+import org.jax.mgi.shr.dbutils.SQLDataManager;
+import org.jax.mgi.shr.dbutils.dao.DAO;
+import org.jax.mgi.shr.dbutils.dao.SQLStream;
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * @is A stream that loads MGI_Association records into the RADAR database
+ *     with a PostgreSQL COPY FROM STDIN command while they are still being
+ *     created, instead of writing a bcp file that is loaded when the stream
+ *     is closed.
+ * @has
+ *   <UL>
+ *   <LI> Its own connection to the RADAR database, with one transaction for
+ *        the pre-load SQL and the COPY command.
+ *   <LI> An encoder that builds the rows in the COPY text format in a
+ *        buffer that is sent to the server when it is full.
+ *   <LI> An optional file that gets a copy of the rows, for archiving.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides a method to run the pre-load SQL (the same statement that
+ *        is run before the bcp file is loaded) and start the COPY command.
+ *   <LI> Implements the insert() method of a SQLStream for
+ *        MGI_AssociationDAO objects.
+ *   <LI> Provides a method to insert a MGI_Association row from its values,
+ *        without creating a DAO.
+ *   <LI> Provides a method to end the COPY command and commit the rows.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class CopyInStream extends SQLStream
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The COPY command. The columns are named, so any other columns of the
+    // table get their default values.
+    //
+    private static final String COPY_SQL =
+        "COPY MGI_Association (_JobStream_key, _Record_key, accID, " +
+        "logicalDB, target) FROM STDIN";
+
+    // The size of the buffer (bytes) that is filled before it is sent.
+    //
+    private static final int BUFFER_SIZE = 65536;
+
+    // A logger for logging messages.
+    //
+    private DLALogger logger = null;
+
+    // The job stream key for each row, the SQL to run before the rows are
+    // loaded (or null) and the name of the file to copy the rows to (or
+    // null).
+    //
+    private int jobKey;
+    private String preSQL = null;
+    private String teeFileName = null;
+
+    // The connection to the RADAR database and the COPY command.
+    //
+    private SQLDataManager sqlMgr = null;
+    private Connection conn = null;
+    private CopyIn copyIn = null;
+
+    // The file the rows are copied to (if any).
+    //
+    private FileChannel tee = null;
+
+    // The encoder that builds the rows in the COPY text format.
+    //
+    private CopyRowEncoder encoder = null;
+
+
+    /**
+     * Constructs a CopyInStream object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger to write messages to.
+     * @param pJobKey The job stream key for each row.
+     * @param pPreSQL The SQL to run before the rows are loaded (or null).
+     * @param pTeeFileName The name of a file to copy the rows to (or null).
+     * @throws Nothing
+     */
+    public CopyInStream (DLALogger pLogger, int pJobKey, String pPreSQL,
+                         String pTeeFileName)
+    {
+        logger = pLogger;
+        jobKey = pJobKey;
+        preSQL = pPreSQL;
+        teeFileName = pTeeFileName;
+    }
+
+    /**
+     * Open a connection to the RADAR database, run the pre-load SQL and
+     * start the COPY command. Nothing is committed until the stream is
+     * closed.
+     * @assumes Nothing
+     * @effects Opens a database connection and deletes the rows from any
+     *          prior run (within the open transaction).
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the connection or the SQL fails.
+     */
+    public void open ()
+        throws MGIException
+    {
+        sqlMgr = new SQLDataManager(new DatabaseCfg(SchemaConstants.RADAR));
+        conn = sqlMgr.getConnection();
+
+        try
+        {
+            conn.setAutoCommit(false);
+
+            if (preSQL != null)
+            {
+                logger.logdInfo("Execute SQL: "+preSQL,true);
+                Statement stmt = conn.createStatement();
+                stmt.executeUpdate(preSQL);
+                stmt.close();
+            }
+
+            logger.logdInfo("Execute SQL: "+COPY_SQL,true);
+            copyIn = ((PGConnection)conn.unwrap(PGConnection.class)).
+                getCopyAPI().copyIn(COPY_SQL);
+        }
+        catch (SQLException e)
+        {
+            abort();
+            throw new MGIException("Cannot start the COPY command for " +
+                                   "MGI_Association: " + e.getMessage());
+        }
+
+        if (teeFileName != null)
+        {
+            try
+            {
+                tee = new FileOutputStream(teeFileName).getChannel();
+            }
+            catch (IOException e)
+            {
+                abort();
+                throw new MGIException("Cannot open " + teeFileName + ": " +
+                                       e.getMessage());
+            }
+        }
+
+        encoder = new CopyRowEncoder(BUFFER_SIZE, new CopyChannel());
+    }
+
+    /**
+     * Add a MGI_Association record to the COPY command.
+     * @assumes The stream has been opened.
+     * @effects Sends the buffer to the server when it is full.
+     * @param dao The MGI_AssociationDAO object.
+     * @return Nothing
+     * @throws DBException If the DAO is not a MGI_AssociationDAO or the
+     *         rows cannot be sent.
+     */
+    public void insert (DAO dao)
+        throws DBException
+    {
+        if (!(dao instanceof MGI_AssociationDAO))
+            throw new DBException("CopyInStream only supports " +
+                                  "MGI_Association records", false);
+
+        MGI_AssociationState state = ((MGI_AssociationDAO)dao).getState();
+
+        try
+        {
+            encoder.addLong(jobKey);
+            if (state.getRecordKey() == null)
+                encoder.addNull();
+            else
+                encoder.addLong(state.getRecordKey().intValue());
+            encoder.addString(state.getAccID());
+            encoder.addString(state.getLogicalDB());
+            if (state.getTarget() == null)
+                encoder.addNull();
+            else
+                encoder.addBoolean(state.getTarget().booleanValue());
+            encoder.endRow();
+        }
+        catch (IOException e)
+        {
+            throw new DBException(e.getMessage(), false);
+        }
+    }
+
+    /**
+     * Add a MGI_Association row to the COPY command from its values. The
+     * row is the same as the one that insert() adds for a DAO with these
+     * values.
+     * @assumes The stream has been opened.
+     * @effects Sends the buffer to the server when it is full.
+     * @param recordKey The record key.
+     * @param accID The accession ID (or null).
+     * @param logicalDB The logical DB (or null).
+     * @param target Whether the accession ID is the target (or null).
+     * @return Nothing
+     * @throws DBException If the rows cannot be sent.
+     */
+    public void insert (int recordKey, String accID, String logicalDB,
+                        Boolean target)
+        throws DBException
+    {
+        try
+        {
+            encoder.addLong(jobKey);
+            encoder.addLong(recordKey);
+            encoder.addString(accID);
+            encoder.addString(logicalDB);
+            if (target == null)
+                encoder.addNull();
+            else
+                encoder.addBoolean(target.booleanValue());
+            encoder.endRow();
+        }
+        catch (IOException e)
+        {
+            throw new DBException(e.getMessage(), false);
+        }
+    }
+
+    /**
+     * Not supported.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param dao The DAO object.
+     * @return Nothing
+     * @throws DBException Always.
+     */
+    public void update (DAO dao)
+        throws DBException
+    {
+        throw new DBException("CopyInStream does not support updates", false);
+    }
+
+    /**
+     * Not supported.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param dao The DAO object.
+     * @return Nothing
+     * @throws DBException Always.
+     */
+    public void delete (DAO dao)
+        throws DBException
+    {
+        throw new DBException("CopyInStream does not support deletes", false);
+    }
+
+    /**
+     * Send the rest of the rows, close the file the rows are copied to (if
+     * any), then end the COPY command and commit the rows (and the pre-load
+     * SQL). The file is closed first, so the rows are not committed unless
+     * the whole file has been written.
+     * @assumes The stream has been opened.
+     * @effects Commits the transaction and closes the connection.
+     * @param None
+     * @return Nothing
+     * @throws DBException If the rows cannot be loaded or the file cannot be
+     *         written. The transaction is rolled back.
+     */
+    public void close ()
+        throws DBException
+    {
+        try
+        {
+            encoder.drain();
+        }
+        catch (IOException e)
+        {
+            abort();
+            throw new DBException(e.getMessage(), false);
+        }
+
+        try
+        {
+            if (tee != null)
+            {
+                FileChannel file = tee;
+                tee = null;
+                file.close();
+            }
+        }
+        catch (IOException e)
+        {
+            abort();
+            throw new DBException("Cannot write " + teeFileName + ": " +
+                                  e.getMessage(), false);
+        }
+
+        long loaded;
+        try
+        {
+            loaded = copyIn.endCopy();
+            conn.commit();
+        }
+        catch (SQLException e)
+        {
+            abort();
+            throw new DBException("Cannot load MGI_Association: " +
+                                  e.getMessage(), false);
+        }
+
+        closeConnection();
+        logger.logdInfo("Loaded " + loaded + " MGI_Association rows " +
+                        "(" + encoder.getRowCount() + " inserted)",false);
+    }
+
+    /**
+     * Indicate that this is not a bcp stream.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return False
+     * @throws Nothing
+     */
+    public boolean isBCP ()
+    {
+        return false;
+    }
+
+    /**
+     * Cancel the COPY command, roll back the transaction and close the
+     * connection after an error.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void abort ()
+    {
+        try
+        {
+            if (copyIn != null && copyIn.isActive())
+                copyIn.cancelCopy();
+            if (conn != null)
+                conn.rollback();
+        }
+        catch (SQLException e)
+        {
+            logger.logdInfo("Cannot roll back MGI_Association load: " +
+                            e.getMessage(),false);
+        }
+
+        try
+        {
+            if (tee != null)
+                tee.close();
+        }
+        catch (IOException e)
+        {
+            // The load has already failed, so this error is not reported.
+            //
+        }
+        tee = null;
+
+        closeConnection();
+    }
+
+    /**
+     * Close the connection to the RADAR database.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void closeConnection ()
+    {
+        try
+        {
+            if (sqlMgr != null)
+                sqlMgr.closeResources();
+        }
+        catch (DBException e)
+        {
+            logger.logdInfo("Cannot close the RADAR connection: " +
+                            e.getMessage(),false);
+        }
+        sqlMgr = null;
+        conn = null;
+    }
+
+
+    /**
+     * @is A channel that sends bytes to the COPY command and copies them to
+     *     the tee file (if any).
+     * @has
+     *   <UL>
+     *   <LI> A buffer the bytes are moved into, since the COPY command only
+     *        accepts an array.
+     *   </UL>
+     * @does
+     *   <UL>
+     *   <LI> Implements the write() method of a WritableByteChannel.
+     *   </UL>
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private class CopyChannel implements WritableByteChannel
+    {
+        byte[] bytes = new byte[BUFFER_SIZE];
+
+        public int write (ByteBuffer src)
+            throws IOException
+        {
+            int count = src.remaining();
+
+            if (tee != null)
+            {
+                int position = src.position();
+                try
+                {
+                    while (src.hasRemaining())
+                        tee.write(src);
+                }
+                catch (IOException e)
+                {
+                    throw new IOException("Cannot write " + teeFileName +
+                                          ": " + e.getMessage());
+                }
+                src.position(position);
+            }
+
+            try
+            {
+                while (src.hasRemaining())
+                {
+                    int len = Math.min(src.remaining(), bytes.length);
+                    src.get(bytes, 0, len);
+                    copyIn.writeToCopy(bytes, 0, len);
+                }
+            }
+            catch (SQLException e)
+            {
+                throw new IOException("Cannot send rows to MGI_Association: " +
+                                      e.getMessage());
+            }
+            return count;
+        }
+
+        public boolean isOpen ()
+        {
+            return copyIn != null;
+        }
+
+        public void close ()
+        {
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package org.jax.mgi.app.assocload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * @is An object that encodes rows in the PostgreSQL COPY text format
+ *     (tab-delimited, "\N" for a null value, backslash escapes and UTF-8)
+ *     directly into a reusable buffer, without creating any objects for
+ *     each row or value.
+ * @has
+ *   <UL>
+ *   <LI> A direct buffer of encoded rows.
+ *   <LI> The channel the buffer is drained to when it is full (a file
+ *        channel or a channel that sends the bytes to a COPY command).
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides methods to add a value of each type to the current row
+ *        and to end the row.
+ *   <LI> Provides a method to drain the buffer to the channel.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class CopyRowEncoder
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The most bytes that a long value can be encoded as.
+    //
+    private static final int MAX_LONG_BYTES = 20;
+
+    // The buffer of encoded rows and the channel it is drained to.
+    //
+    private ByteBuffer buffer = null;
+    private WritableByteChannel channel = null;
+
+    // Indicates whether the next value is the first one of its row.
+    //
+    private boolean firstValue = true;
+
+    // The digits of a number, filled from the end.
+    //
+    private byte[] digits = new byte[MAX_LONG_BYTES];
+
+    // The number of rows encoded.
+    //
+    private long rowCount = 0;
+
+
+    /**
+     * Constructs a CopyRowEncoder object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pSize The size of the buffer (bytes).
+     * @param pChannel The channel to drain the buffer to.
+     * @throws Nothing
+     */
+    public CopyRowEncoder (int pSize, WritableByteChannel pChannel)
+    {
+        buffer = ByteBuffer.allocateDirect(Math.max(pSize, MAX_LONG_BYTES + 2));
+        channel = pChannel;
+    }
+
+    /**
+     * Add a number to the current row.
+     * @assumes Nothing
+     * @effects May drain the buffer.
+     * @param value The number.
+     * @return Nothing
+     * @throws IOException If the buffer cannot be drained.
+     */
+    public void addLong (long value)
+        throws IOException
+    {
+        startValue(MAX_LONG_BYTES);
+
+        // The digits are taken from a negative value, so the smallest long
+        // value does not overflow.
+        //
+        long v = value < 0 ? value : -value;
+        int start = digits.length;
+        do
+        {
+            digits[--start] = (byte)('0' - (v % 10));
+            v /= 10;
+        }
+        while (v != 0);
+
+        if (value < 0)
+            buffer.put((byte)'-');
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    /**
+     * Add a boolean value to the current row as "1" or "0".
+     * @assumes Nothing
+     * @effects May drain the buffer.
+     * @param value The value.
+     * @return Nothing
+     * @throws IOException If the buffer cannot be drained.
+     */
+    public void addBoolean (boolean value)
+        throws IOException
+    {
+        startValue(1);
+        buffer.put(value ? (byte)'1' : (byte)'0');
+    }
+
+    /**
+     * Add a null value to the current row.
+     * @assumes Nothing
+     * @effects May drain the buffer.
+     * @param None
+     * @return Nothing
+     * @throws IOException If the buffer cannot be drained.
+     */
+    public void addNull ()
+        throws IOException
+    {
+        startValue(2);
+        buffer.put((byte)'\\');
+        buffer.put((byte)'N');
+    }
+
+    /**
+     * Add a string to the current row, escaped for the COPY text format and
+     * encoded as UTF-8. The bytes are the same as String.getBytes("UTF-8")
+     * would give for the escaped string, including a "?" for a surrogate
+     * character that is not part of a pair.
+     * @assumes Nothing
+     * @effects May drain the buffer.
+     * @param value The string (or null).
+     * @return Nothing
+     * @throws IOException If the buffer cannot be drained.
+     */
+    public void addString (String value)
+        throws IOException
+    {
+        if (value == null)
+        {
+            addNull();
+            return;
+        }
+
+        startValue(0);
+        int length = value.length();
+        for (int i=0; i<length; i++)
+        {
+            // A character takes at most 4 bytes (a surrogate pair).
+            //
+            if (buffer.remaining() < 4)
+                drain();
+
+            char c = value.charAt(i);
+            if (c < 0x80)
+            {
+                if (c == '\\')
+                {
+                    buffer.put((byte)'\\');
+                    buffer.put((byte)'\\');
+                }
+                else if (c == '\t')
+                {
+                    buffer.put((byte)'\\');
+                    buffer.put((byte)'t');
+                }
+                else if (c == '\n')
+                {
+                    buffer.put((byte)'\\');
+                    buffer.put((byte)'n');
+                }
+                else if (c == '\r')
+                {
+                    buffer.put((byte)'\\');
+                    buffer.put((byte)'r');
+                }
+                else
+                    buffer.put((byte)c);
+            }
+            else if (c < 0x800)
+            {
+                buffer.put((byte)(0xc0 | (c >> 6)));
+                buffer.put((byte)(0x80 | (c & 0x3f)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                     Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte)(0xf0 | (cp >> 18)));
+                buffer.put((byte)(0x80 | ((cp >> 12) & 0x3f)));
+                buffer.put((byte)(0x80 | ((cp >> 6) & 0x3f)));
+                buffer.put((byte)(0x80 | (cp & 0x3f)));
+            }
+            else if (Character.isSurrogate(c))
+                buffer.put((byte)'?');
+            else
+            {
+                buffer.put((byte)(0xe0 | (c >> 12)));
+                buffer.put((byte)(0x80 | ((c >> 6) & 0x3f)));
+                buffer.put((byte)(0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    /**
+     * End the current row.
+     * @assumes Nothing
+     * @effects May drain the buffer.
+     * @param None
+     * @return Nothing
+     * @throws IOException If the buffer cannot be drained.
+     */
+    public void endRow ()
+        throws IOException
+    {
+        if (buffer.remaining() < 1)
+            drain();
+        buffer.put((byte)'\n');
+        firstValue = true;
+        rowCount++;
+    }
+
+    /**
+     * Drain the buffer to the channel.
+     * @assumes Nothing
+     * @effects Empties the buffer.
+     * @param None
+     * @return Nothing
+     * @throws IOException If the channel cannot be written to.
+     */
+    public void drain ()
+        throws IOException
+    {
+        buffer.flip();
+        try
+        {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Get the number of rows encoded.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of rows.
+     * @throws Nothing
+     */
+    public long getRowCount ()
+    {
+        return rowCount;
+    }
+
+    /**
+     * Make room for the separator and the given number of bytes of a value,
+     * then add the separator if the value is not the first one of its row.
+     * @assumes Nothing
+     * @effects May drain the buffer.
+     * @param size The number of bytes that must fit after the separator.
+     * @return Nothing
+     * @throws IOException If the buffer cannot be drained.
+     */
+    private void startValue (int size)
+        throws IOException
+    {
+        if (buffer.remaining() < size + 1)
+            drain();
+        if (firstValue)
+            firstValue = false;
+        else
+            buffer.put((byte)'\t');
+    }
+}
@@ -14,10 +14,12 @@ import org.jax.mgi.shr.exception.MGIException;
  *   <UL>
  *   <LI> Vector of MGI_AssociationState objects to be loaded into the
  *        MGI_Association table.
+ *   <LI> The logical DB key for each MGI_AssociationState object.
  *   </UL>
  * @does
  *   <UL>
  *   <LI> Provides methods to set/get the attributes.
+ *   <LI> Provides methods to get the accession ID/logical DB pairs by index.
  *   <LI> Provides a method to clear the attributes.
  *   <LI> Provides a method create a DAO for the MGI_Association table and
  *        insert the DAO onto a stream to create a bcp record.
@@ -35,7 +37,14 @@ public class DPAssociation
 
     private Vector vMGIAssocState = null;
 
-    private int recordNumber = 0;
+    // The logical DB key for each MGI_AssociationState object.
+    //
+    private int[] logicalDBKeys = null;
+
+    // The record key (the number of the record in the input file, not
+    // counting the header record) used for the MGI_Association table.
+    //
+    private int recordKey = 0;
 
     /**
      * Constructs a DPAssociation object.
@@ -47,6 +56,7 @@ public class DPAssociation
     public DPAssociation()
     {
         vMGIAssocState = new Vector();
+        logicalDBKeys = new int[16];
     }
 
     /**
@@ -54,14 +64,101 @@ public class DPAssociation
      * @assumes Nothing
      * @effects Nothing
      * @param state The MGI_AssociationState object to add.
+     * @param logicalDBKey The key of the logical DB named by the state object.
      * @return Nothing
      * @throws Nothing
      */
-    public void addState(MGI_AssociationState state)
+    public void addState(MGI_AssociationState state, int logicalDBKey)
     {
+        int i = vMGIAssocState.size();
+        if (i == logicalDBKeys.length)
+        {
+            int[] newKeys = new int[i * 2];
+            System.arraycopy(logicalDBKeys, 0, newKeys, 0, i);
+            logicalDBKeys = newKeys;
+        }
+        logicalDBKeys[i] = logicalDBKey;
         vMGIAssocState.add(state);
     }
 
+    /**
+     * Sets the record key.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pRecordKey The record key.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void setRecordKey(int pRecordKey)
+    {
+        recordKey = pRecordKey;
+    }
+
+    /**
+     * Gets the record key.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The record key.
+     * @throws Nothing
+     */
+    public int getRecordKey()
+    {
+        return recordKey;
+    }
+
+    /**
+     * Get the number of accession ID/logical DB pairs in this object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of pairs.
+     * @throws Nothing
+     */
+    public int size()
+    {
+        return vMGIAssocState.size();
+    }
+
+    /**
+     * Get the accession ID of a pair.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param i The index of the pair.
+     * @return The accession ID.
+     * @throws Nothing
+     */
+    public String getAccID(int i)
+    {
+        return ((MGI_AssociationState)vMGIAssocState.get(i)).getAccID();
+    }
+
+    /**
+     * Get the logical DB key of a pair.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param i The index of the pair.
+     * @return The logical DB key.
+     * @throws Nothing
+     */
+    public int getLogicalDBKey(int i)
+    {
+        return logicalDBKeys[i];
+    }
+
+    /**
+     * Determine whether a pair is the target.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param i The index of the pair.
+     * @return True if the pair is the target, otherwise false.
+     * @throws Nothing
+     */
+    public boolean isTarget(int i)
+    {
+        return ((MGI_AssociationState)vMGIAssocState.get(i)).getTarget().booleanValue();
+    }
+
     /**
      * Clears the vector of MGI_AssociationState objects.
      * @assumes Nothing
@@ -89,7 +186,21 @@ public class DPAssociation
         throws MGIException
     {
         MGI_AssociationState state;
-        recordNumber++;
+
+        // A COPY stream takes the values of each row directly, so no DAO
+        // needs to be created for it.
+        //
+        if (stream instanceof CopyInStream)
+        {
+            CopyInStream copyStream = (CopyInStream)stream;
+            for (int i=0; i<vMGIAssocState.size(); i++)
+            {
+                state = (MGI_AssociationState)vMGIAssocState.get(i);
+                copyStream.insert(recordKey, state.getAccID(),
+                                  state.getLogicalDB(), state.getTarget());
+            }
+            return;
+        }
 
         // Process each accession ID/logical DB pair in this object.
         //
@@ -100,7 +211,7 @@ public class DPAssociation
             // Set the attributes of the state object for the MGI_Association
             // table.
             //
-            state.setRecordKey(new Integer(recordNumber));
+            state.setRecordKey(new Integer(recordKey));
 
             // Create a DAO from the state object and insert it on the stream
             // to create a bcp record.
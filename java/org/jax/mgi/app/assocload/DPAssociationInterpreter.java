@@ -3,7 +3,6 @@ package org.jax.mgi.app.assocload;
 import java.util.Vector;
 
 import org.jax.mgi.dbs.rdr.dao.MGI_AssociationState;
-import org.jax.mgi.dbs.mgd.lookup.LogicalDBLookup;
 import org.jax.mgi.shr.exception.MGIException;
 import org.jax.mgi.shr.ioutils.RecordDataInterpreter;
 import org.jax.mgi.shr.ioutils.RecordFormatException;
@@ -35,22 +34,50 @@ public class DPAssociationInterpreter implements RecordDataInterpreter
 
     private DPAssociation assoc;
     private String[] logicalDBs = null;
-    private LogicalDBLookup lookup = null;
+    private int[] logicalDBKeys = null;
+    private StartupLookups lookups = null;
+
+    // The number of input records interpreted so far, not counting the
+    // header record. It is used as the record key of each DPAssociation.
+    //
+    private int recordCount = 0;
+
+    // Indicates whether the same DPAssociation object is re-used for each
+    // input record.
+    //
+    private boolean reuse = true;
 
 
     /**
      * Constructs a DPAssociationInterpreter object.
      * @assumes Nothing
      * @effects Nothing
-     * @param None
-     * @throws MGIException If there is a problem configuring the lookup.
+     * @param pLookups The lookups resolved at startup, used to get the keys
+     *                 of the logical DBs in the header record.
+     * @throws Nothing
      */
-    public DPAssociationInterpreter()
-        throws MGIException
+    public DPAssociationInterpreter(StartupLookups pLookups)
     {
         assoc = new DPAssociation();
-        lookup = new LogicalDBLookup();
+        lookups = pLookups;
+    }
 
+    /**
+     * Constructs a DPAssociationInterpreter object that shares the logical
+     * DBs from the header record already interpreted by another interpreter.
+     * A new DPAssociation object is created for each input record, and the
+     * record keys start at 1.
+     * @assumes The header record has been interpreted by the given
+     *          interpreter.
+     * @effects Nothing
+     * @param header The interpreter that interpreted the header record.
+     * @throws Nothing
+     */
+    public DPAssociationInterpreter(DPAssociationInterpreter header)
+    {
+        logicalDBs = header.logicalDBs;
+        logicalDBKeys = header.logicalDBKeys;
+        reuse = false;
     }
 
     /**
@@ -68,7 +95,6 @@ public class DPAssociationInterpreter implements RecordDataInterpreter
         int i;
         String s;
         Integer dbKey;
-        MGI_AssociationState assocState = null;
 
         // If the logical DB array is empty, then this must be the header line
         // from the input file.
@@ -91,9 +117,11 @@ public class DPAssociationInterpreter implements RecordDataInterpreter
             // Lookup each logical DB name to make sure it exists.  This will
             // throw an exception if any of them cannot be found.
             //
+            logicalDBKeys = new int[logicalDBs.length];
             for (i=0; i<logicalDBs.length; i++)
             {
-                dbKey = lookup.lookup(logicalDBs[i]);
+                dbKey = lookups.getLogicalDBKey(logicalDBs[i]);
+                logicalDBKeys[i] = dbKey.intValue();
             }
 
             // Return null to let the caller know that there was no
@@ -105,7 +133,7 @@ public class DPAssociationInterpreter implements RecordDataInterpreter
         // Clear the attributes of the DPAssociation object so it can be
         // re-used for the next input record.
         //
-        assoc.clear();
+        newRecord();
 
         // Remove the newline character from the input record and split the
         // input record into tab-delimited fields.
@@ -144,33 +172,94 @@ public class DPAssociationInterpreter implements RecordDataInterpreter
                 // Process each accession ID in the field.
                 //
                 for (int j=0; j<accIDs.length; j++)
-                {
-                    // Create a new MGI_AssociationState object and set its
-                    // attributes.
-                    //
-                    assocState = new MGI_AssociationState();
-                    assocState.setAccID(accIDs[j].trim() );
-                    assocState.setLogicalDB(logicalDBs[i]);
-
-                    // Only the first field in the input file contains the target
-                    // accession ID.
-                    //
-                    if (i == 0)
-                        assocState.setTarget(new Boolean(true));
-                    else
-                        assocState.setTarget(new Boolean(false));
-
-                    // Add the MGI_AssociationState object to the DPAssociation
-                    // object.
-                    //
-                    assoc.addState(assocState);
-                }
+                    addAccID(accIDs[j].trim(), i);
             }
         }
 
         return assoc;
     }
 
+    /**
+     * Clear the attributes of the DPAssociation object so it can be re-used
+     * for the next input record (or create a new one) and set its record key.
+     * @assumes The header record has been interpreted.
+     * @effects Clears the DPAssociation object.
+     * @param None
+     * @return The DPAssociation object.
+     * @throws Nothing
+     */
+    public DPAssociation newRecord ()
+    {
+        if (reuse)
+            assoc.clear();
+        else
+            assoc = new DPAssociation();
+        assoc.setRecordKey(++recordCount);
+        return assoc;
+    }
+
+    /**
+     * Add an accession ID from the given field of the current input record
+     * to the DPAssociation object.
+     * @assumes The header record has been interpreted.
+     * @effects Adds a MGI_AssociationState object to the DPAssociation object.
+     * @param accID The accession ID (already trimmed).
+     * @param field The field number (0 for the target).
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void addAccID (String accID, int field)
+    {
+        // Create a new MGI_AssociationState object and set its attributes.
+        //
+        MGI_AssociationState assocState = new MGI_AssociationState();
+        assocState.setAccID(accID);
+        assocState.setLogicalDB(logicalDBs[field]);
+
+        // Only the first field in the input file contains the target
+        // accession ID.
+        //
+        if (field == 0)
+            assocState.setTarget(new Boolean(true));
+        else
+            assocState.setTarget(new Boolean(false));
+
+        // Add the MGI_AssociationState object to the DPAssociation object.
+        //
+        assoc.addState(assocState, logicalDBKeys[field]);
+    }
+
+    /**
+     * Get the number of fields in each input record, as defined by the
+     * header record.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of fields or 0 if the header record has not been
+     *         interpreted yet.
+     * @throws Nothing
+     */
+    public int getFieldCount ()
+    {
+        if (logicalDBs == null)
+            return 0;
+        return logicalDBs.length;
+    }
+
+    /**
+     * Get the keys of the logical DBs named in the header record.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The logical DB keys (in field order) or null if the header
+     *         record has not been interpreted yet.
+     * @throws Nothing
+     */
+    public int[] getLogicalDBKeys ()
+    {
+        return logicalDBKeys;
+    }
+
     /**
      * Determines if the given input record is a valid record. A comment
      * line is considered to be invalid.
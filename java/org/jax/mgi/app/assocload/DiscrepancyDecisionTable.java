@@ -0,0 +1,308 @@
+package org.jax.mgi.app.assocload;
+
+/**
+ * @is A set of precomputed tables that determine the discrepancy message for
+ *     a target accession ID/logical DB and the action and discrepancy
+ *     message for each associate accession ID/logical DB, based on how many
+ *     MGI objects they are associated with.
+ * @has
+ *   <UL>
+ *   <LI> A table of target discrepancy messages indexed by the same type and
+ *        different type count buckets.
+ *   <LI> Tables of actions and associate discrepancy messages indexed by the
+ *        logical DB policy (single or multiple objects) and the same type,
+ *        same object and different type count buckets.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides methods to look up the action and messages for a set of
+ *        counts.
+ *   <LI> Provides a method to dump the tables.
+ *   </UL>
+ *   Each count is reduced to a bucket: 0, 1 or more than 1. A combination of
+ *   counts that is not covered by the rules has an action of 0 and no
+ *   message.
+ * @company The Jackson Laboratory
+ * @author dbm
+ */
+
+public class DiscrepancyDecisionTable
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // Logical DB policies.
+    //
+    public static final int SINGLE_DB = 0;
+    public static final int MULTIPLE_DB = 1;
+
+    // The number of count buckets (0, 1 and >1).
+    //
+    private static final int BUCKETS = 3;
+
+    // Matches any bucket when the tables are built.
+    //
+    private static final int ANY = -1;
+
+    // Action and associate discrepancy message for each policy and
+    // combination of count buckets.
+    //
+    private static final int[] ACTION = new int[2 * BUCKETS * BUCKETS * BUCKETS];
+    private static final String[] ASSOC_MSG =
+        new String[2 * BUCKETS * BUCKETS * BUCKETS];
+
+    // Target discrepancy message for each combination of count buckets.
+    //
+    private static final String[] TARGET_MSG = new String[BUCKETS * BUCKETS];
+
+    static
+    {
+        // Target discrepancies (same type, different type).
+        //
+        setTarget(0, 0, AssociationLoadConstants.TARGET_DISCREP_A);
+        setTarget(0, 1, AssociationLoadConstants.TARGET_DISCREP_B);
+        setTarget(0, 2, AssociationLoadConstants.TARGET_DISCREP_C);
+        setTarget(1, 0, null);
+        setTarget(1, 1, AssociationLoadConstants.TARGET_DISCREP_D);
+        setTarget(1, 2, AssociationLoadConstants.TARGET_DISCREP_E);
+        setTarget(2, 0, AssociationLoadConstants.TARGET_DISCREP_F);
+        setTarget(2, 1, AssociationLoadConstants.TARGET_DISCREP_G);
+        setTarget(2, 2, AssociationLoadConstants.TARGET_DISCREP_H);
+
+        // Logical DBs that are allowed to have only one association
+        // (same type, same object, different type).
+        //
+        set(SINGLE_DB, 0, ANY, 0, AssociationLoadConstants.ACTION_ASSOCIATE, null);
+        set(SINGLE_DB, 0, ANY, 1, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_A);
+        set(SINGLE_DB, 0, ANY, 2, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_B);
+        set(SINGLE_DB, 1, 1, 0, AssociationLoadConstants.ACTION_SKIP, null);
+        set(SINGLE_DB, 1, 1, 1, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_C);
+        set(SINGLE_DB, 1, 1, 2, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_D);
+        set(SINGLE_DB, 1, 0, 0, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_E);
+        set(SINGLE_DB, 1, 0, 1, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_F);
+        set(SINGLE_DB, 1, 0, 2, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_G);
+        set(SINGLE_DB, 2, 1, 0, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_H);
+        set(SINGLE_DB, 2, 1, 1, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_I);
+        set(SINGLE_DB, 2, 1, 2, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_J);
+        set(SINGLE_DB, 2, 0, 0, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_K);
+        set(SINGLE_DB, 2, 0, 1, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_L);
+        set(SINGLE_DB, 2, 0, 2, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_M);
+
+        // Logical DBs that are allowed to have multiple associations
+        // (same type, same object, different type).
+        //
+        set(MULTIPLE_DB, 0, ANY, ANY, AssociationLoadConstants.ACTION_ASSOCIATE, null);
+        set(MULTIPLE_DB, 1, 1, ANY, AssociationLoadConstants.ACTION_SKIP, null);
+        set(MULTIPLE_DB, 1, 0, 0, AssociationLoadConstants.ACTION_REPORT_ASSOCIATE,
+            AssociationLoadConstants.ASSOC_DISCREP_E);
+        set(MULTIPLE_DB, 1, 0, 1, AssociationLoadConstants.ACTION_REPORT_ASSOCIATE,
+            AssociationLoadConstants.ASSOC_DISCREP_F);
+        set(MULTIPLE_DB, 1, 0, 2, AssociationLoadConstants.ACTION_REPORT_ASSOCIATE,
+            AssociationLoadConstants.ASSOC_DISCREP_G);
+        set(MULTIPLE_DB, 2, 1, 0, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_H);
+        set(MULTIPLE_DB, 2, 1, 1, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_I);
+        set(MULTIPLE_DB, 2, 1, 2, AssociationLoadConstants.ACTION_REPORT_SKIP,
+            AssociationLoadConstants.ASSOC_DISCREP_J);
+        set(MULTIPLE_DB, 2, 0, 0, AssociationLoadConstants.ACTION_REPORT_ASSOCIATE,
+            AssociationLoadConstants.ASSOC_DISCREP_K);
+        set(MULTIPLE_DB, 2, 0, 1, AssociationLoadConstants.ACTION_REPORT_ASSOCIATE,
+            AssociationLoadConstants.ASSOC_DISCREP_L);
+        set(MULTIPLE_DB, 2, 0, 2, AssociationLoadConstants.ACTION_REPORT_ASSOCIATE,
+            AssociationLoadConstants.ASSOC_DISCREP_M);
+    }
+
+
+    /**
+     * Get the index into the associate tables for a policy and a set of
+     * counts.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param policy The logical DB policy (SINGLE_DB or MULTIPLE_DB).
+     * @param sameTypeCount The number of associations to objects of the same
+     *                      type as the target object.
+     * @param sameObjCount The number of associations to the target object.
+     * @param diffTypeCount The number of associations to objects of a
+     *                      different type than the target object.
+     * @return The index.
+     * @throws Nothing
+     */
+    public static int index (int policy, int sameTypeCount, int sameObjCount,
+                             int diffTypeCount)
+    {
+        return ((policy * BUCKETS + bucket(sameTypeCount)) * BUCKETS +
+                bucket(sameObjCount)) * BUCKETS + bucket(diffTypeCount);
+    }
+
+    /**
+     * Get the action for an index from the index() method.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param index The index.
+     * @return The action (one of the ACTION_* constants, or 0 if none).
+     * @throws Nothing
+     */
+    public static int getAction (int index)
+    {
+        return ACTION[index];
+    }
+
+    /**
+     * Get the associate discrepancy message for an index from the index()
+     * method.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param index The index.
+     * @return The message (one of the ASSOC_DISCREP_* constants) or null.
+     * @throws Nothing
+     */
+    public static String getAssocMsg (int index)
+    {
+        return ASSOC_MSG[index];
+    }
+
+    /**
+     * Get the target discrepancy message for a set of target counts.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param sameTypeCount The number of objects of the expected target type
+     *                      that the target is associated with.
+     * @param diffTypeCount The number of objects of other types that the
+     *                      target is associated with.
+     * @return The message (one of the TARGET_DISCREP_* constants) or null if
+     *         there is no discrepancy.
+     * @throws Nothing
+     */
+    public static String getTargetMsg (int sameTypeCount, int diffTypeCount)
+    {
+        return TARGET_MSG[bucket(sameTypeCount) * BUCKETS + bucket(diffTypeCount)];
+    }
+
+    /**
+     * Create a printable copy of the tables, one line for each combination
+     * of count buckets.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The tables.
+     * @throws Nothing
+     */
+    public static String dump ()
+    {
+        String[] label = {"0", "1", ">1"};
+        StringBuffer sb = new StringBuffer();
+
+        sb.append("Target discrepancies (same type, different type):\n");
+        for (int st=0; st<BUCKETS; st++)
+        {
+            for (int dt=0; dt<BUCKETS; dt++)
+            {
+                sb.append("  " + label[st] + "\t" + label[dt] + "\t" +
+                          TARGET_MSG[st * BUCKETS + dt] + "\n");
+            }
+        }
+
+        for (int policy=SINGLE_DB; policy<=MULTIPLE_DB; policy++)
+        {
+            sb.append(policy == SINGLE_DB ? "Single" : "Multiple");
+            sb.append(" object logical DBs (same type, same object, " +
+                      "different type, action, message):\n");
+            for (int st=0; st<BUCKETS; st++)
+            {
+                for (int so=0; so<BUCKETS; so++)
+                {
+                    for (int dt=0; dt<BUCKETS; dt++)
+                    {
+                        int i = ((policy * BUCKETS + st) * BUCKETS + so) *
+                                BUCKETS + dt;
+                        sb.append("  " + label[st] + "\t" + label[so] + "\t" +
+                                  label[dt] + "\t" + ACTION[i] + "\t" +
+                                  ASSOC_MSG[i] + "\n");
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reduce a count to a bucket: 0, 1 or 2 (for more than 1).
+     * @assumes The count is not negative.
+     * @effects Nothing
+     * @param count The count.
+     * @return The bucket.
+     * @throws Nothing
+     */
+    private static int bucket (int count)
+    {
+        return Math.min(count, 2);
+    }
+
+    /**
+     * Set the target discrepancy message for a combination of buckets.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param st The same type bucket.
+     * @param dt The different type bucket.
+     * @param msg The message.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private static void setTarget (int st, int dt, String msg)
+    {
+        TARGET_MSG[st * BUCKETS + dt] = msg;
+    }
+
+    /**
+     * Set the action and associate discrepancy message for a combination of
+     * buckets. A bucket of ANY sets every bucket for that count.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param policy The logical DB policy.
+     * @param st The same type bucket.
+     * @param so The same object bucket.
+     * @param dt The different type bucket.
+     * @param action The action.
+     * @param msg The message.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private static void set (int policy, int st, int so, int dt, int action,
+                             String msg)
+    {
+        for (int i=0; i<BUCKETS; i++)
+        {
+            if (st != ANY && st != i)
+                continue;
+            for (int j=0; j<BUCKETS; j++)
+            {
+                if (so != ANY && so != j)
+                    continue;
+                for (int k=0; k<BUCKETS; k++)
+                {
+                    if (dt != ANY && dt != k)
+                        continue;
+                    int index = ((policy * BUCKETS + i) * BUCKETS + j) *
+                                BUCKETS + k;
+                    ACTION[index] = action;
+                    ASSOC_MSG[index] = msg;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,874 @@
+package org.jax.mgi.app.assocload;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import org.jax.mgi.dbs.SchemaConstants;
+import org.jax.mgi.shr.dbutils.ResultsNavigator;
+import org.jax.mgi.shr.dbutils.RowReference;
+import org.jax.mgi.shr.dbutils.SQLDataManager;
+import org.jax.mgi.shr.dbutils.SQLDataManagerFactory;
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An object that holds the discrepancies found by the load and writes
+ *     the rows of the associate and target discrepancy reports from them,
+ *     so AssocDiscrepancyRpt.py and TargetDiscrepancyRpt.py do not need to
+ *     read them back from the QC tables. The scripts still write the
+ *     reports (with the reportlib heading and trailer) around these rows.
+ * @has
+ *   <UL>
+ *   <LI> The attributes of each discrepancy, held in one array for each
+ *        attribute.
+ *   <LI> A cache of logical DB names, MGI type names and MGI IDs that is
+ *        filled with batched queries when the rows are written.
+ *   <LI> The order of the accession IDs and logical DB names in the
+ *        database, so the rows are sorted the same way as the ORDER BY of
+ *        the scripts.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides methods to add a target or associate discrepancy.
+ *   <LI> Provides a method to write the rows of both reports at the same
+ *        time, each on its own thread.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class DiscrepancyReports
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The names of the files with the rows of each report (AssocLoadRpt.sh
+    // passes them to the Python reports).
+    //
+    private static final String ASSOC_ROWS = "AssocDiscrepancy.rows";
+    private static final String TARGET_ROWS = "TargetDiscrepancy.rows";
+
+    // The value used for a key that is null.
+    //
+    private static final int NO_KEY = Integer.MIN_VALUE;
+
+    // The number of object keys in each MGI ID query.
+    //
+    private static final int QUERY_BATCH = 1000;
+
+    // A logger for logging messages.
+    //
+    private DLALogger logger = null;
+
+    // The directory to write the rows to.
+    //
+    private String outputDir = null;
+
+    // The target discrepancies.
+    //
+    private int targetCount = 0;
+    private String[] tAccID = new String[256];
+    private int[] tLogicalDBKey = new int[256];
+    private int[] tObjectKey = new int[256];
+    private int[] tMGITypeKey = new int[256];
+    private String[] tExpMGIType = new String[256];
+    private String[] tMsg = new String[256];
+
+    // The associate discrepancies.
+    //
+    private int assocCount = 0;
+    private String[] aTgtAccID = new String[256];
+    private int[] aTgtLogicalDBKey = new int[256];
+    private int[] aTgtObjectKey = new int[256];
+    private int[] aTgtMGITypeKey = new int[256];
+    private String[] aAccID = new String[256];
+    private int[] aLogicalDBKey = new int[256];
+    private int[] aObjectKey = new int[256];
+    private int[] aMGITypeKey = new int[256];
+    private String[] aMsg = new String[256];
+
+    // The names of the logical DBs and MGI types, and the MGI IDs of each
+    // MGI object (keyed by MGI type key and object key). An object normally
+    // has one MGI ID, but a Vector is kept for any that has more.
+    //
+    private Map logicalDBNames = null;
+    private Map mgiTypeNames = null;
+    private Map mgiIDs = null;
+
+    // The position of each logical DB (by key) and accession ID when they
+    // are sorted by the database.
+    //
+    private Map logicalDBOrder = null;
+    private Map accIDOrder = null;
+
+    // The thread that writes the rows while the loader goes on, and the
+    // error from it (if any).
+    //
+    private Thread writeThread = null;
+    private volatile MGIException writeError = null;
+
+
+    /**
+     * Constructs a DiscrepancyReports object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger to write messages to.
+     * @param pOutputDir The directory to write the rows to.
+     * @throws Nothing
+     */
+    public DiscrepancyReports (DLALogger pLogger, String pOutputDir)
+    {
+        logger = pLogger;
+        outputDir = pOutputDir;
+    }
+
+    /**
+     * Add a target discrepancy.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The target accession ID.
+     * @param logicalDBKey The target logical DB key.
+     * @param objectKey The target object key (or null).
+     * @param mgiTypeKey The target MGI type key (or null).
+     * @param expMGIType The expected MGI type name.
+     * @param msg The error message.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public synchronized void addTarget (String accID, Integer logicalDBKey,
+                                        Integer objectKey, Integer mgiTypeKey,
+                                        String expMGIType, String msg)
+    {
+        if (targetCount == tAccID.length)
+        {
+            int n = targetCount * 2;
+            tAccID = grow(tAccID, n);
+            tLogicalDBKey = grow(tLogicalDBKey, n);
+            tObjectKey = grow(tObjectKey, n);
+            tMGITypeKey = grow(tMGITypeKey, n);
+            tExpMGIType = grow(tExpMGIType, n);
+            tMsg = grow(tMsg, n);
+        }
+
+        int i = targetCount++;
+        tAccID[i] = accID;
+        tLogicalDBKey[i] = toKey(logicalDBKey);
+        tObjectKey[i] = toKey(objectKey);
+        tMGITypeKey[i] = toKey(mgiTypeKey);
+        tExpMGIType[i] = expMGIType;
+        tMsg[i] = msg;
+    }
+
+    /**
+     * Add an associate discrepancy.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param tgtAccID The target accession ID.
+     * @param tgtLogicalDBKey The target logical DB key.
+     * @param tgtObjectKey The target object key.
+     * @param tgtMGITypeKey The target MGI type key.
+     * @param accID The accession ID that could not be associated.
+     * @param logicalDBKey The logical DB key for the accession ID.
+     * @param objectKey The object key for the accession ID (or null).
+     * @param mgiTypeKey The MGI type key for the accession ID (or null).
+     * @param msg The error message.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public synchronized void addAssoc (String tgtAccID, int tgtLogicalDBKey,
+                                       int tgtObjectKey, int tgtMGITypeKey,
+                                       String accID, Integer logicalDBKey,
+                                       Integer objectKey, Integer mgiTypeKey,
+                                       String msg)
+    {
+        if (assocCount == aAccID.length)
+        {
+            int n = assocCount * 2;
+            aTgtAccID = grow(aTgtAccID, n);
+            aTgtLogicalDBKey = grow(aTgtLogicalDBKey, n);
+            aTgtObjectKey = grow(aTgtObjectKey, n);
+            aTgtMGITypeKey = grow(aTgtMGITypeKey, n);
+            aAccID = grow(aAccID, n);
+            aLogicalDBKey = grow(aLogicalDBKey, n);
+            aObjectKey = grow(aObjectKey, n);
+            aMGITypeKey = grow(aMGITypeKey, n);
+            aMsg = grow(aMsg, n);
+        }
+
+        int i = assocCount++;
+        aTgtAccID[i] = tgtAccID;
+        aTgtLogicalDBKey[i] = tgtLogicalDBKey;
+        aTgtObjectKey[i] = tgtObjectKey;
+        aTgtMGITypeKey[i] = tgtMGITypeKey;
+        aAccID[i] = accID;
+        aLogicalDBKey[i] = toKey(logicalDBKey);
+        aObjectKey[i] = toKey(objectKey);
+        aMGITypeKey[i] = toKey(mgiTypeKey);
+        aMsg[i] = msg;
+    }
+
+    /**
+     * Start writing the rows of the reports on another thread, so they are
+     * written while the loader goes on (e.g. while the QC tables are
+     * loaded). waitForWrite() must be called to finish.
+     * @assumes All the discrepancies have been added.
+     * @effects Starts a thread.
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void startWrite ()
+    {
+        writeThread = new Thread(new Runnable()
+        {
+            public void run ()
+            {
+                try
+                {
+                    write();
+                }
+                catch (MGIException e)
+                {
+                    writeError = e;
+                }
+            }
+        }, "assocload-reports");
+        writeThread.start();
+    }
+
+    /**
+     * Wait for the rows started by startWrite() to be written. It does
+     * nothing if they were not started or have already been waited for.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the rows could not be written.
+     */
+    public void waitForWrite ()
+        throws MGIException
+    {
+        if (writeThread == null)
+            return;
+
+        try
+        {
+            writeThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            throw new MGIException("Interrupted while writing report rows");
+        }
+        writeThread = null;
+
+        if (writeError != null)
+            throw writeError;
+    }
+
+    /**
+     * Write the rows of the associate and target discrepancy reports. The
+     * names, MGI IDs and sort order are looked up first, then the rows of
+     * each report are written on their own thread.
+     * @assumes All the discrepancies have been added.
+     * @effects Creates or replaces the files with the rows.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the lookups fail or a report cannot be
+     *         written.
+     */
+    public synchronized void write ()
+        throws MGIException
+    {
+        loadNames();
+        loadMGIIDs();
+        loadAccIDOrder();
+
+        // Write the target report on another thread while the associate
+        // report is written on this one.
+        //
+        final IOException[] targetError = new IOException[1];
+        Thread t = new Thread(new Runnable()
+        {
+            public void run ()
+            {
+                try
+                {
+                    writeTargetRows(outputDir + "/" + TARGET_ROWS);
+                }
+                catch (IOException e)
+                {
+                    targetError[0] = e;
+                }
+            }
+        }, "assocload-report");
+        t.start();
+
+        IOException assocError = null;
+        try
+        {
+            writeAssocRows(outputDir + "/" + ASSOC_ROWS);
+        }
+        catch (IOException e)
+        {
+            assocError = e;
+        }
+
+        try
+        {
+            t.join();
+        }
+        catch (InterruptedException e)
+        {
+            throw new MGIException("Interrupted while writing report rows");
+        }
+
+        if (assocError != null)
+            throw new MGIException("Cannot write " + ASSOC_ROWS + ": " +
+                                   assocError.getMessage());
+        if (targetError[0] != null)
+            throw new MGIException("Cannot write " + TARGET_ROWS + ": " +
+                                   targetError[0].getMessage());
+
+        logger.logdInfo("Wrote " + ASSOC_ROWS + " and " + TARGET_ROWS +
+                        " to " + outputDir,false);
+    }
+
+    /**
+     * Write the rows of the associate discrepancy report. Like
+     * AssocDiscrepancyRpt.py, it only includes discrepancies for accession
+     * IDs that are associated with a MGI object, and they are sorted by
+     * target accession ID and target logical DB name.
+     * @assumes The names, MGI IDs and sort order have been loaded.
+     * @effects Creates or replaces the file.
+     * @param fileName The file name.
+     * @return Nothing
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeAssocRows (String fileName)
+        throws IOException
+    {
+        // Get the discrepancies to report and sort them.
+        //
+        Integer[] rows = new Integer[assocCount];
+        int n = 0;
+        for (int i=0; i<assocCount; i++)
+        {
+            if (aMGITypeKey[i] != NO_KEY &&
+                logicalDBNames.containsKey(new Integer(aTgtLogicalDBKey[i])) &&
+                logicalDBNames.containsKey(new Integer(aLogicalDBKey[i])) &&
+                mgiTypeNames.containsKey(new Integer(aTgtMGITypeKey[i])) &&
+                mgiTypeNames.containsKey(new Integer(aMGITypeKey[i])))
+                rows[n++] = new Integer(i);
+        }
+        rows = (Integer[])Arrays.copyOf(rows, n);
+        Arrays.sort(rows, new Comparator()
+        {
+            public int compare (Object o1, Object o2)
+            {
+                int i1 = ((Integer)o1).intValue();
+                int i2 = ((Integer)o2).intValue();
+                return compareOrder(aTgtAccID[i1], aTgtLogicalDBKey[i1],
+                                    aTgtAccID[i2], aTgtLogicalDBKey[i2]);
+            }
+        });
+
+        BufferedWriter out = new BufferedWriter(new FileWriter(fileName));
+        try
+        {
+            for (int r=0; r<n; r++)
+            {
+                int i = rows[r].intValue();
+                String tgtMGIID = getMGIID(aTgtMGITypeKey[i], aTgtObjectKey[i]);
+                String mgiID = getMGIID(aMGITypeKey[i], aObjectKey[i]);
+
+                StringBuffer line = new StringBuffer();
+                pad(line, aTgtAccID[i], 20).append(' ');
+                pad(line, getLogicalDBName(aTgtLogicalDBKey[i]), 20).append(' ');
+                pad(line, tgtMGIID == null ? " " : tgtMGIID, 20).append(' ');
+                pad(line, getMGITypeName(aTgtMGITypeKey[i]), 20).append(' ');
+                pad(line, aAccID[i], 20).append(' ');
+                pad(line, getLogicalDBName(aLogicalDBKey[i]), 20).append(' ');
+                pad(line, mgiID == null ? " " : mgiID, 20).append(' ');
+                pad(line, getMGITypeName(aMGITypeKey[i]), 20).append(' ');
+                pad(line, aMsg[i], 60).append('\n');
+                out.write(line.toString());
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Write the rows of the target discrepancy report. Like
+     * TargetDiscrepancyRpt.py, a discrepancy for a MGI object that has no
+     * MGI ID is not included, a discrepancy for a MGI object with more than
+     * one MGI ID has a row for each one (the rows of the UNION are only
+     * distinct for the same QC record), and they are sorted by accession ID
+     * and logical DB name.
+     * @assumes The names, MGI IDs and sort order have been loaded.
+     * @effects Creates or replaces the file.
+     * @param fileName The file name.
+     * @return Nothing
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeTargetRows (String fileName)
+        throws IOException
+    {
+        // Get the discrepancies to report and sort them.
+        //
+        Integer[] rows = new Integer[targetCount];
+        int n = 0;
+        for (int i=0; i<targetCount; i++)
+        {
+            if (!logicalDBNames.containsKey(new Integer(tLogicalDBKey[i])))
+                continue;
+            if (tMGITypeKey[i] != NO_KEY &&
+                (getMGIID(tMGITypeKey[i], tObjectKey[i]) == null ||
+                 !mgiTypeNames.containsKey(new Integer(tMGITypeKey[i]))))
+                continue;
+            rows[n++] = new Integer(i);
+        }
+        rows = (Integer[])Arrays.copyOf(rows, n);
+        Arrays.sort(rows, new Comparator()
+        {
+            public int compare (Object o1, Object o2)
+            {
+                int i1 = ((Integer)o1).intValue();
+                int i2 = ((Integer)o2).intValue();
+                return compareOrder(tAccID[i1], tLogicalDBKey[i1],
+                                    tAccID[i2], tLogicalDBKey[i2]);
+            }
+        });
+
+        BufferedWriter out = new BufferedWriter(new FileWriter(fileName));
+        try
+        {
+            for (int r=0; r<n; r++)
+            {
+                int i = rows[r].intValue();
+                Vector ids = new Vector();
+                String mgiType = "";
+                if (tMGITypeKey[i] != NO_KEY)
+                {
+                    ids = getMGIIDs(tMGITypeKey[i], tObjectKey[i]);
+                    mgiType = getMGITypeName(tMGITypeKey[i]);
+                }
+                else
+                    ids.add("");
+
+                for (int j=0; j<ids.size(); j++)
+                {
+                    StringBuffer line = new StringBuffer();
+                    pad(line, tAccID[i], 20).append(' ');
+                    pad(line, getLogicalDBName(tLogicalDBKey[i]), 20).append(' ');
+                    pad(line, (String)ids.get(j), 20).append(' ');
+                    pad(line, mgiType, 20).append(' ');
+                    pad(line, tExpMGIType[i], 20).append(' ');
+                    pad(line, tMsg[i], 60).append('\n');
+                    out.write(line.toString());
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Compare two rows by accession ID and then logical DB name, in the
+     * order of the database.
+     * @assumes The sort order has been loaded.
+     * @effects Nothing
+     * @param accID1 The accession ID of the first row.
+     * @param logicalDBKey1 The logical DB key of the first row.
+     * @param accID2 The accession ID of the second row.
+     * @param logicalDBKey2 The logical DB key of the second row.
+     * @return A negative number, zero or a positive number if the first row
+     *         sorts before, the same as or after the second row.
+     * @throws Nothing
+     */
+    private int compareOrder (String accID1, int logicalDBKey1,
+                              String accID2, int logicalDBKey2)
+    {
+        int c = ((Integer)accIDOrder.get(accID1)).compareTo(
+                (Integer)accIDOrder.get(accID2));
+        if (c != 0)
+            return c;
+        return ((Integer)logicalDBOrder.get(new Integer(logicalDBKey1))).compareTo(
+               (Integer)logicalDBOrder.get(new Integer(logicalDBKey2)));
+    }
+
+    /**
+     * Load the names of all logical DBs and MGI types with one query. The
+     * logical DBs are returned in the order of their names, so their
+     * position in the database's sort order is kept too.
+     * @assumes Nothing
+     * @effects Queries the MGD database.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the query fails.
+     */
+    private void loadNames ()
+        throws MGIException
+    {
+        logicalDBNames = new HashMap();
+        logicalDBOrder = new HashMap();
+        mgiTypeNames = new HashMap();
+
+        String sql = "SELECT 'L', _LogicalDB_key, name " +
+                     "FROM (SELECT _LogicalDB_key, name FROM ACC_LogicalDB " +
+                           "ORDER BY name) l " +
+                     "UNION ALL " +
+                     "SELECT 'T', _MGIType_key, name FROM ACC_MGIType";
+        SQLDataManager sqlMgr =
+            SQLDataManagerFactory.getShared(SchemaConstants.MGD);
+        logger.logdInfo("Execute Query: "+sql,true);
+        ResultsNavigator rn = sqlMgr.executeQuery(sql);
+        while (rn.next())
+        {
+            RowReference row = rn.getRowReference();
+            if (row.getString(1).equals("L"))
+            {
+                logicalDBNames.put(row.getInt(2), row.getString(3));
+                logicalDBOrder.put(row.getInt(2),
+                                   new Integer(logicalDBOrder.size()));
+            }
+            else
+                mgiTypeNames.put(row.getInt(2), row.getString(3));
+        }
+        rn.close();
+    }
+
+    /**
+     * Load the MGI IDs of all the MGI objects in the discrepancies, with
+     * one query for each MGI type and batch of object keys.
+     * @assumes Nothing
+     * @effects Queries the MGD database.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If a query fails.
+     */
+    private void loadMGIIDs ()
+        throws MGIException
+    {
+        int i;
+
+        // Collect the distinct object keys for each MGI type.
+        //
+        TreeMap objects = new TreeMap();
+        for (i=0; i<targetCount; i++)
+            addObject(objects, tMGITypeKey[i], tObjectKey[i]);
+        for (i=0; i<assocCount; i++)
+        {
+            addObject(objects, aTgtMGITypeKey[i], aTgtObjectKey[i]);
+            addObject(objects, aMGITypeKey[i], aObjectKey[i]);
+        }
+
+        mgiIDs = new HashMap();
+        SQLDataManager sqlMgr =
+            SQLDataManagerFactory.getShared(SchemaConstants.MGD);
+
+        for (Iterator t=objects.keySet().iterator(); t.hasNext(); )
+        {
+            Integer mgiTypeKey = (Integer)t.next();
+            Iterator o = ((TreeSet)objects.get(mgiTypeKey)).iterator();
+
+            while (o.hasNext())
+            {
+                StringBuffer keys = new StringBuffer();
+                for (i=0; i<QUERY_BATCH && o.hasNext(); i++)
+                {
+                    if (i > 0)
+                        keys.append(",");
+                    keys.append(o.next());
+                }
+
+                String sql = "SELECT _Object_key, accID " +
+                             "FROM ACC_Accession " +
+                             "WHERE _MGIType_key = " + mgiTypeKey + " and " +
+                                   "_Object_key in (" + keys + ") and " +
+                                   "_LogicalDB_key = 1 and " +
+                                   "preferred = 1";
+                ResultsNavigator rn = sqlMgr.executeQuery(sql);
+                while (rn.next())
+                {
+                    RowReference row = rn.getRowReference();
+                    addMGIID(new Long(getObjectID(mgiTypeKey.intValue(),
+                                                  row.getInt(1).intValue())),
+                             row.getString(2));
+                }
+                rn.close();
+            }
+        }
+
+        logger.logdInfo("Looked up " + mgiIDs.size() + " MGI IDs for the " +
+                        "discrepancy reports",false);
+    }
+
+    /**
+     * Load the position of each accession ID in the reports when they are
+     * sorted by the database, with one query. The accession IDs are sorted
+     * with the default collation of the database, the same as the accession
+     * ID columns of the QC tables that the scripts sort by.
+     * @assumes Nothing
+     * @effects Queries the MGD database.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the query fails.
+     */
+    private void loadAccIDOrder ()
+        throws MGIException
+    {
+        int i;
+
+        TreeSet accIDs = new TreeSet();
+        for (i=0; i<targetCount; i++)
+            accIDs.add(tAccID[i]);
+        for (i=0; i<assocCount; i++)
+            accIDs.add(aTgtAccID[i]);
+
+        accIDOrder = new HashMap();
+        if (accIDs.isEmpty())
+            return;
+
+        StringBuffer values = new StringBuffer();
+        for (Iterator it=accIDs.iterator(); it.hasNext(); )
+        {
+            if (values.length() > 0)
+                values.append(",");
+            values.append("'")
+                  .append(((String)it.next()).replaceAll("'", "''"))
+                  .append("'");
+        }
+
+        String sql = "SELECT accID " +
+                     "FROM unnest(ARRAY[" + values + "]::text[]) accID " +
+                     "ORDER BY accID";
+        SQLDataManager sqlMgr =
+            SQLDataManagerFactory.getShared(SchemaConstants.MGD);
+        ResultsNavigator rn = sqlMgr.executeQuery(sql);
+        while (rn.next())
+        {
+            RowReference row = rn.getRowReference();
+            accIDOrder.put(row.getString(1), new Integer(accIDOrder.size()));
+        }
+        rn.close();
+
+        if (accIDOrder.size() != accIDs.size())
+            throw new MGIException("Cannot sort the accession IDs for the " +
+                                   "discrepancy reports");
+    }
+
+    /**
+     * Add a MGI ID for a MGI object, keeping each distinct MGI ID if the
+     * object has more than one.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param objectID The combined MGI type key and object key.
+     * @param mgiID The MGI ID.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void addMGIID (Long objectID, String mgiID)
+    {
+        Object o = mgiIDs.get(objectID);
+        if (o == null)
+            mgiIDs.put(objectID, mgiID);
+        else if (o instanceof Vector)
+        {
+            if (!((Vector)o).contains(mgiID))
+                ((Vector)o).add(mgiID);
+        }
+        else if (!o.equals(mgiID))
+        {
+            Vector v = new Vector();
+            v.add(o);
+            v.add(mgiID);
+            mgiIDs.put(objectID, v);
+        }
+    }
+
+    /**
+     * Add an object key to the set for its MGI type.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param objects The sets of object keys, keyed by MGI type key.
+     * @param mgiTypeKey The MGI type key (or NO_KEY).
+     * @param objectKey The object key (or NO_KEY).
+     * @return Nothing
+     * @throws Nothing
+     */
+    private static void addObject (TreeMap objects, int mgiTypeKey,
+                                   int objectKey)
+    {
+        if (mgiTypeKey == NO_KEY || objectKey == NO_KEY)
+            return;
+
+        Integer type = new Integer(mgiTypeKey);
+        TreeSet keys = (TreeSet)objects.get(type);
+        if (keys == null)
+        {
+            keys = new TreeSet();
+            objects.put(type, keys);
+        }
+        keys.add(new Integer(objectKey));
+    }
+
+    /**
+     * Get the MGI ID of a MGI object.
+     * @assumes The MGI IDs have been loaded.
+     * @effects Nothing
+     * @param mgiTypeKey The MGI type key (or NO_KEY).
+     * @param objectKey The object key (or NO_KEY).
+     * @return The MGI ID, or null if there is none.
+     * @throws Nothing
+     */
+    private String getMGIID (int mgiTypeKey, int objectKey)
+    {
+        Vector ids = getMGIIDs(mgiTypeKey, objectKey);
+        return ids.isEmpty() ? null : (String)ids.get(0);
+    }
+
+    /**
+     * Get all the MGI IDs of a MGI object.
+     * @assumes The MGI IDs have been loaded.
+     * @effects Nothing
+     * @param mgiTypeKey The MGI type key (or NO_KEY).
+     * @param objectKey The object key (or NO_KEY).
+     * @return The MGI IDs (empty if there are none).
+     * @throws Nothing
+     */
+    private Vector getMGIIDs (int mgiTypeKey, int objectKey)
+    {
+        Vector ids = new Vector();
+        if (mgiTypeKey == NO_KEY || objectKey == NO_KEY)
+            return ids;
+
+        Object o = mgiIDs.get(new Long(getObjectID(mgiTypeKey, objectKey)));
+        if (o instanceof Vector)
+            ids.addAll((Vector)o);
+        else if (o != null)
+            ids.add(o);
+        return ids;
+    }
+
+    /**
+     * Get the name of a logical DB.
+     * @assumes The names have been loaded.
+     * @effects Nothing
+     * @param logicalDBKey The logical DB key.
+     * @return The name.
+     * @throws Nothing
+     */
+    private String getLogicalDBName (int logicalDBKey)
+    {
+        return (String)logicalDBNames.get(new Integer(logicalDBKey));
+    }
+
+    /**
+     * Get the name of a MGI type.
+     * @assumes The names have been loaded.
+     * @effects Nothing
+     * @param mgiTypeKey The MGI type key.
+     * @return The name.
+     * @throws Nothing
+     */
+    private String getMGITypeName (int mgiTypeKey)
+    {
+        return (String)mgiTypeNames.get(new Integer(mgiTypeKey));
+    }
+
+    /**
+     * Combine a MGI type key and object key into one value.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param mgiTypeKey The MGI type key.
+     * @param objectKey The object key.
+     * @return The combined value.
+     * @throws Nothing
+     */
+    private static long getObjectID (int mgiTypeKey, int objectKey)
+    {
+        return ((long)mgiTypeKey << 32) | (objectKey & 0xffffffffL);
+    }
+
+    /**
+     * Append a string to a buffer, padded on the right to a given width
+     * (like the Python "%-20s" format).
+     * @assumes Nothing
+     * @effects Nothing
+     * @param sb The buffer.
+     * @param s The string (or null, which is written as "None").
+     * @param width The width.
+     * @return The buffer.
+     * @throws Nothing
+     */
+    private static StringBuffer pad (StringBuffer sb, String s, int width)
+    {
+        if (s == null)
+            s = "None";
+        sb.append(s);
+        for (int i=s.length(); i<width; i++)
+            sb.append(' ');
+        return sb;
+    }
+
+    /**
+     * Convert a key that may be null to an int.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param key The key (or null).
+     * @return The key, or NO_KEY if it is null.
+     * @throws Nothing
+     */
+    private static int toKey (Integer key)
+    {
+        return key == null ? NO_KEY : key.intValue();
+    }
+
+    /**
+     * Grow an array.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param a The array.
+     * @param n The new length.
+     * @return The new array.
+     * @throws Nothing
+     */
+    private static int[] grow (int[] a, int n)
+    {
+        int[] b = new int[n];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    /**
+     * Grow an array.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param a The array.
+     * @param n The new length.
+     * @return The new array.
+     * @throws Nothing
+     */
+    private static String[] grow (String[] a, int n)
+    {
+        String[] b = new String[n];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+}
@@ -0,0 +1,605 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.jax.mgi.dbs.SchemaConstants;
+import org.jax.mgi.shr.config.AssociationLoaderCfg;
+import org.jax.mgi.shr.config.RADARCfg;
+import org.jax.mgi.shr.dbutils.ResultsNavigator;
+import org.jax.mgi.shr.dbutils.RowReference;
+import org.jax.mgi.shr.dbutils.SQLDataManager;
+import org.jax.mgi.shr.dbutils.SQLDataManagerFactory;
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An object that synchronizes the associations created by the prior run
+ *     of the current job stream with the associations made by this run,
+ *     instead of deleting and reloading all of them.
+ * @has
+ *   <UL>
+ *   <LI> An index of the associations (ACC_Accession records) created by the
+ *        prior run, with the accession key of each one.
+ *   <LI> The associations from the prior run that are made again by this
+ *        run.
+ *   <LI> The PRB_Reference records created by the prior run and the probes
+ *        that are associated by this run.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides a method to load the associations and probe references
+ *        created by the prior run.
+ *   <LI> Provides a method to check whether an association to be made by
+ *        this run already exists from the prior run, so it does not need to
+ *        be inserted again.
+ *   <LI> Provides a method to delete the associations and probe references
+ *        from the prior run that are not made by this run. An
+ *        ACC_AccessionReference record is deleted by its accession key and
+ *        reference key, and an ACC_Accession record is only deleted if none
+ *        of its ACC_AccessionReference records is kept. The records for each
+ *        batch of accessions are deleted by one statement.
+ *   <LI> Provides a SQL condition that excludes the associations created by
+ *        the prior run, so they are ignored when the associations are
+ *        checked for discrepancies (as if they had been deleted).
+ *   </UL>
+ *   The final associations are the same as if they had been deleted and
+ *   reloaded, but a kept association keeps its accession key and the
+ *   creation and modification dates from the run that created it.
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class JobStreamAssociationSync
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The number of keys in each delete statement.
+    //
+    private static final int DELETE_BATCH = 1000;
+
+    // The MGI type key for probes.
+    //
+    private static final int PROBE_TYPE_KEY = 3;
+
+    // A logger for logging messages.
+    //
+    private DLALogger logger = null;
+
+    // A SQLDataManager for the MGD database.
+    //
+    private SQLDataManager sqlMgr = null;
+
+    // The job stream name (the login of the user that created the records),
+    // the reference key and private indicator used for new associations.
+    //
+    private String jobStreamName = null;
+    private int refsKey;
+    private int privateVal;
+
+    // The lookups resolved at startup, used to get the reference key when
+    // the associations are loaded.
+    //
+    private StartupLookups lookups = null;
+
+    // An index of the associations from the prior run that can be kept. The
+    // values of the index are numbered in the order they are added, so the
+    // accession key and kept indicator for each one are held in arrays by
+    // value number.
+    //
+    private AccessionIndex index = null;
+    private int[] accessionKeys = new int[1024];
+    private BitSet kept = new BitSet();
+
+    // The ACC_AccessionReference records (accession key and reference key)
+    // from the prior run that cannot be kept (a different reference or
+    // private indicator, or a duplicate association).
+    //
+    private int[] staleKeys = new int[1024];
+    private int[] staleRefsKeys = new int[1024];
+    private int staleCount = 0;
+
+    // The PRB_Reference records created by the prior run for the load
+    // reference (reference key and probe key), the PRB_Reference records
+    // created for another reference, and the probes associated by this run.
+    //
+    private int[] probeRefKeys = new int[256];
+    private int[] probeRefProbes = new int[256];
+    private int probeRefCount = 0;
+    private int[] staleProbeRefKeys = new int[256];
+    private int staleProbeRefCount = 0;
+    private BitSet probes = new BitSet();
+
+    // Counts.
+    //
+    private int priorCount = 0;
+    private int keptCount = 0;
+    private int deletedCount = 0;
+    private int deletedProbeRefCount = 0;
+
+
+    /**
+     * Constructs a JobStreamAssociationSync object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger to write messages to.
+     * @param pLookups The lookups resolved at startup.
+     * @throws MGIException If there is a problem with configuration or lookups.
+     */
+    public JobStreamAssociationSync (DLALogger pLogger, StartupLookups pLookups)
+        throws MGIException
+    {
+        logger = pLogger;
+
+        RADARCfg radarCfg = new RADARCfg();
+        jobStreamName = radarCfg.getJobStreamName();
+
+        lookups = pLookups;
+
+        AssociationLoaderCfg assocCfg = new AssociationLoaderCfg();
+        privateVal = assocCfg.getPrivateAccID().booleanValue() ? 1 : 0;
+
+        sqlMgr = SQLDataManagerFactory.getShared(SchemaConstants.MGD);
+        index = new AccessionIndex(logger);
+    }
+
+    /**
+     * Get a SQL condition that is true for an ACC_Accession record that was
+     * not created by the current job stream.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param alias The alias of the ACC_Accession table in the query.
+     * @param prefix The prefix for MGD tables in the query (e.g. "mgd." or
+     *               an empty string).
+     * @return The SQL condition.
+     * @throws MGIException If there is a problem with configuration.
+     */
+    public static String getNotCreatedCondition (String alias, String prefix)
+        throws MGIException
+    {
+        RADARCfg radarCfg = new RADARCfg();
+
+        return "not exists (SELECT 1 " +
+                           "FROM " + prefix + "ACC_AccessionReference jr, " +
+                                 prefix + "MGI_User ju " +
+                           "WHERE jr._Accession_key = " + alias + "._Accession_key and " +
+                                 "jr._CreatedBy_key = ju._User_key and " +
+                                 "ju.login = '" + radarCfg.getJobStreamName() + "')";
+    }
+
+    /**
+     * Load the associations and probe references created by the prior run of
+     * the current job stream.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If there is a problem querying the database.
+     */
+    public void load ()
+        throws MGIException
+    {
+        refsKey = lookups.getRefsKey().intValue();
+
+        logger.logpInfo("Load current associations and reference records " +
+                        "created by: " + jobStreamName,false);
+        logger.logdInfo("Load current associations and reference records " +
+                        "created by: " + jobStreamName,true);
+
+        String sql = "SELECT a._Accession_key, " +
+                            "a.accID, " +
+                            "a._LogicalDB_key, " +
+                            "a._MGIType_key, " +
+                            "a._Object_key, " +
+                            "a.private, " +
+                            "r._Refs_key " +
+                     "FROM ACC_Accession a, " +
+                          "ACC_AccessionReference r, " +
+                          "MGI_User u " +
+                     "WHERE a._Accession_key = r._Accession_key and " +
+                           "r._CreatedBy_key = u._User_key and " +
+                           "u.login = '" + jobStreamName + "'";
+        logger.logdInfo("Execute Query: "+sql,true);
+        ResultsNavigator rn = sqlMgr.executeQuery(sql);
+
+        while (rn.next())
+        {
+            RowReference row = rn.getRowReference();
+            int accessionKey = row.getInt(1).intValue();
+            priorCount++;
+
+            // An association for another reference or with another private
+            // indicator would not be made by this run.
+            //
+            if (row.getInt(6).intValue() != privateVal ||
+                row.getInt(7).intValue() != refsKey)
+            {
+                addStale(accessionKey, row.getInt(7).intValue());
+                continue;
+            }
+
+            // Add the association to the index. A duplicate association
+            // does not add a value to the index, so it cannot be kept.
+            //
+            int values = index.getValueCount();
+            index.add(row.getString(2), row.getInt(3).intValue(),
+                      row.getInt(4).intValue(), row.getInt(5).intValue());
+            if (index.getValueCount() > values)
+                accessionKeys = append(accessionKeys, values, accessionKey);
+            else
+                addStale(accessionKey, refsKey);
+        }
+        rn.close();
+
+        sql = "SELECT p._Reference_key, " +
+                     "p._Probe_key, " +
+                     "p._Refs_key " +
+              "FROM PRB_Reference p, " +
+                   "MGI_User u " +
+              "WHERE p._CreatedBy_key = u._User_key and " +
+                    "u.login = '" + jobStreamName + "'";
+        logger.logdInfo("Execute Query: "+sql,true);
+        rn = sqlMgr.executeQuery(sql);
+
+        while (rn.next())
+        {
+            RowReference row = rn.getRowReference();
+            int referenceKey = row.getInt(1).intValue();
+
+            if (row.getInt(3).intValue() != refsKey)
+            {
+                staleProbeRefKeys = append(staleProbeRefKeys,
+                                           staleProbeRefCount++, referenceKey);
+                continue;
+            }
+
+            probeRefKeys = append(probeRefKeys, probeRefCount, referenceKey);
+            probeRefProbes = append(probeRefProbes, probeRefCount,
+                                    row.getInt(2).intValue());
+            probeRefCount++;
+        }
+        rn.close();
+
+        logger.logdInfo("Prior associations: " + priorCount +
+                        "  Prior probe references: " +
+                        (probeRefCount + staleProbeRefCount),false);
+    }
+
+    /**
+     * Check whether an association to be made by this run already exists
+     * from the prior run. If it does, it is kept and should not be inserted
+     * again. Each association from the prior run can only be kept once.
+     * @assumes Nothing
+     * @effects Marks the association from the prior run as kept.
+     * @param accID The accession ID.
+     * @param logicalDBKey The logical DB key.
+     * @param mgiTypeKey The MGI type key of the object.
+     * @param objectKey The object key.
+     * @return True if the association is kept.
+     * @throws MGIException If the accession ID cannot be looked up.
+     */
+    public boolean keep (String accID, int logicalDBKey, int mgiTypeKey,
+                         int objectKey)
+        throws MGIException
+    {
+        if (mgiTypeKey == PROBE_TYPE_KEY)
+            probes.set(objectKey);
+
+        int entry = index.find(accID, logicalDBKey);
+        if (entry < 0)
+            return false;
+
+        for (int v = index.getFirstValue(entry); v >= 0;
+             v = index.getNextValue(v))
+        {
+            if (index.getValueMGITypeKey(v) == mgiTypeKey &&
+                index.getValueObjectKey(v) == objectKey && !kept.get(v))
+            {
+                kept.set(v);
+                keptCount++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete the associations from the prior run that were not kept and the
+     * probe references from the prior run for probes that are no longer
+     * associated. Each ACC_AccessionReference record that was not kept is
+     * deleted by its accession key and reference key, so an accession that
+     * also has a stale reference is not deleted if it was kept.
+     * @assumes All the associations for this run have been made.
+     * @effects Deletes records from the ACC_AccessionReference,
+     *          ACC_Accession and PRB_Reference tables.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If there is a problem deleting the records.
+     */
+    public void deleteVanished ()
+        throws MGIException
+    {
+        logger.logpInfo("Delete associations and reference records that " +
+                        "were not made again by: " + jobStreamName,false);
+        logger.logdInfo("Delete associations and reference records that " +
+                        "were not made again by: " + jobStreamName,true);
+
+        // Collect the ACC_AccessionReference records that were not kept, as
+        // the accession key and reference key in one long, in accession key
+        // order.
+        //
+        long[] pairs = new long[staleCount + index.getValueCount() - keptCount];
+        int count = 0;
+        for (int i=0; i<staleCount; i++)
+            pairs[count++] = pair(staleKeys[i], staleRefsKeys[i]);
+        for (int v=kept.nextClearBit(0); v<index.getValueCount();
+             v=kept.nextClearBit(v + 1))
+            pairs[count++] = pair(accessionKeys[v], refsKey);
+        Arrays.sort(pairs, 0, count);
+
+        // Get the accession keys of the associations that were kept.
+        //
+        int[] keptKeys = new int[keptCount];
+        int n = 0;
+        for (int v=kept.nextSetBit(0); v>=0; v=kept.nextSetBit(v + 1))
+            keptKeys[n++] = accessionKeys[v];
+        Arrays.sort(keptKeys);
+
+        deleteAccessions(pairs, count, keptKeys);
+
+        // Collect the probe references for probes that are no longer
+        // associated.
+        //
+        int[] keys = new int[staleProbeRefCount + probeRefCount];
+        count = 0;
+        for (int i=0; i<staleProbeRefCount; i++)
+            keys[count++] = staleProbeRefKeys[i];
+        for (int i=0; i<probeRefCount; i++)
+        {
+            if (!probes.get(probeRefProbes[i]))
+                keys[count++] = probeRefKeys[i];
+        }
+
+        delete("PRB_Reference", "_Reference_key", keys, count);
+        deletedProbeRefCount = count;
+    }
+
+    /**
+     * Get the number of associations from the prior run.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The count.
+     * @throws Nothing
+     */
+    public int getPriorCount ()
+    {
+        return priorCount;
+    }
+
+    /**
+     * Get the number of associations from the prior run that were kept.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The count.
+     * @throws Nothing
+     */
+    public int getKeptCount ()
+    {
+        return keptCount;
+    }
+
+    /**
+     * Get the number of associations from the prior run that were deleted.
+     * @assumes deleteVanished() has been called.
+     * @effects Nothing
+     * @param None
+     * @return The count.
+     * @throws Nothing
+     */
+    public int getDeletedCount ()
+    {
+        return deletedCount;
+    }
+
+    /**
+     * Get the number of probe references from the prior run that were
+     * deleted.
+     * @assumes deleteVanished() has been called.
+     * @effects Nothing
+     * @param None
+     * @return The count.
+     * @throws Nothing
+     */
+    public int getDeletedProbeRefCount ()
+    {
+        return deletedProbeRefCount;
+    }
+
+    /**
+     * Delete the records from a table that have the given keys, a batch of
+     * keys at a time.
+     * @assumes Nothing
+     * @effects Deletes records from the table.
+     * @param table The table name.
+     * @param column The key column.
+     * @param keys The keys.
+     * @param count The number of keys.
+     * @return Nothing
+     * @throws MGIException If there is a problem deleting the records.
+     */
+    private void delete (String table, String column, int[] keys, int count)
+        throws MGIException
+    {
+        int rows = 0;
+
+        for (int start=0; start<count; start+=DELETE_BATCH)
+        {
+            StringBuffer sql = new StringBuffer();
+            sql.append("DELETE FROM " + table + " WHERE " + column + " in (");
+            int end = Math.min(start + DELETE_BATCH, count);
+            for (int i=start; i<end; i++)
+            {
+                if (i > start)
+                    sql.append(",");
+                sql.append(keys[i]);
+            }
+            sql.append(")");
+
+            if (start == 0)
+                logger.logdInfo("Execute SQL: "+sql.toString(),true);
+            rows += sqlMgr.executeUpdate(sql.toString());
+        }
+
+        logger.logdInfo("Rows deleted from " + table + ": " + rows,false);
+    }
+
+    /**
+     * Delete the ACC_AccessionReference records that have the given
+     * accession keys and reference keys, and the ACC_Accession records for
+     * the accession keys that were not kept, a batch of accession keys at a
+     * time. The ACC_AccessionReference and ACC_Accession records for each
+     * batch are deleted by one statement, so an accession never loses the
+     * reference record that identifies it as made by the job stream unless
+     * it is deleted too.
+     * @assumes The pairs are in accession key order.
+     * @effects Deletes records from the ACC_AccessionReference and
+     *          ACC_Accession tables.
+     * @param pairs The accession key and reference key of each
+     *              ACC_AccessionReference record (see pair()).
+     * @param count The number of pairs.
+     * @param keptKeys The accession keys that were kept, in order.
+     * @return Nothing
+     * @throws MGIException If there is a problem deleting the records.
+     */
+    private void deleteAccessions (long[] pairs, int count, int[] keptKeys)
+        throws MGIException
+    {
+        int refRows = 0;
+        int accRows = 0;
+        boolean first = true;
+
+        int start = 0;
+        while (start < count)
+        {
+            // Do not split the records for one accession between batches.
+            //
+            int end = Math.min(start + DELETE_BATCH, count);
+            while (end < count &&
+                   (int)(pairs[end] >>> 32) == (int)(pairs[end - 1] >>> 32))
+                end++;
+
+            StringBuffer refList = new StringBuffer();
+            StringBuffer accList = new StringBuffer();
+            for (int i=start; i<end; i++)
+            {
+                int accKey = (int)(pairs[i] >>> 32);
+                int refKey = (int)pairs[i];
+
+                if (i > start)
+                    refList.append(",");
+                refList.append("(" + accKey + "," + refKey + ")");
+
+                if (i + 1 < end && (int)(pairs[i + 1] >>> 32) == accKey)
+                    continue;
+                if (Arrays.binarySearch(keptKeys, accKey) >= 0)
+                    continue;
+                if (accList.length() > 0)
+                    accList.append(",");
+                accList.append(accKey);
+            }
+
+            String sql = "WITH r AS (DELETE FROM ACC_AccessionReference " +
+                                    "WHERE (_Accession_key, _Refs_key) in (" +
+                                        refList.toString() + ") " +
+                                    "RETURNING 1)";
+            if (accList.length() > 0)
+                sql += ", " +
+                       "a AS (DELETE FROM ACC_Accession " +
+                             "WHERE _Accession_key in (" +
+                                 accList.toString() + ") " +
+                             "RETURNING 1) " +
+                       "SELECT (SELECT count(*) FROM r), " +
+                              "(SELECT count(*) FROM a)";
+            else
+                sql += " SELECT (SELECT count(*) FROM r), 0";
+
+            if (first)
+                logger.logdInfo("Execute SQL: "+sql,true);
+            first = false;
+            ResultsNavigator rn = sqlMgr.executeQuery(sql);
+            if (rn.next())
+            {
+                RowReference row = rn.getRowReference();
+                refRows += row.getInt(1).intValue();
+                accRows += row.getInt(2).intValue();
+            }
+            rn.close();
+
+            start = end;
+        }
+
+        logger.logdInfo("Rows deleted from ACC_AccessionReference: " +
+                        refRows,false);
+        logger.logdInfo("Rows deleted from ACC_Accession: " + accRows,false);
+        deletedCount = accRows;
+    }
+
+    /**
+     * Get the accession key and reference key of an ACC_AccessionReference
+     * record as one long that sorts by accession key.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accessionKey The accession key.
+     * @param refsKey The reference key.
+     * @return The long.
+     * @throws Nothing
+     */
+    private static long pair (int accessionKey, int refsKey)
+    {
+        return ((long)accessionKey << 32) | (refsKey & 0xffffffffL);
+    }
+
+    /**
+     * Add an ACC_AccessionReference record from the prior run that cannot be
+     * kept.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accessionKey The accession key.
+     * @param refsKey The reference key.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void addStale (int accessionKey, int refsKey)
+    {
+        staleKeys = append(staleKeys, staleCount, accessionKey);
+        staleRefsKeys = append(staleRefsKeys, staleCount, refsKey);
+        staleCount++;
+    }
+
+    /**
+     * Set an element of an int array, making the array larger if needed.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param a The array.
+     * @param i The index of the element.
+     * @param value The value.
+     * @return The array (or a larger copy of it).
+     * @throws Nothing
+     */
+    private static int[] append (int[] a, int i, int value)
+    {
+        if (i >= a.length)
+        {
+            int[] b = new int[Math.max(i + 1, a.length * 2)];
+            System.arraycopy(a, 0, b, 0, a.length);
+            a = b;
+        }
+        a[i] = value;
+        return a;
+    }
+}
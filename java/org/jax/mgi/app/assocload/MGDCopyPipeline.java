@@ -0,0 +1,785 @@
+package org.jax.mgi.app.assocload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jax.mgi.dbs.SchemaConstants;
+import org.jax.mgi.shr.config.DatabaseCfg;
+import org.jax.mgi.shr.dbutils.ResultsNavigator;
+import org.jax.mgi.shr.dbutils.RowReference;
+import org.jax.mgi.shr.dbutils.SQLDataManager;
+import org.jax.mgi.shr.dbutils.SQLDataManagerFactory;
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * @is An object that loads the ACC_Accession, ACC_AccessionReference and
+ *     PRB_Reference records into the MGD database with PostgreSQL COPY
+ *     commands while the associations are still being processed, instead
+ *     of writing bcp files that are loaded at the end.
+ * @has
+ *   <UL>
+ *   <LI> A writer for the ACC_Accession and ACC_AccessionReference records
+ *        and one for the PRB_Reference records, each with its own
+ *        connection, thread and bounded queue of chunks of rows in the COPY
+ *        text format.
+ *   <LI> An encoder for each table that builds the rows without creating
+ *        any objects.
+ *   <LI> An AccessionKeyReserver that hands out the ACC_Accession keys.
+ *   <LI> The key of the MGI user for the job stream, which is used for the
+ *        created by and modified by keys of each record.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides methods to add an association (an ACC_Accession record
+ *        and its ACC_AccessionReference record) and a probe reference.
+ *   <LI> Commits the records in batches. The ACC_Accession and
+ *        ACC_AccessionReference records of a batch are sent on the same
+ *        connection and committed in one transaction (the ACC_Accession
+ *        records first), so a failed run never leaves an ACC_Accession
+ *        record without its ACC_AccessionReference record. The
+ *        ACC_AccessionReference records of a batch are held in memory
+ *        until the end of the batch.
+ *   <LI> Provides a method to send the rest of the records and wait for
+ *        all of them to be committed.
+ *   </UL>
+ *   The PRB_Reference keys continue from the largest key when the pipeline
+ *   starts, so nothing else may add PRB_Reference records while it runs.
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class MGDCopyPipeline
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The size of a chunk of rows (bytes) and the number of full chunks that
+    // may be waiting for each writer.
+    //
+    private static final int CHUNK_SIZE = 65536;
+    private static final int QUEUE_CHUNKS = 16;
+
+    // The chunk that tells a writer that there are no more rows.
+    //
+    private static final Chunk END = new Chunk(0);
+
+    // A logger for logging messages.
+    //
+    private DLALogger logger = null;
+
+    // The object that hands out ACC_Accession keys.
+    //
+    private AccessionKeyReserver accKeys = null;
+
+    // The name of the job stream and the key of its MGI user.
+    //
+    private String jobStreamName = null;
+    private int userKey;
+
+    // The next PRB_Reference key.
+    //
+    private int probeRefKey;
+
+    // The writer for each connection and the table for each COPY command.
+    //
+    private ConnectionWriter accWriter = null;
+    private ConnectionWriter probeRefWriter = null;
+    private TableWriter accTable = null;
+    private TableWriter accRefTable = null;
+    private TableWriter probeRefTable = null;
+
+    // The number of associations in each batch, the number of associations
+    // in the current batch and the number of the current batch.
+    //
+    private int batchSize;
+    private int batchCount = 0;
+    private long batch = 1;
+
+    // The number of associations and probe references added.
+    //
+    private long accCount = 0;
+    private long probeRefCount = 0;
+
+
+    /**
+     * Constructs a MGDCopyPipeline object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger to write messages to.
+     * @param pAccKeys The object that hands out ACC_Accession keys.
+     * @param pJobStreamName The name of the job stream (the login of the
+     *                       MGI user that creates the records).
+     * @param pBatchSize The number of associations to commit at a time.
+     * @throws Nothing
+     */
+    public MGDCopyPipeline (DLALogger pLogger, AccessionKeyReserver pAccKeys,
+                            String pJobStreamName, int pBatchSize)
+    {
+        logger = pLogger;
+        accKeys = pAccKeys;
+        jobStreamName = pJobStreamName;
+        batchSize = Math.max(pBatchSize, 1);
+    }
+
+    /**
+     * Look up the MGI user for the job stream and the largest PRB_Reference
+     * key, then start the writer for each connection.
+     * @assumes Nothing else adds PRB_Reference records until the pipeline
+     *          has finished.
+     * @effects Starts a thread and opens a connection for each writer.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the lookups fail.
+     */
+    public void start ()
+        throws MGIException
+    {
+        SQLDataManager sqlMgr =
+            SQLDataManagerFactory.getShared(SchemaConstants.MGD);
+
+        String sql = "SELECT 'U', _User_key FROM MGI_User " +
+                     "WHERE login = '" + jobStreamName + "' " +
+                     "UNION ALL " +
+                     "SELECT 'R', coalesce(max(_Reference_key),0) " +
+                     "FROM PRB_Reference";
+        logger.logdInfo("Execute Query: "+sql,true);
+        ResultsNavigator rn = sqlMgr.executeQuery(sql);
+
+        Integer user = null;
+        while (rn.next())
+        {
+            RowReference r = rn.getRowReference();
+            if (r.getString(1).equals("U"))
+                user = r.getInt(2);
+            else
+                probeRefKey = r.getInt(2).intValue() + 1;
+        }
+        rn.close();
+
+        if (user == null)
+            throw new MGIException("MGI user not found: " + jobStreamName);
+        userKey = user.intValue();
+
+        startWriters(false);
+
+        logger.logdInfo("Load the ACC_Accession, ACC_AccessionReference and " +
+                        "PRB_Reference records with COPY commands while the " +
+                        "associations are processed",false);
+    }
+
+    /**
+     * Start the writers without the MGD database. The records are encoded
+     * and passed to the writer threads the same way, but the threads throw
+     * the chunks away instead of loading them. This is used by the
+     * benchmarks.
+     * @assumes Nothing
+     * @effects Starts a thread for each writer.
+     * @param pUserKey The MGI user key for the records.
+     * @param pProbeRefKey The first PRB_Reference key.
+     * @return Nothing
+     * @throws Nothing
+     */
+    void startDiscarding (int pUserKey, int pProbeRefKey)
+    {
+        userKey = pUserKey;
+        probeRefKey = pProbeRefKey;
+        startWriters(true);
+    }
+
+    /**
+     * Create the writer for each connection and its tables, then start the
+     * writers.
+     * @assumes Nothing
+     * @effects Starts a thread for each writer.
+     * @param discard Whether the writers throw the chunks away instead of
+     *                loading them.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void startWriters (boolean discard)
+    {
+        accWriter = new ConnectionWriter("ACC_Accession", discard);
+        accTable = accWriter.addTable("ACC_Accession",
+            "COPY ACC_Accession (_Accession_key, accID, prefixPart, " +
+            "numericPart, _LogicalDB_key, _Object_key, _MGIType_key, " +
+            "private, preferred, _CreatedBy_key, _ModifiedBy_key) FROM STDIN",
+            false);
+        accRefTable = accWriter.addTable("ACC_AccessionReference",
+            "COPY ACC_AccessionReference (_Accession_key, _Refs_key, " +
+            "_CreatedBy_key, _ModifiedBy_key) FROM STDIN",
+            true);
+
+        probeRefWriter = new ConnectionWriter("PRB_Reference", discard);
+        probeRefTable = probeRefWriter.addTable("PRB_Reference",
+            "COPY PRB_Reference (_Reference_key, _Probe_key, _Refs_key, " +
+            "hasRmap, hasSequence, _CreatedBy_key, _ModifiedBy_key) " +
+            "FROM STDIN",
+            false);
+
+        accWriter.start();
+        probeRefWriter.start();
+    }
+
+    /**
+     * Add an association: an ACC_Accession record with a new key and an
+     * ACC_AccessionReference record for it.
+     * @assumes Only one thread adds records.
+     * @effects Waits if a writer has too many chunks waiting.
+     * @param accID The accession ID.
+     * @param prefixPart The prefix part of the accession ID (or null).
+     * @param hasNumericPart Whether the accession ID has a numeric part.
+     * @param numericPart The numeric part of the accession ID.
+     * @param logicalDBKey The logical DB key.
+     * @param mgiTypeKey The MGI type key.
+     * @param objectKey The object key.
+     * @param isPrivate Whether the accession ID is private.
+     * @param refsKey The reference key.
+     * @return Nothing
+     * @throws MGIException If a key cannot be reserved or a writer failed.
+     */
+    public void addAccession (String accID, String prefixPart,
+                              boolean hasNumericPart, int numericPart,
+                              int logicalDBKey, int mgiTypeKey,
+                              int objectKey, boolean isPrivate, int refsKey)
+        throws MGIException
+    {
+        int accKey = accKeys.nextKey();
+
+        try
+        {
+            CopyRowEncoder e = accTable.encoder;
+            e.addLong(accKey);
+            e.addString(accID);
+            e.addString(prefixPart);
+            if (hasNumericPart)
+                e.addLong(numericPart);
+            else
+                e.addNull();
+            e.addLong(logicalDBKey);
+            e.addLong(objectKey);
+            e.addLong(mgiTypeKey);
+            e.addBoolean(isPrivate);
+            e.addBoolean(true);
+            e.addLong(userKey);
+            e.addLong(userKey);
+            e.endRow();
+
+            e = accRefTable.encoder;
+            e.addLong(accKey);
+            e.addLong(refsKey);
+            e.addLong(userKey);
+            e.addLong(userKey);
+            e.endRow();
+        }
+        catch (IOException e)
+        {
+            throw new MGIException(e.getMessage());
+        }
+
+        accCount++;
+
+        // End the batch for both writers at the same time.
+        //
+        if (++batchCount == batchSize)
+        {
+            accWriter.endBatch();
+            probeRefWriter.endBatch();
+            batch++;
+            batchCount = 0;
+        }
+    }
+
+    /**
+     * Add a PRB_Reference record with a new key.
+     * @assumes Only one thread adds records.
+     * @effects Waits if the writer has too many chunks waiting.
+     * @param probeKey The probe key.
+     * @param refsKey The reference key.
+     * @return Nothing
+     * @throws MGIException If the writer failed.
+     */
+    public void addProbeReference (int probeKey, int refsKey)
+        throws MGIException
+    {
+        try
+        {
+            CopyRowEncoder e = probeRefTable.encoder;
+            e.addLong(probeRefKey++);
+            e.addLong(probeKey);
+            e.addLong(refsKey);
+            e.addBoolean(false);
+            e.addBoolean(false);
+            e.addLong(userKey);
+            e.addLong(userKey);
+            e.endRow();
+        }
+        catch (IOException e)
+        {
+            throw new MGIException(e.getMessage());
+        }
+
+        probeRefCount++;
+    }
+
+    /**
+     * Send the rest of the records and wait for the writers to commit them.
+     * @assumes No more records are added.
+     * @effects Stops the threads and closes the connections.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If a writer failed.
+     */
+    public void finish ()
+        throws MGIException
+    {
+        // End the last batch, then let each writer finish, even if the
+        // other one has failed.
+        //
+        MGIException error = null;
+        ConnectionWriter[] writers = { accWriter, probeRefWriter };
+        for (int i=0; i<writers.length; i++)
+        {
+            try
+            {
+                writers[i].endBatch();
+            }
+            catch (MGIException e)
+            {
+                if (error == null)
+                    error = e;
+            }
+        }
+
+        for (int i=0; i<writers.length; i++)
+        {
+            MGIException e = writers[i].finish();
+            if (error == null)
+                error = e;
+        }
+        if (error != null)
+            throw error;
+
+        logger.logdInfo("Loaded " + accCount + " ACC_Accession and " +
+                        "ACC_AccessionReference records and " + probeRefCount +
+                        " PRB_Reference records in " + batch + " batches",false);
+    }
+
+    /**
+     * Get the number of associations added.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of associations.
+     * @throws Nothing
+     */
+    public long getAccessionCount ()
+    {
+        return accCount;
+    }
+
+
+    /**
+     * @is A chunk of rows in the COPY text format.
+     * @has
+     *   <UL>
+     *   <LI> The bytes of the rows and the number of bytes used.
+     *   <LI> The table the rows belong to.
+     *   <LI> Whether it is the last chunk of the table's COPY command and
+     *        whether it is the last chunk of the batch.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private static class Chunk
+    {
+        byte[] data;
+        int length = 0;
+        TableWriter table = null;
+        boolean endOfCopy = false;
+        boolean endOfBatch = false;
+
+        Chunk (int size)
+        {
+            data = new byte[size];
+        }
+    }
+
+
+    /**
+     * @is An object that encodes the rows for one table and passes them to
+     *     the writer for its connection in chunks.
+     * @has
+     *   <UL>
+     *   <LI> The table name and the COPY command.
+     *   <LI> The encoder for the rows and the chunk it is drained into.
+     *   <LI> Whether the chunks are held until the end of the batch, and the
+     *        chunks that are being held.
+     *   </UL>
+     * @does
+     *   <UL>
+     *   <LI> Implements the write() method of a WritableByteChannel, which
+     *        copies the encoded rows into chunks and queues (or holds) the
+     *        full ones.
+     *   </UL>
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private class TableWriter implements WritableByteChannel
+    {
+        String table;
+        String copySQL;
+        ConnectionWriter writer;
+        boolean deferred;
+
+        LinkedList heldChunks = new LinkedList();
+        Chunk chunk = null;
+        CopyRowEncoder encoder = null;
+
+        TableWriter (String pTable, String pCopySQL, ConnectionWriter pWriter,
+                     boolean pDeferred)
+        {
+            table = pTable;
+            copySQL = pCopySQL;
+            writer = pWriter;
+            deferred = pDeferred;
+            chunk = writer.nextChunk(this);
+            encoder = new CopyRowEncoder(CHUNK_SIZE, this);
+        }
+
+        /**
+         * Copy encoded rows into the current chunk, and queue (or hold) the
+         * chunk each time it is full. A row may be split between two chunks
+         * of the same batch.
+         */
+        public int write (ByteBuffer src)
+            throws IOException
+        {
+            int count = src.remaining();
+            try
+            {
+                while (src.hasRemaining())
+                {
+                    if (chunk.length == chunk.data.length)
+                    {
+                        if (deferred)
+                            heldChunks.addLast(chunk);
+                        else
+                            writer.queue(chunk);
+                        chunk = writer.nextChunk(this);
+                    }
+                    int len = Math.min(src.remaining(),
+                                       chunk.data.length - chunk.length);
+                    src.get(chunk.data, chunk.length, len);
+                    chunk.length += len;
+                }
+            }
+            catch (MGIException e)
+            {
+                throw new IOException(e.getMessage());
+            }
+            return count;
+        }
+
+        public boolean isOpen ()
+        {
+            return writer.error == null;
+        }
+
+        public void close ()
+        {
+        }
+
+        /**
+         * Queue the held chunks and the current chunk, after the rest of the
+         * encoded rows, as the end of the COPY command for the batch.
+         */
+        void endCopy (boolean endOfBatch)
+            throws MGIException
+        {
+            try
+            {
+                encoder.drain();
+            }
+            catch (IOException e)
+            {
+                throw new MGIException(e.getMessage());
+            }
+            while (!heldChunks.isEmpty())
+                writer.queue((Chunk)heldChunks.removeFirst());
+            chunk.endOfCopy = true;
+            chunk.endOfBatch = endOfBatch;
+            writer.queue(chunk);
+            chunk = writer.nextChunk(this);
+        }
+    }
+
+
+    /**
+     * @is An object that loads the rows for one or more tables with COPY
+     *     commands on its own connection and thread, committing the rows of
+     *     all the tables for a batch in one transaction.
+     * @has
+     *   <UL>
+     *   <LI> The tables, in the order they are sent in each batch.
+     *   <LI> A queue of full chunks and a pool of free chunks.
+     *   </UL>
+     * @does
+     *   <UL>
+     *   <LI> Runs a COPY command for each table in each batch, sending the
+     *        chunks of the table, and commits the batch after the last one.
+     *   </UL>
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private class ConnectionWriter
+    {
+        String name;
+        boolean discard;
+        LinkedList tables = new LinkedList();
+
+        ArrayBlockingQueue fullChunks = new ArrayBlockingQueue(QUEUE_CHUNKS);
+        LinkedBlockingQueue freeChunks = new LinkedBlockingQueue();
+
+        Thread thread = null;
+        volatile MGIException error = null;
+
+        ConnectionWriter (String pName, boolean pDiscard)
+        {
+            name = pName;
+            discard = pDiscard;
+        }
+
+        /**
+         * Add a table. The tables are sent in the order they are added. The
+         * chunks of a deferred table are held until the end of each batch.
+         */
+        TableWriter addTable (String table, String copySQL, boolean deferred)
+        {
+            TableWriter t = new TableWriter(table, copySQL, this, deferred);
+            tables.addLast(t);
+            return t;
+        }
+
+        /**
+         * Start the thread for this writer.
+         */
+        void start ()
+        {
+            thread = new Thread(new Runnable()
+            {
+                public void run ()
+                {
+                    if (discard)
+                        recycle();
+                    else
+                        write();
+                }
+            }, "assocload-copy-" + name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * End the COPY command for each table, so the thread commits the
+         * batch after the last one.
+         */
+        void endBatch ()
+            throws MGIException
+        {
+            for (int i=0; i<tables.size(); i++)
+                ((TableWriter)tables.get(i)).endCopy(i == tables.size() - 1);
+        }
+
+        /**
+         * Get an empty chunk for a table.
+         */
+        Chunk nextChunk (TableWriter table)
+        {
+            Chunk c = (Chunk)freeChunks.poll();
+            if (c == null)
+                c = new Chunk(CHUNK_SIZE);
+            c.length = 0;
+            c.table = table;
+            c.endOfCopy = false;
+            c.endOfBatch = false;
+            return c;
+        }
+
+        /**
+         * Queue a chunk for the thread, waiting while the queue is full
+         * unless the thread has failed.
+         */
+        void queue (Chunk c)
+            throws MGIException
+        {
+            try
+            {
+                while (!fullChunks.offer(c, 100, TimeUnit.MILLISECONDS))
+                {
+                    if (error != null)
+                        throw error;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                throw new MGIException("Interrupted while loading " + name);
+            }
+            if (error != null)
+                throw error;
+        }
+
+        /**
+         * Tell the thread there are no more rows and wait for it to finish.
+         * Returns the error from the thread (if any).
+         */
+        MGIException finish ()
+        {
+            try
+            {
+                while (!fullChunks.offer(END, 100, TimeUnit.MILLISECONDS))
+                {
+                    if (!thread.isAlive())
+                        break;
+                }
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                return new MGIException("Interrupted while loading " + name);
+            }
+            for (int i=0; i<tables.size(); i++)
+            {
+                TableWriter t = (TableWriter)tables.get(i);
+                logger.logdInfo("Loaded " + t.encoder.getRowCount() + " " +
+                                t.table + " records",false);
+            }
+            return error;
+        }
+
+        /**
+         * Throw the queued chunks away, returning them to the pool. This
+         * runs on the thread for this writer instead of write().
+         */
+        void recycle ()
+        {
+            try
+            {
+                while (true)
+                {
+                    Chunk c = (Chunk)fullChunks.take();
+                    if (c == END)
+                        break;
+                    freeChunks.offer(c);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                error = new MGIException("Interrupted while loading " + name);
+            }
+        }
+
+        /**
+         * Load the queued chunks. This runs on the thread for this writer.
+         */
+        void write ()
+        {
+            SQLDataManager sqlMgr = null;
+            Connection conn = null;
+            CopyIn copyIn = null;
+            String table = name;
+
+            try
+            {
+                sqlMgr = new SQLDataManager(new DatabaseCfg(SchemaConstants.MGD));
+                conn = sqlMgr.getConnection();
+                conn.setAutoCommit(false);
+                PGConnection pgConn = (PGConnection)conn.unwrap(PGConnection.class);
+
+                while (true)
+                {
+                    Chunk c = (Chunk)fullChunks.take();
+                    if (c == END)
+                        break;
+                    table = c.table.table;
+
+                    if (copyIn == null)
+                        copyIn = pgConn.getCopyAPI().copyIn(c.table.copySQL);
+                    if (c.length > 0)
+                        copyIn.writeToCopy(c.data, 0, c.length);
+
+                    if (c.endOfCopy)
+                    {
+                        copyIn.endCopy();
+                        copyIn = null;
+                    }
+                    if (c.endOfBatch)
+                        conn.commit();
+
+                    freeChunks.offer(c);
+                }
+            }
+            catch (MGIException e)
+            {
+                error = e;
+            }
+            catch (SQLException e)
+            {
+                error = new MGIException("Cannot load " + table + ": " +
+                                         e.getMessage());
+            }
+            catch (InterruptedException e)
+            {
+                error = new MGIException("Interrupted while loading " + table);
+            }
+            catch (RuntimeException e)
+            {
+                error = new MGIException("Cannot load " + table + ": " + e);
+            }
+            finally
+            {
+                try
+                {
+                    if (copyIn != null && copyIn.isActive())
+                        copyIn.cancelCopy();
+                    if (conn != null && error != null)
+                        conn.rollback();
+                }
+                catch (SQLException e)
+                {
+                    logger.logdInfo("Cannot roll back " + name + ": " +
+                                    e.getMessage(),false);
+                }
+
+                try
+                {
+                    if (sqlMgr != null)
+                        sqlMgr.closeResources();
+                }
+                catch (MGIException e)
+                {
+                    logger.logdInfo("Cannot close the connection for " +
+                                    name + ": " + e.getMessage(),false);
+                }
+            }
+        }
+    }
+}
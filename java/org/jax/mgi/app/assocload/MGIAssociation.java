@@ -1,7 +1,6 @@
 package org.jax.mgi.app.assocload;
 
-import java.util.Iterator;
-import java.util.Vector;
+import java.util.BitSet;
 
 import org.jax.mgi.dbs.mgd.lookup.MGITypeLookup;
 import org.jax.mgi.shr.config.AssociationLoaderCfg;
@@ -21,10 +20,13 @@ import org.jax.mgi.shr.exception.MGIException;
  *        with the target object.
  *   <LI> The MGI type and object key for any objects that the additional
  *        accession ID/logical DB pairs are associated with.
+ *   <LI> The attributes are held in columns of primitive arrays (one element
+ *        per row) that are re-used when the object is cleared.
  *   </UL>
  * @does
  *   <UL>
- *   <LI> Provides methods to set/get the attributes.
+ *   <LI> Provides methods to add a row and to get the attributes of a row
+ *        by its index.
  *   <LI> Provides a method to clear its attributes.
  *   </UL>
  * @company The Jackson Laboratory
@@ -38,12 +40,10 @@ public class MGIAssociation
     //  Variables  //
     /////////////////
 
-    // Single element arrays used with the "toArray()" method on a vector to
-    // specify the array type to be returned.
+    // Initial number of rows and accession ID characters.
     //
-    private static String[] STRING_ARRAY = new String[0];
-    private static Integer[] INTEGER_ARRAY = new Integer[0];
-    private static Boolean[] BOOLEAN_ARRAY = new Boolean[0];
+    private static final int INITIAL_ROWS = 16;
+    private static final int INITIAL_CHARS = 256;
 
     // The name and key of the MGI type that the target accession ID/logical DB
     // shourld be associated with.
@@ -51,13 +51,29 @@ public class MGIAssociation
     private String targetType = null;
     private int targetTypeKey;
 
-    // Vectors to hold the association information.
+    // The number of rows.
     //
-    private Vector vAccID = null;
-    private Vector vLogicalDBKey = null;
-    private Vector vTarget = null;
-    private Vector vMGITypeKey = null;
-    private Vector vObjectKey = null;
+    private int rowCount = 0;
+
+    // The accession IDs, stored one after another in a character pool. The
+    // accession ID for a row runs from its offset to the offset of the next
+    // row (or the end of the pool for the last row).
+    //
+    private char[] accIDChars = null;
+    private int[] accIDOffset = null;
+    private int charCount = 0;
+
+    // Columns for the logical DB, MGI type and object keys.
+    //
+    private int[] logicalDBKeys = null;
+    private int[] mgiTypeKeys = null;
+    private int[] objectKeys = null;
+
+    // The rows that are targets and the rows that are not associated with
+    // any MGI object (no MGI type/object key).
+    //
+    private BitSet targets = null;
+    private BitSet noObjects = null;
 
 
     /**
@@ -78,13 +94,62 @@ public class MGIAssociation
         MGITypeLookup lookup = new MGITypeLookup();
         targetTypeKey = lookup.lookup(targetType).intValue();
 
-        // Create vectors for the attributes.
-        //
-        vAccID = new Vector();
-        vLogicalDBKey = new Vector();
-        vTarget = new Vector();
-        vMGITypeKey = new Vector();
-        vObjectKey = new Vector();
+        allocate(INITIAL_ROWS, INITIAL_CHARS);
+    }
+
+    /**
+     * Constructs a MGIAssociation object for a given target MGI type.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pTargetType The target MGI type.
+     * @param pTargetTypeKey The target MGI type key.
+     * @throws Nothing
+     */
+    public MGIAssociation (String pTargetType, int pTargetTypeKey)
+    {
+        targetType = pTargetType;
+        targetTypeKey = pTargetTypeKey;
+
+        allocate(INITIAL_ROWS, INITIAL_CHARS);
+    }
+
+    /**
+     * Constructs a MGIAssociation object that is a copy of another one.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param other The MGIAssociation object to copy.
+     * @throws Nothing
+     */
+    private MGIAssociation (MGIAssociation other)
+    {
+        targetType = other.targetType;
+        targetTypeKey = other.targetTypeKey;
+
+        allocate(Math.max(other.rowCount, 1), Math.max(other.charCount, 1));
+
+        rowCount = other.rowCount;
+        charCount = other.charCount;
+        System.arraycopy(other.accIDChars, 0, accIDChars, 0, charCount);
+        System.arraycopy(other.accIDOffset, 0, accIDOffset, 0, rowCount);
+        System.arraycopy(other.logicalDBKeys, 0, logicalDBKeys, 0, rowCount);
+        System.arraycopy(other.mgiTypeKeys, 0, mgiTypeKeys, 0, rowCount);
+        System.arraycopy(other.objectKeys, 0, objectKeys, 0, rowCount);
+        targets.or(other.targets);
+        noObjects.or(other.noObjects);
+    }
+
+    /**
+     * Create a copy of this object that can be processed while this object
+     * is re-used.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The copy.
+     * @throws Nothing
+     */
+    public MGIAssociation copy ()
+    {
+        return new MGIAssociation(this);
     }
 
     /**
@@ -114,133 +179,190 @@ public class MGIAssociation
     }
 
     /**
-     * Add an accession ID to the vector.
+     * Add a row for an accession ID/logical DB pair that is not associated
+     * with any MGI object.
      * @assumes Nothing
      * @effects Nothing
-     * @param accID The accession ID to add.
+     * @param accID The accession ID.
+     * @param logicalDBKey The logical DB key.
+     * @param target Indicates whether the pair is the target.
      * @return Nothing
      * @throws Nothing
      */
-    public void addAccID (String accID)
+    public void addRow (String accID, int logicalDBKey, boolean target)
     {
-        vAccID.add(accID);
+        addRow(accID, logicalDBKey, target, 0, 0);
+        noObjects.set(rowCount - 1);
     }
 
     /**
-     * Get an array of values from the accession ID vector.
+     * Add a row for an accession ID/logical DB pair that is associated with
+     * a MGI object.
      * @assumes Nothing
      * @effects Nothing
-     * @param None
-     * @return An array of accession IDs.
+     * @param accID The accession ID.
+     * @param logicalDBKey The logical DB key.
+     * @param target Indicates whether the pair is the target.
+     * @param mgiTypeKey The MGI type key of the object.
+     * @param objectKey The object key.
+     * @return Nothing
      * @throws Nothing
      */
-    public String[] getAccIDs()
+    public void addRow (String accID, int logicalDBKey, boolean target,
+                       int mgiTypeKey, int objectKey)
     {
-        return (String[])vAccID.toArray(STRING_ARRAY);
+        if (rowCount == logicalDBKeys.length)
+            growRows();
+
+        int len = accID.length();
+        if (charCount + len > accIDChars.length)
+            growChars(charCount + len);
+
+        int row = rowCount++;
+        accID.getChars(0, len, accIDChars, charCount);
+        accIDOffset[row] = charCount;
+        charCount += len;
+
+        logicalDBKeys[row] = logicalDBKey;
+        mgiTypeKeys[row] = mgiTypeKey;
+        objectKeys[row] = objectKey;
+        if (target)
+            targets.set(row);
     }
 
     /**
-     * Add a logical DB to the vector.
+     * Get the number of rows.
      * @assumes Nothing
      * @effects Nothing
-     * @param logicalDB The logical DB to add.
-     * @return Nothing
+     * @param None
+     * @return The number of rows.
      * @throws Nothing
      */
-    public void addLogicalDBKey (Integer logicalDBKey)
+    public int getRowCount ()
     {
-        vLogicalDBKey.add(logicalDBKey);
+        return rowCount;
     }
 
     /**
-     * Get an array of values from the logical DB vector.
+     * Get the accession ID of a row.
      * @assumes Nothing
      * @effects Nothing
-     * @param None
-     * @return An array of logical DB keys.
+     * @param row The row number.
+     * @return The accession ID.
      * @throws Nothing
      */
-    public Integer[] getLogicalDBKeys()
+    public String getAccID (int row)
     {
-        return (Integer[])vLogicalDBKey.toArray(INTEGER_ARRAY);
+        int start = accIDOffset[row];
+        return new String(accIDChars, start, accIDEnd(row) - start);
     }
 
     /**
-     * Add a target indicator to the vector.
+     * Get the hash code of the accession ID of a row. It is the same as the
+     * hash code of the accession ID String.
      * @assumes Nothing
      * @effects Nothing
-     * @param target The target indicator to add.
-     * @return Nothing
+     * @param row The row number.
+     * @return The hash code.
      * @throws Nothing
      */
-    public void addTarget (Boolean target)
+    public int getAccIDHash (int row)
     {
-        vTarget.add(target);
+        int h = 0;
+        int end = accIDEnd(row);
+        for (int i=accIDOffset[row]; i<end; i++)
+            h = 31 * h + accIDChars[i];
+        return h;
     }
 
     /**
-     * Get an array of values from the target indicator vector.
+     * Check whether two rows have the same accession ID.
      * @assumes Nothing
      * @effects Nothing
-     * @param None
-     * @return An array of target indicators.
+     * @param row1 The first row number.
+     * @param row2 The second row number.
+     * @return True if the accession IDs are the same.
      * @throws Nothing
      */
-    public Boolean[] getTargets()
+    public boolean sameAccID (int row1, int row2)
     {
-        return (Boolean[])vTarget.toArray(BOOLEAN_ARRAY);
+        int s1 = accIDOffset[row1];
+        int s2 = accIDOffset[row2];
+        int len = accIDEnd(row1) - s1;
+        if (accIDEnd(row2) - s2 != len)
+            return false;
+
+        for (int i=0; i<len; i++)
+        {
+            if (accIDChars[s1 + i] != accIDChars[s2 + i])
+                return false;
+        }
+        return true;
     }
 
     /**
-     * Add a MGI type key to the vector.
+     * Get the logical DB key of a row.
      * @assumes Nothing
      * @effects Nothing
-     * @param mgiTypeKey The MGI type key to add.
-     * @return Nothing
+     * @param row The row number.
+     * @return The logical DB key.
      * @throws Nothing
      */
-    public void addMGITypeKey (Integer mgiTypeKey)
+    public int getLogicalDBKey (int row)
     {
-        vMGITypeKey.add(mgiTypeKey);
+        return logicalDBKeys[row];
     }
 
     /**
-     * Get an array of values from the MGI type key vector.
+     * Check whether a row is the target.
      * @assumes Nothing
      * @effects Nothing
-     * @param None
-     * @return An array of MGI type keys.
+     * @param row The row number.
+     * @return True if the row is the target.
      * @throws Nothing
      */
-    public Integer[] getMGITypeKeys()
+    public boolean isTarget (int row)
     {
-        return (Integer[])vMGITypeKey.toArray(INTEGER_ARRAY);
+        return targets.get(row);
     }
 
     /**
-     * Add an object key to the vector.
+     * Check whether a row is associated with a MGI object.
      * @assumes Nothing
      * @effects Nothing
-     * @param objectKey The object key to add.
-     * @return Nothing
+     * @param row The row number.
+     * @return True if the row has a MGI type and object key.
      * @throws Nothing
      */
-    public void addObjectKey (Integer objectKey)
+    public boolean hasObject (int row)
     {
-        vObjectKey.add(objectKey);
+        return !noObjects.get(row);
     }
 
     /**
-     * Get an array of values from the object key vector.
-     * @assumes Nothing
+     * Get the MGI type key of a row.
+     * @assumes The row is associated with a MGI object.
      * @effects Nothing
-     * @param None
-     * @return An array of object keys.
+     * @param row The row number.
+     * @return The MGI type key.
      * @throws Nothing
      */
-    public Integer[] getObjectKeys()
+    public int getMGITypeKey (int row)
     {
-        return (Integer[])vObjectKey.toArray(INTEGER_ARRAY);
+        return mgiTypeKeys[row];
+    }
+
+    /**
+     * Get the object key of a row.
+     * @assumes The row is associated with a MGI object.
+     * @effects Nothing
+     * @param row The row number.
+     * @return The object key.
+     * @throws Nothing
+     */
+    public int getObjectKey (int row)
+    {
+        return objectKeys[row];
     }
 
     /**
@@ -253,11 +375,10 @@ public class MGIAssociation
      */
     public void clear ()
     {
-        vAccID.clear();
-        vLogicalDBKey.clear();
-        vTarget.clear();
-        vMGITypeKey.clear();
-        vObjectKey.clear();
+        rowCount = 0;
+        charCount = 0;
+        targets.clear();
+        noObjects.clear();
     }
 
     /**
@@ -270,11 +391,98 @@ public class MGIAssociation
      */
     public void print(DLALogger logger)
     {
-        logger.logdDebug("\ntargetType: " + targetType +
-                         "  vAccID: " + vAccID.toString() +
-                         "  vLogicalDBKey: " + vLogicalDBKey.toString() +
-                         "  vTarget: " + vTarget.toString() +
-                         "  vMGITypeKey: " + vMGITypeKey.toString() +
-                         "  vObjectKey: " + vObjectKey.toString(), false);
+        StringBuffer buf = new StringBuffer();
+        buf.append("\ntargetType: " + targetType);
+        for (int i=0; i<rowCount; i++)
+        {
+            buf.append("  [" + getAccID(i) + ", " + logicalDBKeys[i] + ", " +
+                       targets.get(i));
+            if (hasObject(i))
+                buf.append(", " + mgiTypeKeys[i] + ", " + objectKeys[i]);
+            buf.append("]");
+        }
+        logger.logdDebug(buf.toString(), false);
+    }
+
+    /**
+     * Get the end of the accession ID of a row in the character pool.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param row The row number.
+     * @return The offset after the last character.
+     * @throws Nothing
+     */
+    private int accIDEnd (int row)
+    {
+        return (row + 1 < rowCount) ? accIDOffset[row + 1] : charCount;
+    }
+
+    /**
+     * Create the columns and the character pool.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param rows The number of rows.
+     * @param chars The number of accession ID characters.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void allocate (int rows, int chars)
+    {
+        accIDChars = new char[chars];
+        accIDOffset = new int[rows];
+        logicalDBKeys = new int[rows];
+        mgiTypeKeys = new int[rows];
+        objectKeys = new int[rows];
+        targets = new BitSet(rows);
+        noObjects = new BitSet(rows);
+    }
+
+    /**
+     * Double the number of rows the columns can hold.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void growRows ()
+    {
+        int size = logicalDBKeys.length * 2;
+        accIDOffset = grow(accIDOffset, size);
+        logicalDBKeys = grow(logicalDBKeys, size);
+        mgiTypeKeys = grow(mgiTypeKeys, size);
+        objectKeys = grow(objectKeys, size);
+    }
+
+    /**
+     * Make the character pool large enough for the given number of
+     * characters.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param chars The number of characters.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void growChars (int chars)
+    {
+        char[] c = new char[Math.max(chars, accIDChars.length * 2)];
+        System.arraycopy(accIDChars, 0, c, 0, charCount);
+        accIDChars = c;
+    }
+
+    /**
+     * Copy an int array to a larger one.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param a The array.
+     * @param size The new size.
+     * @return The new array.
+     * @throws Nothing
+     */
+    private int[] grow (int[] a, int size)
+    {
+        int[] b = new int[size];
+        System.arraycopy(a, 0, b, 0, rowCount);
+        return b;
     }
 }
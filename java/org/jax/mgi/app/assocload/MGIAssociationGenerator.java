@@ -4,6 +4,7 @@ import java.util.Iterator;
 import java.util.Vector;
 
 import org.jax.mgi.dbs.SchemaConstants;
+import org.jax.mgi.shr.config.AssociationLoaderCfg;
 import org.jax.mgi.shr.config.RADARCfg;
 import org.jax.mgi.shr.dbutils.DBException;
 import org.jax.mgi.shr.dbutils.MultiRowInterpreter;
@@ -22,10 +23,14 @@ import org.jax.mgi.shr.exception.MGIException;
  * @has
  *   <UL>
  *   <LI> ResultsNavigator object
+ *   <LI> AccessionIndex object (if the in-memory index is being used)
  *   </UL>
  * @does
  *   <UL>
  *   <LI> Creates a ResultsNavigator that will build MGIAssociation objects.
+ *   <LI> Optionally resolves the accession ID/logical DB pairs against an
+ *        in-memory index of the ACC_Accession table instead of joining to
+ *        it in the query.
  *   <LI> Creates a MultiRowIterator that will step through the MGIAssociation
  *        objects.
  *   <LI> Provides a method to see if there are any more MGIAssociation objects.
@@ -50,20 +55,32 @@ public class MGIAssociationGenerator
     //
     private MultiRowIterator it = null;
 
+    // An index of the ACC_Accession table used to resolve the accession
+    // ID/logical DB pairs (if configured).
+    //
+    private AccessionIndex accIndex = null;
+
+    // The lookups resolved at startup, used to get the target MGI type.
+    //
+    private StartupLookups lookups = null;
+
 
     /**
      * Constructs a MGIAssociationGenerator object.
      * @assumes Nothing
      * @effects Nothing
      * @param logger The logger to write messages to.
+     * @param pLookups The lookups resolved at startup.
      * @throws MGIException If there is a problem with configuration.
      */
-    public MGIAssociationGenerator (DLALogger logger)
+    public MGIAssociationGenerator (DLALogger logger, StartupLookups pLookups)
         throws MGIException
     {
         String sql = null;
         int rtn;
 
+        lookups = pLookups;
+
         // Create a configurator and get the job key for this run.
         //
         RADARCfg RDRCfg = new RADARCfg();
@@ -75,7 +92,72 @@ public class MGIAssociationGenerator
 
         // Get the name of the MGD database.
         //
-        String mgdDB = SQLDataManagerFactory.getShared(SchemaConstants.MGD).getSchema();
+        SQLDataManager mgdMgr = SQLDataManagerFactory.getShared(SchemaConstants.MGD);
+        String mgdDB = mgdMgr.getSchema();
+
+        // Determine if the associations should be resolved against an
+        // in-memory index of the ACC_Accession table.
+        //
+        AssociationLoaderCfg assocCfg = new AssociationLoaderCfg();
+        boolean useAccIndex = assocCfg.getUseAccIndex().booleanValue();
+
+        // If the associations from the prior run of this job stream are
+        // being synchronized instead of deleted, ignore them, as if they had
+        // been deleted.
+        //
+        String notCreated = null;
+        String andNotCreated = "";
+        if (assocCfg.getDeleteReload().booleanValue() &&
+            assocCfg.getSync().booleanValue())
+        {
+            notCreated =
+                JobStreamAssociationSync.getNotCreatedCondition("a", "");
+            andNotCreated = " and " +
+                JobStreamAssociationSync.getNotCreatedCondition("a", mgdDB + ".");
+        }
+
+        if (useAccIndex)
+        {
+            // Get the logical DBs of all the accession IDs for this job
+            // stream and load the index for those logical DBs only.
+            //
+            sql = "SELECT distinct db._LogicalDB_key " +
+                  "FROM MGI_Association m, " +
+                        mgdDB + ".ACC_LogicalDB db " +
+                  "WHERE m._JobStream_key = " + jobKey + " and " +
+                        "m.logicalDB = db.name";
+            logger.logdInfo("Execute Query: "+sql,true);
+            Vector logicalDBKeys = new Vector();
+            ResultsNavigator dbRN = sqlMgr.executeQuery(sql);
+            while (dbRN.next())
+                logicalDBKeys.add(dbRN.getRowReference().getInt(1));
+            dbRN.close();
+
+            accIndex = new AccessionIndex(logger);
+            accIndex.load(mgdMgr, logicalDBKeys, notCreated);
+
+            // Create a ResultsNavigator to get the accession ID/logical DB
+            // pairs in the MGI_Association table. The MGI type and object are
+            // resolved from the index.
+            //
+            sql = "SELECT m._Record_key, " +
+                         "m.accID, " +
+                         "db._LogicalDB_key, " +
+                         "m.target " +
+                  "FROM MGI_Association m, " +
+                        mgdDB + ".ACC_LogicalDB db " +
+                  "WHERE m._JobStream_key = " + jobKey + " and " +
+                        "m.logicalDB = db.name " +
+                  "ORDER BY m._Record_key";
+            logger.logdInfo("Execute Query: "+sql,true);
+            rn = sqlMgr.executeQuery(sql);
+
+            // Create a MultiRowIterator that uses an Interpreter to build and
+            // return MGIAssociation objects from the ResultsNavigator.
+            //
+            it = new MultiRowIterator(rn, new Interpreter());
+            return;
+        }
 
         // Create a ResultsNavigator to get all the associations that already
         // exist for the accession ID/logical DB pairs in the MGI_Association
@@ -97,7 +179,8 @@ public class MGIAssociationGenerator
                                 "WHERE m.accID = a.accID and " +
                                       "m.logicalDB = db2.name and " +
                                       "db2._LogicalDB_key = a._LogicalDB_key and " +
-                                      "a._MGIType_key not in (21,25)) " +
+                                      "a._MGIType_key not in (21,25)" +
+                                      andNotCreated + ") " +
               "UNION " +
               "SELECT m._Record_key, " +
                      "m.accID, " +
@@ -112,7 +195,8 @@ public class MGIAssociationGenerator
                     "m.accID = a.accID and " +
                     "m.logicalDB = db.name and " +
                     "db._LogicalDB_key = a._LogicalDB_key and " +
-                    "a._MGIType_key not in (21,25) " +
+                    "a._MGIType_key not in (21,25)" +
+                    andNotCreated + " " +
               "ORDER BY _Record_key, accID, _LogicalDB_key";
         logger.logdInfo("Execute Query: "+sql,true);
         rn = sqlMgr.executeQuery(sql);
@@ -179,6 +263,11 @@ public class MGIAssociationGenerator
         //
         private MGIAssociation assoc = null;
 
+        // A resolver for the accession ID/logical DB pairs (if the in-memory
+        // index is being used).
+        //
+        private MGIAssociationResolver resolver = null;
+
 
         /**
          * Constructs a Interpreter object.
@@ -190,7 +279,11 @@ public class MGIAssociationGenerator
         public Interpreter ()
             throws MGIException
         {
-            assoc = new MGIAssociation();
+            assoc = new MGIAssociation(lookups.getTargetType(),
+                                       lookups.getTargetTypeKey());
+
+            if (accIndex != null)
+                resolver = new MGIAssociationResolver(accIndex);
         }
 
         /**
@@ -237,6 +330,25 @@ public class MGIAssociationGenerator
         {
             RowData rd = null;
 
+            // If the in-memory index is being used, resolve each accession
+            // ID/logical DB pair to build the MGIAssociation object.
+            //
+            if (resolver != null)
+            {
+                resolver.clear();
+
+                Iterator iter = v.iterator();
+                while (iter.hasNext())
+                {
+                    rd = (RowData)iter.next();
+                    resolver.add(rd.accID, rd.logicalDBKey.intValue(),
+                                 rd.target.booleanValue());
+                }
+
+                resolver.resolve(assoc);
+                return assoc;
+            }
+
             // Clear the MGIAssociation object to remove all attributes from the
             // previous association.
             //
@@ -250,11 +362,14 @@ public class MGIAssociationGenerator
             {
                 rd = (RowData)iter.next();
 
-                assoc.addAccID(rd.accID);
-                assoc.addLogicalDBKey(rd.logicalDBKey);
-                assoc.addTarget(rd.target);
-                assoc.addMGITypeKey(rd.mgiTypeKey);
-                assoc.addObjectKey(rd.objectKey);
+                if (rd.mgiTypeKey == null)
+                    assoc.addRow(rd.accID, rd.logicalDBKey.intValue(),
+                                 rd.target.booleanValue());
+                else
+                    assoc.addRow(rd.accID, rd.logicalDBKey.intValue(),
+                                 rd.target.booleanValue(),
+                                 rd.mgiTypeKey.intValue(),
+                                 rd.objectKey.intValue());
             }
 
             return assoc;
@@ -298,8 +413,15 @@ public class MGIAssociationGenerator
                 accID = row.getString(2);
                 logicalDBKey = row.getInt(3);
                 target = row.getBoolean(4);
-                mgiTypeKey = row.getInt(5);
-                objectKey = row.getInt(6);
+
+                // The MGI type and object are not selected when the
+                // in-memory index is being used.
+                //
+                if (accIndex == null)
+                {
+                    mgiTypeKey = row.getInt(5);
+                    objectKey = row.getInt(6);
+                }
             }
         }
     }
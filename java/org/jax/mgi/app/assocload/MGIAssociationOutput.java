@@ -0,0 +1,234 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Vector;
+
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An object that holds the output decided for one MGIAssociation object
+ *     (associations to be made and discrepancies to be reported) until it
+ *     can be written to the streams.
+ * @has
+ *   <UL>
+ *   <LI> A list of output actions, in the order they were decided.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides methods to record an association or a discrepancy.
+ *   <LI> Provides a method to replay the recorded actions, in order, through
+ *        a MGIAssociationProcessor and an AssociationLoadReporter.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class MGIAssociationOutput
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // Types of output actions.
+    //
+    private static final int ASSOCIATE = 1;
+    private static final int TARGET_DISCREP = 2;
+    private static final int ASSOC_DISCREP = 3;
+
+    // The output actions. The Action objects are re-used when the output is
+    // cleared, so only the first "size" of them are current.
+    //
+    private Vector actions = null;
+    private int size = 0;
+
+
+    /**
+     * Constructs a MGIAssociationOutput object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @throws Nothing
+     */
+    public MGIAssociationOutput ()
+    {
+        actions = new Vector();
+    }
+
+    /**
+     * Clear the output actions.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void clear ()
+    {
+        size = 0;
+    }
+
+    /**
+     * Record an association to be made.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The accession ID to associate to the MGI object.
+     * @param logicalDBKey The logical DB for the accession ID.
+     * @param mgiTypeKey The type of object to make the association to.
+     * @param objectKey The object to make the association to.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void associate (String accID, Integer logicalDBKey, int mgiTypeKey,
+                           int objectKey)
+    {
+        Action a = nextAction(ASSOCIATE);
+        a.accID = accID;
+        a.logicalDBKey = logicalDBKey;
+        a.tgtMGITypeKey = mgiTypeKey;
+        a.tgtObjectKey = objectKey;
+    }
+
+    /**
+     * Record a target discrepancy to be reported.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The target accession ID.
+     * @param logicalDBKey The target logical DB key.
+     * @param objectKey The target object key.
+     * @param mgiTypeKey The target MGI type key.
+     * @param expMGIType The expected MGI type name.
+     * @param msg The error message.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void reportTargetDiscrepancy (String accID, Integer logicalDBKey,
+                                         Integer objectKey, Integer mgiTypeKey,
+                                         String expMGIType, String msg)
+    {
+        Action a = nextAction(TARGET_DISCREP);
+        a.accID = accID;
+        a.logicalDBKey = logicalDBKey;
+        a.objectKey = objectKey;
+        a.mgiTypeKey = mgiTypeKey;
+        a.expMGIType = expMGIType;
+        a.msg = msg;
+    }
+
+    /**
+     * Record an associate discrepancy to be reported.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param tgtAccID The target accession ID.
+     * @param tgtLogicalDBKey The target logical DB key.
+     * @param tgtObjectKey The target object key.
+     * @param tgtMGITypeKey The target MGI type key.
+     * @param accID The accession ID that could not be associated.
+     * @param logicalDBKey The logical DB key for the accession ID.
+     * @param objectKey The object key for the accession ID.
+     * @param mgiTypeKey The MGI type key for the accession ID.
+     * @param msg The error message.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void reportAssocDiscrepancy (String tgtAccID, int tgtLogicalDBKey,
+                                        int tgtObjectKey, int tgtMGITypeKey,
+                                        String accID, Integer logicalDBKey,
+                                        Integer objectKey, Integer mgiTypeKey,
+                                        String msg)
+    {
+        Action a = nextAction(ASSOC_DISCREP);
+        a.tgtAccID = tgtAccID;
+        a.tgtLogicalDBKey = tgtLogicalDBKey;
+        a.tgtObjectKey = tgtObjectKey;
+        a.tgtMGITypeKey = tgtMGITypeKey;
+        a.accID = accID;
+        a.logicalDBKey = logicalDBKey;
+        a.objectKey = objectKey;
+        a.mgiTypeKey = mgiTypeKey;
+        a.msg = msg;
+    }
+
+    /**
+     * Replay the recorded actions, in the order they were recorded.
+     * @assumes Nothing
+     * @effects Writes to the streams used by the processor and reporter.
+     * @param processor The processor that makes the associations.
+     * @param reporter The reporter that reports the discrepancies.
+     * @return Nothing
+     * @throws MGIException If there is a problem using the DAOs.
+     */
+    public void replay (MGIAssociationProcessor processor,
+                        AssociationLoadReporter reporter)
+        throws MGIException
+    {
+        for (int i=0; i<size; i++)
+        {
+            Action a = (Action)actions.get(i);
+
+            if (a.type == ASSOCIATE)
+                processor.associate(a.accID, a.logicalDBKey, a.tgtMGITypeKey,
+                                    a.tgtObjectKey);
+            else if (a.type == TARGET_DISCREP)
+                reporter.reportTargetDiscrepancy(a.accID, a.logicalDBKey,
+                                                 a.objectKey, a.mgiTypeKey,
+                                                 a.expMGIType, a.msg);
+            else
+                reporter.reportAssocDiscrepancy(a.tgtAccID, a.tgtLogicalDBKey,
+                                                a.tgtObjectKey, a.tgtMGITypeKey,
+                                                a.accID, a.logicalDBKey,
+                                                a.objectKey, a.mgiTypeKey,
+                                                a.msg);
+        }
+    }
+
+    /**
+     * Get the next unused Action object and set its type.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param type The type of action.
+     * @return The Action object.
+     * @throws Nothing
+     */
+    private Action nextAction (int type)
+    {
+        Action a;
+        if (size < actions.size())
+            a = (Action)actions.get(size);
+        else
+        {
+            a = new Action();
+            actions.add(a);
+        }
+        size++;
+        a.type = type;
+        return a;
+    }
+
+
+    /**
+     * @is An object that holds the arguments of one output action.
+     * @has
+     *   <UL>
+     *   <LI> Variables for the arguments of any type of action.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private static class Action
+    {
+        int type;
+        String tgtAccID;
+        int tgtLogicalDBKey;
+        int tgtObjectKey;
+        int tgtMGITypeKey;
+        String accID;
+        Integer logicalDBKey;
+        Integer objectKey;
+        Integer mgiTypeKey;
+        String expMGIType;
+        String msg;
+    }
+}
@@ -1,9 +1,8 @@
 package org.jax.mgi.app.assocload;
 
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.List;
 
-import org.jax.mgi.dbs.mgd.AccessionLib;
 import org.jax.mgi.dbs.mgd.LogicalDBConstants;
 import org.jax.mgi.dbs.mgd.dao.ACC_AccessionDAO;
 import org.jax.mgi.dbs.mgd.dao.ACC_AccessionState;
@@ -11,10 +10,6 @@ import org.jax.mgi.dbs.mgd.dao.ACC_AccessionReferenceDAO;
 import org.jax.mgi.dbs.mgd.dao.ACC_AccessionReferenceState;
 import org.jax.mgi.dbs.mgd.dao.PRB_ReferenceDAO;
 import org.jax.mgi.dbs.mgd.dao.PRB_ReferenceState;
-import org.jax.mgi.dbs.mgd.lookup.JNumberLookup;
-import org.jax.mgi.dbs.mgd.lookup.LogicalDBLookup;
-import org.jax.mgi.shr.config.AssociationLoaderCfg;
-import org.jax.mgi.shr.config.RADARCfg;
 import org.jax.mgi.shr.dbutils.dao.SQLStream;
 import org.jax.mgi.shr.dla.log.DLALogger;
 import org.jax.mgi.shr.exception.MGIException;
@@ -27,7 +22,9 @@ import org.jax.mgi.shr.exception.MGIException;
  *   <LI> A stream for handling DAO objects
  *   <LI> AssociationLoadReporter object
  *   <LI> ProbeRefLookup object
+ *   <LI> TargetResolutionCache object
  *   <LI> Counter for each type of action taken
+ *   <LI> A histogram of the time taken for each MGIAssociation object
  *   </UL>
  * @does
  *   <UL>
@@ -45,12 +42,6 @@ public class MGIAssociationProcessor
     //  Variables  //
     /////////////////
 
-    // Single element arrays used with the "toArray()" method on a vector to
-    // specify the array type to be returned.
-    //
-    private static String[] STRING_ARRAY = new String[0];
-    private static Integer[] INTEGER_ARRAY = new Integer[0];
-
     // A logger for logging messages.
     //
     private DLALogger logger = null;
@@ -67,6 +58,26 @@ public class MGIAssociationProcessor
     // reference.
     private ProbeRefLookup probeRefLookup = null;
 
+    // An object that synchronizes the associations from the prior run of the
+    // job stream (if they are not deleted and reloaded).
+    //
+    private JobStreamAssociationSync sync = null;
+
+    // The pipeline that loads the records with COPY commands while the
+    // associations are processed (or null if they are written to the load
+    // stream).
+    //
+    private MGDCopyPipeline copyPipeline = null;
+
+    // An object for grouping the rows of a MGIAssociation object by their
+    // distinct accession ID/logical DB pairs and counting their associations.
+    //
+    private AssociationPairAccumulator pairs = null;
+
+    // The output decided for the MGIAssociation object being processed.
+    //
+    private MGIAssociationOutput output = null;
+
     // The reference key used with each ACC_AccessionReference and PRB_Reference
     // record that is created.
     //
@@ -81,8 +92,8 @@ public class MGIAssociationProcessor
     // Arrays to hold the keys for logical DBs that can be associated with
     // single or multiple MGi objects.
     //
-    private Vector singleDB = null;
-    private Vector multipleDB = null;
+    private List singleDB = null;
+    private List multipleDB = null;
 
     // Flag to indicate whether new accession IDs should be private.
     private Boolean isPrivateAccID = null;
@@ -95,6 +106,26 @@ public class MGIAssociationProcessor
     private int assocCount = 0;
     private int reportCount = 0;
 
+    // The resolution of each target accession ID/logical DB pair (shared
+    // with the processors that share this configuration) and the number of
+    // records that found or did not find their target in it.
+    //
+    private TargetResolutionCache targetCache = null;
+    private int targetCacheHits = 0;
+    private int targetCacheMisses = 0;
+
+    // A histogram of the time taken to decide the output for each
+    // MGIAssociation object.
+    //
+    private ProcessLatencyHistogram latency = null;
+
+    // An object that splits each new accession ID into its prefix and
+    // numeric parts, and the object it sets them in. They are only used
+    // when the output is applied.
+    //
+    private AccessionIDSplitter accIDSplitter = null;
+    private AccessionIDSplitter.Parts accIDParts = null;
+
 
     /**
      * Constructs a MGIAssociationProcessor object.
@@ -103,74 +134,101 @@ public class MGIAssociationProcessor
      * @param pLoadStream The stream for the load database.
      * @param pLogger The logger to write messages to.
      * @param pAssocRpt The object used to report MGIAssociation discrepancies.
+     * @param lookups The lookups resolved at startup.
      * @throws MGIException If there is a problem with configuration or lookups.
      */
     public MGIAssociationProcessor (SQLStream pLoadStream, DLALogger pLogger,
-                                    AssociationLoadReporter pAssocRpt)
+                                    AssociationLoadReporter pAssocRpt,
+                                    StartupLookups lookups)
         throws MGIException
     {
-        int i;
-        String[] list = null;
-
         loadStream = pLoadStream;
         logger = pLogger;
         assocRpt = pAssocRpt;
 
-        // Create a configurator to get the J-Number.
-        //
-        RADARCfg radarCfg = new RADARCfg();
-
-        // Create a J-Number lookup object and get the reference key for the
-        // J-Number.
-        //
-        JNumberLookup jNumLookup = new JNumberLookup();
-        refsKey = jNumLookup.lookup(radarCfg.getJNumber());
-
-        // Create a logical DB lookup object.
+        // Get the reference key for the J-Number, the logical DBs that may
+        // be associated with single or multiple objects and whether new
+        // accession IDs should be private from the startup lookups.
         //
-        LogicalDBLookup dbLookup = new LogicalDBLookup();
-
-        // Create a configurator to get the logical DB lists.
-        //
-        AssociationLoaderCfg assocCfg = new AssociationLoaderCfg();
-
-        // Determine whether new accession IDs should be private.
-        isPrivateAccID = assocCfg.getPrivateAccID();
-
-        // Get the list of logical DBs that may only be associated with one
-        // object in MGI.
-        //
-        list = assocCfg.getSingleDB();
-
-        // Look up each logical DB name and add the keys to the array.
-        //
-        singleDB = new Vector();
-        for (i=0; i<list.length; i++) {
-	    String ldb = list[i].trim();
-            singleDB.add(dbLookup.lookup(ldb));
-	}
-
-        // Get the list of logical DBs that may only be associated with
-        // multiple objects in MGI.
-        //
-        list = assocCfg.getMultipleDB();
-
-        // Look up each logical DB name and add the keys to the array.
-        //
-        multipleDB = new Vector();
-        for (i=0; i<list.length; i++) {
-	    String ldb = list[i].trim();
-            multipleDB.add(dbLookup.lookup(ldb));
-	}
+        refsKey = lookups.getRefsKey();
+        singleDB = lookups.getSingleDB();
+        multipleDB = lookups.getMultipleDB();
+        isPrivateAccID = lookups.getPrivateAccID();
 
         logger.logdInfo("Logical DBs for single object associations: " +
                         singleDB.toString(),false);
         logger.logdInfo("Logical DBs for multiple object associations: " +
                         multipleDB.toString(),false);
 
-        // Create a probe reference lookup object.
+        if (logger.isDebug())
+            logger.logdDebug("Discrepancy decision table:\n" +
+                             DiscrepancyDecisionTable.dump(),false);
+
+        // Create a probe reference lookup object. It does not query the
+        // database until the first probe association is made.
         //
         probeRefLookup = new ProbeRefLookup(refsKey.intValue());
+
+        targetCache = new TargetResolutionCache();
+        pairs = new AssociationPairAccumulator();
+        output = new MGIAssociationOutput();
+        latency = new ProcessLatencyHistogram();
+        accIDSplitter = new AccessionIDSplitter();
+        accIDParts = new AccessionIDSplitter.Parts();
+    }
+
+    /**
+     * Constructs a MGIAssociationProcessor object that shares the
+     * configuration of another processor but has its own counters. It can
+     * only decide the output for a MGIAssociation object (see decide()); the
+     * output must be applied by the other processor.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param master The processor to share the configuration with.
+     * @throws Nothing
+     */
+    public MGIAssociationProcessor (MGIAssociationProcessor master)
+    {
+        logger = master.logger;
+        refsKey = master.refsKey;
+        singleDB = master.singleDB;
+        multipleDB = master.multipleDB;
+        isPrivateAccID = master.isPrivateAccID;
+        targetCache = master.targetCache;
+
+        pairs = new AssociationPairAccumulator();
+        output = new MGIAssociationOutput();
+        latency = new ProcessLatencyHistogram();
+    }
+
+    /**
+     * Set the object used to synchronize the associations from the prior run
+     * of the job stream. An association that is kept from the prior run is
+     * not inserted again.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pSync The JobStreamAssociationSync object.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void setSync (JobStreamAssociationSync pSync)
+    {
+        sync = pSync;
+    }
+
+    /**
+     * Set the pipeline that loads the records with COPY commands while the
+     * associations are processed. The records are no longer written to the
+     * load stream.
+     * @assumes The pipeline has been started.
+     * @effects Nothing
+     * @param pCopyPipeline The MGDCopyPipeline object.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void setCopyPipeline (MGDCopyPipeline pCopyPipeline)
+    {
+        copyPipeline = pCopyPipeline;
     }
 
     /**
@@ -184,6 +242,71 @@ public class MGIAssociationProcessor
      */
     public void process (MGIAssociation assoc)
         throws MGIException
+    {
+        output.clear();
+        decide(assoc, output);
+        apply(output);
+    }
+
+    /**
+     * Decide which associations should be made and which discrepancies
+     * should be reported for a MGIAssociation object, and record them in
+     * an output object. Nothing is written to the streams.
+     * @assumes Nothing
+     * @effects Updates the counters.
+     * @param assoc The MGIAssociation object to process.
+     * @param out The output object to record the actions in.
+     * @return Nothing
+     * @throws MGIException If an undefined logical DB is encountered.
+     */
+    public void decide (MGIAssociation assoc, MGIAssociationOutput out)
+        throws MGIException
+    {
+        AssociationLoadEvents.Processed event =
+            new AssociationLoadEvents.Processed();
+        event.begin();
+
+        int assocBefore = assocCount;
+        int existBefore = existCount;
+        int skipBefore = skipCount;
+        int reportBefore = reportCount;
+        long start = System.nanoTime();
+
+        decideOutput(assoc, out);
+
+        // Record the time in the histogram, labelling the slowest
+        // MGIAssociation object of each size by its target accession ID.
+        //
+        int rowCount = assoc.getRowCount();
+        if (latency.record(rowCount, System.nanoTime() - start))
+            latency.setMaxLabel(rowCount, getTargetAccID(assoc));
+
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.targetAccID = getTargetAccID(assoc);
+            event.targetType = assoc.getTargetType();
+            event.rows = rowCount;
+            event.pairs = pairs.getPairCount();
+            event.associated = assocCount - assocBefore;
+            event.existing = existCount - existBefore;
+            event.skipped = skipCount - skipBefore;
+            event.reported = reportCount - reportBefore;
+            event.commit();
+        }
+    }
+
+    /**
+     * Decide the output for a MGIAssociation object (see decide()).
+     * @assumes Nothing
+     * @effects Updates the counters.
+     * @param assoc The MGIAssociation object to process.
+     * @param out The output object to record the actions in.
+     * @return Nothing
+     * @throws MGIException If an undefined logical DB is encountered.
+     */
+    private void decideOutput (MGIAssociation assoc, MGIAssociationOutput out)
+        throws MGIException
     {
         int i, j;
 
@@ -192,13 +315,9 @@ public class MGIAssociationProcessor
         //
         boolean skipAssociation = false;
 
-        // No probe reference association has been made yet.
-        //
-        madeProbeRef = false;
-
         // Attributes of a target accession ID/logical DB pair.
         //
-        String targetAccID = null;
+        int targetRow = -1;
         int targetLogicalDBKey = 0;
         int targetMGITypeKey = 0;
         int targetObjectKey = 0;
@@ -212,120 +331,102 @@ public class MGIAssociationProcessor
         String expTargetMGIType = assoc.getTargetType();
         int expTargetMGITypeKey = assoc.getTargetTypeKey();
 
-        // Get arrays containing the attributes of the MGIAssociation object.
+        int rowCount = assoc.getRowCount();
+
+        // Group the rows of the MGIAssociation object by each distinct
+        // non-target accession ID/logical DB pair.
         //
-        String[] accIDs = assoc.getAccIDs();
-        Integer[] logicalDBKeys = assoc.getLogicalDBKeys();
-        Boolean[] targets = assoc.getTargets();
-        Integer[] mgiTypeKeys = assoc.getMGITypeKeys();
-        Integer[] objectKeys = assoc.getObjectKeys();
-
-        // Create arrays containing the accession IDs and corresponding
-        // logical DBs for each distinct non-target accession ID/logicalDB from
-        // the MGIAssociation object.
+        pairs.group(assoc);
+        int pairCount = pairs.getPairCount();
+
+        // Initialize arrays that are used to determine how to handle each
+        // distinct accession ID/logical DB pair.
         //
-        int idx1, idx2;
-        String pair = null;
-        Vector vAccIDs = new Vector();
-        Vector vLogicalDBKeys = new Vector();
-        Vector vPair = new Vector();
+        int[] action = new int[pairCount];
+        String[] msg = new String[pairCount];
 
-        for (i=0; i<accIDs.length; i++)
+        // Find the target accession ID/logical DB and check whether all the
+        // target rows are for the same one.
+        //
+        boolean oneTarget = true;
+        for (i=0; i<rowCount; i++)
         {
-            if (targets[i].booleanValue() == true)
-                continue;
-
-            // If the accession ID/logical DB pair is not already in the vectors,
-            // add them.
-            //
-            pair = accIDs[i] + "," + logicalDBKeys[i].intValue();
-            if (vPair.indexOf(pair) < 0)
+            if (assoc.isTarget(i))
             {
-                vAccIDs.add(accIDs[i]);
-                vLogicalDBKeys.add(logicalDBKeys[i]);
-                vPair.add(pair);
+                if (targetRow >= 0 &&
+                    (assoc.getLogicalDBKey(i) != targetLogicalDBKey ||
+                     !assoc.sameAccID(i, targetRow)))
+                    oneTarget = false;
+
+                // Save the target accession ID/logical DB for future use.
+                //
+                targetRow = i;
+                targetLogicalDBKey = assoc.getLogicalDBKey(i);
             }
         }
 
-        // Create arrays from the vectors.
-        //
-        String[] distinctAccIDs = (String[])vAccIDs.toArray(STRING_ARRAY);
-        Integer[] distinctLogicalDBKeys =
-            (Integer[])vLogicalDBKeys.toArray(INTEGER_ARRAY);
-
-        // Initialize arrays that are used to determine how to handle each
-        // distinct accession ID/logical DB pair.
+        // If the target has already been resolved for a prior record, use
+        // the same type, object and discrepancy message.
         //
-        int[] sameTypeCount = new int[distinctAccIDs.length];
-        int[] diffTypeCount = new int[distinctAccIDs.length];
-        int[] sameObjCount = new int[distinctAccIDs.length];
-        int[] action = new int[distinctAccIDs.length];
-        String[] msg = new String[distinctAccIDs.length];
-
-        for (i=0; i<distinctAccIDs.length; i++)
+        TargetResolutionCache.Resolution resolution = null;
+        String targetAccID = null;
+        if (targetRow >= 0 && oneTarget)
         {
-            sameTypeCount[i] = 0;
-            diffTypeCount[i] = 0;
-            sameObjCount[i] = 0;
-            action[i] = 0;
-            msg[i] = null;
+            targetAccID = assoc.getAccID(targetRow);
+            resolution = targetCache.get(targetAccID, targetLogicalDBKey);
         }
 
-        // Check each target accession ID/logical DB to determine what type of
-        // object they are associated with in MGI. Count how many associations
-        // there are to objects that have the same/different type as the
-        // expected target type.
-        //
-        for (i=0; i<accIDs.length; i++)
+        if (resolution != null)
+        {
+            targetMGITypeKey = resolution.mgiTypeKey;
+            targetObjectKey = resolution.objectKey;
+            targetMsg = resolution.msg;
+            targetCacheHits++;
+        }
+        else
         {
-            if (targets[i].booleanValue() == true)
+            // Check each target accession ID/logical DB to determine what
+            // type of object they are associated with in MGI. Count how many
+            // associations there are to objects that have the same/different
+            // type as the expected target type.
+            //
+            for (i=0; i<rowCount; i++)
             {
-                // Save the target accession ID/logical DB for future use.
+                // Skip this accession ID/logical DB if it is not the target
+                // or it does not exist in MGI.
                 //
-                targetAccID = accIDs[i];
-                targetLogicalDBKey = logicalDBKeys[i].intValue();
-
-                // Skip this accession ID/logical DB if it does not exist in MGI.
-                //
-                if (mgiTypeKeys[i] == null)
+                if (!assoc.isTarget(i) || !assoc.hasObject(i))
                     continue;
 
                 // Save the target type and object for future use.
                 //
-                targetMGITypeKey = mgiTypeKeys[i].intValue();
-                targetObjectKey = objectKeys[i].intValue();
+                targetMGITypeKey = assoc.getMGITypeKey(i);
+                targetObjectKey = assoc.getObjectKey(i);
 
-                // Count whether it is the same or different than the expected
-                // target type.
+                // Count whether it is the same or different than the
+                // expected target type.
                 //
                 if (targetMGITypeKey == expTargetMGITypeKey)
                     targetSameType++;
                 else
                     targetDiffType++;
             }
-        }
 
-        // If the target accession ID is not associated with one object of the
-        // target type or it is associated with an object of some other type,
-        // report an error and do not process any of the accession IDs for the
-        // current MGIAssociation object.
-        //
-        if (targetSameType == 0 && targetDiffType == 0)
-            targetMsg = AssociationLoadConstants.TARGET_DISCREP_A;
-        else if (targetSameType == 0 && targetDiffType == 1)
-            targetMsg = AssociationLoadConstants.TARGET_DISCREP_B;
-        else if (targetSameType == 0 && targetDiffType > 1)
-            targetMsg = AssociationLoadConstants.TARGET_DISCREP_C;
-        else if (targetSameType == 1 && targetDiffType == 1)
-            targetMsg = AssociationLoadConstants.TARGET_DISCREP_D;
-        else if (targetSameType == 1 && targetDiffType > 1)
-            targetMsg = AssociationLoadConstants.TARGET_DISCREP_E;
-        else if (targetSameType > 1 && targetDiffType == 0)
-            targetMsg = AssociationLoadConstants.TARGET_DISCREP_F;
-        else if (targetSameType > 1 && targetDiffType == 1)
-            targetMsg = AssociationLoadConstants.TARGET_DISCREP_G;
-        else if (targetSameType > 1 && targetDiffType > 1)
-            targetMsg = AssociationLoadConstants.TARGET_DISCREP_H;
+            // If the target accession ID is not associated with one object
+            // of the target type or it is associated with an object of some
+            // other type, report an error and do not process any of the
+            // accession IDs for the current MGIAssociation object.
+            //
+            targetMsg = DiscrepancyDecisionTable.getTargetMsg(targetSameType,
+                                                              targetDiffType);
+
+            if (targetAccID != null)
+            {
+                targetCache.put(targetAccID, targetLogicalDBKey,
+                                targetMGITypeKey, targetObjectKey, targetMsg);
+                targetCacheMisses++;
+            }
+        }
 
         // If there is a discrepancy with the target accession ID/logical DB,
         // report each discrepancy and do not process this MGIAssociation object
@@ -333,235 +434,70 @@ public class MGIAssociationProcessor
         //
         if (targetMsg != null)
         {
-            for (i=0; i<accIDs.length; i++)
+            for (i=0; i<rowCount; i++)
             {
                 // Skip this accession ID/logical DB if it is not the target.
                 //
-                if (targets[i].booleanValue() == false)
+                if (!assoc.isTarget(i))
                     continue;
 
-                assocRpt.reportTargetDiscrepancy(accIDs[i], logicalDBKeys[i],
-                                                 objectKeys[i], mgiTypeKeys[i],
-                                                 expTargetMGIType, targetMsg);
+                out.reportTargetDiscrepancy(assoc.getAccID(i),
+                                            new Integer(assoc.getLogicalDBKey(i)),
+                                            getObjectKey(assoc, i),
+                                            getMGITypeKey(assoc, i),
+                                            expTargetMGIType, targetMsg);
                 reportCount++;
             }
 
             // Increment the skip count by the number of accession IDs that
             // were supposed to be associated.
             //
-            skipCount += distinctAccIDs.length;
+            skipCount += pairCount;
 
             return;
         }
 
-        // Check each distinct accession ID/logical DB to see how many
-        // associations they have with MGI objects and what type of objects
-        // they are. This is called the "current pair".
+        // Count how many associations each distinct accession ID/logical DB
+        // has with MGI objects that have the same or different object type as
+        // the target accession ID/logical DB, and how many are to the target
+        // object itself.
         //
-        for (i=0; i<distinctAccIDs.length; i++)
-        {
-            // Check each accession ID/logical DB pair in the MGIAssociation
-            // object for ones that are the same as the current pair.
-            //
-            for (j=0; j<accIDs.length; j++)
-            {
-                // Skip this accession ID/logical DB if it is not the same as
-                // the current pair.
-                //
-                if ((! accIDs[j].equals(distinctAccIDs[i])) ||
-                    logicalDBKeys[j].intValue() != distinctLogicalDBKeys[i].intValue())
-                    continue;
+        pairs.count(targetMGITypeKey, targetObjectKey);
 
-                // Skip this accession ID/logical DB if it does not exist in MGI.
-                //
-                if (mgiTypeKeys[j] == null)
-                    continue;
+        int[] sameTypeCount = new int[pairCount];
+        int[] diffTypeCount = new int[pairCount];
+        int[] sameObjCount = new int[pairCount];
+        int[] distinctLogicalDBKeys = new int[pairCount];
 
-                // Count whether the accession ID/logical DB is associated with
-                // an object that has the same or different object type as the
-                // target accession ID/logical DB.
-                //
-                if (mgiTypeKeys[j].intValue() == targetMGITypeKey)
-                {
-                    sameTypeCount[i]++;
-                    if (objectKeys[j].intValue() == targetObjectKey)
-                        sameObjCount[i]++;
-                }
-                else
-                    diffTypeCount[i]++;
-            }
-            logger.logdDebug("Counts: "+sameTypeCount[i]+"  "+
-                             diffTypeCount[i]+"  "+
-                             sameObjCount[i]+"  "+
-                             distinctAccIDs[i]+"  "+
-                             distinctLogicalDBKeys[i].intValue(),false);
+        for (i=0; i<pairCount; i++)
+        {
+            sameTypeCount[i] = pairs.getSameTypeCount(i);
+            diffTypeCount[i] = pairs.getDiffTypeCount(i);
+            sameObjCount[i] = pairs.getSameObjCount(i);
+            distinctLogicalDBKeys[i] = pairs.getLogicalDBKey(i);
+
+            if (logger.isDebug())
+                logger.logdDebug("Counts: "+sameTypeCount[i]+"  "+
+                                 diffTypeCount[i]+"  "+
+                                 sameObjCount[i]+"  "+
+                                 pairs.getAccID(i)+"  "+
+                                 distinctLogicalDBKeys[i],false);
         }
 
         // Determine the action for each non-target accession ID/logical DB pair
         // based on the counts.
         //
-        for (i=0; i<distinctAccIDs.length; i++)
+        for (i=0; i<pairCount; i++)
         {
-            // Determine the action for a logical DB that is allowed to have
-            // only one association.
+            // Determine the policy for the logical DB: whether it is allowed to
+            // have only one association or multiple associations.
             //
-            if (singleDB.indexOf(distinctLogicalDBKeys[i]) >= 0)
-            {
-                if (sameTypeCount[i] == 0 && diffTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_ASSOCIATE;
-                }
-                else if (sameTypeCount[i] == 0 && diffTypeCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_A;
-                }
-                else if (sameTypeCount[i] == 0 && diffTypeCount[i] > 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_B;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_SKIP;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_C;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] > 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_D;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_E;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_F;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] > 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_G;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_H;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_I;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] > 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_J;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_K;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_L;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] > 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_M;
-                }
-            }
-
-            // Determine the action for a logical DB that is allowed to have
-            // multiple associations.
-            //
-            else if (multipleDB.indexOf(distinctLogicalDBKeys[i]) >= 0)
-            {
-                if (sameTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_ASSOCIATE;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_SKIP;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_E;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_F;
-                }
-                else if (sameTypeCount[i] == 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] > 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_G;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_H;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_I;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 1 &&
-                         diffTypeCount[i] > 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_SKIP;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_J;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] == 0)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_K;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] == 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_L;
-                }
-                else if (sameTypeCount[i] > 1 && sameObjCount[i] == 0 &&
-                         diffTypeCount[i] > 1)
-                {
-                    action[i] = AssociationLoadConstants.ACTION_REPORT_ASSOCIATE;
-                    msg[i] = AssociationLoadConstants.ASSOC_DISCREP_M;
-                }
-            }
+            Integer logicalDBKey = new Integer(distinctLogicalDBKeys[i]);
+            int policy;
+            if (singleDB.indexOf(logicalDBKey) >= 0)
+                policy = DiscrepancyDecisionTable.SINGLE_DB;
+            else if (multipleDB.indexOf(logicalDBKey) >= 0)
+                policy = DiscrepancyDecisionTable.MULTIPLE_DB;
 
             // Throw an exception if the logical DB if not defined in either
             // of the lists.
@@ -574,6 +510,14 @@ public class MGIAssociationProcessor
                                        "multiple associations.");
             }
 
+            // Look up the action and discrepancy message for the counts.
+            //
+            int d = DiscrepancyDecisionTable.index(policy, sameTypeCount[i],
+                                                   sameObjCount[i],
+                                                   diffTypeCount[i]);
+            action[i] = DiscrepancyDecisionTable.getAction(d);
+            msg[i] = DiscrepancyDecisionTable.getAssocMsg(d);
+
             // If a "Report and Skip" discrepancy is found, do not allow any
             // associations to be made.
             //
@@ -584,14 +528,15 @@ public class MGIAssociationProcessor
         // Use the action established for each distinct accession ID/logical DB
         // to see if it should be skipped, reported and/or associated.
         //
-        for (i=0; i<distinctAccIDs.length; i++)
+        for (i=0; i<pairCount; i++)
         {
             // Action: Do nothing (association already exists).
             //
             if (action[i] == AssociationLoadConstants.ACTION_SKIP)
             {
-                logger.logdDebug("Exists: "+distinctAccIDs[i]+","+
-                                 distinctLogicalDBKeys[i].intValue(),false);
+                if (logger.isDebug())
+                    logger.logdDebug("Exists: "+pairs.getAccID(i)+","+
+                                     distinctLogicalDBKeys[i],false);
                 existCount++;
                 continue;
             }
@@ -601,21 +546,18 @@ public class MGIAssociationProcessor
             if (action[i] == AssociationLoadConstants.ACTION_REPORT_SKIP ||
                 action[i] == AssociationLoadConstants.ACTION_REPORT_ASSOCIATE)
             {
-                for (j=0; j<accIDs.length; j++)
+                // Report each row for the current pair.
+                //
+                for (j=pairs.getFirstRow(i); j>=0; j=pairs.getNextRow(j))
                 {
-                    // Skip this accession ID/logical DB if it is not the same as
-                    // the current pair.
-                    //
-                    if ((!accIDs[j].equals(distinctAccIDs[i])) ||
-                        logicalDBKeys[j].intValue() !=
-                        distinctLogicalDBKeys[i].intValue())
-                        continue;
-
-                    assocRpt.reportAssocDiscrepancy(targetAccID, targetLogicalDBKey,
-                                                    targetObjectKey, expTargetMGITypeKey,
-                                                    accIDs[j], logicalDBKeys[j],
-                                                    objectKeys[j], mgiTypeKeys[j],
-                                                    msg[i]);
+                    out.reportAssocDiscrepancy(assoc.getAccID(targetRow),
+                                               targetLogicalDBKey,
+                                               targetObjectKey, expTargetMGITypeKey,
+                                               assoc.getAccID(j),
+                                               new Integer(assoc.getLogicalDBKey(j)),
+                                               getObjectKey(assoc, j),
+                                               getMGITypeKey(assoc, j),
+                                               msg[i]);
                     reportCount++;
                 }
             }
@@ -632,8 +574,9 @@ public class MGIAssociationProcessor
                 if (skipAssociation)
                     continue;
 
-                associate(distinctAccIDs[i],distinctLogicalDBKeys[i],
-                          targetMGITypeKey, targetObjectKey);
+                out.associate(pairs.getAccID(i),
+                              new Integer(distinctLogicalDBKeys[i]),
+                              targetMGITypeKey, targetObjectKey);
                 assocCount++;
             }
         }
@@ -643,7 +586,27 @@ public class MGIAssociationProcessor
         // of accession IDs that were supposed to be associated.
         //
         if (skipAssociation)
-            skipCount += distinctAccIDs.length;
+            skipCount += pairCount;
+    }
+
+    /**
+     * Write the output decided for a MGIAssociation object to the streams,
+     * in the order it was decided.
+     * @assumes The output was decided by this processor or one that shares
+     *          its configuration.
+     * @effects Nothing
+     * @param out The output object.
+     * @return Nothing
+     * @throws MGIException If there is a problem using the DAOs.
+     */
+    public void apply (MGIAssociationOutput out)
+        throws MGIException
+    {
+        // No probe reference association has been made yet.
+        //
+        madeProbeRef = false;
+
+        out.replay(this, assocRpt);
     }
 
     /**
@@ -664,23 +627,115 @@ public class MGIAssociationProcessor
                            int objectKey)
         throws MGIException
     {
-        Integer probeKey = new Integer(objectKey);
+        AssociationLoadEvents.Associated event =
+            new AssociationLoadEvents.Associated();
+        event.begin();
 
         logger.logdDebug("Make Association: "+accID+","+logicalDBKey+","+
                          objectKey+","+mgiTypeKey,false);
 
-        Vector vParts = AccessionLib.splitAccID(accID);
+        // If the association is kept from the prior run of the job stream,
+        // only the probe reference needs to be checked.
+        //
+        boolean kept = sync != null &&
+            sync.keep(accID, logicalDBKey.intValue(), mgiTypeKey, objectKey);
+        if (!kept)
+            insertAccession(accID, logicalDBKey, mgiTypeKey, objectKey);
+
+        // Special processing for probe associations ONLY.
+        //
+        if (mgiTypeKey == 3 && madeProbeRef == false)
+        {
+            // Determine if the probe is already associated with the reference.
+            //
+            if (!probeRefLookup.lookup(objectKey))
+            {
+                // Add the record to the COPY pipeline if it is being used.
+                // Otherwise create an state object for the PRB_Reference
+                // table, set its attributes and pass a DAO for it to the
+                // stream.
+                //
+                if (copyPipeline != null)
+                    copyPipeline.addProbeReference(objectKey,
+                                                   refsKey.intValue());
+                else
+                {
+                    PRB_ReferenceState probeRefState = new PRB_ReferenceState();
+                    probeRefState.setProbeKey(new Integer(objectKey));
+                    probeRefState.setRefsKey(refsKey);
+                    probeRefState.setHasrmap(new Boolean(false));
+                    probeRefState.setHassequence(new Boolean(false));
+
+                    PRB_ReferenceDAO probeRefDAO =
+                        new PRB_ReferenceDAO(probeRefState);
+                    loadStream.insert(probeRefDAO);
+                }
+
+                // Add the probe key to the lookup cache, so another record
+                // will not be created for it in the future.
+                //
+                probeRefLookup.addToCache(objectKey);
+            }
+
+            // The probe reference has been made.
+            //
+            madeProbeRef = true;
+        }
+
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.accID = accID;
+            event.logicalDBKey = logicalDBKey.intValue();
+            event.mgiTypeKey = mgiTypeKey;
+            event.objectKey = objectKey;
+            event.kept = kept;
+            event.commit();
+        }
+    }
+
+    /**
+     * Create DAOs for the ACC_Accession and ACC_AccessionReference tables for
+     * an association and pass them to the stream to create bcp records.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The accession ID to associate to the MGI object.
+     * @param logicalDBKey The logical DB for the accession ID.
+     * @param mgiTypeKey The type of object to make the association to.
+     * @param objectKey The object to make the association to.
+     * @return Nothing
+     * @throws MGIException If there is a problem using the DAOs.
+     */
+    private void insertAccession (String accID, Integer logicalDBKey,
+                                  int mgiTypeKey, int objectKey)
+        throws MGIException
+    {
+        accIDSplitter.split(accID, accIDParts);
+
+        // Add the records to the COPY pipeline if it is being used.
+        //
+        if (copyPipeline != null)
+        {
+            copyPipeline.addAccession(accID, accIDParts.getPrefixPart(),
+                                      accIDParts.hasNumericPart(),
+                                      accIDParts.getNumericPart(),
+                                      logicalDBKey.intValue(), mgiTypeKey,
+                                      objectKey, isPrivateAccID.booleanValue(),
+                                      refsKey.intValue());
+            return;
+        }
 
         // Create an state object for the ACC_Accession table and set its
         // attributes.
         //
         ACC_AccessionState accState = new ACC_AccessionState();
         accState.setAccID(accID);
-        accState.setPrefixPart((String)vParts.get(0));
-        accState.setNumericPart((Integer)vParts.get(1));
+        accState.setPrefixPart(accIDParts.getPrefixPart());
+        if (accIDParts.hasNumericPart())
+            accState.setNumericPart(new Integer(accIDParts.getNumericPart()));
         accState.setLogicalDBKey(logicalDBKey);
         accState.setMGITypeKey(new Integer(mgiTypeKey));
-        accState.setObjectKey(probeKey);
+        accState.setObjectKey(new Integer(objectKey));
         accState.setPrivateVal(isPrivateAccID);
         accState.setPreferred(new Boolean(true));
 
@@ -702,39 +757,54 @@ public class MGIAssociationProcessor
         ACC_AccessionReferenceDAO accRefDAO =
                     new ACC_AccessionReferenceDAO(accRefState);
         loadStream.insert(accRefDAO);
+    }
 
-        // Special processing for probe associations ONLY.
-        //
-        if (mgiTypeKey == 3 && madeProbeRef == false)
-        {
-            // Determine if the probe is already associated with the reference.
-            //
-            if (probeRefLookup.lookup(probeKey) == null)
-            {
-                // Create an state object for the PRB_Reference table and set
-                // its attributes.
-                //
-                PRB_ReferenceState probeRefState = new PRB_ReferenceState();
-                probeRefState.setProbeKey(probeKey);
-                probeRefState.setRefsKey(refsKey);
-                probeRefState.setHasrmap(new Boolean(false));
-                probeRefState.setHassequence(new Boolean(false));
-
-                // Create a DAO for the state object and pass it to the stream.
-                //
-                PRB_ReferenceDAO probeRefDAO = new PRB_ReferenceDAO(probeRefState);
-                loadStream.insert(probeRefDAO);
+    /**
+     * Add the counters and the latency histogram from another processor to
+     * the ones for this processor.
+     * @assumes Nothing
+     * @effects Updates the counters.
+     * @param other The other processor.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void addCounts (MGIAssociationProcessor other)
+    {
+        existCount += other.existCount;
+        skipCount += other.skipCount;
+        assocCount += other.assocCount;
+        reportCount += other.reportCount;
+        targetCacheHits += other.targetCacheHits;
+        targetCacheMisses += other.targetCacheMisses;
+        latency.add(other.latency);
+    }
 
-                // Add the probe key to the lookup cache, so another bcp record
-                // will not be created for it in the future.
-                //
-                probeRefLookup.addToCache(probeKey);
-            }
+    /**
+     * Get the number of records whose target was found in the target
+     * resolution cache.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of cache hits.
+     * @throws Nothing
+     */
+    public int getTargetCacheHits ()
+    {
+        return targetCacheHits;
+    }
 
-            // The probe reference has been made.
-            //
-            madeProbeRef = true;
-        }
+    /**
+     * Get the number of records whose target had to be resolved and was
+     * added to the target resolution cache.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of cache misses.
+     * @throws Nothing
+     */
+    public int getTargetCacheMisses ()
+    {
+        return targetCacheMisses;
     }
 
     /**
@@ -789,4 +859,73 @@ public class MGIAssociationProcessor
     {
         return reportCount;
     }
+
+    /**
+     * Get the histogram of the time taken to decide the output for each
+     * MGIAssociation object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The histogram.
+     * @throws Nothing
+     */
+    public ProcessLatencyHistogram getLatencyHistogram ()
+    {
+        return latency;
+    }
+
+    /**
+     * Get the target accession ID of a MGIAssociation object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param assoc The MGIAssociation object.
+     * @return The target accession ID, or null if there is no target row.
+     * @throws Nothing
+     */
+    private static String getTargetAccID (MGIAssociation assoc)
+    {
+        int rowCount = assoc.getRowCount();
+        for (int i=0; i<rowCount; i++)
+        {
+            if (assoc.isTarget(i))
+                return assoc.getAccID(i);
+        }
+        return null;
+    }
+
+    /**
+     * Get the MGI type key of a row of a MGIAssociation object for a
+     * discrepancy report.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param assoc The MGIAssociation object.
+     * @param row The row number.
+     * @return The MGI type key or null if the row is not associated with a
+     *         MGI object.
+     * @throws Nothing
+     */
+    private static Integer getMGITypeKey (MGIAssociation assoc, int row)
+    {
+        if (!assoc.hasObject(row))
+            return null;
+        return new Integer(assoc.getMGITypeKey(row));
+    }
+
+    /**
+     * Get the object key of a row of a MGIAssociation object for a
+     * discrepancy report.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param assoc The MGIAssociation object.
+     * @param row The row number.
+     * @return The object key or null if the row is not associated with a
+     *         MGI object.
+     * @throws Nothing
+     */
+    private static Integer getObjectKey (MGIAssociation assoc, int row)
+    {
+        if (!assoc.hasObject(row))
+            return null;
+        return new Integer(assoc.getObjectKey(row));
+    }
 }
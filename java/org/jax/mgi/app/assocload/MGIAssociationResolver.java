@@ -0,0 +1,186 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Vector;
+
+/**
+ * @is An object that knows how to build a MGIAssociation object from the
+ *     accession ID/logical DB pairs of one association record by resolving
+ *     each pair against an AccessionIndex.
+ * @has
+ *   <UL>
+ *   <LI> An AccessionIndex object
+ *   <LI> The accession ID/logical DB pairs for the current record
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides a method to add an accession ID/logical DB pair for the
+ *        current record.
+ *   <LI> Provides a method to load a MGIAssociation object with the same rows
+ *        that the MGIAssociationGenerator query would return for the record.
+ *        The rows are sorted by accession ID in Java String order, not the
+ *        collation of the database, so accession IDs that the database
+ *        sorts differently (such as ones that differ in case or
+ *        punctuation) may be in a different order. The same associations
+ *        and discrepancies are found, but the order of the ACC_Accession
+ *        keys and discrepancy rows within a record may differ.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class MGIAssociationResolver
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The index used to resolve each accession ID/logical DB pair.
+    //
+    private AccessionIndex index = null;
+
+    // The accession ID/logical DB pairs for the current record.
+    //
+    private Vector pairs = null;
+
+    // Comparator that orders the pairs by accession ID, then logical DB,
+    // like the MGIAssociationGenerator query. The accession IDs are compared
+    // in String order, which keeps duplicate pairs together but may not be
+    // the order of the database collation.
+    //
+    private static Comparator PAIR_ORDER = new Comparator()
+    {
+        public int compare (Object o1, Object o2)
+        {
+            Pair p1 = (Pair)o1;
+            Pair p2 = (Pair)o2;
+            int c = p1.accID.compareTo(p2.accID);
+            if (c != 0)
+                return c;
+            if (p1.logicalDBKey != p2.logicalDBKey)
+                return p1.logicalDBKey < p2.logicalDBKey ? -1 : 1;
+            if (p1.target != p2.target)
+                return p1.target ? -1 : 1;
+            return 0;
+        }
+    };
+
+
+    /**
+     * Constructs a MGIAssociationResolver object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pIndex The index used to resolve accession ID/logical DB pairs.
+     * @throws Nothing
+     */
+    public MGIAssociationResolver (AccessionIndex pIndex)
+    {
+        index = pIndex;
+        pairs = new Vector();
+    }
+
+    /**
+     * Clear the accession ID/logical DB pairs for the current record.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void clear ()
+    {
+        pairs.clear();
+    }
+
+    /**
+     * Add an accession ID/logical DB pair to the current record.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The accession ID.
+     * @param logicalDBKey The logical DB key.
+     * @param target Indicates whether the pair is the target.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void add (String accID, int logicalDBKey, boolean target)
+    {
+        pairs.add(new Pair(accID, logicalDBKey, target));
+    }
+
+    /**
+     * Load a MGIAssociation object from the pairs of the current record. Each
+     * pair produces one row for every MGI object it is associated with, or a
+     * single row with no MGI type/object if it is not associated with any.
+     * Duplicate pairs are only added once, as the UNION in the
+     * MGIAssociationGenerator query would do.
+     * @assumes Nothing
+     * @effects Clears and loads the given MGIAssociation object.
+     * @param assoc The MGIAssociation object to load.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void resolve (MGIAssociation assoc)
+    {
+        Pair pair = null;
+        Pair prior = null;
+
+        assoc.clear();
+
+        Collections.sort(pairs, PAIR_ORDER);
+
+        for (int i=0; i<pairs.size(); i++)
+        {
+            pair = (Pair)pairs.get(i);
+
+            // Skip a pair that is the same as the previous one.
+            //
+            if (prior != null && PAIR_ORDER.compare(prior, pair) == 0)
+                continue;
+            prior = pair;
+
+            int entry = index.find(pair.accID, pair.logicalDBKey);
+            if (entry < 0)
+            {
+                assoc.addRow(pair.accID, pair.logicalDBKey, pair.target);
+                continue;
+            }
+
+            for (int v = index.getFirstValue(entry); v >= 0;
+                 v = index.getNextValue(v))
+            {
+                assoc.addRow(pair.accID, pair.logicalDBKey, pair.target,
+                             index.getValueMGITypeKey(v),
+                             index.getValueObjectKey(v));
+            }
+        }
+    }
+
+
+    /**
+     * @is An object that holds one accession ID/logical DB pair.
+     * @has
+     *   <UL>
+     *   <LI> Variables for the accession ID, logical DB key and target flag.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private static class Pair
+    {
+        String accID;
+        int logicalDBKey;
+        boolean target;
+
+        Pair (String pAccID, int pLogicalDBKey, boolean pTarget)
+        {
+            accID = pAccID;
+            logicalDBKey = pLogicalDBKey;
+            target = pTarget;
+        }
+    }
+}
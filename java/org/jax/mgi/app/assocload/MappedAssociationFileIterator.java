@@ -0,0 +1,433 @@
+package org.jax.mgi.app.assocload;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.jax.mgi.shr.exception.MGIException;
+import org.jax.mgi.shr.ioutils.IOUException;
+import org.jax.mgi.shr.ioutils.RecordDataIterator;
+import org.jax.mgi.shr.ioutils.RecordFormatException;
+
+/**
+ * @is An iterator that reads an association input file through a memory
+ *     mapping and returns a DPAssociation object for each input record.
+ * @has
+ *   <UL>
+ *   <LI> A memory-mapped region of the input file.
+ *   <LI> A DPAssociationInterpreter object that defines the fields of each
+ *        input record and builds the DPAssociation object.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Scans each input record byte by byte for the tab and comma
+ *        delimiters, creating a String only for each accession ID that is
+ *        added to the DPAssociation object.
+ *   <LI> Skips comment lines and blank lines.
+ *   <LI> Passes the header record to the interpreter and returns null for
+ *        it, the same as the iterator from an InputDataFile.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class MappedAssociationFileIterator implements RecordDataIterator
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The size of each region of the file that is mapped at one time.
+    //
+    private static final int REGION_SIZE = 1 << 28;
+
+    // Delimiter bytes.
+    //
+    private static final byte CRT = (byte)'\n';
+    private static final byte TAB = (byte)'\t';
+    private static final byte COMMA = (byte)',';
+    private static final byte COMMENT = (byte)'#';
+
+    // The interpreter that builds the DPAssociation objects.
+    //
+    private DPAssociationInterpreter interpreter = null;
+
+    // The input file.
+    //
+    private String fileName = null;
+    private RandomAccessFile file = null;
+    private FileChannel channel = null;
+
+    // The offset in the file where reading stops.
+    //
+    private long fileSize;
+
+    // The mapped region of the file and its offset in the file.
+    //
+    private MappedByteBuffer region = null;
+    private long regionStart = 0;
+
+    // The position of the next input record in the mapped region.
+    //
+    private int pos = 0;
+
+    // The start and end (exclusive, not including the newline) of the
+    // current input record in the mapped region.
+    //
+    private int lineStart;
+    private int lineEnd;
+
+    // Indicates whether the current input record has been found but not
+    // returned yet.
+    //
+    private boolean lineReady = false;
+
+    // An error from reading the input file in hasNext(), to be thrown by
+    // next().
+    //
+    private MGIException error = null;
+
+    // The offsets of the fields of the current input record.
+    //
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+
+    // A buffer used to copy bytes out of the mapped region.
+    //
+    private byte[] scratch = new byte[256];
+
+
+    /**
+     * Constructs a MappedAssociationFileIterator object.
+     * @assumes Nothing
+     * @effects Opens and maps the input file.
+     * @param fileName The name of the input file.
+     * @param pInterpreter The interpreter for the input records.
+     * @throws MGIException If the input file cannot be opened.
+     */
+    public MappedAssociationFileIterator (String fileName,
+                                          DPAssociationInterpreter pInterpreter)
+        throws MGIException
+    {
+        this(fileName, pInterpreter, 0, -1);
+    }
+
+    /**
+     * Constructs a MappedAssociationFileIterator object that only reads the
+     * input records in part of the input file.
+     * @assumes The start and end of the part are at the start of a line
+     *          (or the end of the file).
+     * @effects Opens and maps the input file.
+     * @param pFileName The name of the input file.
+     * @param pInterpreter The interpreter for the input records.
+     * @param start The offset in the file of the first input record.
+     * @param end The offset in the file where reading stops (or -1 for the
+     *            end of the file).
+     * @throws MGIException If the input file cannot be opened.
+     */
+    public MappedAssociationFileIterator (String pFileName,
+                                          DPAssociationInterpreter pInterpreter,
+                                          long start, long end)
+        throws MGIException
+    {
+        fileName = pFileName;
+        interpreter = pInterpreter;
+
+        try
+        {
+            file = new RandomAccessFile(fileName, "r");
+            channel = file.getChannel();
+            fileSize = channel.size();
+            if (end >= 0 && end < fileSize)
+                fileSize = end;
+            map(start, REGION_SIZE);
+        }
+        catch (IOException e)
+        {
+            throw new MGIException("Cannot map input file " + fileName +
+                                   ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks to see if there is another input record to be returned.
+     * @assumes Nothing
+     * @effects Skips any comment lines and blank lines.
+     * @param None
+     * @return True if there is another input record (or an error to be
+     *         thrown by next()), otherwise false.
+     * @throws Nothing
+     */
+    public boolean hasNext ()
+    {
+        if (error != null)
+            return true;
+
+        // An error reading the input file must not look like the end of the
+        // file, so keep it for next() to throw.
+        //
+        try
+        {
+            return findLine();
+        }
+        catch (IOException e)
+        {
+            error = new IOUException("Cannot read input file " + fileName +
+                                     ": " + e.getMessage(), false);
+            return true;
+        }
+    }
+
+    /**
+     * Gets the next input record as a DPAssociation object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The DPAssociation object, or null for the header record.
+     * @throws MGIException If the input record is invalid or the file cannot
+     *         be read.
+     */
+    public Object next ()
+        throws MGIException
+    {
+        if (!hasNext())
+            return null;
+
+        if (error != null)
+            throw error;
+        lineReady = false;
+
+        // The first record is the header. Let the interpreter handle it.
+        //
+        if (interpreter.getFieldCount() == 0)
+            return interpreter.interpret(slice(lineStart, lineEnd));
+
+        int fieldCount = interpreter.getFieldCount();
+        if (fieldStart.length < fieldCount)
+        {
+            fieldStart = new int[fieldCount];
+            fieldEnd = new int[fieldCount];
+        }
+
+        // Split the input record into tab-delimited fields. The last field
+        // gets the rest of the record, as String.split() does with a limit.
+        //
+        int n = 0;
+        int start = lineStart;
+        for (int i=lineStart; i<lineEnd && n < fieldCount - 1; i++)
+        {
+            if (region.get(i) == TAB)
+            {
+                fieldStart[n] = start;
+                fieldEnd[n] = i;
+                n++;
+                start = i + 1;
+            }
+        }
+        fieldStart[n] = start;
+        fieldEnd[n] = lineEnd;
+        n++;
+
+        // Throw an exception if the input record does not have the required
+        // number of fields.
+        //
+        if (n != fieldCount)
+        {
+            RecordFormatException e = new RecordFormatException();
+            e.bindRecord(slice(lineStart, lineEnd));
+            throw e;
+        }
+
+        DPAssociation assoc = interpreter.newRecord();
+
+        for (int f=0; f<fieldCount; f++)
+        {
+            // If the field is empty, skip to the next one.
+            //
+            if (fieldStart[f] == fieldEnd[f])
+                continue;
+
+            addAccIDs(fieldStart[f], fieldEnd[f], f);
+        }
+
+        return assoc;
+    }
+
+    /**
+     * Get the offset in the file of the next line that has not been read.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The offset.
+     * @throws Nothing
+     */
+    public long getPosition ()
+    {
+        if (lineReady)
+            return regionStart + lineStart;
+        return regionStart + pos;
+    }
+
+    /**
+     * Unmap and close the input file.
+     * @assumes Nothing
+     * @effects Closes the input file.
+     * @param None
+     * @return Nothing
+     * @throws IOUException If the input file cannot be closed.
+     */
+    public void close ()
+        throws IOUException
+    {
+        region = null;
+        try
+        {
+            channel.close();
+            file.close();
+        }
+        catch (IOException e)
+        {
+            throw new IOUException("Cannot close input file " + fileName +
+                                   ": " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * Add each comma-separated accession ID in a field to the DPAssociation
+     * object. Like String.split(), empty accession IDs at the end of the
+     * field are dropped. Each accession ID is trimmed like String.trim().
+     * @assumes Nothing
+     * @effects Nothing
+     * @param start The start of the field.
+     * @param end The end of the field (exclusive).
+     * @param field The field number.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private void addAccIDs (int start, int end, int field)
+    {
+        // Find the end of the last non-empty accession ID.
+        //
+        int last = end;
+        while (last > start && region.get(last - 1) == COMMA)
+            last--;
+        if (last == start)
+            return;
+
+        int idStart = start;
+        for (int i=start; i<=last; i++)
+        {
+            if (i < last && region.get(i) != COMMA)
+                continue;
+
+            // Trim the accession ID.
+            //
+            int s = idStart;
+            int e = i;
+            while (s < e && (region.get(s) & 0xFF) <= ' ')
+                s++;
+            while (e > s && (region.get(e - 1) & 0xFF) <= ' ')
+                e--;
+
+            interpreter.addAccID(slice(s, e), field);
+            idStart = i + 1;
+        }
+    }
+
+    /**
+     * Create a String from bytes in the mapped region.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param start The start of the bytes.
+     * @param end The end of the bytes (exclusive).
+     * @return The String.
+     * @throws Nothing
+     */
+    private String slice (int start, int end)
+    {
+        int length = end - start;
+        if (scratch.length < length)
+            scratch = new byte[length * 2];
+
+        for (int i=0; i<length; i++)
+            scratch[i] = region.get(start + i);
+
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Find the next input record that is not a comment or blank line.
+     * @assumes Nothing
+     * @effects Sets the bounds of the current input record.
+     * @param None
+     * @return True if an input record was found, otherwise false.
+     * @throws IOException If the input file cannot be mapped.
+     */
+    private boolean findLine ()
+        throws IOException
+    {
+        while (!lineReady)
+        {
+            if (regionStart + pos >= fileSize)
+                return false;
+
+            // Find the end of the line, remapping the file from the start of
+            // the line if it runs past the end of the mapped region.
+            //
+            int i = pos;
+            while (true)
+            {
+                if (i == region.limit())
+                {
+                    if (regionStart + i >= fileSize)
+                        break;
+                    int size = region.limit() - pos;
+                    map(regionStart + pos,
+                        size < REGION_SIZE / 2 ? REGION_SIZE : size * 2);
+                    i -= pos;
+                    pos = 0;
+                    continue;
+                }
+                if (region.get(i) == CRT)
+                    break;
+                i++;
+            }
+
+            lineStart = pos;
+            lineEnd = i;
+            pos = i + 1;
+
+            // Skip blank lines and comments.
+            //
+            if (lineEnd == lineStart || region.get(lineStart) == COMMENT)
+                continue;
+
+            lineReady = true;
+        }
+        return true;
+    }
+
+    /**
+     * Map a region of the input file.
+     * @assumes Nothing
+     * @effects Replaces the mapped region.
+     * @param start The offset of the region in the file.
+     * @param size The size of the region.
+     * @return Nothing
+     * @throws IOException If the region cannot be mapped.
+     */
+    private void map (long start, long size)
+        throws IOException
+    {
+        if (size > Integer.MAX_VALUE)
+            size = Integer.MAX_VALUE;
+        if (start + size > fileSize)
+            size = fileSize - start;
+
+        region = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        regionStart = start;
+    }
+}
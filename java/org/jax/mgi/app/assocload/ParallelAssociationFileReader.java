@@ -0,0 +1,365 @@
+package org.jax.mgi.app.assocload;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedList;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.jax.mgi.shr.exception.MGIException;
+import org.jax.mgi.shr.ioutils.RecordDataIterator;
+
+/**
+ * @is An iterator that parses an association input file on several threads
+ *     and returns a DPAssociation object for each input record, in the same
+ *     order and with the same record keys as a serial read of the file.
+ * @has
+ *   <UL>
+ *   <LI> A DPAssociationInterpreter object that has interpreted the header
+ *        record of the input file.
+ *   <LI> A pool of threads that parse chunks of the input file.
+ *   <LI> A queue of chunks that are being parsed, in file order.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Interprets the header record, then splits the rest of the input
+ *        file into chunks that end on a line boundary.
+ *   <LI> Parses each chunk on a worker thread with its own interpreter that
+ *        shares the logical DBs from the header record.
+ *   <LI> Returns the DPAssociation objects chunk by chunk, offsetting the
+ *        record keys from each chunk by the number of records in the chunks
+ *        before it.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class ParallelAssociationFileReader implements RecordDataIterator
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The approximate size of each chunk of the input file.
+    //
+    private static final long CHUNK_SIZE = 1 << 24;
+
+    // The number of chunks that can be queued for each thread.
+    //
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    // The name of the input file.
+    //
+    private String fileName = null;
+
+    // The interpreter that interpreted the header record.
+    //
+    private DPAssociationInterpreter interpreter = null;
+
+    // The input file (used to find the line boundaries).
+    //
+    private RandomAccessFile file = null;
+    private long fileSize;
+
+    // The offset in the file of the next chunk to be queued.
+    //
+    private long nextChunk;
+
+    // The worker threads and the chunks that have been queued.
+    //
+    private ExecutorService executor = null;
+    private LinkedList chunks = null;
+    private int maxChunks;
+
+    // The DPAssociation objects from the current chunk and the index of the
+    // next one to return.
+    //
+    private Vector records = null;
+    private int recordIndex = 0;
+
+    // The number of records in all the chunks before the current chunk.
+    //
+    private int recordOffset = 0;
+
+    // An exception thrown while getting a chunk. It is thrown by next().
+    //
+    private MGIException error = null;
+
+
+    /**
+     * Constructs a ParallelAssociationFileReader object.
+     * @assumes Nothing
+     * @effects Interprets the header record and starts parsing the input
+     *          file.
+     * @param pFileName The name of the input file.
+     * @param pInterpreter The interpreter for the header record.
+     * @param threads The number of threads used to parse the input file.
+     * @throws MGIException If the input file cannot be read or the header
+     *         record is invalid.
+     */
+    public ParallelAssociationFileReader (String pFileName,
+                                          DPAssociationInterpreter pInterpreter,
+                                          int threads)
+        throws MGIException
+    {
+        fileName = pFileName;
+        interpreter = pInterpreter;
+        chunks = new LinkedList();
+        maxChunks = threads * CHUNKS_PER_THREAD;
+
+        // Interpret the header record and find where the first chunk starts.
+        //
+        MappedAssociationFileIterator header =
+            new MappedAssociationFileIterator(fileName, interpreter);
+        while (interpreter.getFieldCount() == 0 && header.hasNext())
+            header.next();
+        nextChunk = header.getPosition();
+        header.close();
+
+        try
+        {
+            file = new RandomAccessFile(fileName, "r");
+            fileSize = file.length();
+        }
+        catch (IOException e)
+        {
+            throw new MGIException("Cannot open input file " + fileName +
+                                   ": " + e.getMessage());
+        }
+
+        // Create the worker threads. They are daemon threads, so they do not
+        // keep the load running if it fails.
+        //
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            public Thread newThread (Runnable r)
+            {
+                Thread t = new Thread(r, "assocload-parser");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        // Queue the first chunks.
+        //
+        if (interpreter.getFieldCount() > 0)
+        {
+            while (chunks.size() < maxChunks && nextChunk < fileSize)
+                queueChunk();
+        }
+    }
+
+    /**
+     * Checks to see if there is another input record to be returned.
+     * @assumes Nothing
+     * @effects Waits for the next chunk to be parsed if needed.
+     * @param None
+     * @return True if there is another input record (or an error to be
+     *         thrown by next()), otherwise false.
+     * @throws Nothing
+     */
+    public boolean hasNext ()
+    {
+        if (error != null)
+            return true;
+
+        try
+        {
+            while (records == null || recordIndex == records.size())
+            {
+                if (chunks.isEmpty())
+                {
+                    close();
+                    return false;
+                }
+                nextChunk();
+            }
+        }
+        catch (MGIException e)
+        {
+            error = e;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the next input record as a DPAssociation object.
+     * @assumes Nothing
+     * @effects Sets the record key of the DPAssociation object.
+     * @param None
+     * @return The DPAssociation object, or null if there are no more.
+     * @throws MGIException If an input record is invalid or the file cannot
+     *         be read.
+     */
+    public Object next ()
+        throws MGIException
+    {
+        if (!hasNext())
+            return null;
+
+        if (error != null)
+        {
+            MGIException e = error;
+            close();
+            throw e;
+        }
+
+        DPAssociation assoc = (DPAssociation)records.get(recordIndex);
+        records.set(recordIndex, null);
+        recordIndex++;
+
+        // The record keys from a chunk start at 1, so offset them by the
+        // number of records in the chunks before it.
+        //
+        assoc.setRecordKey(recordOffset + assoc.getRecordKey());
+        return assoc;
+    }
+
+    /**
+     * Stop the worker threads and close the input file.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void close ()
+    {
+        executor.shutdownNow();
+        chunks.clear();
+        try
+        {
+            file.close();
+        }
+        catch (IOException e)
+        {
+        }
+    }
+
+    /**
+     * Wait for the first queued chunk to be parsed and make it the current
+     * chunk, then queue another chunk.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the chunk could not be parsed.
+     */
+    private void nextChunk ()
+        throws MGIException
+    {
+        Future future = (Future)chunks.removeFirst();
+
+        if (records != null)
+            recordOffset += records.size();
+
+        try
+        {
+            records = (Vector)future.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new MGIException("Interrupted while parsing input file");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof MGIException)
+                throw (MGIException)e.getCause();
+            throw new MGIException("Cannot parse input file: " +
+                                   e.getCause().toString());
+        }
+        recordIndex = 0;
+
+        if (nextChunk < fileSize)
+            queueChunk();
+    }
+
+    /**
+     * Queue the next chunk of the input file to be parsed. The chunk ends at
+     * the first line boundary at or after CHUNK_SIZE bytes.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the input file cannot be read.
+     */
+    private void queueChunk ()
+        throws MGIException
+    {
+        final long start = nextChunk;
+        final long end = findLineEnd(start + CHUNK_SIZE - 1);
+        nextChunk = end;
+
+        chunks.add(executor.submit(new Callable()
+        {
+            public Object call ()
+                throws MGIException
+            {
+                Vector chunk = new Vector();
+
+                // Each chunk gets its own interpreter that shares the
+                // logical DBs from the header record.
+                //
+                DPAssociationInterpreter chunkInterpreter =
+                    new DPAssociationInterpreter(interpreter);
+                MappedAssociationFileIterator it =
+                    new MappedAssociationFileIterator(fileName,
+                                                      chunkInterpreter,
+                                                      start, end);
+                try
+                {
+                    while (it.hasNext())
+                        chunk.add(it.next());
+                }
+                finally
+                {
+                    it.close();
+                }
+                return chunk;
+            }
+        }));
+    }
+
+    /**
+     * Find the offset of the start of the line that follows the line
+     * containing the given offset.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param offset The offset in the input file.
+     * @return The offset of the start of the next line, or the size of the
+     *         input file if there is no next line.
+     * @throws MGIException If the input file cannot be read.
+     */
+    private long findLineEnd (long offset)
+        throws MGIException
+    {
+        byte[] buf = new byte[8192];
+
+        try
+        {
+            while (offset < fileSize)
+            {
+                file.seek(offset);
+                int n = file.read(buf);
+                for (int i=0; i<n; i++)
+                {
+                    if (buf[i] == '\n')
+                        return offset + i + 1;
+                }
+                offset += n;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new MGIException("Cannot read input file " + fileName +
+                                   ": " + e.getMessage());
+        }
+        return fileSize;
+    }
+}
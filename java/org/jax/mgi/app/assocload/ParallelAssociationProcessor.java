@@ -0,0 +1,206 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.LinkedList;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An object that processes MGIAssociation objects on several threads and
+ *     writes their output in the same order as a serial run.
+ * @has
+ *   <UL>
+ *   <LI> A MGIAssociationProcessor that owns the streams.
+ *   <LI> A pool of threads, each with its own MGIAssociationProcessor and
+ *        counters.
+ *   <LI> A queue of MGIAssociation objects that are being processed, in the
+ *        order they were received.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Decides the output for each MGIAssociation object on a worker
+ *        thread.
+ *   <LI> Applies the output for each MGIAssociation object to the streams on
+ *        the calling thread, in the order they were received, so the bcp
+ *        records (and their keys) are the same as a serial run.
+ *   <LI> Adds the counters from the worker processors to the counters of the
+ *        processor that owns the streams when processing is finished.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class ParallelAssociationProcessor
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The number of MGIAssociation objects that can be queued for each
+    // thread.
+    //
+    private static final int QUEUE_PER_THREAD = 64;
+
+    // The processor that owns the streams.
+    //
+    private MGIAssociationProcessor master = null;
+
+    // The worker threads and the MGIAssociation objects that have been
+    // queued.
+    //
+    private ExecutorService executor = null;
+    private LinkedList queue = null;
+    private int maxQueue;
+
+    // The processor for each worker thread and a list of all of them.
+    //
+    private ThreadLocal workerProcessor = null;
+    private Vector workers = null;
+
+
+    /**
+     * Constructs a ParallelAssociationProcessor object.
+     * @assumes Nothing
+     * @effects Starts the worker threads.
+     * @param pMaster The processor that owns the streams.
+     * @param threads The number of worker threads.
+     * @throws Nothing
+     */
+    public ParallelAssociationProcessor (MGIAssociationProcessor pMaster,
+                                         int threads)
+    {
+        master = pMaster;
+        queue = new LinkedList();
+        maxQueue = threads * QUEUE_PER_THREAD;
+        workers = new Vector();
+
+        // Each worker thread gets its own processor that shares the
+        // configuration of the master processor.
+        //
+        workerProcessor = new ThreadLocal()
+        {
+            protected Object initialValue ()
+            {
+                MGIAssociationProcessor p = new MGIAssociationProcessor(master);
+                workers.add(p);
+                return p;
+            }
+        };
+
+        // Create the worker threads. They are daemon threads, so they do not
+        // keep the load running if it fails.
+        //
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            public Thread newThread (Runnable r)
+            {
+                Thread t = new Thread(r, "assocload-processor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Queue a MGIAssociation object to be processed. The output of any
+     * MGIAssociation objects that have finished processing is applied, in
+     * order, if the queue is full.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param assoc The MGIAssociation object to process. It is copied, so it
+     *              can be re-used by the caller.
+     * @return Nothing
+     * @throws MGIException If there is a problem processing a MGIAssociation
+     *         object.
+     */
+    public void process (MGIAssociation assoc)
+        throws MGIException
+    {
+        final MGIAssociation copy = assoc.copy();
+
+        queue.add(executor.submit(new Callable()
+        {
+            public Object call ()
+                throws MGIException
+            {
+                MGIAssociationOutput out = new MGIAssociationOutput();
+                ((MGIAssociationProcessor)workerProcessor.get()).decide(copy, out);
+                return out;
+            }
+        }));
+
+        while (queue.size() >= maxQueue)
+            applyNext();
+    }
+
+    /**
+     * Apply the output of all the queued MGIAssociation objects, stop the
+     * worker threads and add their counters to the master processor.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If there is a problem processing a MGIAssociation
+     *         object.
+     */
+    public void finish ()
+        throws MGIException
+    {
+        try
+        {
+            while (!queue.isEmpty())
+                applyNext();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        for (int i=0; i<workers.size(); i++)
+            master.addCounts((MGIAssociationProcessor)workers.get(i));
+        workers.clear();
+    }
+
+    /**
+     * Wait for the first queued MGIAssociation object to be processed and
+     * apply its output.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If there is a problem processing the
+     *         MGIAssociation object.
+     */
+    private void applyNext ()
+        throws MGIException
+    {
+        Future future = (Future)queue.removeFirst();
+        MGIAssociationOutput out = null;
+
+        try
+        {
+            out = (MGIAssociationOutput)future.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new MGIException("Interrupted while processing associations");
+        }
+        catch (ExecutionException e)
+        {
+            executor.shutdownNow();
+            if (e.getCause() instanceof MGIException)
+                throw (MGIException)e.getCause();
+            throw new MGIException("Cannot process association: " +
+                                   e.getCause().toString());
+        }
+
+        master.apply(out);
+    }
+}
@@ -1,116 +1,127 @@
 package org.jax.mgi.app.assocload;
 
+import java.util.BitSet;
+
 import org.jax.mgi.dbs.SchemaConstants;
-import org.jax.mgi.shr.cache.CacheException;
-import org.jax.mgi.shr.cache.FullCachedLookup;
-import org.jax.mgi.shr.cache.KeyValue;
-import org.jax.mgi.shr.config.ConfigException;
-import org.jax.mgi.shr.dbutils.DBException;
-import org.jax.mgi.shr.dbutils.RowDataInterpreter;
+import org.jax.mgi.shr.dbutils.ResultsNavigator;
 import org.jax.mgi.shr.dbutils.RowReference;
+import org.jax.mgi.shr.dbutils.SQLDataManager;
 import org.jax.mgi.shr.dbutils.SQLDataManagerFactory;
+import org.jax.mgi.shr.exception.MGIException;
 
 /**
  * @is An object that knows how to look up a probe key to determine if it is
  *     already associated with the given reference.
- * @has Nothing
+ * @has
+ *   <UL>
+ *   <LI> A set of the probe keys that are associated with the reference,
+ *        held as a bit set indexed by probe key.
+ *   </UL>
  * @does
  *   <UL>
  *   <LI> Provides a method to look up a given probe key to verify that it
- *        already is associated with the reference.
+ *        already is associated with the reference. The probe keys are not
+ *        loaded from the database until the first lookup, so a load that
+ *        makes no probe associations never queries for them.
+ *   <LI> Provides a method to add a probe key to the set without creating
+ *        any objects.
  *   </UL>
  * @company The Jackson Laboratory
  * @author dbm
  */
 
-public class ProbeRefLookup extends FullCachedLookup
+public class ProbeRefLookup
 {
     // The reference key for the load reference.
     //
     private int refsKey;
 
+    // The probe keys that are associated with the reference, and a flag to
+    // indicate whether they have been loaded from the database.
+    //
+    private BitSet probes = null;
+    private boolean loaded = false;
+
     /**
      * Constructs a ProbeRefLookup object.
      * @assumes Nothing
      * @effects Nothing
      * @param refsKey The reference key to get the probe keys for.
-     * @throws CacheException
-     * @throws ConfigException
-     * @throws DBException
+     * @throws Nothing
      */
     public ProbeRefLookup(int pRefsKey)
-        throws CacheException, ConfigException, DBException
     {
-        super(SQLDataManagerFactory.getShared(SchemaConstants.MGD));
-
         refsKey = pRefsKey;
+        probes = new BitSet();
     }
 
     /**
-     * Looks up a probe key to make sure it exists in the cache.
+     * Looks up a probe key to see if it is associated with the reference.
      * @assumes Nothing
-     * @effects Nothing
+     * @effects Loads the probe keys from the database on the first call.
      * @param probeKey The key for the probe to look up.
-     * @return The same key that was used for the lookup if it was found.
-     *         Otherwise a null is returned.
-     * @throws DBException
-     * @throws CacheException
+     * @return True if the probe is associated with the reference.
+     * @throws MGIException If the probe keys cannot be loaded.
      */
-    public Integer lookup(Integer probeKey)
-        throws DBException, CacheException
+    public boolean lookup(int probeKey)
+        throws MGIException
     {
-            return (Integer)super.lookupNullsOk(probeKey);
+        if (!loaded)
+            load();
+        return probeKey >= 0 && probes.get(probeKey);
     }
 
     /**
-     * Get the query to fully initialize the cache with the keys for all probes
-     * that are associated with the given reference.
+     * Add a new probe key to the set.
      * @assumes Nothing
      * @effects Nothing
-     * @param None
-     * @return The query to fully initialize the cache.
+     * @param probeKey The probe key to add.
+     * @return Nothing
      * @throws Nothing
      */
-    public String getFullInitQuery ()
+    public void addToCache(int probeKey)
     {
-        return new String("SELECT _Probe_key FROM PRB_Reference " +
-                          "WHERE _Refs_key = " + refsKey);
+        probes.set(probeKey);
     }
 
     /**
-     * Add a new probe key to the cache.
+     * Get the query to load the keys for all probes that are associated with
+     * the given reference.
      * @assumes Nothing
      * @effects Nothing
-     * @param probeKey The probe key to add.
-     * @return Nothing
-     * @throws CacheException
-     * @throws DBException
+     * @param None
+     * @return The query.
+     * @throws Nothing
      */
-    protected void addToCache(Integer probeKey)
-    throws CacheException, DBException
+    public String getFullInitQuery ()
     {
-        super.cache.put(probeKey, probeKey);
+        return new String("SELECT _Probe_key FROM PRB_Reference " +
+                          "WHERE _Refs_key = " + refsKey);
     }
 
     /**
-     * Get a RowDataInterpreter for creating a KeyValue object from a database
-     * used for creating a new cache entry.
-     * @assumes nothing
-     * @effects nothing
+     * Load the keys for all probes that are associated with the reference.
+     * Any keys that were already added are kept.
+     * @assumes Nothing
+     * @effects Queries the database.
      * @param None
-     * @return The RowDataInterpreter object.
-     * @throws Nothing
+     * @return Nothing
+     * @throws MGIException If the query fails.
      */
-    public RowDataInterpreter getRowDataInterpreter()
+    private void load()
+        throws MGIException
     {
-        class Interpreter implements RowDataInterpreter
+        SQLDataManager sqlMgr =
+            SQLDataManagerFactory.getShared(SchemaConstants.MGD);
+        ResultsNavigator rn = sqlMgr.executeQuery(getFullInitQuery());
+
+        while (rn.next())
         {
-            public Object interpret (RowReference row)
-                throws DBException
-            {
-                return new KeyValue(row.getInt(1), row.getInt(1));
-            }
+            RowReference row = rn.getRowReference();
+            probes.set(row.getInt(1).intValue());
         }
-        return new Interpreter();
+        rn.close();
+
+        loaded = true;
     }
 }
@@ -0,0 +1,330 @@
+package org.jax.mgi.app.assocload;
+
+import org.jax.mgi.shr.dla.log.DLALogger;
+
+/**
+ * @is A histogram of the time taken to process MGIAssociation objects,
+ *     kept separately for each size of MGIAssociation object.
+ * @has
+ *   <UL>
+ *   <LI> For each size class (1 row, 2-3 rows, 4-7 rows, ...), a count of
+ *        the processing times that fall in each latency bucket. The latency
+ *        buckets are log-linear (16 buckets for each power of 2), so any
+ *        value is recorded within about 6% of its true value, the same way
+ *        as an HDR histogram.
+ *   <LI> The total and maximum time for each size class, and the target
+ *        accession ID of the slowest MGIAssociation object.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides a method to record a processing time.
+ *   <LI> Provides a method to add the values from another histogram, so each
+ *        thread can keep its own histogram without locking.
+ *   <LI> Provides a method to write a summary of the percentiles for each
+ *        size class to the curator log.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class ProcessLatencyHistogram
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The number of size classes. The last one holds every MGIAssociation
+    // object with at least 2^(SIZE_CLASSES-2) rows.
+    //
+    private static final int SIZE_CLASSES = 18;
+
+    // The number of bits used for the sub-buckets within each power of 2
+    // and the total number of latency buckets for a long value.
+    //
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+    // The percentiles written to the summary.
+    //
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0 };
+
+    // The bucket counts for each size class. A size class does not get an
+    // array until a value is recorded for it.
+    //
+    private long[][] counts = new long[SIZE_CLASSES][];
+
+    // The number of values, the total and maximum time (nanoseconds) and
+    // the label of the slowest value for each size class.
+    //
+    private long[] totalCount = new long[SIZE_CLASSES];
+    private long[] totalTime = new long[SIZE_CLASSES];
+    private long[] maxTime = new long[SIZE_CLASSES];
+    private String[] maxLabel = new String[SIZE_CLASSES];
+
+
+    /**
+     * Record the time taken to process a MGIAssociation object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param rows The number of rows in the MGIAssociation object.
+     * @param nanos The processing time in nanoseconds.
+     * @return True if this is the slowest time recorded for its size class,
+     *         so the caller can label it (see setMaxLabel()).
+     * @throws Nothing
+     */
+    public boolean record (int rows, long nanos)
+    {
+        int s = getSizeClass(rows);
+        if (nanos < 0)
+            nanos = 0;
+
+        if (counts[s] == null)
+            counts[s] = new long[BUCKETS];
+        counts[s][getBucket(nanos)]++;
+
+        totalCount[s]++;
+        totalTime[s] += nanos;
+
+        if (nanos > maxTime[s] || totalCount[s] == 1)
+        {
+            maxTime[s] = nanos;
+            maxLabel[s] = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Set the label of the slowest value recorded for a size class.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param rows The number of rows in the MGIAssociation object.
+     * @param label The label (e.g. the target accession ID).
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void setMaxLabel (int rows, String label)
+    {
+        maxLabel[getSizeClass(rows)] = label;
+    }
+
+    /**
+     * Add the values from another histogram to this one.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param other The other histogram.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void add (ProcessLatencyHistogram other)
+    {
+        for (int s=0; s<SIZE_CLASSES; s++)
+        {
+            if (other.counts[s] == null)
+                continue;
+
+            if (counts[s] == null)
+                counts[s] = new long[BUCKETS];
+            for (int b=0; b<BUCKETS; b++)
+                counts[s][b] += other.counts[s][b];
+
+            if (other.maxTime[s] > maxTime[s] || totalCount[s] == 0)
+            {
+                maxTime[s] = other.maxTime[s];
+                maxLabel[s] = other.maxLabel[s];
+            }
+            totalCount[s] += other.totalCount[s];
+            totalTime[s] += other.totalTime[s];
+        }
+    }
+
+    /**
+     * Get the number of values recorded.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of values.
+     * @throws Nothing
+     */
+    public long getCount ()
+    {
+        long n = 0;
+        for (int s=0; s<SIZE_CLASSES; s++)
+            n += totalCount[s];
+        return n;
+    }
+
+    /**
+     * Get the value at a percentile for a size class. The value is the
+     * highest value that falls in the same bucket, but no more than the
+     * maximum value recorded.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param rows The number of rows in the MGIAssociation object.
+     * @param percentile The percentile (0 to 100).
+     * @return The value in nanoseconds, or 0 if no values were recorded.
+     * @throws Nothing
+     */
+    public long getPercentile (int rows, double percentile)
+    {
+        int s = getSizeClass(rows);
+        if (totalCount[s] == 0)
+            return 0;
+
+        long rank = (long)Math.ceil(totalCount[s] * percentile / 100.0);
+        if (rank < 1)
+            rank = 1;
+
+        long n = 0;
+        for (int b=0; b<BUCKETS; b++)
+        {
+            n += counts[s][b];
+            if (n >= rank)
+                return Math.min(getBucketHigh(b), maxTime[s]);
+        }
+        return maxTime[s];
+    }
+
+    /**
+     * Write a summary of the histogram to the curator log: for each size
+     * class that has values, the count, mean, percentiles and maximum
+     * (microseconds) and the slowest MGIAssociation object.
+     * @assumes Nothing
+     * @effects Writes to the curator log.
+     * @param logger The logger.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void log (DLALogger logger)
+    {
+        logger.logcInfo("\nMGIAssociation Processing Time (microseconds)",false);
+        logger.logcInfo("---------------------------------------------",false);
+        logger.logcInfo(pad("Rows",12) + pad("Count",10) + pad("Mean",10) +
+                        pad("p50",10) + pad("p90",10) + pad("p99",10) +
+                        pad("Max",10) + "  Slowest",false);
+
+        for (int s=0; s<SIZE_CLASSES; s++)
+        {
+            if (totalCount[s] == 0)
+                continue;
+
+            int rows = getSizeClassLow(s);
+            StringBuffer line = new StringBuffer();
+            line.append(pad(getSizeClassLabel(s),12));
+            line.append(pad(String.valueOf(totalCount[s]),10));
+            line.append(pad(String.valueOf(totalTime[s] / totalCount[s] / 1000),10));
+            for (int p=0; p<PERCENTILES.length; p++)
+                line.append(pad(String.valueOf(getPercentile(rows, PERCENTILES[p]) / 1000),10));
+            line.append(pad(String.valueOf(maxTime[s] / 1000),10));
+            if (maxLabel[s] != null)
+                line.append("  " + maxLabel[s]);
+            logger.logcInfo(line.toString(),false);
+        }
+    }
+
+    /**
+     * Get the size class for a number of rows.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param rows The number of rows.
+     * @return The size class.
+     * @throws Nothing
+     */
+    private static int getSizeClass (int rows)
+    {
+        if (rows < 1)
+            return 0;
+        return Math.min(32 - Integer.numberOfLeadingZeros(rows),
+                        SIZE_CLASSES - 1);
+    }
+
+    /**
+     * Get the smallest number of rows in a size class.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param s The size class.
+     * @return The number of rows.
+     * @throws Nothing
+     */
+    private static int getSizeClassLow (int s)
+    {
+        return s == 0 ? 0 : 1 << (s - 1);
+    }
+
+    /**
+     * Get the label for a size class (e.g. "4-7").
+     * @assumes Nothing
+     * @effects Nothing
+     * @param s The size class.
+     * @return The label.
+     * @throws Nothing
+     */
+    private static String getSizeClassLabel (int s)
+    {
+        int low = getSizeClassLow(s);
+        if (s == SIZE_CLASSES - 1)
+            return low + "+";
+        int high = s == 0 ? 0 : (1 << s) - 1;
+        if (low == high)
+            return String.valueOf(low);
+        return low + "-" + high;
+    }
+
+    /**
+     * Get the latency bucket for a value. Values below SUB_COUNT have a
+     * bucket each. Larger values are bucketed by their highest bit and the
+     * SUB_BITS bits below it.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param value The value (not negative).
+     * @return The bucket.
+     * @throws Nothing
+     */
+    private static int getBucket (long value)
+    {
+        if (value < SUB_COUNT)
+            return (int)value;
+
+        int e = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int)((value >>> (e - SUB_BITS)) & (SUB_COUNT - 1));
+        return SUB_COUNT + (e - SUB_BITS) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Get the highest value that falls in a latency bucket.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param b The bucket.
+     * @return The value.
+     * @throws Nothing
+     */
+    private static long getBucketHigh (int b)
+    {
+        if (b < SUB_COUNT)
+            return b;
+
+        int shift = (b - SUB_COUNT) / SUB_COUNT;
+        long sub = (b - SUB_COUNT) % SUB_COUNT;
+        long low = (SUB_COUNT + sub) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    /**
+     * Pad a string on the left to a given width.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param s The string.
+     * @param width The width.
+     * @return The padded string.
+     * @throws Nothing
+     */
+    private static String pad (String s, int width)
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int i=s.length(); i<width; i++)
+            sb.append(' ');
+        return sb.append(s).toString();
+    }
+}
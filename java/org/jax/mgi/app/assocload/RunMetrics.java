@@ -0,0 +1,465 @@
+package org.jax.mgi.app.assocload;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.Vector;
+
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An object that records the wall time, CPU time, row count and peak
+ *     heap usage for each phase of a load and writes them to a JSON file and
+ *     an OpenMetrics text file.
+ * @has
+ *   <UL>
+ *   <LI> A list of the phases that have been started, in the order they
+ *        were started.
+ *   <LI> A thread that samples the heap usage while any phase is running.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides a method to start a phase and a method on the phase to
+ *        end it with its row count. Phases can overlap and can be ended on
+ *        any thread.
+ *   <LI> Provides a method to write the report files.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class RunMetrics
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // How often the heap usage is sampled (milliseconds).
+    //
+    private static final long SAMPLE_INTERVAL = 50;
+
+    // The job stream name used to label the metrics.
+    //
+    private String jobStreamName = null;
+
+    // The time the load started.
+    //
+    private long startTime;
+
+    // The phases in the order they were started, and the number that are
+    // still running.
+    //
+    private Vector phases = new Vector();
+    private int running = 0;
+
+    // The beans used to get the heap usage and the CPU time of the process.
+    //
+    private MemoryMXBean memoryBean = null;
+    private OperatingSystemMXBean osBean = null;
+
+
+    /**
+     * Constructs a RunMetrics object and starts the heap sampling thread.
+     * @assumes Nothing
+     * @effects Starts a daemon thread.
+     * @param pJobStreamName The job stream name used to label the metrics.
+     * @throws Nothing
+     */
+    public RunMetrics (String pJobStreamName)
+    {
+        jobStreamName = pJobStreamName;
+        startTime = System.currentTimeMillis();
+        memoryBean = ManagementFactory.getMemoryMXBean();
+        osBean = ManagementFactory.getOperatingSystemMXBean();
+
+        Thread sampler = new Thread(new Runnable()
+        {
+            public void run ()
+            {
+                while (true)
+                {
+                    sample();
+                    try
+                    {
+                        Thread.sleep(SAMPLE_INTERVAL);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+            }
+        }, "assocload-metrics");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Start a phase.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param name The name of the phase.
+     * @return The phase, which must be ended when it is done.
+     * @throws Nothing
+     */
+    public synchronized Phase startPhase (String name)
+    {
+        Phase p = new Phase(name);
+        phases.add(p);
+        running++;
+        return p;
+    }
+
+    /**
+     * Write the phases to a JSON file and an OpenMetrics text file. Each file
+     * is written to a temporary file first and then renamed, so a collector
+     * never reads a partial file.
+     * @assumes Nothing
+     * @effects Creates or replaces the files.
+     * @param jsonFile The name of the JSON file.
+     * @param promFile The name of the OpenMetrics text file.
+     * @return Nothing
+     * @throws MGIException If a file cannot be written.
+     */
+    public synchronized void write (String jsonFile, String promFile)
+        throws MGIException
+    {
+        writeFile(jsonFile, toJSON());
+        writeFile(promFile, toOpenMetrics());
+    }
+
+    /**
+     * Log a one-line summary of each phase.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param logger The logger to write messages to.
+     * @return Nothing
+     * @throws Nothing
+     */
+    public synchronized void log (DLALogger logger)
+    {
+        for (int i=0; i<phases.size(); i++)
+        {
+            Phase p = (Phase)phases.get(i);
+            logger.logdInfo("Phase " + p.name + ": " + p.getWallMillis() +
+                            " ms wall, " + p.getCPUMillis() + " ms CPU, " +
+                            p.rows + " rows, " + p.getRowsPerSecond() +
+                            " rows/sec, " + p.peakHeap + " bytes peak heap",
+                            false);
+        }
+    }
+
+    /**
+     * Build the JSON report.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The JSON text.
+     * @throws Nothing
+     */
+    private String toJSON ()
+    {
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        StringBuffer buf = new StringBuffer();
+        buf.append("{\n");
+        buf.append("  \"jobStream\": " + quote(jobStreamName) + ",\n");
+        buf.append("  \"start\": " + quote(fmt.format(new Date(startTime))) + ",\n");
+        buf.append("  \"wallMillis\": " +
+                   (System.currentTimeMillis() - startTime) + ",\n");
+        buf.append("  \"phases\": [");
+        for (int i=0; i<phases.size(); i++)
+        {
+            Phase p = (Phase)phases.get(i);
+            buf.append(i == 0 ? "\n" : ",\n");
+            buf.append("    {\"name\": " + quote(p.name) +
+                       ", \"wallMillis\": " + p.getWallMillis() +
+                       ", \"cpuMillis\": " + p.getCPUMillis() +
+                       ", \"rows\": " + p.rows +
+                       ", \"rowsPerSec\": " + p.getRowsPerSecond() +
+                       ", \"peakHeapBytes\": " + p.peakHeap +
+                       ", \"completed\": " + p.ended + "}");
+        }
+        buf.append("\n  ]\n}\n");
+        return buf.toString();
+    }
+
+    /**
+     * Build the OpenMetrics text report.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The OpenMetrics text.
+     * @throws Nothing
+     */
+    private String toOpenMetrics ()
+    {
+        String[][] metrics = {
+            {"assocload_phase_wall_seconds", "Wall time of a load phase"},
+            {"assocload_phase_cpu_seconds", "CPU time of the process during a load phase"},
+            {"assocload_phase_rows", "Rows processed by a load phase"},
+            {"assocload_phase_rows_per_second", "Rows per second for a load phase"},
+            {"assocload_phase_peak_heap_bytes", "Peak heap used during a load phase"}};
+
+        StringBuffer buf = new StringBuffer();
+        for (int m=0; m<metrics.length; m++)
+        {
+            buf.append("# HELP " + metrics[m][0] + " " + metrics[m][1] + "\n");
+            buf.append("# TYPE " + metrics[m][0] + " gauge\n");
+            for (int i=0; i<phases.size(); i++)
+            {
+                Phase p = (Phase)phases.get(i);
+                String value;
+                if (m == 0)
+                    value = String.valueOf(p.getWallMillis() / 1000.0);
+                else if (m == 1)
+                    value = String.valueOf(p.getCPUMillis() / 1000.0);
+                else if (m == 2)
+                    value = String.valueOf(p.rows);
+                else if (m == 3)
+                    value = String.valueOf(p.getRowsPerSecond());
+                else
+                    value = String.valueOf(p.peakHeap);
+
+                buf.append(metrics[m][0] + "{jobstream=" + quote(jobStreamName) +
+                           ",phase=" + quote(p.name) + "} " + value + "\n");
+            }
+        }
+
+        buf.append("# HELP assocload_run_start_seconds Start time of the load\n");
+        buf.append("# TYPE assocload_run_start_seconds gauge\n");
+        buf.append("assocload_run_start_seconds{jobstream=" +
+                   quote(jobStreamName) + "} " + (startTime / 1000) + "\n");
+        buf.append("# EOF\n");
+        return buf.toString();
+    }
+
+    /**
+     * Sample the heap usage for each running phase.
+     * @assumes Nothing
+     * @effects Updates the peak heap usage of the running phases.
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    private synchronized void sample ()
+    {
+        if (running == 0)
+            return;
+
+        long used = memoryBean.getHeapMemoryUsage().getUsed();
+        for (int i=phases.size()-1; i>=0; i--)
+        {
+            Phase p = (Phase)phases.get(i);
+            if (!p.ended && used > p.peakHeap)
+                p.peakHeap = used;
+        }
+    }
+
+    /**
+     * Get the CPU time used by the process so far.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The CPU time in nanoseconds, or -1 if it is not available.
+     * @throws Nothing
+     */
+    private long getProcessCPUTime ()
+    {
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean)osBean).getProcessCpuTime();
+        return -1;
+    }
+
+    /**
+     * Write text to a file by way of a temporary file.
+     * @assumes Nothing
+     * @effects Creates or replaces the file.
+     * @param fileName The name of the file.
+     * @param text The text.
+     * @return Nothing
+     * @throws MGIException If the file cannot be written.
+     */
+    private static void writeFile (String fileName, String text)
+        throws MGIException
+    {
+        File file = new File(fileName);
+        File tmp = new File(fileName + ".tmp");
+
+        try
+        {
+            FileWriter writer = new FileWriter(tmp);
+            try
+            {
+                writer.write(text);
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new MGIException("Cannot write metrics file: " + fileName +
+                                   " (" + e.getMessage() + ")");
+        }
+
+        if (!tmp.renameTo(file))
+        {
+            file.delete();
+            if (!tmp.renameTo(file))
+                throw new MGIException("Cannot write metrics file: " +
+                                       fileName);
+        }
+    }
+
+    /**
+     * Quote a string for JSON or an OpenMetrics label value.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param s The string (or null).
+     * @return The quoted string.
+     * @throws Nothing
+     */
+    private static String quote (String s)
+    {
+        if (s == null)
+            s = "";
+
+        StringBuffer buf = new StringBuffer("\"");
+        for (int i=0; i<s.length(); i++)
+        {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                buf.append('\\').append(c);
+            else if (c == '\n')
+                buf.append("\\n");
+            else if (c >= ' ')
+                buf.append(c);
+        }
+        buf.append('"');
+        return buf.toString();
+    }
+
+
+    /**
+     * @is One phase of the load.
+     * @has
+     *   <UL>
+     *   <LI> The name of the phase.
+     *   <LI> The start and end wall time and process CPU time.
+     *   <LI> The number of rows and the peak heap usage.
+     *   </UL>
+     * @does
+     *   <UL>
+     *   <LI> Provides a method to end the phase.
+     *   <LI> Provides methods to get the elapsed times and rate.
+     *   </UL>
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    public class Phase
+    {
+        private String name = null;
+        private long startWall;
+        private long endWall;
+        private long startCPU;
+        private long endCPU;
+        private long rows = 0;
+        private long peakHeap = 0;
+        private boolean ended = false;
+
+        /**
+         * Constructs a Phase object.
+         * @assumes Nothing
+         * @effects Nothing
+         * @param pName The name of the phase.
+         * @throws Nothing
+         */
+        private Phase (String pName)
+        {
+            name = pName;
+            startWall = System.nanoTime();
+            startCPU = getProcessCPUTime();
+            peakHeap = memoryBean.getHeapMemoryUsage().getUsed();
+        }
+
+        /**
+         * End the phase.
+         * @assumes Nothing
+         * @effects Nothing
+         * @param pRows The number of rows processed by the phase.
+         * @return Nothing
+         * @throws Nothing
+         */
+        public void end (long pRows)
+        {
+            synchronized (RunMetrics.this)
+            {
+                if (ended)
+                    return;
+
+                sample();
+                endWall = System.nanoTime();
+                endCPU = getProcessCPUTime();
+                rows = pRows;
+                ended = true;
+                running--;
+            }
+        }
+
+        /**
+         * Get the wall time of the phase (so far, if it has not ended).
+         * @assumes Nothing
+         * @effects Nothing
+         * @param None
+         * @return The wall time in milliseconds.
+         * @throws Nothing
+         */
+        public long getWallMillis ()
+        {
+            long end = ended ? endWall : System.nanoTime();
+            return (end - startWall) / 1000000;
+        }
+
+        /**
+         * Get the CPU time used by the process during the phase.
+         * @assumes Nothing
+         * @effects Nothing
+         * @param None
+         * @return The CPU time in milliseconds, or -1 if it is not available.
+         * @throws Nothing
+         */
+        public long getCPUMillis ()
+        {
+            if (startCPU < 0)
+                return -1;
+            long end = ended ? endCPU : getProcessCPUTime();
+            return (end - startCPU) / 1000000;
+        }
+
+        /**
+         * Get the number of rows per second for the phase.
+         * @assumes Nothing
+         * @effects Nothing
+         * @param None
+         * @return The rows per second.
+         * @throws Nothing
+         */
+        public long getRowsPerSecond ()
+        {
+            return rows * 1000 / Math.max(getWallMillis(), 1);
+        }
+    }
+}
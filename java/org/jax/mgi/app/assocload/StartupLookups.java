@@ -0,0 +1,531 @@
+package org.jax.mgi.app.assocload;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import org.jax.mgi.dbs.SchemaConstants;
+import org.jax.mgi.shr.config.AssociationLoaderCfg;
+import org.jax.mgi.shr.config.DatabaseCfg;
+import org.jax.mgi.shr.config.RADARCfg;
+import org.jax.mgi.shr.dbutils.ResultsNavigator;
+import org.jax.mgi.shr.dbutils.RowReference;
+import org.jax.mgi.shr.dbutils.SQLDataManager;
+import org.jax.mgi.shr.dla.log.DLALogger;
+import org.jax.mgi.shr.exception.MGIException;
+
+/**
+ * @is An object that resolves the configuration and database lookups that
+ *     the association loader needs before it can process any associations,
+ *     and shares the results with the components that use them.
+ * @has
+ *   <UL>
+ *   <LI> The target MGI type and its key.
+ *   <LI> The reference key for the load J-Number.
+ *   <LI> The keys of the logical DBs that may be associated with single or
+ *        multiple objects.
+ *   <LI> A map of logical DB names to keys for the configured logical DBs
+ *        and the logical DBs in the header record of the input file.
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Resolves all the lookups with one query, on a separate thread
+ *        with its own connection to the MGD database, while the rest of the
+ *        load is being initialized.
+ *   <LI> Provides methods to get the results, which wait for the lookups
+ *        to finish. The results are not changed once they are resolved, so
+ *        they can be shared by any number of threads.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class StartupLookups
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The MGI type and logical DB of J-Number accession IDs.
+    //
+    private static final int JNUM_MGI_TYPE_KEY = 1;
+    private static final int JNUM_LOGICAL_DB_KEY = 1;
+
+    // A logger for logging messages.
+    //
+    private DLALogger logger = null;
+
+    // An object that records the time of each phase (or null).
+    //
+    private RunMetrics metrics = null;
+
+    // The input file whose header record names the logical DBs (or null if
+    // the load does not read an input file).
+    //
+    private String inputFileName = null;
+
+    // The thread that resolves the lookups and any exception it threw.
+    //
+    private Thread thread = null;
+    private MGIException error = null;
+    private boolean resolved = false;
+
+    // The results.
+    //
+    private String targetType = null;
+    private int targetTypeKey;
+    private Integer refsKey = null;
+    private Boolean isPrivateAccID = null;
+    private List singleDB = null;
+    private List multipleDB = null;
+    private Map logicalDBKeys = null;
+
+
+    /**
+     * Constructs a StartupLookups object.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param pLogger The logger to write messages to.
+     * @param pMetrics The object that records the time of each phase (or
+     *                 null).
+     * @param pInputFileName The input file whose header record names the
+     *                       logical DBs (or null).
+     * @throws Nothing
+     */
+    public StartupLookups (DLALogger pLogger, RunMetrics pMetrics,
+                           String pInputFileName)
+    {
+        logger = pLogger;
+        metrics = pMetrics;
+        inputFileName = pInputFileName;
+    }
+
+    /**
+     * Start resolving the lookups on a separate thread. If this is not
+     * called, they are resolved by the first call to waitForLookups().
+     * @assumes Nothing
+     * @effects Starts a thread.
+     * @param None
+     * @return Nothing
+     * @throws Nothing
+     */
+    public synchronized void start ()
+    {
+        if (thread != null || resolved)
+            return;
+
+        thread = new Thread(new Runnable()
+        {
+            public void run ()
+            {
+                try
+                {
+                    resolve();
+                }
+                catch (MGIException e)
+                {
+                    error = e;
+                }
+            }
+        }, "assocload-lookups");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Wait for the lookups to be resolved, resolving them on the calling
+     * thread if they were not started.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return Nothing
+     * @throws MGIException If the lookups could not be resolved.
+     */
+    public synchronized void waitForLookups ()
+        throws MGIException
+    {
+        if (!resolved && thread == null && error == null)
+        {
+            resolve();
+            return;
+        }
+
+        if (thread != null)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                throw new MGIException("Interrupted while resolving lookups");
+            }
+            thread = null;
+        }
+
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Get the target MGI type.
+     * @assumes Nothing
+     * @effects Waits for the lookups to be resolved.
+     * @param None
+     * @return The target MGI type name.
+     * @throws MGIException If the lookups could not be resolved.
+     */
+    public String getTargetType ()
+        throws MGIException
+    {
+        waitForLookups();
+        return targetType;
+    }
+
+    /**
+     * Get the key of the target MGI type.
+     * @assumes Nothing
+     * @effects Waits for the lookups to be resolved.
+     * @param None
+     * @return The target MGI type key.
+     * @throws MGIException If the lookups could not be resolved.
+     */
+    public int getTargetTypeKey ()
+        throws MGIException
+    {
+        waitForLookups();
+        return targetTypeKey;
+    }
+
+    /**
+     * Get the reference key for the load J-Number.
+     * @assumes Nothing
+     * @effects Waits for the lookups to be resolved.
+     * @param None
+     * @return The reference key.
+     * @throws MGIException If the lookups could not be resolved.
+     */
+    public Integer getRefsKey ()
+        throws MGIException
+    {
+        waitForLookups();
+        return refsKey;
+    }
+
+    /**
+     * Get the flag that indicates whether new accession IDs are private.
+     * @assumes Nothing
+     * @effects Waits for the lookups to be resolved.
+     * @param None
+     * @return The flag.
+     * @throws MGIException If the lookups could not be resolved.
+     */
+    public Boolean getPrivateAccID ()
+        throws MGIException
+    {
+        waitForLookups();
+        return isPrivateAccID;
+    }
+
+    /**
+     * Get the keys of the logical DBs that may only be associated with one
+     * object.
+     * @assumes Nothing
+     * @effects Waits for the lookups to be resolved.
+     * @param None
+     * @return An unmodifiable list of Integer keys.
+     * @throws MGIException If the lookups could not be resolved.
+     */
+    public List getSingleDB ()
+        throws MGIException
+    {
+        waitForLookups();
+        return singleDB;
+    }
+
+    /**
+     * Get the keys of the logical DBs that may be associated with multiple
+     * objects.
+     * @assumes Nothing
+     * @effects Waits for the lookups to be resolved.
+     * @param None
+     * @return An unmodifiable list of Integer keys.
+     * @throws MGIException If the lookups could not be resolved.
+     */
+    public List getMultipleDB ()
+        throws MGIException
+    {
+        waitForLookups();
+        return multipleDB;
+    }
+
+    /**
+     * Get the key of a logical DB. A logical DB that was not resolved at
+     * startup (e.g. from a header record that could not be read ahead) is
+     * looked up on its own.
+     * @assumes Nothing
+     * @effects Waits for the lookups to be resolved.
+     * @param name The logical DB name.
+     * @return The logical DB key.
+     * @throws MGIException If the lookups could not be resolved or the
+     *         logical DB does not exist.
+     */
+    public Integer getLogicalDBKey (String name)
+        throws MGIException
+    {
+        waitForLookups();
+
+        Integer key = (Integer)logicalDBKeys.get(name);
+        if (key != null)
+            return key;
+
+        SQLDataManager sqlMgr =
+            new SQLDataManager(new DatabaseCfg(SchemaConstants.MGD));
+        try
+        {
+            ResultsNavigator rn = sqlMgr.executeQuery(
+                "SELECT _LogicalDB_key FROM ACC_LogicalDB " +
+                "WHERE name = " + quote(name));
+            if (rn.next())
+                key = rn.getRowReference().getInt(1);
+            rn.close();
+        }
+        finally
+        {
+            sqlMgr.closeResources();
+        }
+
+        if (key == null)
+            throw new MGIException("Logical DB not found: " + name);
+        return key;
+    }
+
+    /**
+     * Resolve the configuration and the lookups.
+     * @assumes Nothing
+     * @effects Sets the results.
+     * @param None
+     * @return Nothing
+     * @throws MGIException If there is a problem with configuration or the
+     *         lookups.
+     */
+    private void resolve ()
+        throws MGIException
+    {
+        int i;
+
+        RunMetrics.Phase phase = null;
+        if (metrics != null)
+            phase = metrics.startPhase("startupLookups");
+
+        // Get the configuration.
+        //
+        AssociationLoaderCfg assocCfg = new AssociationLoaderCfg();
+        RADARCfg radarCfg = new RADARCfg();
+        String jNumber = radarCfg.getJNumber();
+        targetType = assocCfg.getTargetMGIType();
+        isPrivateAccID = assocCfg.getPrivateAccID();
+
+        String[] singleNames = trim(assocCfg.getSingleDB());
+        String[] multipleNames = trim(assocCfg.getMultipleDB());
+        String[] headerNames = readHeader();
+
+        // Build one query that looks up every logical DB name, the target
+        // MGI type and the J-Number.
+        //
+        Vector names = new Vector();
+        addAll(names, singleNames);
+        addAll(names, multipleNames);
+        addAll(names, headerNames);
+
+        StringBuffer sql = new StringBuffer();
+        sql.append("SELECT 'T', name, _MGIType_key " +
+                   "FROM ACC_MGIType " +
+                   "WHERE name = " + quote(targetType) + " " +
+                   "UNION ALL " +
+                   "SELECT 'J', accID, _Object_key " +
+                   "FROM ACC_Accession " +
+                   "WHERE accID = " + quote(jNumber) + " and " +
+                         "_MGIType_key = " + JNUM_MGI_TYPE_KEY + " and " +
+                         "_LogicalDB_key = " + JNUM_LOGICAL_DB_KEY + " and " +
+                         "preferred = 1");
+        if (names.size() > 0)
+        {
+            sql.append(" UNION ALL " +
+                       "SELECT 'L', name, _LogicalDB_key " +
+                       "FROM ACC_LogicalDB " +
+                       "WHERE name in (");
+            for (i=0; i<names.size(); i++)
+            {
+                if (i > 0)
+                    sql.append(",");
+                sql.append(quote((String)names.get(i)));
+            }
+            sql.append(")");
+        }
+
+        // Run the query on its own connection, since it may run at the same
+        // time as other queries on the shared one.
+        //
+        Integer typeKey = null;
+        Map ldbs = new HashMap();
+
+        SQLDataManager sqlMgr =
+            new SQLDataManager(new DatabaseCfg(SchemaConstants.MGD));
+        try
+        {
+            logger.logdInfo("Execute Query: "+sql,true);
+            ResultsNavigator rn = sqlMgr.executeQuery(sql.toString());
+            while (rn.next())
+            {
+                RowReference row = rn.getRowReference();
+                String kind = row.getString(1);
+                if (kind.equals("T"))
+                    typeKey = row.getInt(3);
+                else if (kind.equals("J"))
+                    refsKey = row.getInt(3);
+                else
+                    ldbs.put(row.getString(2), row.getInt(3));
+            }
+            rn.close();
+        }
+        finally
+        {
+            sqlMgr.closeResources();
+        }
+
+        // Make sure everything that is required was found. The logical DBs
+        // from the header record are checked when the header record is
+        // interpreted.
+        //
+        if (typeKey == null)
+            throw new MGIException("MGI type not found: " + targetType);
+        if (refsKey == null)
+            throw new MGIException("J-Number not found: " + jNumber);
+        targetTypeKey = typeKey.intValue();
+
+        logicalDBKeys = Collections.unmodifiableMap(ldbs);
+        singleDB = Collections.unmodifiableList(getKeys(singleNames));
+        multipleDB = Collections.unmodifiableList(getKeys(multipleNames));
+
+        resolved = true;
+        if (phase != null)
+            phase.end(ldbs.size() + 2);
+    }
+
+    /**
+     * Get the logical DB keys for a list of names from the resolved map.
+     * @assumes The map of logical DB keys has been built.
+     * @effects Nothing
+     * @param names The logical DB names.
+     * @return A list of Integer keys.
+     * @throws MGIException If a logical DB does not exist.
+     */
+    private Vector getKeys (String[] names)
+        throws MGIException
+    {
+        Vector keys = new Vector();
+        for (int i=0; i<names.length; i++)
+        {
+            Integer key = (Integer)logicalDBKeys.get(names[i]);
+            if (key == null)
+                throw new MGIException("Logical DB not found: " + names[i]);
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * Read the logical DB names from the header record of the input file.
+     * The header record is interpreted (and validated) again when the input
+     * file is read, so a file that cannot be read here is not an error.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The logical DB names (empty if there is no input file).
+     * @throws Nothing
+     */
+    private String[] readHeader ()
+    {
+        if (inputFileName == null)
+            return new String[0];
+
+        BufferedReader in = null;
+        try
+        {
+            in = new BufferedReader(new FileReader(inputFileName));
+            String rec = in.readLine();
+            if (rec != null)
+                return rec.split(AssociationLoadConstants.TAB);
+        }
+        catch (IOException e)
+        {
+            logger.logdInfo("Cannot read the header record of " +
+                            inputFileName + ": " + e.getMessage(),false);
+        }
+        finally
+        {
+            try
+            {
+                if (in != null)
+                    in.close();
+            }
+            catch (IOException e)
+            {
+            }
+        }
+        return new String[0];
+    }
+
+    /**
+     * Trim each string in an array.
+     * @assumes Nothing
+     * @effects Changes the array.
+     * @param list The array.
+     * @return The same array.
+     * @throws Nothing
+     */
+    private static String[] trim (String[] list)
+    {
+        for (int i=0; i<list.length; i++)
+            list[i] = list[i].trim();
+        return list;
+    }
+
+    /**
+     * Add each string in an array to a list, unless it is already there.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param list The list.
+     * @param names The strings to add.
+     * @return Nothing
+     * @throws Nothing
+     */
+    private static void addAll (Vector list, String[] names)
+    {
+        for (int i=0; i<names.length; i++)
+        {
+            if (!list.contains(names[i]))
+                list.add(names[i]);
+        }
+    }
+
+    /**
+     * Quote a string as a SQL literal.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param s The string.
+     * @return The SQL literal.
+     * @throws Nothing
+     */
+    private static String quote (String s)
+    {
+        return "'" + s.replaceAll("'","''") + "'";
+    }
+}
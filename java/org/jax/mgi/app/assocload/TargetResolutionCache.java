@@ -0,0 +1,155 @@
+package org.jax.mgi.app.assocload;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @is A cache of how each target accession ID/logical DB pair was resolved
+ *     by the MGIAssociationProcessor, so a target that is on many input
+ *     records is only classified once.
+ * @has
+ *   <UL>
+ *   <LI> A map from each target accession ID/logical DB pair to the MGI type
+ *        and object it is associated with and the target discrepancy
+ *        message (if any).
+ *   </UL>
+ * @does
+ *   <UL>
+ *   <LI> Provides methods to get and add the resolution for a target. They
+ *        may be called by more than one thread at the same time.
+ *   </UL>
+ * @company The Jackson Laboratory
+ * @author dbm
+ * @version 1.0
+ */
+
+public class TargetResolutionCache
+{
+    /////////////////
+    //  Variables  //
+    /////////////////
+
+    // The resolution of each target, keyed by accession ID/logical DB pair.
+    // The MGI objects that a target is associated with do not change while
+    // the associations are being processed, so an entry never needs to be
+    // replaced.
+    //
+    private ConcurrentHashMap resolutions = new ConcurrentHashMap();
+
+
+    /**
+     * Get the resolution of a target accession ID/logical DB pair.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The target accession ID.
+     * @param logicalDBKey The target logical DB key.
+     * @return The resolution, or null if the target has not been resolved.
+     * @throws Nothing
+     */
+    public Resolution get (String accID, int logicalDBKey)
+    {
+        return (Resolution)resolutions.get(new Key(accID, logicalDBKey));
+    }
+
+    /**
+     * Add the resolution of a target accession ID/logical DB pair.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param accID The target accession ID.
+     * @param logicalDBKey The target logical DB key.
+     * @param mgiTypeKey The MGI type key of the target object.
+     * @param objectKey The object key of the target object.
+     * @param msg The target discrepancy message (or null if there is none).
+     * @return Nothing
+     * @throws Nothing
+     */
+    public void put (String accID, int logicalDBKey, int mgiTypeKey,
+                     int objectKey, String msg)
+    {
+        resolutions.putIfAbsent(new Key(accID, logicalDBKey),
+                                new Resolution(mgiTypeKey, objectKey, msg));
+    }
+
+    /**
+     * Get the number of targets in the cache.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The number of targets.
+     * @throws Nothing
+     */
+    public int size ()
+    {
+        return resolutions.size();
+    }
+
+
+    /**
+     * @is The resolution of a target accession ID/logical DB pair.
+     * @has
+     *   <UL>
+     *   <LI> The MGI type and object the target is associated with (the
+     *        last one, if there are more than one).
+     *   <LI> The target discrepancy message, or null if the associations
+     *        for the target can be processed.
+     *   </UL>
+     * @does Nothing
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    public static class Resolution
+    {
+        int mgiTypeKey;
+        int objectKey;
+        String msg;
+
+        Resolution (int pMGITypeKey, int pObjectKey, String pMsg)
+        {
+            mgiTypeKey = pMGITypeKey;
+            objectKey = pObjectKey;
+            msg = pMsg;
+        }
+    }
+
+
+    /**
+     * @is The key of a target in the cache.
+     * @has
+     *   <UL>
+     *   <LI> An accession ID and logical DB key.
+     *   </UL>
+     * @does
+     *   <UL>
+     *   <LI> Provides methods to compare keys.
+     *   </UL>
+     * @company The Jackson Laboratory
+     * @author dbm
+     * @version 1.0
+     */
+
+    private static class Key
+    {
+        String accID;
+        int logicalDBKey;
+
+        Key (String pAccID, int pLogicalDBKey)
+        {
+            accID = pAccID;
+            logicalDBKey = pLogicalDBKey;
+        }
+
+        public boolean equals (Object o)
+        {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key)o;
+            return logicalDBKey == k.logicalDBKey && accID.equals(k.accID);
+        }
+
+        public int hashCode ()
+        {
+            return accID.hashCode() * 31 + logicalDBKey;
+        }
+    }
+}
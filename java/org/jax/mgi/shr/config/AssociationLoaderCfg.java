@@ -119,4 +119,337 @@ public class AssociationLoaderCfg extends Configurator
     {
         return getConfigBoolean("ASSOCLOAD_PRIVATE_ACCID",new Boolean(false));
     }
+
+    /**
+     * Get the value (true/false) that determines whether the associations
+     * should be resolved against an in-memory index of the ACC_Accession
+     * table instead of a database query.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getUseAccIndex ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_USE_ACC_INDEX",new Boolean(false));
+    }
+
+    /**
+     * Get the value (true/false) that determines whether the associations
+     * from the input file are passed directly to the association processor
+     * instead of being read back from the MGI_Association table.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getDirect ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_DIRECT",new Boolean(false));
+    }
+
+    /**
+     * Get the value (true/false) that determines whether the associations
+     * from the input file are still loaded into the MGI_Association table
+     * when they are passed directly to the association processor.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getStageRADAR ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_STAGE_RADAR",new Boolean(true));
+    }
+
+    /**
+     * Get the value (true/false) that determines whether the input file is
+     * read through a memory mapping instead of an InputDataFile.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getMappedInput ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_MAPPED_INPUT",new Boolean(false));
+    }
+
+    /**
+     * Get the name of the input file.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public String getInputFileName ()
+        throws ConfigException
+    {
+        return getConfigString("INFILE_NAME");
+    }
+
+    /**
+     * Get the number of threads used to parse the input file.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Integer getParseThreads ()
+        throws ConfigException
+    {
+        return getConfigInteger("ASSOCLOAD_PARSE_THREADS",new Integer(1));
+    }
+
+    /**
+     * Get the number of threads used to process the associations.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Integer getProcessThreads ()
+        throws ConfigException
+    {
+        return getConfigInteger("ASSOCLOAD_PROCESS_THREADS",new Integer(1));
+    }
+
+    /**
+     * Get the configuration value that indicates whether the associations
+     * from the prior run of the job stream are deleted in the background
+     * while the input file is loaded.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getAsyncDelete ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_ASYNC_DELETE",new Boolean(false));
+    }
+
+    /**
+     * Get the configuration value that indicates whether the discrepancies
+     * are written to the QC tables on a separate thread.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getAsyncQC ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_ASYNC_QC",new Boolean(false));
+    }
+
+    /**
+     * Get the configuration value that indicates whether the rows of the
+     * discrepancy reports are written by the loader instead of being
+     * queried from the QC tables by the Python scripts.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getInProcessReports ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_INPROCESS_RPT",new Boolean(false));
+    }
+
+    /**
+     * Get the configuration value that indicates whether the MGI_Association
+     * records are loaded with a COPY command while the input file is parsed
+     * instead of with a bcp file.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getRadarCopy ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_RADAR_COPY",new Boolean(false));
+    }
+
+    /**
+     * Get the name of the file to copy the MGI_Association records to when
+     * they are loaded with a COPY command.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value (or null if it is not set)
+     * @throws ConfigException if the value is not found
+     */
+    public String getRadarCopyTee ()
+        throws ConfigException
+    {
+        return getConfigStringNull("ASSOCLOAD_RADAR_COPY_TEE");
+    }
+
+    /**
+     * Get the SQL that is run before the MGI_Association records are loaded.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value (or null if it is not set)
+     * @throws ConfigException if the value is not found
+     */
+    public String getRadarPreSQL ()
+        throws ConfigException
+    {
+        return getConfigStringNull("MGI_ASSOCIATION_BCP_PRESQL");
+    }
+
+    /**
+     * Get the directory to write the rows of the discrepancy reports to.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public String getReportDir ()
+        throws ConfigException
+    {
+        return getConfigString("RPTDIR");
+    }
+
+    /**
+     * Get the number of keys to delete in each batch when the associations
+     * from the prior run of the job stream are deleted (0 to delete them
+     * with one statement per table).
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Integer getDeleteBatchSize ()
+        throws ConfigException
+    {
+        return getConfigInteger("ASSOCLOAD_DELETE_BATCH_SIZE",new Integer(0));
+    }
+
+    /**
+     * Get the configuration value that indicates whether the associations
+     * from the prior run of the job stream are synchronized with the
+     * associations made by this run instead of being deleted and reloaded
+     * (only used if ASSOCLOAD_DELETE_RELOAD is true).
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getSync ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_SYNC",new Boolean(false));
+    }
+
+    /**
+     * Get the prefix of the names of the metrics files (the JSON run report
+     * and the OpenMetrics text file).
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value (or null if it is not set)
+     * @throws ConfigException if the value is not found
+     */
+    public String getMetricsPrefix ()
+        throws ConfigException
+    {
+        return getConfigStringNull("ASSOCLOAD_METRICS_PREFIX");
+    }
+
+    /**
+     * Get the name of the curator log.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value (or null if it is not set)
+     * @throws ConfigException if the value is not found
+     */
+    public String getCuratorLog ()
+        throws ConfigException
+    {
+        return getConfigStringNull("LOG_CUR");
+    }
+
+    /**
+     * Get the name of the database sequence used for ACC_Accession keys.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public String getAccKeySequence ()
+        throws ConfigException
+    {
+        return getConfigString("ASSOCLOAD_ACC_KEY_SEQUENCE","acc_accession_seq");
+    }
+
+    /**
+     * Get the number of ACC_Accession keys to reserve at a time.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Integer getAccKeyBlockSize ()
+        throws ConfigException
+    {
+        return getConfigInteger("ASSOCLOAD_ACC_KEY_BLOCK",new Integer(100000));
+    }
+
+    /**
+     * Get the configuration value that indicates whether the ACC_Accession,
+     * ACC_AccessionReference and PRB_Reference records are loaded with COPY
+     * commands while the associations are processed instead of with bcp
+     * files.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Boolean getMGDCopy ()
+        throws ConfigException
+    {
+        return getConfigBoolean("ASSOCLOAD_MGD_COPY",new Boolean(false));
+    }
+
+    /**
+     * Get the number of associations that are committed at a time when the
+     * records are loaded with COPY commands.
+     * @assumes Nothing
+     * @effects Nothing
+     * @param None
+     * @return The configuration value
+     * @throws ConfigException if the value is not found
+     */
+    public Integer getMGDCopyBatchSize ()
+        throws ConfigException
+    {
+        return getConfigInteger("ASSOCLOAD_MGD_COPY_BATCH",new Integer(100000));
+    }
 }